@@ -17,14 +17,17 @@
 package com.google.android.accessibility.braille.service.translate;
 
 import android.content.res.Resources;
+import android.os.SystemClock;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
 import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
@@ -33,16 +36,73 @@ import java.util.zip.ZipInputStream;
 public class TranslateUtils {
   private static final String TAG = "TranslateUtils";
 
+  /** File in the tables directory that describes the extracted archive. */
+  private static final String MANIFEST_FILE_NAME = "tables.manifest";
+
+  private static final String MANIFEST_CHECKSUM_KEY = "checksum";
+  private static final String MANIFEST_FILE_SIZE_KEY_PREFIX = "size.";
+  private static final String TEMP_DIR_SUFFIX = ".tmp";
+  private static final String OLD_DIR_SUFFIX = ".old";
+  private static final int BUFFER_SIZE = 10240;
+
+  /**
+   * Extracts the tables archive {@code rawResId} into {@code output}, unless {@code output} already
+   * holds the files of the same archive.
+   *
+   * <p>A manifest with the checksum of the archive and the size of each extracted file is kept in
+   * {@code output}. The archive is extracted into a temporary directory which then replaces {@code
+   * output}, so {@code output} never holds a partially extracted archive with a valid manifest.
+   *
+   * @return {@code true} if {@code output} holds the tables of the archive
+   */
   public static boolean extractTables(Resources resources, int rawResId, File output) {
-    List<File> extractedFiles = new ArrayList<>();
+    long startTime = SystemClock.uptimeMillis();
+    final long checksum;
+    try {
+      checksum = computeChecksum(resources, rawResId);
+    } catch (IOException e) {
+      LogUtils.e(TAG, "Exception during computeChecksum()", e);
+      return false;
+    }
+
+    if (isExtracted(output, checksum)) {
+      LogUtils.d(
+          TAG, "Tables are up to date, checked in %d ms", SystemClock.uptimeMillis() - startTime);
+      return true;
+    }
+
+    File tempDir = new File(output.getParentFile(), output.getName() + TEMP_DIR_SUFFIX);
+    File oldDir = new File(output.getParentFile(), output.getName() + OLD_DIR_SUFFIX);
+    deleteRecursively(tempDir);
+    deleteRecursively(oldDir);
+
+    Properties manifest = new Properties();
     final InputStream stream = resources.openRawResource(rawResId);
     final ZipInputStream zipStream = new ZipInputStream(new BufferedInputStream(stream));
     try {
-      extractEntries(zipStream, output, extractedFiles);
-      return true;
+      if (!tempDir.mkdirs()) {
+        throw new IOException("Unable to create " + tempDir);
+      }
+      extractEntries(zipStream, tempDir, manifest);
+      manifest.setProperty(MANIFEST_CHECKSUM_KEY, Long.toHexString(checksum));
+      writeManifest(tempDir, manifest);
+
+      // Swap in the new tables, the manifest is only valid once tempDir has been renamed.
+      if (output.exists() && !output.renameTo(oldDir)) {
+        throw new IOException("Unable to move " + output);
+      }
+      if (!tempDir.renameTo(output)) {
+        throw new IOException("Unable to move " + tempDir);
+      }
+      makeReadable(output);
+      deleteRecursively(oldDir);
     } catch (Exception e) {
       LogUtils.e(TAG, "Exception during extractEntries()", e);
-      removeExtractedFiles(extractedFiles);
+      deleteRecursively(tempDir);
+      // Put the previous tables back if the new ones could not be moved in their place.
+      if (!output.exists() && oldDir.exists() && !oldDir.renameTo(output)) {
+        LogUtils.e(TAG, "Unable to restore %s", oldDir);
+      }
       return false;
     } finally {
       try {
@@ -51,17 +111,73 @@ public class TranslateUtils {
         LogUtils.e(TAG, "Exception during zipStream.close()", e);
       }
     }
+
+    LogUtils.d(TAG, "Extracted tables in %d ms", SystemClock.uptimeMillis() - startTime);
+    return true;
+  }
+
+  private static long computeChecksum(Resources resources, int rawResId) throws IOException {
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    final CRC32 crc = new CRC32();
+    try (InputStream stream = resources.openRawResource(rawResId)) {
+      int bytesRead;
+      while ((bytesRead = stream.read(buffer)) != -1) {
+        crc.update(buffer, 0, bytesRead);
+      }
+    }
+    return crc.getValue();
+  }
+
+  /**
+   * Returns whether the manifest in {@code output} matches {@code checksum} and every file it lists
+   * is present with its recorded size.
+   */
+  private static boolean isExtracted(File output, long checksum) {
+    File manifestFile = new File(output, MANIFEST_FILE_NAME);
+    if (!manifestFile.isFile()) {
+      return false;
+    }
+
+    Properties manifest = new Properties();
+    try (InputStream stream = new FileInputStream(manifestFile)) {
+      manifest.load(stream);
+    } catch (IOException e) {
+      LogUtils.w(TAG, "Unable to read tables manifest: %s", e);
+      return false;
+    }
+
+    if (!Long.toHexString(checksum).equals(manifest.getProperty(MANIFEST_CHECKSUM_KEY))) {
+      return false;
+    }
+
+    for (String key : manifest.stringPropertyNames()) {
+      if (!key.startsWith(MANIFEST_FILE_SIZE_KEY_PREFIX)) {
+        continue;
+      }
+      File file = new File(output, key.substring(MANIFEST_FILE_SIZE_KEY_PREFIX.length()));
+      if (!file.isFile() || !String.valueOf(file.length()).equals(manifest.getProperty(key))) {
+        return false;
+      }
+    }
+    return true;
   }
 
-  private static void extractEntries(
-      ZipInputStream zipStream, File output, List<File> extractedFiles) throws IOException {
-    final byte[] buffer = new byte[10240];
+  private static void writeManifest(File output, Properties manifest) throws IOException {
+    File manifestFile = new File(output, MANIFEST_FILE_NAME);
+    try (OutputStream stream = new FileOutputStream(manifestFile)) {
+      manifest.store(stream, /* comments= */ null);
+    }
+  }
+
+  /** Extracts the entries of {@code zipStream}, and records the file sizes in {@code manifest}. */
+  private static void extractEntries(ZipInputStream zipStream, File output, Properties manifest)
+      throws IOException {
+    final byte[] buffer = new byte[BUFFER_SIZE];
     int bytesRead;
     ZipEntry entry;
 
     while ((entry = zipStream.getNextEntry()) != null) {
       final File outputFile = newFile(output, entry);
-      extractedFiles.add(outputFile);
       if (entry.isDirectory()) {
         outputFile.mkdirs();
         makeReadable(outputFile);
@@ -70,28 +186,29 @@ public class TranslateUtils {
 
       // Ensure the target path exists.
       outputFile.getParentFile().mkdirs();
-      final FileOutputStream outputStream = new FileOutputStream(outputFile);
-
-      while ((bytesRead = zipStream.read(buffer)) != -1) {
-        outputStream.write(buffer, 0, bytesRead);
+      long size = 0;
+      try (FileOutputStream outputStream = new FileOutputStream(outputFile)) {
+        while ((bytesRead = zipStream.read(buffer)) != -1) {
+          outputStream.write(buffer, 0, bytesRead);
+          size += bytesRead;
+        }
       }
-
-      outputStream.close();
       zipStream.closeEntry();
+      manifest.setProperty(MANIFEST_FILE_SIZE_KEY_PREFIX + entry.getName(), String.valueOf(size));
 
       // Make sure the output file is readable.
       makeReadable(outputFile);
     }
   }
 
-  private static void removeExtractedFiles(List<File> extractedFiles) {
-    for (File extractedFile : extractedFiles) {
-      if (!extractedFile.isDirectory()) {
-        extractedFile.delete();
+  private static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
       }
     }
-
-    extractedFiles.clear();
+    file.delete();
   }
 
   private static void makeReadable(File file) {
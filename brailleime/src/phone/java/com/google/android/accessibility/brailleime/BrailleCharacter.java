@@ -21,7 +21,6 @@ import static com.google.common.base.Preconditions.checkArgument;
 import android.util.Range;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 
@@ -36,7 +35,17 @@ public class BrailleCharacter {
 
   private static final Range<Integer> DOT_RANGE = new Range<>(1, 8);
 
-  private final BitSet dotNumbers;
+  /** Shared instances of the 256 characters, indexed by {@link #toInt()}. */
+  private static final BrailleCharacter[] CHARACTERS = new BrailleCharacter[256];
+
+  static {
+    for (int i = 0; i < CHARACTERS.length; i++) {
+      CHARACTERS[i] = new BrailleCharacter((byte) i);
+    }
+  }
+
+  /** Bit {@code i} is set if dot number {@code i + 1} is on. */
+  private final byte dotBits;
 
   /**
    * Creates a {@link BrailleCharacter} from a collection of dot numbers.
@@ -45,12 +54,7 @@ public class BrailleCharacter {
    * thrown.
    */
   public BrailleCharacter(Collection<Integer> dotNumbers) {
-    this.dotNumbers = new BitSet();
-    for (Integer dotNumber : dotNumbers) {
-      checkArgument(DOT_RANGE.contains(dotNumber), "dot %s out of range %s", dotNumber, DOT_RANGE);
-      // Maps dot number (1 to 8) to bit (0 to 7).
-      this.dotNumbers.set(dotNumber - 1);
-    }
+    this(toDotBits(dotNumbers));
   }
 
   /**
@@ -69,17 +73,45 @@ public class BrailleCharacter {
    * <p>The bits map to the dot numbers.
    */
   public BrailleCharacter(byte b) {
-    this.dotNumbers = BitSet.valueOf(new byte[] {b});
+    this.dotBits = b;
+  }
+
+  /**
+   * Returns the shared {@link BrailleCharacter} whose dots map to the bits of {@code b}, see {@link
+   * #toByte()}.
+   */
+  public static BrailleCharacter valueOf(byte b) {
+    return CHARACTERS[b & 0xFF];
+  }
+
+  /**
+   * Returns the shared {@link BrailleCharacter} with the given dot numbers.
+   *
+   * <p>The dot numbers must be in the range 1 to 8, otherwise {@link IllegalArgumentException} is
+   * thrown.
+   */
+  public static BrailleCharacter valueOf(Collection<Integer> dotNumbers) {
+    return valueOf(toDotBits(dotNumbers));
+  }
+
+  private static byte toDotBits(Collection<Integer> dotNumbers) {
+    int bits = 0;
+    for (Integer dotNumber : dotNumbers) {
+      checkArgument(DOT_RANGE.contains(dotNumber), "dot %s out of range %s", dotNumber, DOT_RANGE);
+      // Maps dot number (1 to 8) to bit (0 to 7).
+      bits |= 1 << (dotNumber - 1);
+    }
+    return (byte) bits;
   }
 
   /** Returns the number of on dots. */
   public int getOnCount() {
-    return dotNumbers.cardinality();
+    return Integer.bitCount(toInt());
   }
 
   /** Returns {@code true} if the character is empty (has zero on dots). */
   public boolean isEmpty() {
-    return dotNumbers.isEmpty();
+    return dotBits == 0;
   }
 
   /**
@@ -88,10 +120,7 @@ public class BrailleCharacter {
    * <p>For example, the character with dots 1 and 3 raised results in {@code 0b101}, or {@code 5}.
    */
   public byte toByte() {
-    if (isEmpty()) {
-      return 0;
-    }
-    return dotNumbers.toByteArray()[0];
+    return dotBits;
   }
 
   /**
@@ -100,7 +129,7 @@ public class BrailleCharacter {
    * <p>For example, the character with dots 1 and 3 raised results in {@code 0b101}, or {@code 5}.
    */
   public int toInt() {
-    return toByte() & 0xFF;
+    return dotBits & 0xFF;
   }
 
   /**
@@ -110,24 +139,27 @@ public class BrailleCharacter {
    */
   public List<Integer> toDotNumbers() {
     List<Integer> dotNumberList = new ArrayList<>();
-    for (int index = dotNumbers.nextSetBit(0);
-        index != -1;
-        index = dotNumbers.nextSetBit(index + 1)) {
-      dotNumberList.add(index + 1);
+    for (int bitIndex = 0; bitIndex < Byte.SIZE; bitIndex++) {
+      if ((dotBits & (1 << bitIndex)) != 0) {
+        dotNumberList.add(bitIndex + 1);
+      }
     }
     return dotNumberList;
   }
 
   /** Returns whether the given dot number is on. */
   public boolean isDotNumberOn(int dotNumber) {
-    return dotNumbers.get(dotNumber - 1);
+    if (dotNumber < 1) {
+      throw new IndexOutOfBoundsException("dot number < 1: " + dotNumber);
+    }
+    return dotNumber <= Byte.SIZE && (dotBits & (1 << (dotNumber - 1))) != 0;
   }
 
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    for (int bitIndex = 0; bitIndex < dotNumbers.length(); bitIndex++) {
-      if (dotNumbers.get(bitIndex)) {
+    for (int bitIndex = 0; bitIndex < Byte.SIZE; bitIndex++) {
+      if ((dotBits & (1 << bitIndex)) != 0) {
         // Maps bit 0 to dot number 1.
         sb.append(bitIndex + 1);
       }
@@ -146,11 +178,16 @@ public class BrailleCharacter {
       return false;
     }
     BrailleCharacter that = (BrailleCharacter) o;
-    return dotNumbers.equals(that.dotNumbers);
+    return dotBits == that.dotBits;
   }
 
   @Override
   public int hashCode() {
-    return dotNumbers.hashCode();
+    return hashCode(dotBits);
+  }
+
+  /** Returns the hash code of the character with {@code dotBits}, same as a BitSet of the bits. */
+  static int hashCode(byte dotBits) {
+    return 1234 ^ (dotBits & 0xFF);
   }
 }
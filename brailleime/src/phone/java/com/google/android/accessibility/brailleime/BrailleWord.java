@@ -20,24 +20,41 @@ import com.google.common.base.Splitter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 
 /** A sequence of {@link BrailleCharacter}. */
 public class BrailleWord {
 
-  private final List<BrailleCharacter> list;
+  private static final byte[] EMPTY_CELLS = new byte[0];
+
+  /** The first {@link #size} bytes are the cells, see {@link BrailleCharacter#toByte()}. */
+  private byte[] cells;
+
+  private int size;
+
+  /**
+   * Whether {@link #cells} was returned by {@link #asByteArray()}, in which case it's copied before
+   * being modified.
+   */
+  private boolean cellsShared;
 
   /** Creates an empty word. */
   public BrailleWord() {
-    list = new ArrayList<>();
+    cells = EMPTY_CELLS;
   }
 
   /** Creates a word from a collection of {@link BrailleCharacter}. */
   public BrailleWord(Collection<BrailleCharacter> characters) {
-    this();
-    list.addAll(characters);
+    cells = new byte[characters.size()];
+    for (BrailleCharacter character : characters) {
+      cells[size++] = character.toByte();
+    }
+  }
+
+  /** Creates a word from cells, where each byte maps to a {@link BrailleCharacter#toByte()}. */
+  public BrailleWord(byte[] cells) {
+    this.cells = cells.clone();
+    size = cells.length;
   }
 
   /**
@@ -56,7 +73,7 @@ public class BrailleWord {
       for (int i = 0; i < token.length(); i++) {
         dotNumbers.add(Character.getNumericValue(token.charAt(i)));
       }
-      list.add(new BrailleCharacter(dotNumbers));
+      add(BrailleCharacter.valueOf(dotNumbers));
     }
   }
 
@@ -71,7 +88,13 @@ public class BrailleWord {
 
   /** Append a {@link BrailleCharacter} to the end of the word. */
   public void add(BrailleCharacter brailleCharacter) {
-    list.add(brailleCharacter);
+    if (size == cells.length) {
+      cells = Arrays.copyOf(cells, Math.max(4, size + (size >> 1)));
+      cellsShared = false;
+    } else {
+      ensureCellsNotShared();
+    }
+    cells[size++] = brailleCharacter.toByte();
   }
 
   /**
@@ -79,7 +102,11 @@ public class BrailleWord {
    * IndexOutOfBoundsException} if {@code index < 0} or {@code index >= size()}.
    */
   public BrailleCharacter remove(int index) {
-    return list.remove(index);
+    BrailleCharacter removed = get(index);
+    ensureCellsNotShared();
+    System.arraycopy(cells, index + 1, cells, index, size - index - 1);
+    size--;
+    return removed;
   }
 
   /**
@@ -87,22 +114,29 @@ public class BrailleWord {
    * IndexOutOfBoundsException} if {@code index < 0} or {@code index >= size()}.
    */
   public BrailleCharacter get(int index) {
-    return list.get(index);
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return BrailleCharacter.valueOf(cells[index]);
   }
 
   /** Returns the size of the word, which is the number of {@link BrailleCharacter} it contains. */
   public int size() {
-    return list.size();
+    return size;
   }
 
   /** Returns {@code true} if the word is empty. */
   public boolean isEmpty() {
-    return list.isEmpty();
+    return size == 0;
   }
 
   /** Clears the contents of word, making it empty. */
   public void clear() {
-    list.clear();
+    if (cellsShared) {
+      cells = EMPTY_CELLS;
+      cellsShared = false;
+    }
+    size = 0;
   }
 
   /**
@@ -110,12 +144,26 @@ public class BrailleWord {
    * BrailleCharacter#toByte()}.
    */
   public byte[] toByteArray() {
-    byte[] array = new byte[list.size()];
-    for (int i = 0; i < list.size(); i++) {
-      BrailleCharacter brailleCharacter = list.get(i);
-      array[i] = brailleCharacter.toByte();
+    return Arrays.copyOf(cells, size);
+  }
+
+  /**
+   * Returns the same bytes as {@link #toByteArray()}, without copying them if possible. The caller
+   * must not modify the array; later changes to this word don't change it.
+   */
+  public byte[] asByteArray() {
+    if (cells.length != size) {
+      cells = Arrays.copyOf(cells, size);
+    }
+    cellsShared = true;
+    return cells;
+  }
+
+  private void ensureCellsNotShared() {
+    if (cellsShared) {
+      cells = cells.clone();
+      cellsShared = false;
     }
-    return array;
   }
 
   /**
@@ -127,10 +175,9 @@ public class BrailleWord {
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    for (int i = 0; i < list.size(); i++) {
-      BrailleCharacter brailleCharacter = list.get(i);
-      sb.append(brailleCharacter);
-      if (i < list.size() - 1) {
+    for (int i = 0; i < size; i++) {
+      sb.append(get(i));
+      if (i < size - 1) {
         sb.append('-');
       }
     }
@@ -146,16 +193,33 @@ public class BrailleWord {
       return false;
     }
     BrailleWord that = (BrailleWord) o;
-    return list.equals(that.list);
+    if (size != that.size) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (cells[i] != that.cells[i]) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(list);
+    // Same as the hash code of a List of the characters.
+    int hashCode = 1;
+    for (int i = 0; i < size; i++) {
+      hashCode = 31 * hashCode + BrailleCharacter.hashCode(cells[i]);
+    }
+    return hashCode;
   }
 
   public List<BrailleCharacter> toList() {
-    return new ArrayList<>(list);
+    List<BrailleCharacter> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(get(i));
+    }
+    return list;
   }
 
   /**
@@ -163,12 +227,24 @@ public class BrailleWord {
    * the passed-in range is out of bounds.
    */
   public BrailleWord subword(int start, int end) {
-    return new BrailleWord(list.subList(start, end));
+    if (start < 0 || end > size || start > end) {
+      throw new IndexOutOfBoundsException("Range: [" + start + ", " + end + "), Size: " + size);
+    }
+    BrailleWord subword = new BrailleWord();
+    subword.cells = Arrays.copyOfRange(cells, start, end);
+    subword.size = end - start;
+    return subword;
   }
 
   /** Returns {@code true} if the word contains the passed-in {@link BrailleCharacter}. */
   public boolean contains(BrailleCharacter brailleCharacter) {
-    return list.contains(brailleCharacter);
+    byte cell = brailleCharacter.toByte();
+    for (int i = 0; i < size; i++) {
+      if (cells[i] == cell) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -176,7 +252,12 @@ public class BrailleWord {
    * passed-in collection.
    */
   public boolean containsAny(Collection<BrailleCharacter> collection) {
-    return !Collections.disjoint(list, collection);
+    for (int i = 0; i < size; i++) {
+      if (collection.contains(get(i))) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
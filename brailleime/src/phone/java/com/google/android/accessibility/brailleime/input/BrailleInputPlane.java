@@ -44,11 +44,8 @@ import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Renders visual braille dots, along with their pressed state, and processes touch input for them
@@ -73,6 +70,9 @@ public abstract class BrailleInputPlane {
   public static final int NUMBER_OF_ROWS_SCREEN_AWAY = DOT_COUNT / NUMBER_OF_COLUMNS_SCREEN_AWAY;
   private static final int ANIMATION_DURATION_MS = 100;
 
+  /** Labels drawn on the dots, indexed by dot number. */
+  private static final String[] DOT_NUMBER_LABELS = {"", "1", "2", "3", "4", "5", "6", "7", "8"};
+
   private final Resources resources;
   private final MultitouchHandler multitouchHandler;
   private final int dotRadius;
@@ -90,9 +90,11 @@ public abstract class BrailleInputPlane {
   @ColorInt private final int dotNumberColorPressedCalibration;
   private final boolean reverseDots;
   private final Paint touchCirclesPaint;
+  private final int touchCircleRadius;
   private final int textBaseline;
 
-  private Set<DotTarget> currentlyPressedDots;
+  /** Bit {@code i} is set if dot number {@code i + 1} is currently pressed. */
+  private int currentlyPressedDotBits;
   private List<DotTarget> oldDotTargets;
   private List<DotTarget> dotTargets;
   int orientation;
@@ -141,7 +143,6 @@ public abstract class BrailleInputPlane {
     dotNumberPaint.setStyle(Paint.Style.FILL_AND_STROKE);
     textBaseline = Utils.getPaintTextBaselineInPixels(dotNumberPaint);
     dotTargets = buildDotTargets(sizeInPixels);
-    currentlyPressedDots = new HashSet<>();
 
     dotBackgroundPaint = new Paint();
     dotBackgroundPaint.setStyle(Paint.Style.FILL_AND_STROKE);
@@ -165,6 +166,9 @@ public abstract class BrailleInputPlane {
     touchCirclesPaint.setStyle(Paint.Style.STROKE);
     touchCirclesPaint.setStrokeWidth(
         resources.getDimension(R.dimen.input_plane_touch_circle_stroke_width));
+    float touchCircleScaleFactor =
+        Utils.getResourcesFloat(resources, R.dimen.input_plane_touch_circle_size_multiplier);
+    touchCircleRadius = (int) (touchCircleScaleFactor * dotRadius);
   }
 
   /** Reads saved points from SharedPreference. */
@@ -332,7 +336,7 @@ public abstract class BrailleInputPlane {
   Optional<BrailleInputPlaneResult> onTouchEvent(MotionEvent event) {
     Optional<MultitouchResult> touchResultOptional = multitouchHandler.onTouchEvent(event);
     // Update the dots state even if we received an empty result.
-    currentlyPressedDots = matchTouchToTargets(multitouchHandler.getActivePoints());
+    currentlyPressedDotBits = matchTouchToDotBits(multitouchHandler.getActivePoints());
     if (!touchResultOptional.isPresent()) {
       return Optional.empty();
     }
@@ -351,8 +355,8 @@ public abstract class BrailleInputPlane {
     }
     switch (touchResult.type) {
       case MultitouchResult.TYPE_TAP:
-        Set<Integer> committedDotNumbers = matchTouchToTargetNumbers(touchResult.points);
-        BrailleCharacter brailleCharacter = new BrailleCharacter(committedDotNumbers);
+        BrailleCharacter brailleCharacter =
+            BrailleCharacter.valueOf((byte) matchTouchToDotBits(touchResult.points));
         return Optional.of(BrailleInputPlaneResult.createTapAndRelease(brailleCharacter));
       case MultitouchResult.TYPE_SWIPE:
         Swipe swipe = touchResult.swipe;
@@ -389,52 +393,54 @@ public abstract class BrailleInputPlane {
   }
 
   /**
-   * Figure which dots are pressed by the given points.
+   * Figure which dots are pressed by the given points. Returns a bit mask where bit {@code i} is
+   * set if dot number {@code i + 1} is pressed.
    *
    * <p>We iterate through the touch points and at each iteration identify, and remove the point
    * after saving an association link between that point at the dot closest to it.
    */
-  private Set<DotTarget> matchTouchToTargets(Collection<PointF> points) {
-    Set<DotTarget> result = new HashSet<>();
-    Set<PointF> pointsYetToBeProcessed = new HashSet<>(points);
-    Set<DotTarget> dotsYetToBeProcessed = new HashSet<>(dotTargets);
-    while (!pointsYetToBeProcessed.isEmpty() && !dotsYetToBeProcessed.isEmpty()) {
+  private int matchTouchToDotBits(List<PointF> points) {
+    int dotBits = 0;
+    // Bit i is set once points.get(i) or dotTargets.get(i) has been processed.
+    long processedPoints = 0;
+    int processedDots = 0;
+    int pointCount = Math.min(points.size(), Long.SIZE);
+    int matchCount = Math.min(pointCount, dotTargets.size());
+    for (int match = 0; match < matchCount; match++) {
       double bestDistance = Double.MAX_VALUE;
-      DotTarget bestDot = null;
-      PointF bestPoint = null;
-      for (DotTarget dot : dotsYetToBeProcessed) {
-        for (PointF point : pointsYetToBeProcessed) {
-          double thisDistance = Utils.distance(dot.center, point);
+      int bestDotIndex = -1;
+      int bestPointIndex = -1;
+      for (int dotIndex = 0; dotIndex < dotTargets.size(); dotIndex++) {
+        if ((processedDots & (1 << dotIndex)) != 0) {
+          continue;
+        }
+        PointF center = dotTargets.get(dotIndex).center;
+        for (int pointIndex = 0; pointIndex < pointCount; pointIndex++) {
+          if ((processedPoints & (1L << pointIndex)) != 0) {
+            continue;
+          }
+          double thisDistance = Utils.distance(center, points.get(pointIndex));
           if (thisDistance < bestDistance) {
             bestDistance = thisDistance;
-            bestDot = dot;
-            bestPoint = point;
+            bestDotIndex = dotIndex;
+            bestPointIndex = pointIndex;
           }
         }
       }
-      result.add(new DotTarget(bestDot.dotNumber, bestPoint.x, bestPoint.y));
-      pointsYetToBeProcessed.remove(bestPoint);
-      dotsYetToBeProcessed.remove(bestDot);
+      if (bestDotIndex < 0) {
+        break;
+      }
+      dotBits |= 1 << (dotTargets.get(bestDotIndex).dotNumber - 1);
+      processedDots |= 1 << bestDotIndex;
+      processedPoints |= 1L << bestPointIndex;
     }
-    return result;
-  }
-
-  /** Figure which dot numbers are pressed by the given points. */
-  private Set<Integer> matchTouchToTargetNumbers(Collection<PointF> points) {
-    return matchTouchToTargets(points).stream()
-        .map(dotTarget -> dotTarget.dotNumber)
-        .collect(Collectors.toSet());
+    return dotBits;
   }
 
   private void drawDots(Canvas canvas) {
     for (int i = 0; i < dotTargets.size(); i++) {
-      boolean pressed = false;
-      for (DotTarget dotTarget : currentlyPressedDots) {
-        pressed = dotTarget.dotNumber == dotTargets.get(i).dotNumber;
-        if (pressed) {
-          break;
-        }
-      }
+      int dotNumber = dotTargets.get(i).dotNumber;
+      boolean pressed = (currentlyPressedDotBits & (1 << (dotNumber - 1))) != 0;
       boolean useDefaultColor =
           twoStepCalibrationState == NONE
               || (twoStepCalibrationState == STEP2
@@ -453,7 +459,7 @@ public abstract class BrailleInputPlane {
           useDefaultColor ? dotNumberColorPressedDefault : dotNumberColorPressedCalibration;
       // Draw dot number (text).
       dotNumberPaint.setColor(pressed ? dotNumberColorPressed : dotNumberColor);
-      String text = Integer.toString(dotTargets.get(i).dotNumber);
+      String text = DOT_NUMBER_LABELS[dotNumber];
       canvas.save();
       if (orientation == Configuration.ORIENTATION_PORTRAIT) {
         canvas.rotate(getRotateDegree(), dotCenterPosition[i].x, dotCenterPosition[i].y);
@@ -506,11 +512,9 @@ public abstract class BrailleInputPlane {
     animatorSet.start();
   }
 
-  private void drawTouchCircles(Canvas canvas, Collection<PointF> points) {
-    float scaleFactor =
-        Utils.getResourcesFloat(resources, R.dimen.input_plane_touch_circle_size_multiplier);
-    int touchCircleRadius = (int) (scaleFactor * dotRadius);
-    for (PointF point : points) {
+  private void drawTouchCircles(Canvas canvas, List<PointF> points) {
+    for (int i = 0; i < points.size(); i++) {
+      PointF point = points.get(i);
       canvas.drawCircle(point.x, point.y, touchCircleRadius, touchCirclesPaint);
     }
   }
@@ -102,6 +102,10 @@ public class BrailleInputView extends View implements OrientationSensitive {
   private boolean isTableMode;
   private AutoPerformer autoPerformer;
 
+  // Reused by drawDebugBackground() to avoid allocating on each frame.
+  private final Paint debugBackgroundPaint = new Paint();
+  private final RectF debugBackgroundRect = new RectF();
+
   /**
    * Construct a BrailleInputView.
    *
@@ -255,17 +259,15 @@ public class BrailleInputView extends View implements OrientationSensitive {
 
   private void drawDebugBackground(Canvas canvas) {
     // Drawing the debug background helps expose problems with coordinates and screensize.
-    Paint paint = new Paint();
-    paint.setColor(getResources().getColor(R.color.input_plane_debug_background));
+    debugBackgroundPaint.setColor(getResources().getColor(R.color.input_plane_debug_background));
     int backgroundInset =
         getResources().getDimensionPixelSize(R.dimen.input_plane_debug_background_inset);
-    RectF rect =
-        new RectF(
-            backgroundInset,
-            backgroundInset,
-            screenSizeInPixels.getWidth() - backgroundInset,
-            screenSizeInPixels.getHeight() - backgroundInset);
-    canvas.drawRect(rect, paint);
+    debugBackgroundRect.set(
+        backgroundInset,
+        backgroundInset,
+        screenSizeInPixels.getWidth() - backgroundInset,
+        screenSizeInPixels.getHeight() - backgroundInset);
+    canvas.drawRect(debugBackgroundRect, debugBackgroundPaint);
   }
 
   private void reduceSystemGestureArea() {
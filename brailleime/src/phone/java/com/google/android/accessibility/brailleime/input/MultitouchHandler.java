@@ -16,7 +16,6 @@
 
 package com.google.android.accessibility.brailleime.input;
 
-import android.annotation.SuppressLint;
 import android.content.res.Resources;
 import android.graphics.PointF;
 import android.util.Range;
@@ -27,11 +26,10 @@ import com.google.android.accessibility.brailleime.Utils;
 import com.google.android.accessibility.brailleime.input.Swipe.Direction;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * Provides custom multi-pointer touch input support by processing MotionEvents and returning {@link
@@ -96,13 +94,22 @@ class MultitouchHandler {
    */
   private static final long HOLD_MIN_DURATION_MS = 2000;
 
-  /** Maps pointerId's to active PointerWithHistory objects. */
-  @SuppressLint("UseSparseArrays")
-  private final HashMap<Integer, PointerWithHistory> activePointers = new HashMap<>();
+  /** Pointer ids are in the range 0 to this value, see {@link MotionEvent#getPointerId(int)}. */
+  private static final int MAX_POINTER_ID = 31;
 
-  /** Maps pointerId's to inactive PointerWithHistory objects. */
-  @SuppressLint("UseSparseArrays")
-  private final HashMap<Integer, PointerWithHistory> inactivePointers = new HashMap<>();
+  /**
+   * Active PointerWithHistory objects, indexed by pointerId. The objects are reused by later
+   * touches, a pointer is active if its {@code inUse} is set.
+   */
+  private final PointerWithHistory[] activePointers = createPointers();
+
+  /** Inactive PointerWithHistory objects, indexed and reused like activePointers. */
+  private final PointerWithHistory[] inactivePointers = createPointers();
+
+  /** The current points of the active pointers, in the order they were pressed. */
+  private final List<PointF> activePoints = new ArrayList<>();
+
+  private final List<PointF> activePointsView = Collections.unmodifiableList(activePoints);
 
   private boolean isAccumulationMode;
 
@@ -154,11 +161,37 @@ class MultitouchHandler {
     return isAccumulationMode;
   }
 
-  /** Gets a copy of the currently active touch points. */
+  /**
+   * Gets the currently active touch points. The list and its points are updated by later touch
+   * events, so callers must not keep them.
+   */
   List<PointF> getActivePoints() {
-    return activePointers.values().stream()
-        .map(pointerWithHistory -> pointerWithHistory.pointCurrent)
-        .collect(Collectors.toList());
+    return activePointsView;
+  }
+
+  private static PointerWithHistory[] createPointers() {
+    PointerWithHistory[] pointers = new PointerWithHistory[MAX_POINTER_ID + 1];
+    for (int pointerId = 0; pointerId < pointers.length; pointerId++) {
+      pointers[pointerId] = new PointerWithHistory(pointerId);
+    }
+    return pointers;
+  }
+
+  /** Returns the active pointer with {@code pointerId}, or {@code null} if there's none. */
+  @Nullable
+  private PointerWithHistory getActivePointer(int pointerId) {
+    if (pointerId < 0 || pointerId > MAX_POINTER_ID || !activePointers[pointerId].inUse) {
+      return null;
+    }
+    return activePointers[pointerId];
+  }
+
+  private static List<PointF> copyPoints(List<PointF> points) {
+    List<PointF> copy = new ArrayList<>(points.size());
+    for (int i = 0; i < points.size(); i++) {
+      copy.add(new PointF(points.get(i).x, points.get(i).y));
+    }
+    return copy;
   }
 
   /**
@@ -179,18 +212,20 @@ class MultitouchHandler {
     long eventTime = event.getEventTime();
 
     // Update the active pointers
-    if (!activePointers.isEmpty()) {
+    if (!activePoints.isEmpty()) {
       if (action == MotionEvent.ACTION_MOVE) {
         // All of the PointerWithHistory objects get updated because ACTION_MOVE events are not sent
         // on a per pointer basis (instead they ride along the initial 'action' pointer).
         for (int pointerIndex = 0; pointerIndex < event.getPointerCount(); pointerIndex++) {
-          PointerWithHistory pointer = activePointers.get(event.getPointerId(pointerIndex));
-          pointer.updateCurrentPoint(
-              (int) event.getX(pointerIndex), (int) event.getY(pointerIndex));
+          PointerWithHistory pointer = getActivePointer(event.getPointerId(pointerIndex));
+          if (pointer != null) {
+            pointer.updateCurrentPoint(
+                (int) event.getX(pointerIndex), (int) event.getY(pointerIndex));
+          }
         }
       }
       if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_POINTER_UP) {
-        PointerWithHistory pointer = activePointers.get(actionPointerId);
+        PointerWithHistory pointer = getActivePointer(actionPointerId);
         if (pointer != null) {
           pointer.updateCurrentPoint(
               (int) event.getX(actionPointerIndex), (int) event.getY(actionPointerIndex));
@@ -211,8 +246,8 @@ class MultitouchHandler {
       // short-term alarms (probably via a Handler) would be needed.
       if (eventTime - holdStartTimeInMillis >= holdDurationMinMillis
           && holdRecognizer != null
-          && holdRecognizer.isHoldRecognized(getActivePoints().size())) {
-        MultitouchResult result = MultitouchResult.createHold(getActivePoints());
+          && holdRecognizer.isHoldRecognized(activePoints.size())) {
+        MultitouchResult result = MultitouchResult.createHold(copyPoints(activePoints));
         clearPointerCollections();
         isHoldInProgress = true;
         return Optional.of(result);
@@ -220,10 +255,13 @@ class MultitouchHandler {
 
     } else if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_POINTER_DOWN) {
       holdStartTimeInMillis = eventTime;
-      PointF point = new PointF(event.getX(actionPointerIndex), event.getY(actionPointerIndex));
-      PointerWithHistory pointerWithHistory =
-          new PointerWithHistory(actionPointerId, point, eventTime);
-      activePointers.put(actionPointerId, pointerWithHistory);
+      if (0 <= actionPointerId && actionPointerId <= MAX_POINTER_ID) {
+        PointerWithHistory pointer = activePointers[actionPointerId];
+        if (!pointer.inUse) {
+          activePoints.add(pointer.pointCurrent);
+        }
+        pointer.reset(event.getX(actionPointerIndex), event.getY(actionPointerIndex), eventTime);
+      }
 
     } else if (action == MotionEvent.ACTION_CANCEL) {
       clearPointerCollections();
@@ -243,7 +281,7 @@ class MultitouchHandler {
   }
 
   private Optional<MultitouchResult> onFinalPointerUp(int actionPointerId, long eventTime) {
-    PointerWithHistory finalPointer = activePointers.get(actionPointerId);
+    PointerWithHistory finalPointer = getActivePointer(actionPointerId);
     if (finalPointer == null) {
       return Optional.empty();
     }
@@ -262,7 +300,7 @@ class MultitouchHandler {
       // Both x and y displacement thresholds were met, but the vector is too diagonal.
       return Optional.empty();
     }
-    Speed speed = inactivePointers.get(finalPointer.pointerId).computeSpeed();
+    Speed speed = inactivePointers[finalPointer.pointerId].computeSpeed();
     if (xExcess > 0 && (xExcess > yExcess)) {
       // X displacement threshold was met, and exceeds y displacement.
       if (speed.x < swipeMinSpeedPixelsPerSecond
@@ -296,43 +334,61 @@ class MultitouchHandler {
 
   private boolean fingersTravelSameDirection(
       Function<PointerWithHistory, Float> directionProvider) {
-    List<PointerWithHistory> points = new ArrayList<>(inactivePointers.values());
-    int signedAccumulation =
-        points.stream()
-            .mapToInt(point -> Integer.signum(directionProvider.apply(point).intValue()))
-            .sum();
-    return Math.abs(signedAccumulation) == points.size();
+    int signedAccumulation = 0;
+    int pointerCount = 0;
+    for (PointerWithHistory pointer : inactivePointers) {
+      if (pointer.inUse) {
+        signedAccumulation += Integer.signum(directionProvider.apply(pointer).intValue());
+        pointerCount++;
+      }
+    }
+    return Math.abs(signedAccumulation) == pointerCount;
   }
 
   private double getMaximumDistanceMovedAmongInactivePointers() {
-    return inactivePointers.values().stream()
-        .mapToDouble(PointerWithHistory::distanceMoved)
-        .max()
-        .orElse(Double.MAX_VALUE);
+    double maxDistance = -1;
+    for (PointerWithHistory pointer : inactivePointers) {
+      if (pointer.inUse) {
+        maxDistance = Math.max(maxDistance, pointer.distanceMoved());
+      }
+    }
+    return (maxDistance < 0) ? Double.MAX_VALUE : maxDistance;
   }
 
   private void clearPointerCollections() {
-    activePointers.clear();
-    inactivePointers.clear();
+    for (int pointerId = 0; pointerId <= MAX_POINTER_ID; pointerId++) {
+      activePointers[pointerId].inUse = false;
+      inactivePointers[pointerId].inUse = false;
+    }
+    activePoints.clear();
   }
 
   private List<PointF> getRecentlyInactivatedPoints(long eventTime) {
     long now = eventTime;
     Range<Long> recentRange = new Range<>(now - RECENCY_MAX_MS, now);
-    return inactivePointers.values().stream()
-        .filter(
-            pointerWithHistory ->
-                isAccumulationMode || recentRange.contains(pointerWithHistory.momentMadeInactive))
-        .map(pointerWithHistory -> pointerWithHistory.pointCurrent)
-        .collect(Collectors.toList());
+    List<PointF> points = new ArrayList<>();
+    for (PointerWithHistory pointer : inactivePointers) {
+      if (pointer.inUse
+          && (isAccumulationMode || recentRange.contains(pointer.momentMadeInactive))) {
+        points.add(new PointF(pointer.pointCurrent.x, pointer.pointCurrent.y));
+      }
+    }
+    return points;
   }
 
   private void transferPointerToInactive(int pointerId, long eventTime) {
-    PointerWithHistory pointerWithHistory = activePointers.get(pointerId);
+    PointerWithHistory pointerWithHistory = getActivePointer(pointerId);
     if (pointerWithHistory != null) {
       pointerWithHistory.markReleased(eventTime);
-      inactivePointers.put(pointerId, pointerWithHistory);
-      activePointers.remove(pointerId);
+      inactivePointers[pointerId].copyFrom(pointerWithHistory);
+      pointerWithHistory.inUse = false;
+      // Removes by identity, other points may be equal.
+      for (int i = 0; i < activePoints.size(); i++) {
+        if (activePoints.get(i) == pointerWithHistory.pointCurrent) {
+          activePoints.remove(i);
+          break;
+        }
+      }
     }
   }
 
@@ -348,16 +404,33 @@ class MultitouchHandler {
 
   private static class PointerWithHistory {
     final int pointerId;
-    final PointF pointInitial;
-    final PointF pointCurrent;
+    final PointF pointInitial = new PointF();
+    final PointF pointCurrent = new PointF();
     long momentMadeInactive;
     long momentMadeInitial;
 
-    private PointerWithHistory(int pointerId, PointF pointInitial, long initialEventTime) {
+    /** Whether this object currently tracks a pointer. */
+    boolean inUse;
+
+    private PointerWithHistory(int pointerId) {
       this.pointerId = pointerId;
-      this.pointInitial = new PointF(pointInitial.x, pointInitial.y);
-      this.pointCurrent = new PointF(pointInitial.x, pointInitial.y);
+    }
+
+    /** Starts tracking a pointer pressed at ({@code x}, {@code y}). */
+    private void reset(float x, float y, long initialEventTime) {
+      pointInitial.set(x, y);
+      pointCurrent.set(x, y);
       momentMadeInitial = initialEventTime;
+      momentMadeInactive = 0;
+      inUse = true;
+    }
+
+    private void copyFrom(PointerWithHistory other) {
+      pointInitial.set(other.pointInitial);
+      pointCurrent.set(other.pointCurrent);
+      momentMadeInitial = other.momentMadeInitial;
+      momentMadeInactive = other.momentMadeInactive;
+      inUse = other.inUse;
     }
 
     private void markReleased(long eventTime) {
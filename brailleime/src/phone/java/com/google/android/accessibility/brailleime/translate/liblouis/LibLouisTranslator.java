@@ -30,6 +30,7 @@ import com.google.android.accessibility.brailleime.R;
 import com.google.android.accessibility.brailleime.translate.Translator;
 import com.google.android.accessibility.utils.BuildVersionUtils;
 import java.io.File;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,10 +38,26 @@ import java.util.Map;
 /** A {@link Translator} backed by the LibLouis library. */
 class LibLouisTranslator implements Translator {
 
+  /**
+   * Maximum number of back-translations kept. The edit buffers translate every prefix of the word
+   * being typed, and the word again when it's committed or deleted.
+   */
+  private static final int MAX_BACK_TRANSLATIONS = 64;
+
   private final String tableName;
   private final Map<BrailleWord, String> bypassMap;
   private final Map<BrailleCharacter, String> commutativityMap;
 
+  /** Recent back-translations of {@link #tableName}, least recently used first. */
+  private final Map<BackTranslationKey, String> backTranslations =
+      new LinkedHashMap<BackTranslationKey, String>(
+          MAX_BACK_TRANSLATIONS, /* loadFactor= */ 0.75f, /* accessOrder= */ true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BackTranslationKey, String> eldest) {
+          return size() > MAX_BACK_TRANSLATIONS;
+        }
+      };
+
   LibLouisTranslator(Context context, String tableName) {
     this.tableName = tableName;
     File tablesDir;
@@ -121,7 +138,23 @@ class LibLouisTranslator implements Translator {
     if (partial) {
       flags |= TranslationMode.PARTIAL_TRANSLATE;
     }
-    return LouisTranslation.backTranslate(brailleWord.toByteArray(), tableName, flags);
+    // The array isn't copied, and the word won't modify it, so the memo can keep it.
+    byte[] cells = brailleWord.asByteArray();
+    BackTranslationKey key = new BackTranslationKey(cells, flags);
+    synchronized (backTranslations) {
+      String translation = backTranslations.get(key);
+      if (translation != null) {
+        return translation;
+      }
+    }
+
+    String translation = LouisTranslation.backTranslate(cells, tableName, flags);
+    if (translation != null) {
+      synchronized (backTranslations) {
+        backTranslations.put(key, translation);
+      }
+    }
+    return translation;
   }
 
   private String transformUsingCommutativityMap(BrailleWord brailleWord, String translationRaw) {
@@ -154,16 +187,42 @@ class LibLouisTranslator implements Translator {
 
   @Override
   public BrailleWord translateToBraille(String text) {
-    BrailleWord brailleWord = new BrailleWord();
     TranslationResult result = LouisTranslation.translate(text, tableName, -1, false);
-    for (byte b : result.getCells()) {
-      brailleWord.add(new BrailleCharacter(b));
-    }
-    return brailleWord;
+    return new BrailleWord(result.getCells());
   }
 
   @Override
   public TranslationResult translateToBraille(String text, int cursorPosition) {
     return LouisTranslation.translate(text, tableName, cursorPosition, false);
   }
+
+  /** Braille cells and translation mode flags of a back-translation. */
+  private static final class BackTranslationKey {
+    private final byte[] cells;
+    private final int flags;
+    private final int hashCode;
+
+    BackTranslationKey(byte[] cells, int flags) {
+      this.cells = cells;
+      this.flags = flags;
+      hashCode = 31 * Arrays.hashCode(cells) + flags;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof BackTranslationKey)) {
+        return false;
+      }
+      BackTranslationKey that = (BackTranslationKey) o;
+      return flags == that.flags && Arrays.equals(cells, that.cells);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
 }
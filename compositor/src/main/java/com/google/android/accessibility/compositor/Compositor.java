@@ -27,11 +27,13 @@ import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
 import androidx.core.view.accessibility.AccessibilityRecordCompat;
 import androidx.core.view.accessibility.AccessibilityWindowInfoCompat;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.View;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo.RangeInfo;
 import android.view.accessibility.AccessibilityWindowInfo;
 import androidx.annotation.IntDef;
+import androidx.annotation.VisibleForTesting;
 import com.google.android.accessibility.utils.AccessibilityEventUtils;
 import com.google.android.accessibility.utils.AccessibilityNodeInfoUtils;
 import com.google.android.accessibility.utils.FailoverTextToSpeech.SpeechParam;
@@ -47,6 +49,7 @@ import com.google.android.accessibility.utils.output.SpeechController.UtteranceC
 import com.google.android.accessibility.utils.output.Utterance;
 import com.google.android.accessibility.utils.parsetree.ParseTree;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
+import java.io.IOException;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.HashMap;
@@ -55,6 +58,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 /** Translates events into user visible feedback. */
 public class Compositor {
@@ -162,25 +167,47 @@ public class Compositor {
   public static final int EVENT_SCREEN_MAGNIFICATION_CHANGED = BASE_EVENT_ID + 36;
 
   // IDs of the output types.
-  private static final int OUTPUT_TTS_OUTPUT = 0;
-  private static final int OUTPUT_TTS_QUEUE_MODE = 1;
-  private static final int OUTPUT_TTS_ADD_TO_HISTORY = 2;
-  private static final int OUTPUT_TTS_FORCE_FEEDBACK_AUDIO_PLAYBACK_ACTIVE = 3;
-  private static final int OUTPUT_TTS_FORCE_FEEDBACK_MICROPHONE_ACTIVE = 4;
-  private static final int OUTPUT_TTS_FORCE_FEEDBACK_SSB_ACTIVE = 5;
-  private static final int OUTPUT_TTS_FORCE_FEEDBACK_PHONE_CALL_ACTIVE = 6;
-  private static final int OUTPUT_TTS_INTERRUPT_SAME_GROUP = 7;
-  private static final int OUTPUT_TTS_SKIP_DUPLICATE = 8;
-  private static final int OUTPUT_TTS_CLEAR_QUEUE_GROUP = 9;
-  private static final int OUTPUT_TTS_PITCH = 10;
-  private static final int OUTPUT_ADVANCE_CONTINUOUS_READING = 11;
-  private static final int OUTPUT_PREVENT_DEVICE_SLEEP = 12;
-  private static final int OUTPUT_REFRESH_SOURCE_NODE = 13;
-  private static final int OUTPUT_HAPTIC = 14;
-  private static final int OUTPUT_EARCON = 15;
-  private static final int OUTPUT_EARCON_RATE = 16;
-  private static final int OUTPUT_EARCON_VOLUME = 17;
-  private static final int OUTPUT_TTS_FORCE_FEEDBACK = 18;
+  static final int OUTPUT_TTS_OUTPUT = 0;
+  static final int OUTPUT_TTS_QUEUE_MODE = 1;
+  static final int OUTPUT_TTS_ADD_TO_HISTORY = 2;
+  static final int OUTPUT_TTS_FORCE_FEEDBACK_AUDIO_PLAYBACK_ACTIVE = 3;
+  static final int OUTPUT_TTS_FORCE_FEEDBACK_MICROPHONE_ACTIVE = 4;
+  static final int OUTPUT_TTS_FORCE_FEEDBACK_SSB_ACTIVE = 5;
+  static final int OUTPUT_TTS_FORCE_FEEDBACK_PHONE_CALL_ACTIVE = 6;
+  static final int OUTPUT_TTS_INTERRUPT_SAME_GROUP = 7;
+  static final int OUTPUT_TTS_SKIP_DUPLICATE = 8;
+  static final int OUTPUT_TTS_CLEAR_QUEUE_GROUP = 9;
+  static final int OUTPUT_TTS_PITCH = 10;
+  static final int OUTPUT_ADVANCE_CONTINUOUS_READING = 11;
+  static final int OUTPUT_PREVENT_DEVICE_SLEEP = 12;
+  static final int OUTPUT_REFRESH_SOURCE_NODE = 13;
+  static final int OUTPUT_HAPTIC = 14;
+  static final int OUTPUT_EARCON = 15;
+  static final int OUTPUT_EARCON_RATE = 16;
+  static final int OUTPUT_EARCON_VOLUME = 17;
+  static final int OUTPUT_TTS_FORCE_FEEDBACK = 18;
+
+  // Groups of outputs that handleEvent() evaluates together.
+  private static final long FEEDBACK_OUTPUTS =
+      (1L << OUTPUT_EARCON)
+          | (1L << OUTPUT_HAPTIC)
+          | (1L << OUTPUT_ADVANCE_CONTINUOUS_READING)
+          | (1L << OUTPUT_TTS_OUTPUT);
+  private static final long EARCON_PARAMETER_OUTPUTS =
+      (1L << OUTPUT_EARCON_RATE) | (1L << OUTPUT_EARCON_VOLUME);
+  private static final long SPEECH_PARAMETER_OUTPUTS =
+      (1L << OUTPUT_TTS_QUEUE_MODE)
+          | (1L << OUTPUT_TTS_CLEAR_QUEUE_GROUP)
+          | (1L << OUTPUT_TTS_PITCH)
+          | (1L << OUTPUT_TTS_ADD_TO_HISTORY)
+          | (1L << OUTPUT_TTS_FORCE_FEEDBACK)
+          | (1L << OUTPUT_TTS_FORCE_FEEDBACK_AUDIO_PLAYBACK_ACTIVE)
+          | (1L << OUTPUT_TTS_FORCE_FEEDBACK_MICROPHONE_ACTIVE)
+          | (1L << OUTPUT_TTS_FORCE_FEEDBACK_SSB_ACTIVE)
+          | (1L << OUTPUT_TTS_FORCE_FEEDBACK_PHONE_CALL_ACTIVE)
+          | (1L << OUTPUT_TTS_SKIP_DUPLICATE)
+          | (1L << OUTPUT_TTS_INTERRUPT_SAME_GROUP)
+          | (1L << OUTPUT_PREVENT_DEVICE_SLEEP);
 
   // IDs of the enum types.
   private static final int ENUM_TTS_QUEUE_MODE = 0;
@@ -225,11 +252,11 @@ public class Compositor {
 
   private final Context mContext;
 
+  private static @Nullable JSONObject sCompositorDefinition;
+
   private ParseTree mParseTree;
   private final VariablesFactory mVariablesFactory;
 
-  private boolean mParseTreeIsStale = false;
-
   /////////////////////////////////////////////////////////////////////////////////
   // Inner classes
 
@@ -249,6 +276,9 @@ public class Compositor {
 
   private final Constants mConstants = new Constants();
 
+  // Reused by handleEvent() for the outputs of each event.
+  private final ParseTree.OutputValues mOutputValues = new ParseTree.OutputValues();
+
   /////////////////////////////////////////////////////////////////////////////////
   // Construction methods
 
@@ -294,36 +324,43 @@ public class Compositor {
   public void setSpeakCollectionInfo(boolean speakCollectionInfo) {
     if (speakCollectionInfo != mConstants.mSpeakCollectionInfo) {
       mConstants.mSpeakCollectionInfo = speakCollectionInfo;
-      mParseTreeIsStale = true;
+      updateConstants();
     }
   }
 
   public void setSpeakRoles(boolean speakRoles) {
     if (speakRoles != mConstants.mSpeakRoles) {
       mConstants.mSpeakRoles = speakRoles;
-      mParseTreeIsStale = true;
+      updateConstants();
     }
   }
 
   public void setDescriptionOrder(@DescriptionOrder int descOrderInt) {
     if (descOrderInt != mConstants.mDescriptionOrder) {
       mConstants.mDescriptionOrder = descOrderInt;
-      mParseTreeIsStale = true;
+      updateConstants();
     }
   }
 
   public void setSpeakElementIds(boolean speakElementIds) {
     if (speakElementIds != mConstants.mSpeakElementIds) {
       mConstants.mSpeakElementIds = speakElementIds;
-      mParseTreeIsStale = true;
+      updateConstants();
     }
   }
 
-  public void refreshParseTreeIfNeeded() {
-    if (mParseTreeIsStale) {
-      mParseTreeIsStale = false;
-      mParseTree = refreshParseTree(mContext, mVariablesFactory, mConstants);
-    }
+  /**
+   * Returns the cache of child node descriptions. It must receive accessibility events, to drop
+   * descriptions when node content changes.
+   */
+  public NodeDescriptionCache getNodeDescriptionCache() {
+    return mVariablesFactory.getDescriptionCache();
+  }
+
+  private void updateConstants() {
+    declareConstants(mParseTree, mConstants);
+    // Cached child descriptions were composed with the old constants.
+    mVariablesFactory.getDescriptionCache().invalidate();
   }
 
   /////////////////////////////////////////////////////////////////////////////////
@@ -423,12 +460,21 @@ public class Compositor {
     // Extract options.
     @Nullable AccessibilityEvent eventObject = options.eventObject;
     @Nullable EventInterpretation eventInterpretation = options.eventInterpretation;
-    if (eventInterpretation != null) {
+    if (eventInterpretation != null && LogUtils.shouldLog(Log.VERBOSE)) {
       LogUtils.v(TAG, "eventInterpretation= %s", eventInterpretation);
     }
     @Nullable AccessibilityNodeInfoCompat sourceNode = options.sourceNode;
     @Nullable UtteranceCompleteRunnable runnable = options.onCompleteRunnable;
 
+    // Events without any outputs produce no feedback, so skip evaluating each output.
+    if (mParseTree.getOutputMask(event) == 0) {
+      if (runnable != null) {
+        runnable.run(SpeechController.STATUS_NOT_SPOKEN);
+      }
+      delegate.cleanup();
+      return;
+    }
+
     // Refresh source node, and re-create variable delegate using fresh source node.
     if (sourceNode != null) {
       boolean refreshSource =
@@ -445,9 +491,26 @@ public class Compositor {
       }
     }
 
+    // Evaluate the outputs that every event needs in one pass, then the outputs that only matter if
+    // there is an earcon or speech.
+    ParseTree.OutputValues outputs = mOutputValues;
+    outputs.clear();
+    mParseTree.parseEvent(event, FEEDBACK_OUTPUTS, delegate, outputs);
+    int earcon = outputs.getInteger(OUTPUT_EARCON, -1);
+    CharSequence ttsOutput = outputs.getString(OUTPUT_TTS_OUTPUT);
+    long parameterOutputs = 0;
+    if (earcon != -1) {
+      parameterOutputs |= EARCON_PARAMETER_OUTPUTS;
+    }
+    if (!TextUtils.isEmpty(ttsOutput)) {
+      parameterOutputs |= SPEECH_PARAMETER_OUTPUTS;
+    }
+    if (parameterOutputs != 0) {
+      mParseTree.parseEvent(event, parameterOutputs, delegate, outputs);
+    }
+
     // Compose earcons.
     SpeakOptions speakOptions = null;
-    int earcon = mParseTree.parseEventToInteger(event, OUTPUT_EARCON, -1, delegate);
     if (earcon != -1) {
       if (speakOptions == null) {
         speakOptions = SpeakOptions.create();
@@ -457,11 +520,11 @@ public class Compositor {
       speakOptions.setEarcons(earcons);
 
       Bundle nonSpeechParams = new Bundle();
-      double rate = mParseTree.parseEventToNumber(event, OUTPUT_EARCON_RATE, 1.0, delegate);
+      double rate = outputs.getNumber(OUTPUT_EARCON_RATE, 1.0);
       if (rate != 1.0) {
         nonSpeechParams.putFloat(Utterance.KEY_METADATA_EARCON_RATE, (float) rate);
       }
-      double volume = mParseTree.parseEventToNumber(event, OUTPUT_EARCON_RATE, 1.0, delegate);
+      double volume = outputs.getNumber(OUTPUT_EARCON_VOLUME, 1.0);
       if (volume != 1.0) {
         nonSpeechParams.putFloat(Utterance.KEY_METADATA_EARCON_VOLUME, (float) volume);
       }
@@ -469,7 +532,7 @@ public class Compositor {
     }
 
     // Compose haptics.
-    int haptic = mParseTree.parseEventToInteger(event, OUTPUT_HAPTIC, -1, delegate);
+    int haptic = outputs.getInteger(OUTPUT_HAPTIC, -1);
     if (haptic != -1) {
       if (speakOptions == null) {
         speakOptions = SpeakOptions.create();
@@ -482,7 +545,7 @@ public class Compositor {
     // FLAG_ADVANCED_CONTINUOUS_READING is used for "read from top". Ensure that the flag is set
     // correctly in SpeakOptions regardless of the speech/haptics/earcon feedback. So that the
     // "read from top" will not stop at focusable node with no feedback.
-    if (hasFlagAdvancedContinuousReading(event, delegate)) {
+    if (outputs.getBool(OUTPUT_ADVANCE_CONTINUOUS_READING, false)) {
       if (speakOptions == null) {
         speakOptions = SpeakOptions.create();
       }
@@ -490,7 +553,6 @@ public class Compositor {
     }
 
     // Compose speech, and speech parameters.
-    CharSequence ttsOutput = mParseTree.parseEventToString(event, OUTPUT_TTS_OUTPUT, delegate);
     if (!TextUtils.isEmpty(ttsOutput)) {
       // Cleans up the TTS output if it is just 1 character long. This will announce single
       // symbols correctly.
@@ -499,8 +561,7 @@ public class Compositor {
       ttsOutput = SpeechCleanupUtils.cleanUp(mContext, ttsOutput);
       // Compute queueing mode.
       int queueMode =
-          mParseTree.parseEventToEnum(
-              event, OUTPUT_TTS_QUEUE_MODE, SpeechController.QUEUE_MODE_INTERRUPT, delegate);
+          outputs.getEnum(OUTPUT_TTS_QUEUE_MODE, SpeechController.QUEUE_MODE_INTERRUPT);
       if (queueMode == QUEUE_MODE_INTERRUPTIBLE_IF_LONG) {
         queueMode =
             (ttsOutput.length() <= VERBOSE_UTTERANCE_THRESHOLD_CHARACTERS)
@@ -510,15 +571,11 @@ public class Compositor {
 
       // Compose queue group to clear.
       int clearQueueGroup =
-          mParseTree.parseEventToEnum(
-              event,
-              OUTPUT_TTS_CLEAR_QUEUE_GROUP,
-              SpeechController.UTTERANCE_GROUP_DEFAULT,
-              delegate);
+          outputs.getEnum(OUTPUT_TTS_CLEAR_QUEUE_GROUP, SpeechController.UTTERANCE_GROUP_DEFAULT);
 
       // Compose other speech flags/parameters.
-      int flags = getSpeechFlags(event, clearQueueGroup, delegate);
-      double speechPitch = mParseTree.parseEventToNumber(event, OUTPUT_TTS_PITCH, 1.0, delegate);
+      int flags = getSpeechFlags(outputs, clearQueueGroup);
+      double speechPitch = outputs.getNumber(OUTPUT_TTS_PITCH, 1.0);
       Bundle speechParams = new Bundle();
       speechParams.putFloat(SpeechParam.PITCH, (float) speechPitch);
 
@@ -604,56 +661,48 @@ public class Compositor {
     }
   }
 
-  private boolean hasFlagAdvancedContinuousReading(
-      int event, ParseTree.VariableDelegate variables) {
-    return mParseTree.parseEventToBool(event, OUTPUT_ADVANCE_CONTINUOUS_READING, false, variables);
-  }
-
   /**
-   * Gets speech flag mask for the event. <strong>Note:</strong> This method doesn't handle {@link
-   * FeedbackItem#FLAG_ADVANCE_CONTINUOUS_READING}, which should be handled after calling {@link
-   * #hasFlagAdvancedContinuousReading}.
+   * Gets speech flag mask from the event's evaluated outputs. <strong>Note:</strong> This method
+   * doesn't handle {@link FeedbackItem#FLAG_ADVANCE_CONTINUOUS_READING}, which is handled with the
+   * non-speech feedback.
    */
-  private int getSpeechFlags(int event, int clearQueueGroup, ParseTree.VariableDelegate variables) {
+  private static int getSpeechFlags(ParseTree.OutputValues outputs, int clearQueueGroup) {
     int flags = 0;
-    if (!mParseTree.parseEventToBool(event, OUTPUT_TTS_ADD_TO_HISTORY, false, variables)) {
+    if (!outputs.getBool(OUTPUT_TTS_ADD_TO_HISTORY, false)) {
       flags = flags | FeedbackItem.FLAG_NO_HISTORY;
     }
-    if (mParseTree.parseEventToBool(event, OUTPUT_TTS_FORCE_FEEDBACK, false, variables)) {
+    if (outputs.getBool(OUTPUT_TTS_FORCE_FEEDBACK, false)) {
       flags = flags | FeedbackItem.FLAG_FORCED_FEEDBACK;
     }
-    if (mParseTree.parseEventToBool(
-        event, OUTPUT_TTS_FORCE_FEEDBACK_AUDIO_PLAYBACK_ACTIVE, false, variables)) {
+    if (outputs.getBool(OUTPUT_TTS_FORCE_FEEDBACK_AUDIO_PLAYBACK_ACTIVE, false)) {
       flags = flags | FeedbackItem.FLAG_FORCED_FEEDBACK_AUDIO_PLAYBACK_ACTIVE;
     }
-    if (mParseTree.parseEventToBool(
-        event, OUTPUT_TTS_FORCE_FEEDBACK_MICROPHONE_ACTIVE, false, variables)) {
+    if (outputs.getBool(OUTPUT_TTS_FORCE_FEEDBACK_MICROPHONE_ACTIVE, false)) {
       flags = flags | FeedbackItem.FLAG_FORCED_FEEDBACK_MICROPHONE_ACTIVE;
     }
-    if (mParseTree.parseEventToBool(
-        event, OUTPUT_TTS_FORCE_FEEDBACK_SSB_ACTIVE, false, variables)) {
+    if (outputs.getBool(OUTPUT_TTS_FORCE_FEEDBACK_SSB_ACTIVE, false)) {
       flags = flags | FeedbackItem.FLAG_FORCED_FEEDBACK_SSB_ACTIVE;
     }
-    if (mParseTree.parseEventToBool(
-        event, OUTPUT_TTS_FORCE_FEEDBACK_PHONE_CALL_ACTIVE, true, variables)) {
+    if (outputs.getBool(OUTPUT_TTS_FORCE_FEEDBACK_PHONE_CALL_ACTIVE, true)) {
       flags = flags | FeedbackItem.FLAG_FORCED_FEEDBACK_PHONE_CALL_ACTIVE;
     }
-    if (mParseTree.parseEventToBool(event, OUTPUT_TTS_SKIP_DUPLICATE, false, variables)) {
+    if (outputs.getBool(OUTPUT_TTS_SKIP_DUPLICATE, false)) {
       flags = flags | FeedbackItem.FLAG_SKIP_DUPLICATE;
     }
     if (clearQueueGroup != SpeechController.UTTERANCE_GROUP_DEFAULT) {
       flags = flags | FeedbackItem.FLAG_CLEAR_QUEUED_UTTERANCES_WITH_SAME_UTTERANCE_GROUP;
     }
-    if (mParseTree.parseEventToBool(event, OUTPUT_TTS_INTERRUPT_SAME_GROUP, false, variables)) {
+    if (outputs.getBool(OUTPUT_TTS_INTERRUPT_SAME_GROUP, false)) {
       flags = flags | FeedbackItem.FLAG_INTERRUPT_CURRENT_UTTERANCE_WITH_SAME_UTTERANCE_GROUP;
     }
-    if (mParseTree.parseEventToBool(event, OUTPUT_PREVENT_DEVICE_SLEEP, false, variables)) {
+    if (outputs.getBool(OUTPUT_PREVENT_DEVICE_SLEEP, false)) {
       flags = flags | FeedbackItem.FLAG_NO_DEVICE_SLEEP;
     }
     return flags;
   }
 
-  private static ParseTree refreshParseTree(
+  @VisibleForTesting
+  static ParseTree refreshParseTree(
       Context context, VariablesFactory variablesFactory, Constants constants) {
     ParseTree parseTree = new ParseTree(context.getResources(), context.getPackageName());
 
@@ -663,7 +712,7 @@ public class Compositor {
     variablesFactory.declareVariables(parseTree);
 
     try {
-      parseTree.mergeTree(JsonUtils.readFromRawFile(context, R.raw.compositor));
+      parseTree.mergeTree(getCompositorDefinition(context));
     } catch (Exception e) {
       throw new IllegalStateException(e.toString());
     }
@@ -673,6 +722,18 @@ public class Compositor {
     return parseTree;
   }
 
+  /**
+   * Returns the parsed compositor definition. It's parsed once and shared by every compositor in
+   * the process, since ParseTree only reads it.
+   */
+  private static synchronized JSONObject getCompositorDefinition(Context context)
+      throws IOException, JSONException {
+    if (sCompositorDefinition == null) {
+      sCompositorDefinition = JsonUtils.readFromRawFile(context, R.raw.compositor);
+    }
+    return sCompositorDefinition;
+  }
+
   private static void declareConstants(ParseTree parseTree, Constants constants) {
     // Declare constans from verbosity settings.
     parseTree.setConstantBool("VERBOSITY_SPEAK_ROLE", constants.mSpeakRoles);
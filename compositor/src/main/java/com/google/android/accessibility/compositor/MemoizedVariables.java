@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.compositor;
+
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import com.google.android.accessibility.utils.parsetree.ParseTree;
+import com.google.android.accessibility.utils.parsetree.ParseTree.VariableDelegate;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A VariableDelegate that remembers the boolean, integer, number and enum variables read from
+ * another delegate, so that the outputs of one event share each lookup. Variables such as the role
+ * or window type of a node are read by many outputs, and can cost an IPC each time.
+ *
+ * <p>A MemoizedVariables lives as long as the event it was created for. Strings, references and
+ * arrays are not remembered, since callers may hold on to or modify the objects returned.
+ */
+class MemoizedVariables implements ParseTree.VariableDelegate {
+
+  private final VariableDelegate mVariables;
+  private final SparseBooleanArray mBooleans = new SparseBooleanArray();
+  private final SparseIntArray mIntegers = new SparseIntArray();
+  private final SparseArray<Double> mNumbers = new SparseArray<>();
+  private final SparseIntArray mEnums = new SparseIntArray();
+
+  /** Caller must call {@code cleanup()}, which cleans up {@code variables}. */
+  MemoizedVariables(VariableDelegate variables) {
+    mVariables = variables;
+  }
+
+  @Override
+  public void cleanup() {
+    mVariables.cleanup();
+  }
+
+  @Override
+  public boolean getBoolean(int variableId) {
+    int index = mBooleans.indexOfKey(variableId);
+    if (index >= 0) {
+      return mBooleans.valueAt(index);
+    }
+    boolean value = mVariables.getBoolean(variableId);
+    mBooleans.put(variableId, value);
+    return value;
+  }
+
+  @Override
+  public int getInteger(int variableId) {
+    int index = mIntegers.indexOfKey(variableId);
+    if (index >= 0) {
+      return mIntegers.valueAt(index);
+    }
+    int value = mVariables.getInteger(variableId);
+    mIntegers.put(variableId, value);
+    return value;
+  }
+
+  @Override
+  public double getNumber(int variableId) {
+    Double value = mNumbers.get(variableId);
+    if (value == null) {
+      value = mVariables.getNumber(variableId);
+      mNumbers.put(variableId, value);
+    }
+    return value;
+  }
+
+  @Override
+  public @Nullable CharSequence getString(int variableId) {
+    return mVariables.getString(variableId);
+  }
+
+  @Override
+  public int getEnum(int variableId) {
+    int index = mEnums.indexOfKey(variableId);
+    if (index >= 0) {
+      return mEnums.valueAt(index);
+    }
+    int value = mVariables.getEnum(variableId);
+    mEnums.put(variableId, value);
+    return value;
+  }
+
+  @Override
+  public @Nullable VariableDelegate getReference(int variableId) {
+    return mVariables.getReference(variableId);
+  }
+
+  @Override
+  public int getArrayLength(int variableId) {
+    return mVariables.getArrayLength(variableId);
+  }
+
+  @Override
+  public @Nullable CharSequence getArrayStringElement(int variableId, int index) {
+    return mVariables.getArrayStringElement(variableId, index);
+  }
+
+  @Override
+  public @Nullable VariableDelegate getArrayChildElement(int variableId, int index) {
+    return mVariables.getArrayChildElement(variableId, index);
+  }
+}
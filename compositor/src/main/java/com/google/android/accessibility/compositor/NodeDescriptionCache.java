@@ -0,0 +1,411 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.compositor;
+
+import android.text.TextUtils;
+import android.view.accessibility.AccessibilityEvent;
+import androidx.collection.LruCache;
+import androidx.core.view.accessibility.AccessibilityEventCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import com.google.android.accessibility.utils.AccessibilityEventListener;
+import com.google.android.accessibility.utils.AccessibilityEventUtils;
+import com.google.android.accessibility.utils.AccessibilityNodeInfoUtils;
+import com.google.android.accessibility.utils.Performance.EventId;
+import com.google.android.accessibility.utils.parsetree.ParseTree;
+import com.google.android.accessibility.utils.parsetree.ParseTree.VariableDelegate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Caches the descriptions that the compositor evaluates for child nodes, so that announcing the
+ * same list row again reuses the text of its unchanged children instead of walking them again.
+ *
+ * <p>While a child description is evaluated, every event and global variable that it reads is
+ * recorded with its value. A cached description is only reused if those variables still have the
+ * same values. Descriptions that read state which changes without an event, such as accessibility
+ * focus, are not cached.
+ *
+ * <p>When an event reports that only its source node changed, the descriptions of the source and
+ * of its ancestors are dropped, so that descriptions elsewhere in the window survive. When the
+ * source's subtree may have changed, the descriptions of its whole window are dropped. Scrolls and clicks don't drop descriptions by themselves: views that are
+ * rebound or change state while scrolling or clicking report it with a content change event. The
+ * whole cache is dropped whenever the compositor's verbosity or locale changes.
+ */
+public class NodeDescriptionCache implements AccessibilityEventListener {
+
+  private static final int MAX_SIZE = 100;
+
+  /** Events after which cached node descriptions may be out of date. */
+  private static final int MASK_EVENTS_CHANGING_CONTENT =
+      AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
+          | AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED
+          | AccessibilityEvent.TYPE_WINDOWS_CHANGED
+          | AccessibilityEvent.TYPE_VIEW_TEXT_CHANGED
+          | AccessibilityEvent.TYPE_VIEW_SELECTED;
+
+  /** A variable read from outside the node tree, and the value it had. */
+  private static final class Dependency {
+    final @ParseTree.VariableType int mType;
+    final int mVariableId;
+    final @Nullable Object mValue;
+
+    Dependency(@ParseTree.VariableType int type, int variableId, @Nullable Object value) {
+      mType = type;
+      mVariableId = variableId;
+      mValue = value;
+    }
+
+    boolean isCurrent(VariableDelegate context) {
+      switch (mType) {
+        case ParseTree.VARIABLE_BOOL:
+          return Objects.equals(mValue, context.getBoolean(mVariableId));
+        case ParseTree.VARIABLE_INTEGER:
+          return Objects.equals(mValue, context.getInteger(mVariableId));
+        case ParseTree.VARIABLE_NUMBER:
+          return Objects.equals(mValue, context.getNumber(mVariableId));
+        case ParseTree.VARIABLE_ENUM:
+          return Objects.equals(mValue, context.getEnum(mVariableId));
+        case ParseTree.VARIABLE_STRING:
+        default:
+          return TextUtils.equals((CharSequence) mValue, context.getString(mVariableId));
+      }
+    }
+  }
+
+  /** A cached description, with the outside variables it was computed from. */
+  private static final class Entry {
+    final Object mFunction;
+    final CharSequence mDescription;
+    final List<Dependency> mDependencies;
+
+    Entry(Object function, CharSequence description, List<Dependency> dependencies) {
+      mFunction = function;
+      mDescription = description;
+      mDependencies = dependencies;
+    }
+  }
+
+  /** A description being evaluated. */
+  private static final class Evaluation {
+    final List<Dependency> mDependencies = new ArrayList<>();
+    boolean mCacheable = true;
+
+    void addDependency(Dependency dependency) {
+      for (Dependency existing : mDependencies) {
+        if (existing.mType == dependency.mType
+            && existing.mVariableId == dependency.mVariableId
+            && Objects.equals(existing.mValue, dependency.mValue)) {
+          return;
+        }
+      }
+      mDependencies.add(dependency);
+    }
+
+    void addAll(Evaluation inner) {
+      mCacheable &= inner.mCacheable;
+      for (Dependency dependency : inner.mDependencies) {
+        addDependency(dependency);
+      }
+    }
+  }
+
+  // Keys are nodes, values are the node's descriptions, one per description function. Looking up
+  // the caller's node doesn't allocate. Nodes in keys are owned by the cache.
+  private final LruCache<AccessibilityNodeInfoCompat, ArrayList<Entry>> mEntries =
+      new LruCache<AccessibilityNodeInfoCompat, ArrayList<Entry>>(MAX_SIZE) {
+        @Override
+        protected void entryRemoved(
+            boolean evicted,
+            AccessibilityNodeInfoCompat node,
+            ArrayList<Entry> oldValue,
+            @Nullable ArrayList<Entry> newValue) {
+          AccessibilityNodeInfoUtils.recycleNodes(node);
+        }
+      };
+
+  // Descriptions being evaluated, innermost last.
+  private final ArrayList<Evaluation> mEvaluations = new ArrayList<>();
+
+  private int mHitCount = 0;
+  private int mMissCount = 0;
+
+  NodeDescriptionCache() {}
+
+  /** Returns the number of child descriptions that were reused. */
+  public int getHitCount() {
+    return mHitCount;
+  }
+
+  /** Returns the number of child descriptions that had to be evaluated. */
+  public int getMissCount() {
+    return mMissCount;
+  }
+
+  @Override
+  public int getEventTypes() {
+    return MASK_EVENTS_CHANGING_CONTENT;
+  }
+
+  @Override
+  public void onAccessibilityEvent(AccessibilityEvent event, EventId eventId) {
+    AccessibilityNodeInfoCompat source =
+        changesSourceOnly(event) ? AccessibilityEventUtils.sourceCompat(event) : null;
+    try {
+      if (source != null) {
+        invalidateSourceAndAncestors(source);
+      } else if (event.getWindowId() != AccessibilityEventUtils.WINDOW_ID_NONE) {
+        invalidateWindow(event.getWindowId());
+      } else {
+        invalidate();
+      }
+    } finally {
+      AccessibilityNodeInfoUtils.recycleNodes(source);
+    }
+  }
+
+  /**
+   * Returns whether {@code event} only changes its source node, and not the nodes under it. Events
+   * that add, remove or rebind children change the source's subtree.
+   */
+  private static boolean changesSourceOnly(AccessibilityEvent event) {
+    switch (event.getEventType()) {
+      case AccessibilityEvent.TYPE_VIEW_TEXT_CHANGED:
+      case AccessibilityEvent.TYPE_VIEW_SELECTED:
+        return true;
+      case AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED:
+        int changeTypes = event.getContentChangeTypes();
+        return changeTypes != AccessibilityEventCompat.CONTENT_CHANGE_TYPE_UNDEFINED
+            && (changeTypes & AccessibilityEventCompat.CONTENT_CHANGE_TYPE_SUBTREE) == 0;
+      default:
+        return false;
+    }
+  }
+
+  /** Drops all cached descriptions. */
+  public void invalidate() {
+    mEntries.evictAll();
+  }
+
+  /** Drops the cached descriptions of nodes in window {@code windowId}. */
+  private void invalidateWindow(int windowId) {
+    for (AccessibilityNodeInfoCompat node : mEntries.snapshot().keySet()) {
+      if (node.getWindowId() == windowId) {
+        mEntries.remove(node);
+      }
+    }
+  }
+
+  /**
+   * Drops the cached descriptions of {@code source} and of its ancestors, which contain its
+   * description. The ancestors are fetched once per event, and each is removed by key, so cached
+   * nodes elsewhere in the window are never walked.
+   */
+  private void invalidateSourceAndAncestors(AccessibilityNodeInfoCompat source) {
+    mEntries.remove(source);
+    if (mEntries.size() == 0) {
+      return;
+    }
+    HashSet<AccessibilityNodeInfoCompat> ancestors = new HashSet<>();
+    try {
+      AccessibilityNodeInfoCompat ancestor = source.getParent();
+      while (ancestor != null) {
+        if (ancestor.equals(source) || ancestors.contains(ancestor)) {
+          // The hierarchy has a cycle.
+          ancestor.recycle();
+          break;
+        }
+        ancestors.add(ancestor);
+        mEntries.remove(ancestor);
+        ancestor = ancestor.getParent();
+      }
+    } finally {
+      AccessibilityNodeInfoUtils.recycleNodes(ancestors);
+    }
+  }
+
+  /**
+   * Wraps the event and global variables of a node tree, so that the ones read while evaluating a
+   * child description are recorded.
+   */
+  VariableDelegate trackContext(VariableDelegate context) {
+    return new ContextVariables(context);
+  }
+
+  /**
+   * Returns the cached description of {@code node}, if the outside variables it depends on still
+   * have the same values in {@code context}.
+   */
+  @Nullable
+  CharSequence get(AccessibilityNodeInfoCompat node, Object function, VariableDelegate context) {
+    Entry entry = null;
+    ArrayList<Entry> entries = mEntries.get(node);
+    if (entries != null) {
+      for (int i = 0; i < entries.size(); i++) {
+        if (entries.get(i).mFunction == function) {
+          entry = entries.get(i);
+          break;
+        }
+      }
+    }
+    if (entry != null) {
+      for (Dependency dependency : entry.mDependencies) {
+        if (!dependency.isCurrent(context)) {
+          entry = null;
+          break;
+        }
+      }
+    }
+    if (entry == null) {
+      ++mMissCount;
+      return null;
+    }
+    ++mHitCount;
+    // A description containing this one depends on the same variables.
+    Evaluation outer = getCurrentEvaluation();
+    if (outer != null) {
+      for (Dependency dependency : entry.mDependencies) {
+        outer.addDependency(dependency);
+      }
+    }
+    return entry.mDescription;
+  }
+
+  void onEvaluationStarted() {
+    mEvaluations.add(new Evaluation());
+  }
+
+  void onEvaluationFinished(
+      AccessibilityNodeInfoCompat node, Object function, @Nullable CharSequence description) {
+    Evaluation evaluation = mEvaluations.remove(mEvaluations.size() - 1);
+    Evaluation outer = getCurrentEvaluation();
+    if (outer != null) {
+      outer.addAll(evaluation);
+    }
+    if (evaluation.mCacheable && description != null) {
+      Entry entry = new Entry(function, description, evaluation.mDependencies);
+      ArrayList<Entry> entries = mEntries.get(node);
+      if (entries == null) {
+        entries = new ArrayList<>(1);
+        mEntries.put(AccessibilityNodeInfoUtils.obtain(node), entries);
+      }
+      for (int i = 0; i < entries.size(); i++) {
+        if (entries.get(i).mFunction == function) {
+          // Replaces a description whose variables changed.
+          entries.set(i, entry);
+          return;
+        }
+      }
+      entries.add(entry);
+    }
+  }
+
+  /** Marks the descriptions being evaluated as depending on state that changes without events. */
+  void onUncacheableRead() {
+    Evaluation evaluation = getCurrentEvaluation();
+    if (evaluation != null) {
+      evaluation.mCacheable = false;
+    }
+  }
+
+  private void onContextRead(
+      @ParseTree.VariableType int type, int variableId, @Nullable Object value) {
+    Evaluation evaluation = getCurrentEvaluation();
+    if (evaluation != null) {
+      evaluation.addDependency(new Dependency(type, variableId, value));
+    }
+  }
+
+  private @Nullable Evaluation getCurrentEvaluation() {
+    return mEvaluations.isEmpty() ? null : mEvaluations.get(mEvaluations.size() - 1);
+  }
+
+  /** Forwards to the event and global variables, recording each read. */
+  private class ContextVariables implements VariableDelegate {
+    private final VariableDelegate mContext;
+
+    ContextVariables(VariableDelegate context) {
+      mContext = context;
+    }
+
+    @Override
+    public void cleanup() {
+      mContext.cleanup();
+    }
+
+    @Override
+    public boolean getBoolean(int variableId) {
+      boolean value = mContext.getBoolean(variableId);
+      onContextRead(ParseTree.VARIABLE_BOOL, variableId, value);
+      return value;
+    }
+
+    @Override
+    public int getInteger(int variableId) {
+      int value = mContext.getInteger(variableId);
+      onContextRead(ParseTree.VARIABLE_INTEGER, variableId, value);
+      return value;
+    }
+
+    @Override
+    public double getNumber(int variableId) {
+      double value = mContext.getNumber(variableId);
+      onContextRead(ParseTree.VARIABLE_NUMBER, variableId, value);
+      return value;
+    }
+
+    @Override
+    public @Nullable CharSequence getString(int variableId) {
+      CharSequence value = mContext.getString(variableId);
+      onContextRead(ParseTree.VARIABLE_STRING, variableId, value);
+      return value;
+    }
+
+    @Override
+    public int getEnum(int variableId) {
+      int value = mContext.getEnum(variableId);
+      onContextRead(ParseTree.VARIABLE_ENUM, variableId, value);
+      return value;
+    }
+
+    @Override
+    public @Nullable VariableDelegate getReference(int variableId) {
+      onUncacheableRead();
+      return mContext.getReference(variableId);
+    }
+
+    @Override
+    public int getArrayLength(int variableId) {
+      onUncacheableRead();
+      return mContext.getArrayLength(variableId);
+    }
+
+    @Override
+    public @Nullable CharSequence getArrayStringElement(int variableId, int index) {
+      onUncacheableRead();
+      return mContext.getArrayStringElement(variableId, index);
+    }
+
+    @Override
+    public @Nullable VariableDelegate getArrayChildElement(int variableId, int index) {
+      onUncacheableRead();
+      return mContext.getArrayChildElement(variableId, index);
+    }
+  }
+}
@@ -48,7 +48,7 @@ import java.util.Set;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** A VariableDelegate that maps data from AccessibilityEvent and AccessibilityNodeInfoCompat */
-class NodeVariables implements ParseTree.VariableDelegate {
+class NodeVariables implements ParseTree.CachingVariableDelegate {
 
   private static final String TAG = "NodeVariables";
 
@@ -138,6 +138,8 @@ class NodeVariables implements ParseTree.VariableDelegate {
   // Stores the user preferred locale changed using language switcher.
   private @Nullable final Locale mUserPreferredLocale;
   @Nullable private final NodeMenuProvider nodeMenuProvider;
+  // Shared by the whole node tree. Null if child descriptions are not cached.
+  private final @Nullable NodeDescriptionCache mDescriptionCache;
 
   /**
    * Constructs a NodeVariables, which contains context variables to help generate feedback for an
@@ -145,6 +147,8 @@ class NodeVariables implements ParseTree.VariableDelegate {
    *
    * @param node The view node for which we are generating feedback. The NodeVariables will recycle
    *     this node.
+   * @param descriptionCache Caches descriptions of child nodes. If not null, {@code parent} must be
+   *     wrapped by {@link NodeDescriptionCache#trackContext}.
    */
   public NodeVariables(
       Context context,
@@ -152,7 +156,8 @@ class NodeVariables implements ParseTree.VariableDelegate {
       @Nullable NodeMenuProvider nodeMenuProvider,
       ParseTree.VariableDelegate parent,
       AccessibilityNodeInfoCompat node,
-      @Nullable Locale userPreferredLocale) {
+      @Nullable Locale userPreferredLocale,
+      @Nullable NodeDescriptionCache descriptionCache) {
     mContext = context;
     this.imageContents = imageContents;
     mParentVariables = parent;
@@ -166,6 +171,7 @@ class NodeVariables implements ParseTree.VariableDelegate {
     mLocale = getLocaleForIME(node, context);
     mUserPreferredLocale = userPreferredLocale;
     this.nodeMenuProvider = nodeMenuProvider;
+    mDescriptionCache = descriptionCache;
   }
 
   private static NodeVariables constructForReferredNode(
@@ -174,10 +180,17 @@ class NodeVariables implements ParseTree.VariableDelegate {
       @Nullable NodeMenuProvider nodeMenuProvider,
       ParseTree.VariableDelegate parent,
       AccessibilityNodeInfoCompat node,
-      @Nullable Locale userPreferredLocale) {
+      @Nullable Locale userPreferredLocale,
+      @Nullable NodeDescriptionCache descriptionCache) {
     NodeVariables instance =
         new NodeVariables(
-            context, imageContents, nodeMenuProvider, parent, node, userPreferredLocale);
+            context,
+            imageContents,
+            nodeMenuProvider,
+            parent,
+            node,
+            userPreferredLocale,
+            descriptionCache);
     instance.mIsRoot = true; // This is a new root for node tree recursion.
     instance.mOwnsParentVariables = false; // Not responsible to recycle mParentVariables.
     return instance;
@@ -190,10 +203,17 @@ class NodeVariables implements ParseTree.VariableDelegate {
       ParseTree.VariableDelegate parent,
       AccessibilityNodeInfoCompat node,
       Set<AccessibilityNodeInfoCompat> visitedNodes,
-      @Nullable Locale userPreferredLocale) {
+      @Nullable Locale userPreferredLocale,
+      @Nullable NodeDescriptionCache descriptionCache) {
     NodeVariables instance =
         new NodeVariables(
-            context, imageContents, nodeMenuProvider, parent, node, userPreferredLocale);
+            context,
+            imageContents,
+            nodeMenuProvider,
+            parent,
+            node,
+            userPreferredLocale,
+            descriptionCache);
     instance.mIsRoot = false; // Not responsible to recycle mVisitedNodes.
     instance.mOwnsParentVariables = false; // Not responsible to recycle mParentVariables.
     instance.setVisitedNodes(visitedNodes);
@@ -267,6 +287,34 @@ class NodeVariables implements ParseTree.VariableDelegate {
     }
   }
 
+  @Override
+  public @Nullable CharSequence getCachedResult(Object function) {
+    return (mDescriptionCache == null)
+        ? null
+        : mDescriptionCache.get(mNode, function, mParentVariables);
+  }
+
+  @Override
+  public void onEvaluationStarted() {
+    if (mDescriptionCache != null) {
+      mDescriptionCache.onEvaluationStarted();
+    }
+  }
+
+  @Override
+  public void onEvaluationFinished(Object function, @Nullable CharSequence result) {
+    if (mDescriptionCache != null) {
+      mDescriptionCache.onEvaluationFinished(mNode, function, result);
+    }
+  }
+
+  /** Keeps descriptions that read state which changes without an event from being cached. */
+  private void onUncacheableRead() {
+    if (mDescriptionCache != null) {
+      mDescriptionCache.onUncacheableRead();
+    }
+  }
+
   @TargetApi(Build.VERSION_CODES.O)
   @Override
   public boolean getBoolean(int variableId) {
@@ -285,10 +333,12 @@ class NodeVariables implements ParseTree.VariableDelegate {
       case NODE_IS_ACCESSIBILITY_FOCUSABLE:
         return AccessibilityNodeInfoUtils.isAccessibilityFocusable(mNode);
       case NODE_IS_FOCUSED:
+        onUncacheableRead();
         return mNode.isFocused();
       case NODE_IS_SHOWING_HINT:
         return mNode.isShowingHintText();
       case NODE_IS_ACCESSIBILITY_FOCUSED:
+        onUncacheableRead();
         return mNode.isAccessibilityFocused();
       case NODE_SUPPORTS_ACTION_SET_SELECTION:
         return AccessibilityNodeInfoUtils.supportsAction(
@@ -339,6 +389,7 @@ class NodeVariables implements ParseTree.VariableDelegate {
         return imageContents != null && imageContents.needsLabel(mNode);
       case NODE_IS_WITHIN_ACCESSIBILITY_FOCUS:
         {
+          onUncacheableRead();
           return AccessibilityNodeInfoUtils.isSelfOrAncestorFocused(mNode);
         }
       case NODE_IS_KEYBOARD_WINDOW:
@@ -417,6 +468,8 @@ class NodeVariables implements ParseTree.VariableDelegate {
       case NODE_STATE_DESCRIPTION:
         return prepareSpans(AccessibilityNodeInfoUtils.getState(mNode));
       case NODE_CAPTION_TEXT:
+        // Image captions arrive without an event for the node.
+        onUncacheableRead();
         return imageContents == null ? "" : imageContents.getCaptionResult(mNode);
       default:
         return mParentVariables.getString(variableId);
@@ -496,7 +549,8 @@ class NodeVariables implements ParseTree.VariableDelegate {
               nodeMenuProvider,
               mParentVariables,
               AccessibilityNodeInfoUtils.obtain(mLabelNode),
-              mUserPreferredLocale);
+              mUserPreferredLocale,
+              mDescriptionCache);
         }
       case NODE_PARENT:
         {
@@ -515,7 +569,8 @@ class NodeVariables implements ParseTree.VariableDelegate {
               nodeMenuProvider,
               mParentVariables,
               AccessibilityNodeInfoUtils.obtain(mParentNode),
-              mUserPreferredLocale);
+              mUserPreferredLocale,
+              mDescriptionCache);
         }
       case NODE_ACTION_CLICK:
         for (AccessibilityActionCompat action : mNode.getActionList()) {
@@ -571,7 +626,8 @@ class NodeVariables implements ParseTree.VariableDelegate {
               mParentVariables,
               AccessibilityNodeInfoUtils.obtain(mChildNodes.get(index)),
               mVisitedNodes,
-              mUserPreferredLocale);
+              mUserPreferredLocale,
+              mDescriptionCache);
         }
       case NODE_CHILDREN_ASCENDING:
         {
@@ -583,7 +639,8 @@ class NodeVariables implements ParseTree.VariableDelegate {
               mParentVariables,
               AccessibilityNodeInfoUtils.obtain(mChildNodesAscending.get(index)),
               mVisitedNodes,
-              mUserPreferredLocale);
+              mUserPreferredLocale,
+              mDescriptionCache);
         }
       case NODE_ACTIONS:
         return new ActionVariables(mContext, this, mNode.getActionList().get(index));
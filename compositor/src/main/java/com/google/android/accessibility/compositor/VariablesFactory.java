@@ -31,6 +31,7 @@ class VariablesFactory {
   private final GlobalVariables mGlobalVariables;
   @Nullable private final ImageContents imageContents;
   @Nullable private NodeMenuProvider nodeMenuProvider;
+  private final NodeDescriptionCache mDescriptionCache = new NodeDescriptionCache();
   // Stores the user preferred locale changed using language switcher.
   private @Nullable Locale mUserPreferredLocale;
 
@@ -55,6 +56,11 @@ class VariablesFactory {
   // Sets the user preferred locale changed using language switcher.
   void setUserPreferredLocale(Locale locale) {
     mUserPreferredLocale = locale;
+    mDescriptionCache.invalidate();
+  }
+
+  NodeDescriptionCache getDescriptionCache() {
+    return mDescriptionCache;
   }
 
   public void setNodeMenuProvider(@Nullable NodeMenuProvider nodeMenuProvider) {
@@ -80,16 +86,20 @@ class VariablesFactory {
     // Node variables is constructed last. This ensures that child nodes it creates have access to
     // top level global variables.
     if (node != null) {
+      // Child nodes read event and global variables directly from the parent delegate, so it is
+      // memoized too.
       delegate =
           new NodeVariables(
               mContext,
               imageContents,
               nodeMenuProvider,
-              delegate,
+              mDescriptionCache.trackContext(new MemoizedVariables(delegate)),
               AccessibilityNodeInfoCompat.obtain(node),
-              mUserPreferredLocale);
+              mUserPreferredLocale,
+              mDescriptionCache);
     }
-    return delegate;
+    // Each event evaluates many outputs, which read many of the same variables.
+    return new MemoizedVariables(delegate);
   }
 
   void declareVariables(ParseTree parseTree) {
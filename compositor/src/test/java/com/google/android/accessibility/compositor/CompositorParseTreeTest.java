@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.compositor;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import android.accessibilityservice.AccessibilityService;
+import android.view.accessibility.AccessibilityEvent;
+import com.google.android.accessibility.utils.input.InputModeManager;
+import com.google.android.accessibility.utils.parsetree.ParseTree;
+import java.util.HashMap;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+/** Evaluates every (event, output) pair of compositor.json with each evaluation path. */
+@RunWith(RobolectricTestRunner.class)
+public final class CompositorParseTreeTest {
+
+  private static final int TYPE_BOOL = 0;
+  private static final int TYPE_INTEGER = 1;
+  private static final int TYPE_NUMBER = 2;
+  private static final int TYPE_STRING = 3;
+  private static final int TYPE_ENUM = 4;
+
+  /** The result type of each output that Compositor declares. */
+  private static final Map<Integer, Integer> OUTPUT_TYPES = new HashMap<>();
+
+  static {
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_OUTPUT, TYPE_STRING);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_QUEUE_MODE, TYPE_ENUM);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_ADD_TO_HISTORY, TYPE_BOOL);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_FORCE_FEEDBACK_AUDIO_PLAYBACK_ACTIVE, TYPE_BOOL);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_FORCE_FEEDBACK_MICROPHONE_ACTIVE, TYPE_BOOL);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_FORCE_FEEDBACK_SSB_ACTIVE, TYPE_BOOL);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_FORCE_FEEDBACK_PHONE_CALL_ACTIVE, TYPE_BOOL);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_INTERRUPT_SAME_GROUP, TYPE_BOOL);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_SKIP_DUPLICATE, TYPE_BOOL);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_CLEAR_QUEUE_GROUP, TYPE_ENUM);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_PITCH, TYPE_NUMBER);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_ADVANCE_CONTINUOUS_READING, TYPE_BOOL);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_PREVENT_DEVICE_SLEEP, TYPE_BOOL);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_REFRESH_SOURCE_NODE, TYPE_BOOL);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_HAPTIC, TYPE_INTEGER);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_EARCON, TYPE_INTEGER);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_EARCON_RATE, TYPE_NUMBER);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_EARCON_VOLUME, TYPE_NUMBER);
+    OUTPUT_TYPES.put(Compositor.OUTPUT_TTS_FORCE_FEEDBACK, TYPE_BOOL);
+  }
+
+  /** Each seed gives the variables different values, so that different branches are taken. */
+  private static final int SEED_COUNT = 16;
+
+  private ParseTree compiledTree;
+  private ParseTree walkedTree;
+
+  @Before
+  public void setUp() {
+    AccessibilityService service = Robolectric.setupService(TestAccessibilityService.class);
+    compiledTree = createParseTree(service);
+    walkedTree = createParseTree(service);
+    walkedTree.setCompiledEvaluationEnabled(false);
+  }
+
+  @Test
+  public void compiledEvaluation_matchesTreeWalking() {
+    int[] eventIds = compiledTree.getEventIds();
+    assertThat(eventIds).isNotEmpty();
+
+    long declaredOutputs = 0;
+    for (int outputId : OUTPUT_TYPES.keySet()) {
+      declaredOutputs |= 1L << outputId;
+    }
+
+    for (int eventId : eventIds) {
+      long outputMask = compiledTree.getOutputMask(eventId);
+      assertWithMessage("outputs of event 0x%s", Integer.toHexString(eventId))
+          .that(outputMask & ~declaredOutputs)
+          .isEqualTo(0L);
+      for (int outputId : OUTPUT_TYPES.keySet()) {
+        if ((outputMask & (1L << outputId)) == 0) {
+          continue;
+        }
+        for (int seed = 0; seed < SEED_COUNT; seed++) {
+          assertWithMessage(
+                  "event 0x%s, output %s, seed %s", Integer.toHexString(eventId), outputId, seed)
+              .that(evaluate(compiledTree, eventId, outputId, seed))
+              .isEqualTo(evaluate(walkedTree, eventId, outputId, seed));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void batchedEvaluation_matchesSingleOutputEvaluation() {
+    for (ParseTree parseTree : new ParseTree[] {compiledTree, walkedTree}) {
+      ParseTree.OutputValues values = new ParseTree.OutputValues();
+      for (int eventId : parseTree.getEventIds()) {
+        long outputMask = parseTree.getOutputMask(eventId);
+        for (int seed = 0; seed < SEED_COUNT; seed++) {
+          values.clear();
+          ParseTree.VariableDelegate delegate = new FakeVariableDelegate(seed, /* depth= */ 0);
+          parseTree.parseEvent(eventId, /* outputMask= */ -1L, delegate, values);
+          for (int outputId : OUTPUT_TYPES.keySet()) {
+            assertWithMessage(
+                    "event 0x%s, output %s, seed %s", Integer.toHexString(eventId), outputId, seed)
+                .that(values.has(outputId))
+                .isEqualTo((outputMask & (1L << outputId)) != 0);
+            if (values.has(outputId)) {
+              assertWithMessage(
+                      "event 0x%s, output %s, seed %s",
+                      Integer.toHexString(eventId), outputId, seed)
+                  .that(read(values, outputId))
+                  .isEqualTo(evaluate(walkedTree, eventId, outputId, seed));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static ParseTree createParseTree(AccessibilityService service) {
+    GlobalVariables globalVariables =
+        new GlobalVariables(service, new InputModeManager(), /* keyComboManager= */ null);
+    VariablesFactory variablesFactory =
+        new VariablesFactory(service, globalVariables, /* imageContents= */ null);
+    return Compositor.refreshParseTree(service, variablesFactory, new Compositor.Constants());
+  }
+
+  /** Evaluates one output with the parseEventTo*() method of its type. */
+  private static String evaluate(ParseTree parseTree, int eventId, int outputId, int seed) {
+    ParseTree.VariableDelegate delegate = new FakeVariableDelegate(seed, /* depth= */ 0);
+    switch (OUTPUT_TYPES.get(outputId)) {
+      case TYPE_BOOL:
+        return String.valueOf(parseTree.parseEventToBool(eventId, outputId, false, delegate));
+      case TYPE_INTEGER:
+        return String.valueOf(parseTree.parseEventToInteger(eventId, outputId, -1, delegate));
+      case TYPE_NUMBER:
+        return String.valueOf(parseTree.parseEventToNumber(eventId, outputId, 1.0, delegate));
+      case TYPE_ENUM:
+        return String.valueOf(parseTree.parseEventToEnum(eventId, outputId, -1, delegate));
+      case TYPE_STRING:
+      default:
+        return String.valueOf(parseTree.parseEventToString(eventId, outputId, delegate));
+    }
+  }
+
+  /** Reads one output of {@link ParseTree#parseEvent} with the getter of its type. */
+  private static String read(ParseTree.OutputValues values, int outputId) {
+    switch (OUTPUT_TYPES.get(outputId)) {
+      case TYPE_BOOL:
+        return String.valueOf(values.getBool(outputId, false));
+      case TYPE_INTEGER:
+        return String.valueOf(values.getInteger(outputId, -1));
+      case TYPE_NUMBER:
+        return String.valueOf(values.getNumber(outputId, 1.0));
+      case TYPE_ENUM:
+        return String.valueOf(values.getEnum(outputId, -1));
+      case TYPE_STRING:
+      default:
+        return String.valueOf(values.getString(outputId));
+    }
+  }
+
+  /**
+   * Returns values that only depend on the variable ID, a seed and the depth of the delegate, so
+   * that two evaluations with the same seed see the same variables.
+   */
+  private static final class FakeVariableDelegate implements ParseTree.VariableDelegate {
+    private static final int MAX_DEPTH = 2;
+
+    private final int seed;
+    private final int depth;
+
+    FakeVariableDelegate(int seed, int depth) {
+      this.seed = seed;
+      this.depth = depth;
+    }
+
+    private int value(int variableId) {
+      int hash = variableId * 31 + seed * 17 + depth * 7;
+      return (hash ^ (hash >>> 4)) & Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void cleanup() {}
+
+    @Override
+    public boolean getBoolean(int variableId) {
+      return value(variableId) % 2 == 0;
+    }
+
+    @Override
+    public int getInteger(int variableId) {
+      return value(variableId) % 5;
+    }
+
+    @Override
+    public double getNumber(int variableId) {
+      return (value(variableId) % 7) * 0.5;
+    }
+
+    @Override
+    public CharSequence getString(int variableId) {
+      int value = value(variableId);
+      return (value % 4 == 0) ? "" : "text" + (value % 10);
+    }
+
+    @Override
+    public int getEnum(int variableId) {
+      return value(variableId) % 4;
+    }
+
+    @Override
+    public ParseTree.VariableDelegate getReference(int variableId) {
+      return new FakeVariableDelegate(seed + variableId, depth + 1);
+    }
+
+    @Override
+    public int getArrayLength(int variableId) {
+      return (depth < MAX_DEPTH) ? value(variableId) % 3 : 0;
+    }
+
+    @Override
+    public @Nullable CharSequence getArrayStringElement(int variableId, int index) {
+      return "item" + index;
+    }
+
+    @Override
+    public ParseTree.VariableDelegate getArrayChildElement(int variableId, int index) {
+      return new FakeVariableDelegate(seed + index, depth + 1);
+    }
+  }
+
+  /** A service for GlobalVariables, which only uses it as a context. */
+  public static class TestAccessibilityService extends AccessibilityService {
+    @Override
+    public void onAccessibilityEvent(AccessibilityEvent event) {}
+
+    @Override
+    public void onInterrupt() {}
+  }
+}
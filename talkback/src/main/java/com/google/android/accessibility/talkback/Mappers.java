@@ -33,7 +33,6 @@ import static com.google.android.accessibility.utils.output.SpeechController.QUE
 import static com.google.android.accessibility.utils.traversal.TraversalStrategy.SEARCH_FOCUS_UNKNOWN;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
 import android.text.TextUtils;
 import android.view.accessibility.AccessibilityEvent;
@@ -50,13 +49,13 @@ import com.google.android.accessibility.talkback.focusmanagement.FocusFeedbackMa
 import com.google.android.accessibility.talkback.focusmanagement.FocusProcessorForTapAndTouchExploration.TypingMethod;
 import com.google.android.accessibility.talkback.focusmanagement.interpreter.ScreenState;
 import com.google.android.accessibility.talkback.focusmanagement.record.FocusActionInfo;
+import com.google.android.accessibility.talkback.utils.PreferenceSnapshot;
 import com.google.android.accessibility.utils.AccessibilityEventUtils;
 import com.google.android.accessibility.utils.AccessibilityNodeInfoUtils;
 import com.google.android.accessibility.utils.FeatureSupport;
 import com.google.android.accessibility.utils.FocusFinder;
 import com.google.android.accessibility.utils.LogDepth;
 import com.google.android.accessibility.utils.Performance.EventId;
-import com.google.android.accessibility.utils.SharedPreferencesUtils;
 import com.google.android.accessibility.utils.output.FeedbackItem;
 import com.google.android.accessibility.utils.output.SpeechController;
 import com.google.android.accessibility.utils.output.SpeechController.SpeakOptions;
@@ -74,11 +73,17 @@ public final class Mappers {
   public static final String LOG_TAG = "Mappers";
 
   private final Context context;
+  private final PreferenceSnapshot.Holder preferences;
   private final Compositor compositor;
   private final FocusFinder focusFinder;
 
-  public Mappers(Context context, Compositor compositor, FocusFinder focusFinder) {
+  public Mappers(
+      Context context,
+      PreferenceSnapshot.Holder preferences,
+      Compositor compositor,
+      FocusFinder focusFinder) {
     this.context = context;
+    this.preferences = preferences;
     this.compositor = compositor;
     this.focusFinder = focusFinder;
   }
@@ -97,7 +102,8 @@ public final class Mappers {
       @Nullable Interpretation interpretation,
       @Nullable AccessibilityNodeInfoCompat eventSourceNode) {
 
-    final Variables variables = new Variables(context, event, interpretation);
+    final Variables variables =
+        new Variables(context, preferences.get(), event, interpretation);
 
     try {
 
@@ -265,19 +271,20 @@ public final class Mappers {
    */
   public static final class Variables {
     private final Context context;
-    private SharedPreferences prefs;
+    private final PreferenceSnapshot preferences;
     private final @Nullable AccessibilityEvent event;
     private final @Nullable Interpretation interpretation;
     private @Nullable AccessibilityNodeInfoCompat source; // Owner, must recycle.
 
     public Variables(
         Context context,
+        PreferenceSnapshot preferences,
         @Nullable AccessibilityEvent event,
         @Nullable Interpretation interpretation) {
       this.context = context;
+      this.preferences = preferences;
       this.event = event;
       this.interpretation = interpretation;
-      prefs = SharedPreferencesUtils.getSharedPreferences(context);
     }
 
     public void recycle() {
@@ -411,24 +418,13 @@ public final class Mappers {
     }
 
     public boolean liftToType(int depth) {
-      @TypingMethod
-      int typingMethod =
-          SharedPreferencesUtils.getIntFromStringPref(
-              prefs,
-              context.getResources(),
-              R.string.pref_typing_confirmation_key,
-              R.string.pref_typing_confirmation_default);
+      @TypingMethod int typingMethod = preferences.typingMethod();
       LogDepth.logVar(LOG_TAG, ++depth, "liftToType", typingMethod);
       return typingMethod == LIFT_TO_TYPE;
     }
 
     public boolean singleTap(int depth) {
-      boolean enabled =
-          SharedPreferencesUtils.getBooleanPref(
-              prefs,
-              context.getResources(),
-              R.string.pref_single_tap_key,
-              R.bool.pref_single_tap_default);
+      boolean enabled = preferences.singleTapEnabled();
       LogDepth.logVar(LOG_TAG, ++depth, "singleTap", enabled);
       return enabled;
     }
@@ -22,10 +22,10 @@ import static com.google.android.accessibility.talkback.Feedback.InterruptLevel;
 import static com.google.android.accessibility.utils.Performance.EVENT_ID_UNTRACKED;
 import static com.google.android.accessibility.utils.feedback.AccessibilityHintsManager.DELAY_HINT;
 
-import android.content.Context;
 import android.os.Looper;
 import android.os.Message;
 import android.os.SystemClock;
+import android.util.Log;
 import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
 import android.view.accessibility.AccessibilityEvent;
 import androidx.annotation.VisibleForTesting;
@@ -33,12 +33,11 @@ import com.google.android.accessibility.compositor.Compositor;
 import com.google.android.accessibility.talkback.TalkBackService.ProximitySensorListener;
 import com.google.android.accessibility.talkback.eventprocessor.AccessibilityEventProcessor.AccessibilityEventIdleListener;
 import com.google.android.accessibility.talkback.utils.DiagnosticOverlayControllerImpl;
-import com.google.android.accessibility.talkback.utils.VerbosityPreferences;
+import com.google.android.accessibility.talkback.utils.PreferenceSnapshot;
 import com.google.android.accessibility.utils.AccessibilityEventListener;
 import com.google.android.accessibility.utils.Performance.EventId;
 import com.google.android.accessibility.utils.Performance.EventIdAnd;
 import com.google.android.accessibility.utils.ProximitySensor;
-import com.google.android.accessibility.utils.SharedPreferencesUtils;
 import com.google.android.accessibility.utils.WeakReferenceHandler;
 import com.google.android.accessibility.utils.output.SpeechController;
 import com.google.android.accessibility.utils.output.SpeechController.SpeakOptions;
@@ -203,7 +202,7 @@ public class Pipeline implements AccessibilityEventListener, AccessibilityEventI
   //////////////////////////////////////////////////////////////////////////////////
   // Member data
 
-  private final Context context;
+  private final PreferenceSnapshot.Holder preferences;
   private final Interpreters interpreters;
   private final Mappers mappers;
   private final Actors actors;
@@ -225,7 +224,7 @@ public class Pipeline implements AccessibilityEventListener, AccessibilityEventI
   // Construction
 
   public Pipeline(
-      Context context,
+      PreferenceSnapshot.Holder preferences,
       Interpreters interpreters,
       Mappers mappers,
       Actors actors,
@@ -233,7 +232,7 @@ public class Pipeline implements AccessibilityEventListener, AccessibilityEventI
       SpeechController speechController,
       DiagnosticOverlayControllerImpl diagnosticOverlayController,
       UserInterface userInterface) {
-    this.context = context;
+    this.preferences = preferences;
     this.interpreters = interpreters;
     this.mappers = mappers;
     this.actors = actors;
@@ -315,20 +314,16 @@ public class Pipeline implements AccessibilityEventListener, AccessibilityEventI
   /** Execute feedback returned by feedback-mappers. Recycles feedback. Returns success flag. */
   boolean execute(Feedback feedback) {
 
-    LogUtils.d(LOG, "execute() feedback=%s", feedback);
+    if (LogUtils.shouldLog(Log.DEBUG)) {
+      LogUtils.d(LOG, "execute() feedback=%s", feedback);
+    }
 
     // For each feedback part... if not successful... fail-over to next feedback.
+    boolean speakUsageHints = preferences.get().speakUsageHints();
     List<Feedback.Part> parts = feedback.failovers();
     for (int p = 0; p < parts.size(); ++p) {
       Feedback.Part part = parts.get(p);
 
-      boolean speakUsageHints =
-          VerbosityPreferences.getPreferenceValueBool(
-              SharedPreferencesUtils.getSharedPreferences(context),
-              context.getResources(),
-              context.getString(R.string.pref_a11y_hints_key),
-              context.getResources().getBoolean(R.bool.pref_a11y_hints_default));
-
       // Convert Feedback if this is speak hint
       if ((part.speech() != null)
           && (part.speech().hintSpeakOptions() != null)
@@ -359,7 +354,9 @@ public class Pipeline implements AccessibilityEventListener, AccessibilityEventI
       if (part.delayMs() <= 0) {
         // Execute feedback immediately.
         success = actors.act(feedback.eventId(), part);
-        LogUtils.v(LOG, "execute() success=%s for part=%s", success, part);
+        if (LogUtils.shouldLog(Log.VERBOSE)) {
+          LogUtils.v(LOG, "execute() success=%s for part=%s", success, part);
+        }
         part.recycle();
       } else {
         // Start feedback delay.
@@ -219,6 +219,7 @@ public class RingerModeAndScreenMonitor extends BroadcastReceiver {
 
     // Stop queued speech and events. AccessibilityEventProcessor will block new events.
     service.clearQueues();
+    service.clearEventCaches();
 
     // Speak "screen off".
     // REFERTO: Do not have any screen off message and any chime for Android Wear.
@@ -147,6 +147,7 @@ import com.google.android.accessibility.talkback.utils.DiagnosticOverlayControll
 import com.google.android.accessibility.talkback.utils.ExperimentalUtils;
 import com.google.android.accessibility.talkback.utils.FocusIndicatorUtils;
 import com.google.android.accessibility.talkback.utils.NotificationUtils;
+import com.google.android.accessibility.talkback.utils.PreferenceSnapshot;
 import com.google.android.accessibility.talkback.utils.VerbosityPreferences;
 import com.google.android.accessibility.utils.AccessibilityEventListener;
 import com.google.android.accessibility.utils.AccessibilityEventUtils;
@@ -182,6 +183,7 @@ import com.google.android.accessibility.utils.output.SpeechController.SpeakOptio
 import com.google.android.accessibility.utils.output.SpeechController.UtteranceCompleteRunnable;
 import com.google.android.accessibility.utils.output.SpeechControllerImpl;
 import com.google.android.accessibility.utils.output.SpeechControllerImpl.CapitalLetterHandlingMethod;
+import com.google.android.accessibility.utils.traversal.OrderedTraversalCache;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
 import com.google.common.collect.ImmutableMap;
 import java.lang.Thread.UncaughtExceptionHandler;
@@ -311,6 +313,9 @@ public class TalkBackService extends AccessibilityService
   /** Manager for handling custom labels. */
   private CustomLabelManager labelManager;
 
+  /** Keeps the traversal order of each window across navigation gestures. */
+  private OrderedTraversalCache orderedTraversalCache;
+
   /** Manager for the screen search feature. */
   private UniversalSearchManager universalSearchManager;
 
@@ -367,6 +372,9 @@ public class TalkBackService extends AccessibilityService
   /** Shared preferences used within TalkBack. */
   private SharedPreferences prefs;
 
+  /** Preference values read while handling events, rebuilt when preferences change. */
+  private PreferenceSnapshot.Holder preferenceSnapshots;
+
   /** The system's uncaught exception handler */
   private UncaughtExceptionHandler systemUeh;
 
@@ -493,6 +501,7 @@ public class TalkBackService extends AccessibilityService
   public boolean onUnbind(Intent intent) {
     final long turningOffTime = System.currentTimeMillis();
     interruptAllFeedback(false /* stopTtsSpeechCompletely */);
+    clearEventCaches();
     if (pipeline != null) {
       pipeline.onUnbind(calculateFinalAnnouncementVolume());
     }
@@ -641,6 +650,19 @@ public class TalkBackService extends AccessibilityService
     // TODO: Clear queues wherever there are message handlers that delay event processing.
   }
 
+  /**
+   * Drops state that is kept up to date by accessibility events. Called when {@link
+   * AccessibilityEventProcessor} starts dropping events, which leaves that state stale.
+   */
+  public void clearEventCaches() {
+    if (orderedTraversalCache != null) {
+      orderedTraversalCache.clear();
+    }
+    if (compositor != null) {
+      compositor.getNodeDescriptionCache().invalidate();
+    }
+  }
+
   /** Suspends TalkBack, showing a confirmation dialog if applicable. */
   public void requestSuspendTalkBack(EventId eventId) {
     if (talkBackSuspendDialog == null) {
@@ -745,6 +767,7 @@ public class TalkBackService extends AccessibilityService
     if (keyEvent.getAction() == KeyEvent.ACTION_DOWN) {
       eventFilter.setLastKeyEventTime(keyEvent.getEventTime());
     }
+    accessibilityEventProcessor.flushBatchedContentChanges();
     Performance perf = Performance.getInstance();
     EventId eventId = perf.onEventReceived(keyEvent);
 
@@ -800,6 +823,7 @@ public class TalkBackService extends AccessibilityService
     if (!isServiceActive()) {
       return false;
     }
+    accessibilityEventProcessor.flushBatchedContentChanges();
     Performance perf = Performance.getInstance();
     EventId eventId = perf.onGestureEventReceived(gestureId);
     primesController.startTimer(Timer.GESTURE_EVENT);
@@ -1145,6 +1169,7 @@ public class TalkBackService extends AccessibilityService
     // not unpaired
     // supportsTouchScreen = packageManager.hasSystemFeature(PackageManager.FEATURE_TOUCHSCREEN);
 
+    preferenceSnapshots = new PreferenceSnapshot.Holder(this);
     accessibilityEventProcessor = new AccessibilityEventProcessor(this);
     feedbackController = new FeedbackController(this);
     speechController = new SpeechControllerImpl(this, this, feedbackController);
@@ -1175,6 +1200,11 @@ public class TalkBackService extends AccessibilityService
             imageContents,
             globalVariables,
             getCompositorFlavor());
+    // Drops cached child descriptions before any listener composes feedback for a content change.
+    addEventListener(compositor.getNodeDescriptionCache());
+    // Cached child descriptions may contain custom labels, or lack new ones.
+    labelManager.setOnLabelsChangedListener(
+        () -> compositor.getNodeDescriptionCache().invalidate());
     // TODO: Make pipeline run Compositor, which returns speech feedback, no callback.
 
     onMagnificationChangedListener =
@@ -1209,7 +1239,7 @@ public class TalkBackService extends AccessibilityService
 
     analytics = new TalkBackAnalyticsImpl(this);
 
-    processorPhoneticLetters = new ProcessorPhoneticLetters(this);
+    processorPhoneticLetters = new ProcessorPhoneticLetters(this, preferenceSnapshots);
 
     FocusFinder focusFinder = new FocusFinder(this);
 
@@ -1235,6 +1265,8 @@ public class TalkBackService extends AccessibilityService
     focuser =
         new FocusActor(
             this, focusFinder, screenStateMonitor.state, focusHistory, accessibilityFocusMonitor);
+    orderedTraversalCache = new OrderedTraversalCache();
+    addEventListener(orderedTraversalCache);
     DirectionNavigationActor directionNavigationActor =
         new DirectionNavigationActor(
             inputModeManager,
@@ -1245,7 +1277,8 @@ public class TalkBackService extends AccessibilityService
             focusFinder,
             processorPhoneticLetters,
             accessibilityFocusMonitor,
-            screenStateMonitor.state);
+            screenStateMonitor.state,
+            orderedTraversalCache);
     TextEditActor editor =
         new TextEditActor(
             this,
@@ -1286,7 +1319,7 @@ public class TalkBackService extends AccessibilityService
     // Construct pipeline.
     pipeline =
         new Pipeline(
-            this,
+            preferenceSnapshots,
             new Interpreters(
                 inputFocusInterpreter,
                 autoScrollInterpreter,
@@ -1300,7 +1333,7 @@ public class TalkBackService extends AccessibilityService
                 new PassThroughModeInterpreter(),
                 new SubtreeChangeEventInterpreter(screenStateMonitor.state),
                 new AccessibilityEventIdleInterpreter()),
-            new Mappers(this, compositor, focusFinder),
+            new Mappers(this, preferenceSnapshots, compositor, focusFinder),
             new Actors(
                 this,
                 accessibilityFocusMonitor,
@@ -1414,7 +1447,8 @@ public class TalkBackService extends AccessibilityService
             pipeline.getActorState(),
             this,
             globalVariables,
-            menuManager);
+            menuManager,
+            preferenceSnapshots);
     addEventListener(processorVolumeStream);
     keyEventListeners.add(processorVolumeStream);
 
@@ -1914,6 +1948,7 @@ public class TalkBackService extends AccessibilityService
     dimScreenController.suspend();
 
     interruptAllFeedback(false /* stopTtsSpeechCompletely */);
+    clearEventCaches();
     setServiceState(ServiceStateListener.SERVICE_STATE_SUSPENDED);
 
     // Some apps depend on these being set to false when TalkBack is disabled.
@@ -2016,6 +2051,10 @@ public class TalkBackService extends AccessibilityService
   private void reloadPreferences() {
     final Resources res = getResources();
 
+    if (preferenceSnapshots != null) {
+      preferenceSnapshots.refresh();
+    }
+
     // Preferece to reduce window announcement delay.
     boolean reduceDelayPref =
         getBooleanPref(
@@ -2226,9 +2265,6 @@ public class TalkBackService extends AccessibilityService
               res.getString(R.string.pref_a11y_hints_key),
               res.getBoolean(R.bool.pref_a11y_hints_default));
       globalVariables.setUsageHintEnabled(speakUsageHints);
-
-      // Reload compositor configuration.
-      compositor.refreshParseTreeIfNeeded();
     }
 
     FocusIndicatorUtils.applyFocusAppearancePreference(this, prefs, res);
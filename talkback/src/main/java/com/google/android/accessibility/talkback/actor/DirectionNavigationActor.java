@@ -51,6 +51,7 @@ import com.google.android.accessibility.utils.input.InputModeManager;
 import com.google.android.accessibility.utils.input.InputModeManager.InputMode;
 import com.google.android.accessibility.utils.output.FeedbackItem;
 import com.google.android.accessibility.utils.output.SpeechController.SpeakOptions;
+import com.google.android.accessibility.utils.traversal.OrderedTraversalCache;
 import com.google.android.accessibility.utils.traversal.TraversalStrategy;
 import com.google.android.accessibility.utils.traversal.TraversalStrategy.SearchDirection;
 import com.google.android.accessibility.utils.traversal.TraversalStrategyUtils;
@@ -111,7 +112,8 @@ public class DirectionNavigationActor {
       FocusFinder focusFinder,
       ProcessorPhoneticLetters processorPhoneticLetters,
       AccessibilityFocusMonitor accessibilityFocusMonitor,
-      ScreenStateMonitor.State screenState) {
+      ScreenStateMonitor.State screenState,
+      OrderedTraversalCache orderedTraversalCache) {
     this.service = service;
     this.inputModeManager = inputModeManager;
     this.analytics = analytics;
@@ -123,7 +125,11 @@ public class DirectionNavigationActor {
 
     focusProcessorForLogicalNavigation =
         new FocusProcessorForLogicalNavigation(
-            service, focusFinder, accessibilityFocusMonitor, screenState);
+            service,
+            focusFinder,
+            accessibilityFocusMonitor,
+            screenState,
+            orderedTraversalCache);
   }
 
   public void setPipeline(Pipeline.FeedbackReturner pipeline) {
@@ -19,6 +19,7 @@ package com.google.android.accessibility.talkback.actor.search;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import com.google.android.accessibility.talkback.actor.search.StringMatcher.NormalizedText;
 import com.google.android.accessibility.utils.AccessibilityNode;
 import com.google.android.accessibility.utils.AccessibilityWindow;
 import com.google.android.accessibility.utils.Filter;
@@ -28,19 +29,45 @@ import java.util.List;
 
 /** Caches every node in current screen */
 final class ScreenNodesCache {
-  private final List<AccessibilityNode> cachedNodes = new ArrayList<>();
+  /** A cached node with its text normalized for searching. */
+  static final class IndexedNode {
+    private final AccessibilityNode node;
+    private final NormalizedText text;
+
+    IndexedNode(AccessibilityNode node) {
+      this.node = node;
+      this.text = NormalizedText.create(node.getNodeText());
+    }
+
+    /** Returns the cached node which caller must not recycle after using. */
+    AccessibilityNode node() {
+      return node;
+    }
+
+    NormalizedText text() {
+      return text;
+    }
+  }
+
+  /**
+   * Nodes of the cached window. The list is replaced instead of modified, so that a list returned
+   * by {@link #getIndexedNodes()} doesn't change.
+   */
+  private List<IndexedNode> indexedNodes = Collections.emptyList();
 
   public ScreenNodesCache() {}
 
   /** Returns the cached nodes which caller must not recycle after using. */
   @NonNull
-  synchronized List<AccessibilityNode> getCachedNodes() {
-    return cachedNodes.isEmpty() ? Collections.emptyList() : new ArrayList<>(cachedNodes);
+  synchronized List<IndexedNode> getIndexedNodes() {
+    return indexedNodes;
   }
 
   synchronized void clearCachedNodes(String caller) {
-    AccessibilityNode.recycle(caller, cachedNodes);
-    cachedNodes.clear();
+    for (IndexedNode indexedNode : indexedNodes) {
+      AccessibilityNode.recycle(caller, indexedNode.node());
+    }
+    indexedNodes = Collections.emptyList();
   }
 
   /** Caches nodes in current window with node filter. Caller should recycle the window. */
@@ -55,11 +82,16 @@ final class ScreenNodesCache {
       return;
     }
 
-    // Caches nodes matched filter in current window.
+    // Caches and indexes nodes matched filter in current window.
     AccessibilityNode root = currentWindow.getRoot();
     if (root != null) {
       try {
-        cachedNodes.addAll(root.getMatchingDescendantsOrRoot(filter));
+        List<AccessibilityNode> nodes = root.getMatchingDescendantsOrRoot(filter);
+        List<IndexedNode> indexed = new ArrayList<>(nodes.size());
+        for (AccessibilityNode node : nodes) {
+          indexed.add(new IndexedNode(node));
+        }
+        indexedNodes = Collections.unmodifiableList(indexed);
       } finally {
         root.recycle(caller);
       }
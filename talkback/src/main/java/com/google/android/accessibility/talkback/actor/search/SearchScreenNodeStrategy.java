@@ -19,19 +19,27 @@ package com.google.android.accessibility.talkback.actor.search;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import android.os.SystemClock;
 import android.text.TextUtils;
+import android.util.Log;
 import com.google.android.accessibility.talkback.actor.DirectionNavigationActor;
+import com.google.android.accessibility.talkback.actor.search.ScreenNodesCache.IndexedNode;
 import com.google.android.accessibility.talkback.actor.search.SearchState.MatchedNodeInfo;
 import com.google.android.accessibility.talkback.actor.search.StringMatcher.MatchResult;
+import com.google.android.accessibility.talkback.actor.search.StringMatcher.NormalizedText;
 import com.google.android.accessibility.talkback.labeling.CustomLabelManager;
-import com.google.android.accessibility.utils.AccessibilityNode;
 import com.google.android.accessibility.utils.AccessibilityNodeInfoUtils;
 import com.google.android.accessibility.utils.AccessibilityWindow;
 import com.google.android.accessibility.utils.Filter;
+import com.google.android.libraries.accessibility.utils.log.LogUtils;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /** Searches keyword in screen nodes. */
 public final class SearchScreenNodeStrategy {
+  private static final String TAG = "SearchScreenNodeStrategy";
+
   /** Observer instance which need to notify when search done. */
   @Nullable private SearchObserver observer;
 
@@ -44,6 +52,15 @@ public final class SearchScreenNodeStrategy {
   /** The cache for all searchable nodes on current screen. */
   private final ScreenNodesCache nodesCache;
 
+  /**
+   * The normalized keyword of the last {@link #search(CharSequence)}, the nodes that matched it,
+   * and the cached nodes they were found in. A longer keyword only needs to search those nodes.
+   */
+  private @Nullable String lastNormalizedKeyword;
+
+  private List<IndexedNode> lastMatchedNodes = Collections.emptyList();
+  private List<IndexedNode> lastSearchedCache = Collections.emptyList();
+
   /**
    * Creates a new SearchScreenNodeStrategy instance.
    *
@@ -94,19 +111,47 @@ public final class SearchScreenNodeStrategy {
     }
 
     lastKeyword = trimmedUserInput;
+    long startTime = SystemClock.uptimeMillis();
+    String normalizedKeyword = StringMatcher.normalizeKeyword(trimmedUserInput);
+
+    // Narrow the previous results if the cache is unchanged and every node matching the new
+    // keyword also matches the previous one, e.g. after the user typed another character.
+    List<IndexedNode> cachedNodes = nodesCache.getIndexedNodes();
+    List<IndexedNode> candidates =
+        (cachedNodes == lastSearchedCache
+                && lastNormalizedKeyword != null
+                && normalizedKeyword.contains(lastNormalizedKeyword))
+            ? lastMatchedNodes
+            : cachedNodes;
 
     // Get all matched nodes per window into a list.
     SearchState state = new SearchState();
+    List<IndexedNode> matchedNodes = new ArrayList<>();
 
-    for (AccessibilityNode node : nodesCache.getCachedNodes()) {
+    for (IndexedNode indexedNode : candidates) {
       List<MatchResult> matchResults =
-          StringMatcher.findMatches(node.getNodeText().toString(), trimmedUserInput);
+          StringMatcher.findMatches(indexedNode.text(), normalizedKeyword);
 
-      if (matchResults.size() > 0) {
-        state.addResult(new MatchedNodeInfo(node, matchResults));
+      if (!matchResults.isEmpty()) {
+        matchedNodes.add(indexedNode);
+        state.addResult(new MatchedNodeInfo(indexedNode.node(), matchResults));
       }
     }
 
+    lastNormalizedKeyword = normalizedKeyword;
+    lastMatchedNodes = matchedNodes;
+    lastSearchedCache = cachedNodes;
+
+    if (LogUtils.shouldLog(Log.VERBOSE)) {
+      LogUtils.v(
+          TAG,
+          "search() matched %d of %d candidates (%d cached) in %d ms",
+          matchedNodes.size(),
+          candidates.size(),
+          cachedNodes.size(),
+          SystemClock.uptimeMillis() - startTime);
+    }
+
     return state;
   }
 
@@ -134,6 +179,8 @@ public final class SearchScreenNodeStrategy {
   void clearCachedNodes() {
     String caller = "SearchScreenNodeStrategy.clearCachedNodes()";
     nodesCache.clearCachedNodes(caller);
+    lastNormalizedKeyword = null;
+    lastMatchedNodes = Collections.emptyList();
   }
 
   /**
@@ -155,6 +202,7 @@ public final class SearchScreenNodeStrategy {
     }
 
     lastKeyword = trimmedUserInput;
+    final String normalizedKeyword = StringMatcher.normalizeKeyword(trimmedUserInput);
 
     // Find node matching target keyword, and focus that node.
     return directionNavigator.searchAndFocus(
@@ -177,9 +225,7 @@ public final class SearchScreenNodeStrategy {
             }
 
             // Check for target-text match.
-            List<MatchResult> matches =
-                StringMatcher.findMatches(nodeText.toString(), trimmedUserInput);
-            return (matches != null) && (matches.size() > 0);
+            return NormalizedText.create(nodeText).contains(normalizedKeyword);
           }
         });
   }
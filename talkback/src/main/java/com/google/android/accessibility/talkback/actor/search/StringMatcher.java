@@ -16,12 +16,10 @@
 
 package com.google.android.accessibility.talkback.actor.search;
 
-import android.text.TextUtils;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Utility class that is responsible for the string matching to fulfill the screen search needs. */
 public class StringMatcher {
@@ -48,58 +46,91 @@ public class StringMatcher {
   }
 
   /**
-   * Finds the {@code keyword} matches in the {@code target}. The matching is performed
-   * case-insensitive and multiple continuous spaces in either {@code target} or {@code keyword}
-   * will be treated as only one while matching.
-   *
-   * @param target, the target where the matching will be performed
-   * @param keyword, the keyword used to perform the matching
+   * Text normalized for matching: case-folded, with every run of whitespace collapsed to one space.
+   * Keeps the offsets of the normalized characters in the original text, so that matches can be
+   * reported against the original text.
    */
-  static List<MatchResult> findMatches(String target, String keyword) {
-    if (TextUtils.isEmpty(target) || TextUtils.isEmpty(keyword)) {
-      return Collections.emptyList();
+  static final class NormalizedText {
+    private final String text;
+
+    /**
+     * Normalized character {@code i} comes from original characters {@code [originalStarts[i],
+     * originalStarts[i + 1])}. The last element is the length of the original text.
+     */
+    private final int[] originalStarts;
+
+    private NormalizedText(String text, int[] originalStarts) {
+      this.text = text;
+      this.originalStarts = originalStarts;
     }
 
-    Pattern keywordPattern = convertKeywordToPattern(keyword);
-    Matcher matchResult = keywordPattern.matcher(target);
+    /** Normalizes {@code original}, which may be {@code null} or empty. */
+    static NormalizedText create(@Nullable CharSequence original) {
+      int length = (original == null) ? 0 : original.length();
+      StringBuilder normalized = new StringBuilder(length);
+      int[] starts = new int[length + 1];
+      int index = 0;
+      while (index < length) {
+        char c = original.charAt(index);
+        starts[normalized.length()] = index;
+        if (Character.isWhitespace(c)) {
+          normalized.append(' ');
+          while (index < length && Character.isWhitespace(original.charAt(index))) {
+            index++;
+          }
+        } else {
+          normalized.append(Character.toLowerCase(c));
+          index++;
+        }
+      }
+      starts[normalized.length()] = length;
+      return new NormalizedText(normalized.toString(), starts);
+    }
 
-    List<MatchResult> result = new ArrayList<>();
+    /** Returns the normalized text. */
+    String text() {
+      return text;
+    }
 
-    while (matchResult.find()) {
-      MatchResult matching = new MatchResult(matchResult.start(), matchResult.end());
-      result.add(matching);
+    boolean contains(String normalizedKeyword) {
+      return text.contains(normalizedKeyword);
     }
+  }
 
-    return result;
+  /**
+   * Normalizes the user input {@code keyword} the same way as {@link NormalizedText}, so that it
+   * can be matched with {@link #findMatches(NormalizedText, String)}.
+   */
+  static String normalizeKeyword(@Nullable CharSequence keyword) {
+    return NormalizedText.create(keyword).text();
   }
 
   /**
-   * Converts the user input {@code keyword} to a pattern for the regular expression matching usage.
-   * The resulting pattern allows the spaces in keyword to be able to match different lengths spaces
-   * in the matching target and allows case-insensitive matching.
+   * Finds the {@code normalizedKeyword} matches in the {@code target}. The matching is performed
+   * case-insensitive and multiple continuous spaces in either {@code target} or the keyword will
+   * be treated as only one while matching.
+   *
+   * @param target, the target where the matching will be performed
+   * @param normalizedKeyword, the keyword from {@link #normalizeKeyword(CharSequence)}
+   * @return the non-overlapping matches, as offsets in the original text of {@code target}
    */
-  private static Pattern convertKeywordToPattern(String keyword) {
-    String spacePattern = "\\s+";
-    String spaceString = " ";
-
-    String[] spaceSplitKeyword =
-        keyword
-            .replaceAll(/* regex= */ spacePattern, /* replacement= */ spaceString)
-            .split(spaceString);
-
-    StringBuilder quotedKeywordPattern = new StringBuilder();
-
-    // Quote each segment to ensure the keyword content if containing pattern-preserved keyword
-    // won't alter the resulting pattern.
-    for (String keywordSegment : spaceSplitKeyword) {
-      if (quotedKeywordPattern.length() == 0) {
-        quotedKeywordPattern.append(Pattern.quote(keywordSegment));
-      } else {
-        quotedKeywordPattern.append(spacePattern).append(Pattern.quote(keywordSegment));
+  static List<MatchResult> findMatches(NormalizedText target, String normalizedKeyword) {
+    if (normalizedKeyword.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<MatchResult> result = null;
+    int keywordLength = normalizedKeyword.length();
+    int start = target.text.indexOf(normalizedKeyword);
+    while (start >= 0) {
+      if (result == null) {
+        result = new ArrayList<>();
       }
+      int end = start + keywordLength;
+      result.add(new MatchResult(target.originalStarts[start], target.originalStarts[end]));
+      start = target.text.indexOf(normalizedKeyword, end);
     }
 
-    return Pattern.compile(
-        quotedKeywordPattern.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    return (result == null) ? Collections.emptyList() : result;
   }
 }
@@ -32,7 +32,6 @@ import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityManager;
 import android.view.accessibility.AccessibilityNodeInfo;
-import android.view.accessibility.AccessibilityRecord;
 import com.google.android.accessibility.talkback.ActorState;
 import com.google.android.accessibility.talkback.R;
 import com.google.android.accessibility.talkback.RingerModeAndScreenMonitor;
@@ -48,7 +47,6 @@ import com.google.android.accessibility.utils.Role;
 import com.google.android.accessibility.utils.SharedPreferencesUtils;
 import com.google.android.accessibility.utils.output.Utterance;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -120,8 +118,6 @@ public class AccessibilityEventProcessor {
   private RingerModeAndScreenMonitor ringerModeAndScreenMonitor;
   private DelayedEventHandler handler = new DelayedEventHandler();
 
-  private static Method getSourceNodeIdMethod;
-
   private long lastClearedSourceId = -1;
   private int lastClearedWindowId = -1;
   private long lastClearA11yFocus = System.currentTimeMillis();
@@ -131,25 +127,33 @@ public class AccessibilityEventProcessor {
   // If the same node is cleared and set inside this time we ignore the events
   private static final long CLEAR_SET_A11Y_FOCUS_WINDOW = 1000;
 
-  static {
-    try {
-      getSourceNodeIdMethod = AccessibilityRecord.class.getDeclaredMethod("getSourceNodeId");
-      getSourceNodeIdMethod.setAccessible(true);
-    } catch (NoSuchMethodException e) {
-      LogUtils.d(TAG, "Error setting up fields: " + e.toString());
-      e.printStackTrace();
-    }
-  }
-
   /**
    * List of passive event processors. All processors in the list are sent the event in the order
    * they were added.
    */
   private List<AccessibilityEventListener> accessibilityEventListeners = new ArrayList<>();
 
+  /**
+   * For each event type bit, the listeners in {@link #accessibilityEventListeners} that handle that
+   * event type, in the order they were added, or null if there are none. Rebuilt whenever a
+   * listener is added or removed.
+   */
+  private final AccessibilityEventListener[][] listenersByEventType =
+      new AccessibilityEventListener[Integer.SIZE][];
+
   private long lastWindowStateChanged;
   private AccessibilityEvent lastFocusedEvent;
 
+  // Events are only batched while the service is active, but it may have been suspended since.
+  private final ContentChangeBatcher contentChangeBatcher =
+      new ContentChangeBatcher(
+          ContentChangeBatcher.DEFAULT_BATCH_DELAY,
+          (event, eventId) -> {
+            if (TalkBackService.isServiceActive()) {
+              processEvent(event, eventId);
+            }
+          });
+
   private boolean speakWhenScreenOff = false;
 
   // Use bit mask to note what types of accessibility events should dump.
@@ -245,10 +249,16 @@ public class AccessibilityEventProcessor {
       lastFocusedEvent = AccessibilityEvent.obtain(event);
     }
 
-    if (AccessibilityEventUtils.eventMatchesAnyType(event, MASK_DELAYED_EVENT_TYPES)) {
-      handler.postProcessEvent(event, eventId);
+    if (ContentChangeBatcher.isBatchable(event)) {
+      contentChangeBatcher.add(event, eventId);
     } else {
-      processEvent(event, eventId);
+      // Batched content changes were received first, so listeners must see them first.
+      flushBatchedContentChanges();
+      if (AccessibilityEventUtils.eventMatchesAnyType(event, MASK_DELAYED_EVENT_TYPES)) {
+        handler.postProcessEvent(event, eventId);
+      } else {
+        processEvent(event, eventId);
+      }
     }
 
     if (testingListener != null) {
@@ -283,11 +293,12 @@ public class AccessibilityEventProcessor {
   private boolean shouldDropRefocusEvent(AccessibilityEvent event) {
     int eventType = event.getEventType();
     if (eventType == AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED) {
-      if (getSourceNodeIdMethod != null) {
+      long sourceId = AccessibilityEventUtils.getSourceNodeId(event);
+      if (sourceId != AccessibilityEventUtils.NODE_ID_NONE) {
         AccessibilityRecordCompat record = AccessibilityEventCompat.asRecord(event);
         AccessibilityNodeInfoCompat source = record.getSource();
         try {
-          lastClearedSourceId = (long) getSourceNodeIdMethod.invoke(event);
+          lastClearedSourceId = sourceId;
           lastClearedWindowId = event.getWindowId();
           lastClearA11yFocus = System.currentTimeMillis();
           if (lastClearedSourceId != lastPronouncedSourceId
@@ -306,8 +317,6 @@ public class AccessibilityEventProcessor {
                   ProcessorPermissionDialogs.ALLOW_BUTTON, source.getViewIdResourceName())) {
             return false;
           }
-        } catch (Exception e) {
-          LogUtils.d(TAG, "Exception accessing field: " + e.toString());
         } finally {
           AccessibilityNodeInfoUtils.recycleNodes(source);
         }
@@ -316,25 +325,21 @@ public class AccessibilityEventProcessor {
     }
 
     if (eventType == AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED) {
-      if (getSourceNodeIdMethod != null
+      long sourceId = AccessibilityEventUtils.getSourceNodeId(event);
+      if (sourceId != AccessibilityEventUtils.NODE_ID_NONE
           && !EventState.getInstance().checkAndClearRecentFlag(EventState.EVENT_NODE_REFOCUSED)) {
-        try {
-          long sourceId = (long) getSourceNodeIdMethod.invoke(event);
-          int windowId = event.getWindowId();
-          // If this event is fired by the "clear and set a11y focus" issue of Chrome,
-          // ignore and don't speak to the user, otherwise update the node and window IDs
-          // and then process the event.
-          if (System.currentTimeMillis() - lastClearA11yFocus < CLEAR_SET_A11Y_FOCUS_WINDOW
-              && sourceId == lastClearedSourceId
-              && windowId == lastClearedWindowId
-              && !actorState.getFocusHistory().isEventFromFocusManagement(event)) {
-            return true;
-          } else {
-            lastPronouncedSourceId = sourceId;
-            lastPronouncedWindowId = windowId;
-          }
-        } catch (Exception e) {
-          LogUtils.d(TAG, "Exception accessing field: " + e.toString());
+        int windowId = event.getWindowId();
+        // If this event is fired by the "clear and set a11y focus" issue of Chrome,
+        // ignore and don't speak to the user, otherwise update the node and window IDs
+        // and then process the event.
+        if (System.currentTimeMillis() - lastClearA11yFocus < CLEAR_SET_A11Y_FOCUS_WINDOW
+            && sourceId == lastClearedSourceId
+            && windowId == lastClearedWindowId
+            && !actorState.getFocusHistory().isEventFromFocusManagement(event)) {
+          return true;
+        } else {
+          lastPronouncedSourceId = sourceId;
+          lastPronouncedWindowId = windowId;
         }
       }
     }
@@ -514,6 +519,14 @@ public class AccessibilityEventProcessor {
         && TextUtils.equals(CLASS_DIALER, event.getClassName());
   }
 
+  /**
+   * Passes batched content changes to the listeners now. Called before any other event is handled,
+   * and on user input, so that feedback for the input reflects the latest content.
+   */
+  public void flushBatchedContentChanges() {
+    contentChangeBatcher.flush();
+  }
+
   /**
    * Passes the event to all registered {@link AccessibilityEventListener}s in the order they were
    * added.
@@ -521,30 +534,60 @@ public class AccessibilityEventProcessor {
    * @param event The current event.
    */
   private void processEvent(AccessibilityEvent event, EventId eventId) {
+    // Each event has a single event type bit.
+    int eventType = event.getEventType();
+    if (eventType == 0) {
+      return;
+    }
+    AccessibilityEventListener[] listeners =
+        listenersByEventType[Integer.numberOfTrailingZeros(eventType)];
+    if (listeners == null) {
+      return;
+    }
+
     // Log the listeners for this event type.
     if (LogUtils.getLogLevel() <= Log.VERBOSE) {
       StringBuilder handlerNames = new StringBuilder();
-      for (AccessibilityEventListener eventListener : accessibilityEventListeners) {
-        int eventTypesHandled = eventListener.getEventTypes();
-        if (AccessibilityEventUtils.eventMatchesAnyType(event, eventTypesHandled)) {
-          handlerNames.append((handlerNames.length() == 0) ? "" : ","); // Delimiter
-          handlerNames.append(eventListener.getClass().getSimpleName());
-        }
+      for (AccessibilityEventListener eventListener : listeners) {
+        handlerNames.append((handlerNames.length() == 0) ? "" : ","); // Delimiter
+        handlerNames.append(eventListener.getClass().getSimpleName());
       }
       LogUtils.v(TAG, "Event listeners: %s", handlerNames);
     }
 
     // Send events to the only those processors which handle them.
-    for (AccessibilityEventListener eventProcessor : accessibilityEventListeners) {
-      int eventTypesHandled = eventProcessor.getEventTypes();
-      if (AccessibilityEventUtils.eventMatchesAnyType(event, eventTypesHandled)) {
-        eventProcessor.onAccessibilityEvent(event, eventId);
+    for (AccessibilityEventListener eventProcessor : listeners) {
+      eventProcessor.onAccessibilityEvent(event, eventId);
+    }
+  }
+
+  /**
+   * Rebuilds {@link #listenersByEventType} from {@link #accessibilityEventListeners}. Listeners'
+   * event types are read once here, so they must not change after the listener is added.
+   */
+  private void updateListenersByEventType() {
+    int listenerCount = accessibilityEventListeners.size();
+    int[] eventTypes = new int[listenerCount];
+    for (int i = 0; i < listenerCount; i++) {
+      eventTypes[i] = accessibilityEventListeners.get(i).getEventTypes();
+    }
+
+    List<AccessibilityEventListener> listeners = new ArrayList<>();
+    for (int bit = 0; bit < Integer.SIZE; bit++) {
+      listeners.clear();
+      for (int i = 0; i < listenerCount; i++) {
+        if ((eventTypes[i] & (1 << bit)) != 0) {
+          listeners.add(accessibilityEventListeners.get(i));
+        }
       }
+      listenersByEventType[bit] =
+          listeners.isEmpty() ? null : listeners.toArray(new AccessibilityEventListener[0]);
     }
   }
 
   public void addAccessibilityEventListener(AccessibilityEventListener listener) {
     accessibilityEventListeners.add(listener);
+    updateListenersByEventType();
   }
 
   public void postRemoveAccessibilityEventListener(final AccessibilityEventListener listener) {
@@ -553,7 +596,9 @@ public class AccessibilityEventProcessor {
             new Runnable() {
               @Override
               public void run() {
-                accessibilityEventListeners.remove(listener);
+                if (accessibilityEventListeners.remove(listener)) {
+                  updateListenersByEventType();
+                }
               }
             });
   }
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.talkback.eventprocessor;
+
+import android.os.Handler;
+import android.view.accessibility.AccessibilityEvent;
+import androidx.annotation.VisibleForTesting;
+import androidx.core.view.accessibility.AccessibilityEventCompat;
+import com.google.android.accessibility.utils.AccessibilityEventUtils;
+import com.google.android.accessibility.utils.Performance;
+import com.google.android.accessibility.utils.Performance.EventId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds subtree content changes for a short window before they are dispatched, so that a burst of
+ * changes from the same node is handled once. Changes are dispatched in the order they were first
+ * received, when the window ends or when the batch is full.
+ */
+class ContentChangeBatcher {
+
+  /** Delay (ms) over which subtree content changes are batched, about one display frame. */
+  static final long DEFAULT_BATCH_DELAY = 16;
+
+  /** Maximum number of batched content changes, after which the batch is dispatched immediately. */
+  static final int MAX_BATCHED_CONTENT_CHANGES = 32;
+
+  /** Receives the batched content changes. */
+  interface Dispatcher {
+    void dispatch(AccessibilityEvent event, EventId eventId);
+  }
+
+  private final long batchDelay;
+  private final Dispatcher dispatcher;
+  private final Handler handler = new Handler();
+  private final Runnable flushRunnable = this::flush;
+
+  /** Content changes waiting to be dispatched, in the order they were first received. */
+  private final List<BatchedContentChange> batchedContentChanges = new ArrayList<>();
+
+  /** Number of content changes received since {@link #batchedContentChanges} was dispatched. */
+  private int batchedContentChangesReceived = 0;
+
+  /**
+   * @param batchDelay Delay (ms) from the first change of a batch until the batch is dispatched
+   * @param dispatcher Receives each batched change when the batch is dispatched
+   */
+  ContentChangeBatcher(long batchDelay, Dispatcher dispatcher) {
+    this.batchDelay = batchDelay;
+    this.dispatcher = dispatcher;
+  }
+
+  /**
+   * Returns whether {@code event} only signals that a subtree needs to be read again, so that it
+   * can be merged with later changes from the same node. Changes of specific properties, such as
+   * text or pane changes, are never batched, since listeners announce each of them.
+   */
+  static boolean isBatchable(AccessibilityEvent event) {
+    if (event.getEventType() != AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED) {
+      return false;
+    }
+    int changeTypes = event.getContentChangeTypes();
+    return changeTypes == AccessibilityEventCompat.CONTENT_CHANGE_TYPE_UNDEFINED
+        || changeTypes == AccessibilityEventCompat.CONTENT_CHANGE_TYPE_SUBTREE;
+  }
+
+  /**
+   * Holds a content change until the batch is dispatched, replacing a batched change from the same
+   * node.
+   */
+  void add(AccessibilityEvent event, EventId eventId) {
+    batchedContentChangesReceived++;
+    long sourceNodeId = AccessibilityEventUtils.getSourceNodeId(event);
+    if (sourceNodeId != AccessibilityEventUtils.NODE_ID_NONE) {
+      for (BatchedContentChange batched : batchedContentChanges) {
+        if (batched.isFromSameSource(event, sourceNodeId)) {
+          batched.replace(event, eventId);
+          return;
+        }
+      }
+    }
+
+    batchedContentChanges.add(new BatchedContentChange(event, eventId, sourceNodeId));
+    if (batchedContentChanges.size() >= MAX_BATCHED_CONTENT_CHANGES) {
+      flush();
+    } else if (batchedContentChanges.size() == 1) {
+      handler.postDelayed(flushRunnable, batchDelay);
+    }
+  }
+
+  /** Dispatches the batched content changes now. */
+  void flush() {
+    handler.removeCallbacks(flushRunnable);
+    int dispatchedCount = batchedContentChanges.size();
+    if (dispatchedCount == 0) {
+      return;
+    }
+
+    for (int i = 0; i < dispatchedCount; i++) {
+      BatchedContentChange batched = batchedContentChanges.get(i);
+      dispatcher.dispatch(batched.event, batched.eventId);
+      batched.event.recycle();
+    }
+    batchedContentChanges.clear();
+
+    Performance.getInstance().onEventsBatched(batchedContentChangesReceived, dispatchedCount);
+    batchedContentChangesReceived = 0;
+  }
+
+  /** Returns the number of content changes waiting to be dispatched. */
+  @VisibleForTesting
+  int size() {
+    return batchedContentChanges.size();
+  }
+
+  /** A copy of a batched content change, owned by {@link #batchedContentChanges}. */
+  private static class BatchedContentChange {
+
+    private final int windowId;
+    private final int contentChangeTypes;
+    private final long sourceNodeId;
+    private AccessibilityEvent event;
+    private EventId eventId;
+
+    BatchedContentChange(AccessibilityEvent event, EventId eventId, long sourceNodeId) {
+      this.windowId = event.getWindowId();
+      this.contentChangeTypes = event.getContentChangeTypes();
+      this.sourceNodeId = sourceNodeId;
+      this.event = AccessibilityEvent.obtain(event);
+      this.eventId = eventId;
+    }
+
+    boolean isFromSameSource(AccessibilityEvent other, long otherSourceNodeId) {
+      return (sourceNodeId == otherSourceNodeId)
+          && (windowId == other.getWindowId())
+          && (contentChangeTypes == other.getContentChangeTypes());
+    }
+
+    /** Keeps the newer of two changes, at the position of the older one. */
+    void replace(AccessibilityEvent newerEvent, EventId newerEventId) {
+      event.recycle();
+      event = AccessibilityEvent.obtain(newerEvent);
+      eventId = newerEventId;
+    }
+  }
+}
@@ -16,16 +16,18 @@
 
 package com.google.android.accessibility.talkback.eventprocessor;
 
-import androidx.core.view.accessibility.AccessibilityEventCompat;
-import android.util.SparseIntArray;
 import android.view.accessibility.AccessibilityEvent;
+import androidx.core.view.accessibility.AccessibilityEventCompat;
 import com.google.android.accessibility.utils.AccessibilityEventUtils;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 
 /**
  * This class is a queue that tracks events that TalkBack will process. This queue self-prunes
- * events that exceed a maximum threshold for certain event types.
+ * events that exceed a maximum threshold for certain event types, and coalesces events of those
+ * types that come from the same source node.
+ *
+ * <p>Events are kept in a ring buffer. Coalesced and pruned events leave empty slots behind, which
+ * are skipped when dequeuing.
  */
 class EventQueue {
 
@@ -37,40 +39,74 @@ class EventQueue {
 
   /**
    * The types of events that should be pruned if there are more than {@code
-   * MAXIMUM_QUALIFYING_EVENTS} of these events in the queue.
+   * MAXIMUM_QUALIFYING_EVENTS} of these events in the queue. A queued event of these types is also
+   * replaced by a newer event of the same type from the same source node.
    */
   private static final int MASK_LIMITED_EVENT_TYPES =
       AccessibilityEventCompat.TYPE_VIEW_HOVER_ENTER
           | AccessibilityEventCompat.TYPE_VIEW_ACCESSIBILITY_FOCUSED
           | AccessibilityEventCompat.TYPE_VIEW_SCROLLED;
 
-  /** The list responsible for maintaining events in the event queue. */
-  private final ArrayList<AccessibilityEvent> eventQueue = new ArrayList<>();
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** Number of entries in per-type arrays: one per event type bit, and one for type 0. */
+  private static final int EVENT_TYPE_COUNT = Integer.SIZE + 1;
+
+  /** Ring buffer of queued events, oldest first. Slots of removed events are null. */
+  private AccessibilityEvent[] eventQueue = new AccessibilityEvent[INITIAL_CAPACITY];
+
+  /** Source node id of each event in {@code eventQueue} of a type in MASK_LIMITED_EVENT_TYPES. */
+  private long[] sourceNodeIds = new long[INITIAL_CAPACITY];
+
+  /** Index in {@code eventQueue} of the oldest slot. */
+  private int head = 0;
+
+  /** Number of slots in use, including empty slots. */
+  private int slotCount = 0;
+
+  /** Number of events in the queue. */
+  private int eventCount = 0;
 
   /**
    * The current number of events in the queue for each event type that match a type defined in
-   * {@code MASK_LIMITED_EVENT_TYPES}.
+   * {@code MASK_LIMITED_EVENT_TYPES}, indexed by {@link #typeIndex}.
    */
-  private final SparseIntArray qualifyingEvents = new SparseIntArray();
+  private final int[] qualifyingEvents = new int[EVENT_TYPE_COUNT];
+
+  // Counts of events since the queue was created, indexed by typeIndex().
+  private final int[] enqueuedEvents = new int[EVENT_TYPE_COUNT];
+  private final int[] coalescedEvents = new int[EVENT_TYPE_COUNT];
+  private final int[] droppedEvents = new int[EVENT_TYPE_COUNT];
 
   /**
-   * Adds an {@link AccessibilityEvent} to the queue for processing. If this addition causes the
-   * queue to exceed the maximum allowable events for an event's type, earlier events of this type
-   * will be pruned from the queue.
+   * Adds an {@link AccessibilityEvent} to the queue for processing. If an event of the same type
+   * from the same source node is queued, and the type is limited, the older event is removed. If
+   * this addition causes the queue to exceed the maximum allowable events for an event's type,
+   * earlier events of this type will be pruned from the queue.
    *
    * @param event The event to add to the queue
    */
   public void enqueue(AccessibilityEvent event) {
     final AccessibilityEvent clone = AccessibilityEvent.obtain(event);
     final int eventType = clone.getEventType();
+    final int typeIndex = typeIndex(eventType);
+    enqueuedEvents[typeIndex]++;
 
-    if (AccessibilityEventUtils.eventMatchesAnyType(clone, MASK_LIMITED_EVENT_TYPES)) {
-      final int eventCountOfType = qualifyingEvents.get(eventType, 0);
-      qualifyingEvents.put(eventType, (eventCountOfType + 1));
+    long sourceNodeId = AccessibilityEventUtils.NODE_ID_NONE;
+    final boolean isLimited =
+        AccessibilityEventUtils.eventMatchesAnyType(clone, MASK_LIMITED_EVENT_TYPES);
+    if (isLimited) {
+      sourceNodeId = AccessibilityEventUtils.getSourceNodeId(clone);
+      if (removeEventFromSource(eventType, clone.getWindowId(), sourceNodeId)) {
+        coalescedEvents[typeIndex]++;
+      }
     }
 
-    eventQueue.add(clone);
-    enforceEventLimits();
+    add(clone, sourceNodeId);
+    if (isLimited) {
+      qualifyingEvents[typeIndex]++;
+      enforceEventLimits(eventType);
+    }
   }
 
   /**
@@ -79,25 +115,36 @@ class EventQueue {
    * @return The event at the front of the queue.
    */
   public AccessibilityEvent dequeue() {
-    if (eventQueue.isEmpty()) {
-      return null;
-    }
+    while (slotCount > 0) {
+      final AccessibilityEvent event = eventQueue[head];
+      eventQueue[head] = null;
+      head = (head + 1) % eventQueue.length;
+      slotCount--;
 
-    final AccessibilityEvent event = eventQueue.remove(0);
-
-    if (event != null
-        && AccessibilityEventUtils.eventMatchesAnyType(event, MASK_LIMITED_EVENT_TYPES)) {
-      final int eventType = event.getEventType();
-      final int eventCountOfType = qualifyingEvents.get(eventType, 0);
-      qualifyingEvents.put(eventType, (eventCountOfType - 1));
+      if (event != null) {
+        eventCount--;
+        if (AccessibilityEventUtils.eventMatchesAnyType(event, MASK_LIMITED_EVENT_TYPES)) {
+          qualifyingEvents[typeIndex(event.getEventType())]--;
+        }
+        return event;
+      }
     }
-    return event;
+    return null;
   }
 
   /** Clears the event queue and discards all events waiting for processing. */
   public void clear() {
-    eventQueue.clear();
-    qualifyingEvents.clear();
+    for (int i = 0; i < slotCount; i++) {
+      int index = (head + i) % eventQueue.length;
+      if (eventQueue[index] != null) {
+        eventQueue[index].recycle();
+        eventQueue[index] = null;
+      }
+    }
+    head = 0;
+    slotCount = 0;
+    eventCount = 0;
+    Arrays.fill(qualifyingEvents, 0);
   }
 
   /**
@@ -106,43 +153,138 @@ class EventQueue {
    * @return {@code true} if the queue is empty, {@code false} otherwise
    */
   public boolean isEmpty() {
-    return eventQueue.isEmpty();
+    return eventCount == 0;
+  }
+
+  /** Returns the number of events of {@code eventType} that were added to the queue. */
+  public int getEnqueuedCount(int eventType) {
+    return enqueuedEvents[typeIndex(eventType)];
   }
 
   /**
-   * Enforces that the event queue has no more than {@code MAXIMUM_QUALIFYING_EVENTS} events of each
-   * type defined by {@code MASK_LIMITED_EVENT_TYPES}. The excessive events are pruned by removing
-   * the oldest event first.
+   * Returns the number of queued events of {@code eventType} that were replaced by a newer event
+   * from the same source node.
    */
-  private void enforceEventLimits() {
-    int eventTypesToPrune = 0;
-    // Locate event types which exceed the allowable limit
-    for (int i = 0; i < qualifyingEvents.size(); i++) {
-      final int eventType = qualifyingEvents.keyAt(i);
-      final int eventsOfType = qualifyingEvents.valueAt(i);
-      if (eventsOfType > MAXIMUM_QUALIFYING_EVENTS) {
-        eventTypesToPrune |= eventType;
+  public int getCoalescedCount(int eventType) {
+    return coalescedEvents[typeIndex(eventType)];
+  }
+
+  /** Returns the number of queued events of {@code eventType} that were pruned by type limits. */
+  public int getDroppedCount(int eventType) {
+    return droppedEvents[typeIndex(eventType)];
+  }
+
+  /** Returns the enqueued, coalesced and dropped counts of each event type, for logging. */
+  public String getCountsString() {
+    StringBuilder counts = new StringBuilder();
+    for (int typeIndex = 0; typeIndex < Integer.SIZE; typeIndex++) {
+      if (enqueuedEvents[typeIndex] == 0) {
+        continue;
       }
+      counts.append((counts.length() == 0) ? "" : ", "); // Delimiter
+      counts.append(AccessibilityEventUtils.typeToString(1 << typeIndex));
+      counts.append(": enqueued=").append(enqueuedEvents[typeIndex]);
+      counts.append(" coalesced=").append(coalescedEvents[typeIndex]);
+      counts.append(" dropped=").append(droppedEvents[typeIndex]);
     }
+    return counts.toString();
+  }
 
-    final Iterator<AccessibilityEvent> iterator = eventQueue.iterator();
-    while (iterator.hasNext() && (eventTypesToPrune != 0)) {
-      final AccessibilityEvent next = iterator.next();
-
-      // Prune offending events
-      if (AccessibilityEventUtils.eventMatchesAnyType(next, eventTypesToPrune)) {
-        final int eventType = next.getEventType();
-        int eventCountOfType = qualifyingEvents.get(eventType, 0);
-        eventCountOfType--;
-        qualifyingEvents.put(eventType, eventCountOfType);
-        iterator.remove();
-
-        // Stop pruning further events of this type if the number of
-        // events is below the limit
-        if (eventCountOfType <= MAXIMUM_QUALIFYING_EVENTS) {
-          eventTypesToPrune &= ~eventType;
-        }
+  /** Appends {@code event} to the end of the queue, growing or compacting the buffer if full. */
+  private void add(AccessibilityEvent event, long sourceNodeId) {
+    if (slotCount == eventQueue.length) {
+      // Compact if at least half of the slots are empty, otherwise grow.
+      resize((eventCount <= eventQueue.length / 2) ? eventQueue.length : eventQueue.length * 2);
+    }
+
+    int index = (head + slotCount) % eventQueue.length;
+    eventQueue[index] = event;
+    sourceNodeIds[index] = sourceNodeId;
+    slotCount++;
+    eventCount++;
+  }
+
+  /** Moves the queued events, in order and without empty slots, to buffers of {@code capacity}. */
+  private void resize(int capacity) {
+    AccessibilityEvent[] newEventQueue = new AccessibilityEvent[capacity];
+    long[] newSourceNodeIds = new long[capacity];
+    int newSlotCount = 0;
+    for (int i = 0; i < slotCount; i++) {
+      int index = (head + i) % eventQueue.length;
+      if (eventQueue[index] != null) {
+        newEventQueue[newSlotCount] = eventQueue[index];
+        newSourceNodeIds[newSlotCount] = sourceNodeIds[index];
+        newSlotCount++;
+      }
+    }
+
+    eventQueue = newEventQueue;
+    sourceNodeIds = newSourceNodeIds;
+    head = 0;
+    slotCount = newSlotCount;
+  }
+
+  /**
+   * Removes the queued event of {@code eventType} from the given source node, if any.
+   *
+   * @return whether an event was removed
+   */
+  private boolean removeEventFromSource(int eventType, int windowId, long sourceNodeId) {
+    if (sourceNodeId == AccessibilityEventUtils.NODE_ID_NONE) {
+      return false;
+    }
+
+    // Coalescing keeps at most one event per type and source, so stop at the first match.
+    for (int i = slotCount - 1; i >= 0; i--) {
+      int index = (head + i) % eventQueue.length;
+      AccessibilityEvent queuedEvent = eventQueue[index];
+      if (queuedEvent != null
+          && queuedEvent.getEventType() == eventType
+          && sourceNodeIds[index] == sourceNodeId
+          && queuedEvent.getWindowId() == windowId) {
+        remove(index);
+        return true;
       }
     }
+    return false;
+  }
+
+  /** Removes and recycles the event at {@code index} of {@code eventQueue}. */
+  private void remove(int index) {
+    AccessibilityEvent event = eventQueue[index];
+    eventQueue[index] = null;
+    eventCount--;
+    qualifyingEvents[typeIndex(event.getEventType())]--;
+    event.recycle();
+
+    if (eventCount == 0) {
+      // Every slot is empty, so start over from the beginning of the buffer.
+      head = 0;
+      slotCount = 0;
+    }
+  }
+
+  /**
+   * Enforces that the event queue has no more than {@code MAXIMUM_QUALIFYING_EVENTS} events of
+   * {@code eventType}, which must be in {@code MASK_LIMITED_EVENT_TYPES}. The excessive events are
+   * pruned by removing the oldest event first.
+   */
+  private void enforceEventLimits(int eventType) {
+    final int typeIndex = typeIndex(eventType);
+    int i = 0;
+    while ((i < slotCount) && (qualifyingEvents[typeIndex] > MAXIMUM_QUALIFYING_EVENTS)) {
+      int index = (head + i) % eventQueue.length;
+      AccessibilityEvent queuedEvent = eventQueue[index];
+      if (queuedEvent != null && queuedEvent.getEventType() == eventType) {
+        remove(index);
+        droppedEvents[typeIndex]++;
+      }
+      i++;
+    }
+  }
+
+  /** Returns the index of {@code eventType} in per-type arrays. */
+  private static int typeIndex(int eventType) {
+    return Integer.numberOfTrailingZeros(eventType);
   }
 }
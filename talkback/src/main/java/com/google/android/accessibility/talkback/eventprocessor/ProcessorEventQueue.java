@@ -17,6 +17,7 @@
 package com.google.android.accessibility.talkback.eventprocessor;
 
 import android.os.Message;
+import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
 import com.google.android.accessibility.compositor.Compositor;
 import com.google.android.accessibility.compositor.EventFilter;
@@ -117,6 +118,9 @@ public class ProcessorEventQueue implements AccessibilityEventListener {
 
         synchronized (parent.eventQueue) {
           if (parent.eventQueue.isEmpty()) {
+            if (LogUtils.getLogLevel() <= Log.VERBOSE) {
+              LogUtils.v(TAG, "Event queue counts: %s", parent.eventQueue.getCountsString());
+            }
             return;
           }
 
@@ -20,8 +20,6 @@ import static com.google.android.accessibility.talkback.Feedback.HINT;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.content.res.Resources;
 import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
 import android.text.Spannable;
 import android.text.SpannableString;
@@ -37,7 +35,7 @@ import com.google.android.accessibility.talkback.Feedback;
 import com.google.android.accessibility.talkback.Pipeline;
 import com.google.android.accessibility.talkback.R;
 import com.google.android.accessibility.talkback.TalkBackService;
-import com.google.android.accessibility.talkback.utils.VerbosityPreferences;
+import com.google.android.accessibility.talkback.utils.PreferenceSnapshot;
 import com.google.android.accessibility.utils.AccessibilityEventListener;
 import com.google.android.accessibility.utils.AccessibilityEventUtils;
 import com.google.android.accessibility.utils.AccessibilityNodeInfoUtils;
@@ -45,7 +43,6 @@ import com.google.android.accessibility.utils.LocaleUtils;
 import com.google.android.accessibility.utils.PackageManagerUtils;
 import com.google.android.accessibility.utils.Performance.EventId;
 import com.google.android.accessibility.utils.Role;
-import com.google.android.accessibility.utils.SharedPreferencesUtils;
 import com.google.android.accessibility.utils.output.FeedbackItem;
 import com.google.android.accessibility.utils.output.SpeechController;
 import com.google.android.accessibility.utils.output.SpeechController.SpeakOptions;
@@ -95,7 +92,7 @@ public class ProcessorPhoneticLetters implements AccessibilityEventListener {
           | AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED
           | AccessibilityEvent.TYPE_VIEW_TEXT_TRAVERSED_AT_MOVEMENT_GRANULARITY;
 
-  private final SharedPreferences prefs;
+  private final PreferenceSnapshot.Holder preferences;
   private final TalkBackService service;
 
   /** Callback to return generated feedback to pipeline. */
@@ -105,8 +102,9 @@ public class ProcessorPhoneticLetters implements AccessibilityEventListener {
   private Map<String, Map<String, String>> phoneticLetters =
       new HashMap<String, Map<String, String>>();
 
-  public ProcessorPhoneticLetters(TalkBackService service) {
-    prefs = SharedPreferencesUtils.getSharedPreferences(service);
+  public ProcessorPhoneticLetters(
+      TalkBackService service, PreferenceSnapshot.Holder preferences) {
+    this.preferences = preferences;
     this.service = service;
   }
 
@@ -190,12 +188,7 @@ public class ProcessorPhoneticLetters implements AccessibilityEventListener {
   }
 
   private boolean arePhoneticLettersEnabled() {
-    final Resources res = service.getResources();
-    return VerbosityPreferences.getPreferenceValueBool(
-        prefs,
-        res,
-        res.getString(R.string.pref_phonetic_letters_key),
-        res.getBoolean(R.bool.pref_phonetic_letters_default));
+    return preferences.get().phoneticLettersEnabled();
   }
 
   private boolean isKeyboardEvent(AccessibilityEvent event) {
@@ -25,7 +25,6 @@ import static com.google.android.accessibility.utils.traversal.TraversalStrategy
 import static com.google.android.accessibility.utils.traversal.TraversalStrategy.SEARCH_FOCUS_FORWARD;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.media.AudioManager;
 import android.os.Bundle;
 import android.os.Message;
@@ -44,13 +43,13 @@ import com.google.android.accessibility.talkback.R;
 import com.google.android.accessibility.talkback.TalkBackService;
 import com.google.android.accessibility.talkback.contextmenu.ListMenuManager;
 import com.google.android.accessibility.talkback.focusmanagement.AccessibilityFocusMonitor;
+import com.google.android.accessibility.talkback.utils.PreferenceSnapshot;
 import com.google.android.accessibility.utils.AccessibilityEventListener;
 import com.google.android.accessibility.utils.AccessibilityNodeInfoUtils;
 import com.google.android.accessibility.utils.FeatureSupport;
 import com.google.android.accessibility.utils.Performance.EventId;
 import com.google.android.accessibility.utils.Role;
 import com.google.android.accessibility.utils.ServiceKeyEventListener;
-import com.google.android.accessibility.utils.SharedPreferencesUtils;
 import com.google.android.accessibility.utils.WeakReferenceHandler;
 import com.google.android.accessibility.utils.compat.media.AudioManagerCompatUtils;
 import com.google.android.accessibility.utils.input.CursorGranularity;
@@ -110,7 +109,7 @@ public class ProcessorVolumeStream
 
   private boolean navigationMode = false;
 
-  private SharedPreferences prefs;
+  private final PreferenceSnapshot.Holder preferences;
   private TalkBackService service;
   private final ActorState actorState;
   private VolumeButtonPatternDetector patternDetector;
@@ -124,7 +123,8 @@ public class ProcessorVolumeStream
       ActorState actorState,
       TalkBackService service,
       GlobalVariables globalVariables,
-      ListMenuManager menuManager) {
+      ListMenuManager menuManager,
+      PreferenceSnapshot.Holder preferences) {
     if (pipeline == null) {
       throw new IllegalStateException("CachedFeedbackController is null");
     }
@@ -146,7 +146,7 @@ public class ProcessorVolumeStream
         pm.newWakeLock(
             PowerManager.SCREEN_BRIGHT_WAKE_LOCK | PowerManager.ON_AFTER_RELEASE, WL_TAG);
 
-    prefs = SharedPreferencesUtils.getSharedPreferences(service);
+    this.preferences = preferences;
     this.service = service;
     patternDetector = new VolumeButtonPatternDetector(this.service);
     patternDetector.setOnPatternMatchListener(this);
@@ -197,12 +197,7 @@ public class ProcessorVolumeStream
     }
 
     // Check whether user enabled the volume-key shortcut for suspending talkback.
-    boolean shortcutEnabled =
-        SharedPreferencesUtils.getBooleanPref(
-            prefs,
-            service.getResources(),
-            R.string.pref_two_volume_long_press_key,
-            R.bool.pref_resume_volume_buttons_long_click_default);
+    boolean shortcutEnabled = preferences.get().suspendOnVolumeKeysLongPress();
     if (!shortcutEnabled) {
       return;
     }
@@ -457,12 +452,7 @@ public class ProcessorVolumeStream
   }
 
   private boolean isTripleClickEnabledGlobally() {
-    SharedPreferences prefs = SharedPreferencesUtils.getSharedPreferences(service);
-    return SharedPreferencesUtils.getBooleanPref(
-        prefs,
-        service.getResources(),
-        R.string.pref_dim_volume_three_clicks_key,
-        R.bool.pref_dim_volume_three_clicks_default);
+    return preferences.get().dimScreenOnTripleClick();
   }
 
   /**
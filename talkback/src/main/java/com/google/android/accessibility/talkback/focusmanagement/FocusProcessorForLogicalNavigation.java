@@ -65,6 +65,7 @@ import com.google.android.accessibility.utils.WebInterfaceUtils;
 import com.google.android.accessibility.utils.WindowUtils;
 import com.google.android.accessibility.utils.output.FeedbackItem;
 import com.google.android.accessibility.utils.output.SpeechController;
+import com.google.android.accessibility.utils.traversal.OrderedTraversalCache;
 import com.google.android.accessibility.utils.traversal.TraversalStrategy;
 import com.google.android.accessibility.utils.traversal.TraversalStrategy.SearchDirection;
 import com.google.android.accessibility.utils.traversal.TraversalStrategyUtils;
@@ -134,6 +135,9 @@ public class FocusProcessorForLogicalNavigation {
   // Object-wrapper around static-method getAccessibilityFocus(), for test-mocking.
   private final AccessibilityFocusMonitor accessibilityFocusMonitor;
 
+  /** Traversal orders of windows, reused across navigation actions. */
+  private final OrderedTraversalCache orderedTraversalCache;
+
   ///////////////////////////////////////////////////////////////////////////////////////////////
   // Construction
 
@@ -141,11 +145,13 @@ public class FocusProcessorForLogicalNavigation {
       AccessibilityService service,
       FocusFinder focusFinder,
       AccessibilityFocusMonitor accessibilityFocusMonitor,
-      ScreenStateMonitor.State screenState) {
+      ScreenStateMonitor.State screenState,
+      OrderedTraversalCache orderedTraversalCache) {
     this.service = service;
     this.focusFinder = focusFinder;
     this.accessibilityFocusMonitor = accessibilityFocusMonitor;
     this.screenState = screenState;
+    this.orderedTraversalCache = orderedTraversalCache;
     isWindowNavigationSupported = !FeatureSupport.isTv(service);
   }
 
@@ -243,7 +249,7 @@ public class FocusProcessorForLogicalNavigation {
       // Search forward for node satisfying filter.
       @SearchDirection int direction = TraversalStrategy.SEARCH_FOCUS_FORWARD;
       traversalStrategy =
-          TraversalStrategyUtils.getTraversalStrategy(rootNode, focusFinder, direction);
+          orderedTraversalCache.getTraversalStrategy(rootNode, focusFinder, direction);
       target = TraversalStrategyUtils.searchFocus(traversalStrategy, start, direction, filter);
       if (target == null) {
         return null;
@@ -354,7 +360,7 @@ public class FocusProcessorForLogicalNavigation {
               : TraversalStrategy.SEARCH_FOCUS_BACKWARD;
 
       traversalStrategy =
-          TraversalStrategyUtils.getTraversalStrategy(rootNode, focusFinder, searchDirection);
+          orderedTraversalCache.getTraversalStrategy(rootNode, focusFinder, searchDirection);
 
       // Always use default granularity when jumping to the beginning/end of the window.
       target =
@@ -674,7 +680,7 @@ public class FocusProcessorForLogicalNavigation {
         return false;
       }
       traversalStrategy =
-          TraversalStrategyUtils.getTraversalStrategy(
+          orderedTraversalCache.getTraversalStrategy(
               rootNode, focusFinder, navigationAction.searchDirection);
 
       // Perform auto-scroll action if necessary.
@@ -1086,7 +1092,7 @@ public class FocusProcessorForLogicalNavigation {
         rootCompat = AccessibilityNodeInfoUtils.toCompat(targetWindow.getRoot());
         if (rootCompat != null) {
           traversalStrategy =
-              TraversalStrategyUtils.getTraversalStrategy(rootCompat, focusFinder, direction);
+              orderedTraversalCache.getTraversalStrategy(rootCompat, focusFinder, direction);
 
           AccessibilityNodeInfoCompat focus =
               TraversalStrategyUtils.findInitialFocusInNodeTree(
@@ -51,15 +51,15 @@ import static com.google.android.accessibility.utils.traversal.TraversalStrategy
 
 import android.accessibilityservice.AccessibilityService;
 import android.accessibilityservice.FingerprintGestureController;
-import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.os.Build;
+import android.util.SparseArray;
 import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
 import android.text.SpannableStringBuilder;
 import android.text.TextUtils;
 import android.view.accessibility.AccessibilityWindowInfo;
+import androidx.annotation.StringRes;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import com.google.android.accessibility.talkback.ActorState;
 import com.google.android.accessibility.talkback.Feedback;
@@ -102,6 +102,69 @@ public class GestureController {
 
   private static final String LOG_TAG = "GestureController";
 
+  /** Actions that can be assigned to gestures, with the resource id of their action key. */
+  private enum ShortcutAction {
+    UNASSIGNED(R.string.shortcut_value_unassigned),
+    PREVIOUS(R.string.shortcut_value_previous),
+    NEXT(R.string.shortcut_value_next),
+    SCROLL_BACK(R.string.shortcut_value_scroll_back),
+    SCROLL_FORWARD(R.string.shortcut_value_scroll_forward),
+    SCROLL_UP(R.string.shortcut_value_scroll_up),
+    SCROLL_DOWN(R.string.shortcut_value_scroll_down),
+    SCROLL_LEFT(R.string.shortcut_value_scroll_left),
+    SCROLL_RIGHT(R.string.shortcut_value_scroll_right),
+    FIRST_IN_SCREEN(R.string.shortcut_value_first_in_screen),
+    LAST_IN_SCREEN(R.string.shortcut_value_last_in_screen),
+    MEDIA_CONTROL(R.string.shortcut_value_media_control),
+    BACK(R.string.shortcut_value_back),
+    HOME(R.string.shortcut_value_home),
+    VOICE_COMMANDS(R.string.shortcut_value_voice_commands),
+    OVERVIEW(R.string.shortcut_value_overview),
+    NOTIFICATIONS(R.string.shortcut_value_notifications),
+    QUICK_SETTINGS(R.string.shortcut_value_quick_settings),
+    ALL_APPS(R.string.shortcut_value_all_apps),
+    TALKBACK_BREAKOUT(R.string.shortcut_value_talkback_breakout),
+    LOCAL_BREAKOUT(R.string.shortcut_value_local_breakout),
+    SHOW_CUSTOM_ACTIONS(R.string.shortcut_value_show_custom_actions),
+    EDITING(R.string.shortcut_value_editing),
+    SHOW_LANGUAGE_OPTIONS(R.string.shortcut_value_show_language_options),
+    PREVIOUS_GRANULARITY(R.string.shortcut_value_previous_granularity),
+    NEXT_GRANULARITY(R.string.shortcut_value_next_granularity),
+    PREVIOUS_WINDOW(R.string.shortcut_value_previous_window),
+    NEXT_WINDOW(R.string.shortcut_value_next_window),
+    READ_FROM_TOP(R.string.shortcut_value_read_from_top),
+    READ_FROM_CURRENT(R.string.shortcut_value_read_from_current),
+    PRINT_NODE_TREE(R.string.shortcut_value_print_node_tree),
+    PRINT_PERFORMANCE_STATS(R.string.shortcut_value_print_performance_stats),
+    PERFORM_CLICK_ACTION(R.string.shortcut_value_perform_click_action),
+    PERFORM_LONG_CLICK_ACTION(R.string.shortcut_value_perform_long_click_action),
+    SELECT_PREVIOUS_SETTING(R.string.shortcut_value_select_previous_setting),
+    SELECT_NEXT_SETTING(R.string.shortcut_value_select_next_setting),
+    SELECTED_SETTING_PREVIOUS_ACTION(R.string.shortcut_value_selected_setting_previous_action),
+    SELECTED_SETTING_NEXT_ACTION(R.string.shortcut_value_selected_setting_next_action),
+    SCREEN_SEARCH(R.string.shortcut_value_screen_search),
+    PASS_THROUGH_NEXT_GESTURE(R.string.shortcut_value_pass_through_next_gesture),
+    A11Y_BUTTON(R.string.shortcut_value_a11y_button),
+    A11Y_BUTTON_LONG_PRESS(R.string.shortcut_value_a11y_button_long_press),
+    HEADPHONE_NAVIGATION(R.string.shortcut_value_headphone_navigation),
+    PAUSE_OR_RESUME_FEEDBACK(R.string.shortcut_value_pause_or_resume_feedback),
+    START_SELECTION_MODE(R.string.shortcut_value_start_selection_mode),
+    COPY(R.string.shortcut_value_copy),
+    CUT(R.string.shortcut_value_cut),
+    PASTE(R.string.shortcut_value_paste),
+    TOGGLE_VOICE_FEEDBACK(R.string.shortcut_value_toggle_voice_feedback),
+    BRAILLE_KEYBOARD(R.string.shortcut_value_braille_keyboard),
+    TUTORIAL(R.string.shortcut_value_tutorial),
+    PRACTICE_GESTURES(R.string.shortcut_value_practice_gestures),
+    REPORT_GESTURE(R.string.shortcut_value_report_gesture);
+
+    final @StringRes int actionKeyResId;
+
+    ShortcutAction(@StringRes int actionKeyResId) {
+      this.actionKeyResId = actionKeyResId;
+    }
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////////////////
   // Member variables
 
@@ -119,6 +182,14 @@ public class GestureController {
 
   @NonNull private final Map<Integer, Integer> captureGestureIdToAnnouncements = new HashMap<>();
 
+  /** Resolves the action keys stored in preferences, which don't depend on the locale. */
+  private final Map<String, ShortcutAction> actionKeyToShortcutAction = new HashMap<>();
+
+  /** Preference keys and default actions of fingerprint gestures, by fingerprint gesture id. */
+  private final SparseArray<FingerprintShortcut> fingerprintShortcuts = new SparseArray<>();
+
+  private final String actionUnassigned;
+
   ////////////////////////////////////////////////////////////////////////////////////////////////
   // Constructor methods
 
@@ -154,6 +225,36 @@ public class GestureController {
     this.accessibilityFocusMonitor = accessibilityFocusMonitor;
     this.gestureShortcutMapping = gestureShortcutMapping;
     this.analytics = analytics;
+
+    for (ShortcutAction shortcutAction : ShortcutAction.values()) {
+      actionKeyToShortcutAction.put(
+          service.getString(shortcutAction.actionKeyResId), shortcutAction);
+    }
+    actionUnassigned = service.getString(R.string.shortcut_value_unassigned);
+    addFingerprintShortcut(
+        FingerprintGestureController.FINGERPRINT_GESTURE_SWIPE_UP,
+        R.string.pref_shortcut_fingerprint_up_key,
+        R.string.pref_shortcut_fingerprint_up_default);
+    addFingerprintShortcut(
+        FingerprintGestureController.FINGERPRINT_GESTURE_SWIPE_DOWN,
+        R.string.pref_shortcut_fingerprint_down_key,
+        R.string.pref_shortcut_fingerprint_down_default);
+    addFingerprintShortcut(
+        FingerprintGestureController.FINGERPRINT_GESTURE_SWIPE_LEFT,
+        R.string.pref_shortcut_fingerprint_left_key,
+        R.string.pref_shortcut_fingerprint_left_default);
+    addFingerprintShortcut(
+        FingerprintGestureController.FINGERPRINT_GESTURE_SWIPE_RIGHT,
+        R.string.pref_shortcut_fingerprint_right_key,
+        R.string.pref_shortcut_fingerprint_right_default);
+  }
+
+  private void addFingerprintShortcut(
+      int fingerprintGestureId, @StringRes int prefKeyResId, @StringRes int defaultActionResId) {
+    fingerprintShortcuts.put(
+        fingerprintGestureId,
+        new FingerprintShortcut(
+            service.getString(prefKeyResId), service.getString(defaultActionResId)));
   }
 
   ////////////////////////////////////////////////////////////////////////////////////////////////
@@ -165,239 +266,259 @@ public class GestureController {
    * @param gesture Fingerprint gesture Id
    * @return Mapped action shortcut
    */
-  @TargetApi(Build.VERSION_CODES.O)
   private String actionFromFingerprintGesture(int gesture) {
-    SharedPreferences prefs = SharedPreferencesUtils.getSharedPreferences(service);
-    switch (gesture) {
-      case FingerprintGestureController.FINGERPRINT_GESTURE_SWIPE_UP:
-        return prefs.getString(
-            service.getString(R.string.pref_shortcut_fingerprint_up_key),
-            service.getString(R.string.pref_shortcut_fingerprint_up_default));
-      case FingerprintGestureController.FINGERPRINT_GESTURE_SWIPE_DOWN:
-        return prefs.getString(
-            service.getString(R.string.pref_shortcut_fingerprint_down_key),
-            service.getString(R.string.pref_shortcut_fingerprint_down_default));
-      case FingerprintGestureController.FINGERPRINT_GESTURE_SWIPE_LEFT:
-        return prefs.getString(
-            service.getString(R.string.pref_shortcut_fingerprint_left_key),
-            service.getString(R.string.pref_shortcut_fingerprint_left_default));
-      case FingerprintGestureController.FINGERPRINT_GESTURE_SWIPE_RIGHT:
-        return prefs.getString(
-            service.getString(R.string.pref_shortcut_fingerprint_right_key),
-            service.getString(R.string.pref_shortcut_fingerprint_right_default));
-      default:
-        return service.getString(R.string.shortcut_value_unassigned);
+    @Nullable FingerprintShortcut shortcut = fingerprintShortcuts.get(gesture);
+    if (shortcut == null) {
+      return actionUnassigned;
     }
+    SharedPreferences prefs = SharedPreferencesUtils.getSharedPreferences(service);
+    return prefs.getString(shortcut.prefKey, shortcut.defaultAction);
   }
 
   public void performAction(String action, EventId eventId) {
     maybeInterruptAllFeedback(action);
     boolean result = true;
-    if (action.equals(service.getString(R.string.shortcut_value_unassigned))) {
-      // Do Nothing
-    } else if (action.equals(service.getString(R.string.shortcut_value_previous))) {
-      result =
-          pipeline.returnFeedback(
-              eventId,
-              Feedback.focusDirection(SEARCH_FOCUS_BACKWARD)
-                  // Sets granularity to default because "Previous item" action always moves at
-                  // default granularity.
-                  .setGranularity(DEFAULT)
-                  .setInputMode(INPUT_MODE_TOUCH)
-                  .setDefaultToInputFocus(true)
-                  .setScroll(true)
-                  .setWrap(true));
-    } else if (action.equals(service.getString(R.string.shortcut_value_next))) {
-      result =
-          pipeline.returnFeedback(
-              eventId,
-              Feedback.focusDirection(SEARCH_FOCUS_FORWARD)
-                  // Sets granularity to default because "Next item" action always moves at default
-                  // granularity.
-                  .setGranularity(DEFAULT)
-                  .setInputMode(INPUT_MODE_TOUCH)
-                  .setDefaultToInputFocus(true)
-                  .setScroll(true)
-                  .setWrap(true));
-    } else if (action.equals(service.getString(R.string.shortcut_value_scroll_back))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focusDirection(PREVIOUS_PAGE));
-    } else if (action.equals(service.getString(R.string.shortcut_value_scroll_forward))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focusDirection(NEXT_PAGE));
-    } else if (action.equals(service.getString(R.string.shortcut_value_scroll_up))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focusDirection(SCROLL_UP));
-    } else if (action.equals(service.getString(R.string.shortcut_value_scroll_down))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focusDirection(SCROLL_DOWN));
-    } else if (action.equals(service.getString(R.string.shortcut_value_scroll_left))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focusDirection(SCROLL_LEFT));
-    } else if (action.equals(service.getString(R.string.shortcut_value_scroll_right))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focusDirection(SCROLL_RIGHT));
-    } else if (action.equals(service.getString(R.string.shortcut_value_first_in_screen))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focusTop(INPUT_MODE_TOUCH));
-    } else if (action.equals(service.getString(R.string.shortcut_value_last_in_screen))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focusBottom(INPUT_MODE_TOUCH));
-    } else if (action.equals(service.getString(R.string.shortcut_value_media_control))) {
-      result =
-          pipeline.returnFeedback(
-              eventId, Feedback.systemAction(GLOBAL_ACTION_KEYCODE_HEADSETHOOK));
-    } else if (action.equals(service.getString(R.string.shortcut_value_back))) {
-      result =
-          pipeline.returnFeedback(
-              eventId, Feedback.systemAction(AccessibilityService.GLOBAL_ACTION_BACK));
-    } else if (action.equals(service.getString(R.string.shortcut_value_home))) {
-      result =
-          pipeline.returnFeedback(
-              eventId, Feedback.systemAction(AccessibilityService.GLOBAL_ACTION_HOME));
-    } else if (action.equals(service.getString(R.string.shortcut_value_voice_commands))) {
-      if (ScreenMonitor.isDeviceLocked(service)) {
-        speak(
-            service.getString(
-                R.string.voice_command_screen_locked_hint,
-                gestureShortcutMapping.getGestureFromActionKey(action)));
-      } else {
-        result =
-            pipeline.returnFeedback(
-                eventId, Feedback.voiceRecognition(START_LISTENING, /* checkDialog= */ true));
-      }
-    } else if (action.equals(service.getString(R.string.shortcut_value_overview))) {
-      result =
-          pipeline.returnFeedback(
-              eventId, Feedback.systemAction(AccessibilityService.GLOBAL_ACTION_RECENTS));
-    } else if (action.equals(service.getString(R.string.shortcut_value_notifications))) {
-      result =
+    @Nullable ShortcutAction shortcutAction = actionKeyToShortcutAction.get(action);
+    if (shortcutAction != null) {
+      switch (shortcutAction) {
+        case UNASSIGNED:
+          // Do Nothing
+          break;
+        case PREVIOUS:
+          result =
+              pipeline.returnFeedback(
+                  eventId,
+                  Feedback.focusDirection(SEARCH_FOCUS_BACKWARD)
+                      // Sets granularity to default because "Previous item" action always moves at
+                      // default granularity.
+                      .setGranularity(DEFAULT)
+                      .setInputMode(INPUT_MODE_TOUCH)
+                      .setDefaultToInputFocus(true)
+                      .setScroll(true)
+                      .setWrap(true));
+          break;
+        case NEXT:
+          result =
+              pipeline.returnFeedback(
+                  eventId,
+                  Feedback.focusDirection(SEARCH_FOCUS_FORWARD)
+                      // Sets granularity to default because "Next item" action always moves at
+                      // default granularity.
+                      .setGranularity(DEFAULT)
+                      .setInputMode(INPUT_MODE_TOUCH)
+                      .setDefaultToInputFocus(true)
+                      .setScroll(true)
+                      .setWrap(true));
+          break;
+        case SCROLL_BACK:
+          result = pipeline.returnFeedback(eventId, Feedback.focusDirection(PREVIOUS_PAGE));
+          break;
+        case SCROLL_FORWARD:
+          result = pipeline.returnFeedback(eventId, Feedback.focusDirection(NEXT_PAGE));
+          break;
+        case SCROLL_UP:
+          result = pipeline.returnFeedback(eventId, Feedback.focusDirection(SCROLL_UP));
+          break;
+        case SCROLL_DOWN:
+          result = pipeline.returnFeedback(eventId, Feedback.focusDirection(SCROLL_DOWN));
+          break;
+        case SCROLL_LEFT:
+          result = pipeline.returnFeedback(eventId, Feedback.focusDirection(SCROLL_LEFT));
+          break;
+        case SCROLL_RIGHT:
+          result = pipeline.returnFeedback(eventId, Feedback.focusDirection(SCROLL_RIGHT));
+          break;
+        case FIRST_IN_SCREEN:
+          result = pipeline.returnFeedback(eventId, Feedback.focusTop(INPUT_MODE_TOUCH));
+          break;
+        case LAST_IN_SCREEN:
+          result = pipeline.returnFeedback(eventId, Feedback.focusBottom(INPUT_MODE_TOUCH));
+          break;
+        case MEDIA_CONTROL:
+          result =
+              pipeline.returnFeedback(
+                  eventId, Feedback.systemAction(GLOBAL_ACTION_KEYCODE_HEADSETHOOK));
+          break;
+        case BACK:
+          result =
+              pipeline.returnFeedback(
+                  eventId, Feedback.systemAction(AccessibilityService.GLOBAL_ACTION_BACK));
+          break;
+        case HOME:
+          result =
+              pipeline.returnFeedback(
+                  eventId, Feedback.systemAction(AccessibilityService.GLOBAL_ACTION_HOME));
+          break;
+        case VOICE_COMMANDS:
+          if (ScreenMonitor.isDeviceLocked(service)) {
+            speak(
+                service.getString(
+                    R.string.voice_command_screen_locked_hint,
+                    gestureShortcutMapping.getGestureFromActionKey(action)));
+          } else {
+            result =
+                pipeline.returnFeedback(
+                    eventId, Feedback.voiceRecognition(START_LISTENING, /* checkDialog= */ true));
+          }
+          break;
+        case OVERVIEW:
+          result =
+              pipeline.returnFeedback(
+                  eventId, Feedback.systemAction(AccessibilityService.GLOBAL_ACTION_RECENTS));
+          break;
+        case NOTIFICATIONS:
+          result =
+              pipeline.returnFeedback(
+                  eventId, Feedback.systemAction(AccessibilityService.GLOBAL_ACTION_NOTIFICATIONS));
+          break;
+        case QUICK_SETTINGS:
+          result =
+              pipeline.returnFeedback(
+                  eventId,
+                  Feedback.systemAction(AccessibilityService.GLOBAL_ACTION_QUICK_SETTINGS));
+          break;
+        case ALL_APPS:
+          result =
+              pipeline.returnFeedback(
+                  eventId, Feedback.systemAction(GLOBAL_ACTION_ACCESSIBILITY_ALL_APPS));
+          break;
+        case TALKBACK_BREAKOUT:
+        case LOCAL_BREAKOUT:
+          result = menuManager.showMenu(R.menu.context_menu, eventId);
+          break;
+        case SHOW_CUSTOM_ACTIONS:
+          result = menuManager.showMenu(R.id.custom_action_menu, eventId);
+          break;
+        case EDITING:
+          result = menuManager.showMenu(R.id.editing_menu, eventId);
+          break;
+        case SHOW_LANGUAGE_OPTIONS:
+          result = menuManager.showMenu(R.menu.language_menu, eventId);
+          break;
+        case PREVIOUS_GRANULARITY:
+          result = pipeline.returnFeedback(eventId, Feedback.focusDirection(PREVIOUS_GRANULARITY));
+          break;
+        case NEXT_GRANULARITY:
+          result = pipeline.returnFeedback(eventId, Feedback.focusDirection(NEXT_GRANULARITY));
+          break;
+        case PREVIOUS_WINDOW:
+          result =
+              pipeline.returnFeedback(
+                  eventId, Feedback.previousWindow(INPUT_MODE_TOUCH).setDefaultToInputFocus(true));
+          break;
+        case NEXT_WINDOW:
+          result =
+              pipeline.returnFeedback(
+                  eventId, Feedback.nextWindow(INPUT_MODE_TOUCH).setDefaultToInputFocus(true));
+          break;
+        case READ_FROM_TOP:
+          result = pipeline.returnFeedback(eventId, Feedback.continuousRead(START_AT_TOP));
+          break;
+        case READ_FROM_CURRENT:
+          result = pipeline.returnFeedback(eventId, Feedback.continuousRead(START_AT_NEXT));
+          break;
+        case PRINT_NODE_TREE:
+          List<AccessibilityWindowInfo> windows =
+              AccessibilityServiceCompatUtils.getWindows(service);
+          TreeDebug.logNodeTrees(windows);
+          TreeDebug.logOrderedTraversalTree(windows);
           pipeline.returnFeedback(
-              eventId, Feedback.systemAction(AccessibilityService.GLOBAL_ACTION_NOTIFICATIONS));
-    } else if (action.equals(service.getString(R.string.shortcut_value_quick_settings))) {
-      result =
-          pipeline.returnFeedback(
-              eventId, Feedback.systemAction(AccessibilityService.GLOBAL_ACTION_QUICK_SETTINGS));
-    } else if (action.equals(service.getString(R.string.shortcut_value_all_apps))) {
-      result =
-          pipeline.returnFeedback(
-              eventId, Feedback.systemAction(GLOBAL_ACTION_ACCESSIBILITY_ALL_APPS));
-    } else if (action.equals(service.getString(R.string.shortcut_value_talkback_breakout))) {
-      result = menuManager.showMenu(R.menu.context_menu, eventId);
-    } else if (action.equals(service.getString(R.string.shortcut_value_local_breakout))) {
-      result = menuManager.showMenu(R.menu.context_menu, eventId);
-    } else if (action.equals(service.getString(R.string.shortcut_value_show_custom_actions))) {
-      result = menuManager.showMenu(R.id.custom_action_menu, eventId);
-    } else if (action.equals(service.getString(R.string.shortcut_value_editing))) {
-      result = menuManager.showMenu(R.id.editing_menu, eventId);
-    } else if (action.equals(service.getString(R.string.shortcut_value_show_language_options))) {
-      result = menuManager.showMenu(R.menu.language_menu, eventId);
-    } else if (action.equals(service.getString(R.string.shortcut_value_previous_granularity))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focusDirection(PREVIOUS_GRANULARITY));
-    } else if (action.equals(service.getString(R.string.shortcut_value_next_granularity))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focusDirection(NEXT_GRANULARITY));
-    } else if (action.equals(service.getString(R.string.shortcut_value_previous_window))) {
-      result =
-          pipeline.returnFeedback(
-              eventId, Feedback.previousWindow(INPUT_MODE_TOUCH).setDefaultToInputFocus(true));
-    } else if (action.equals(service.getString(R.string.shortcut_value_next_window))) {
-      result =
-          pipeline.returnFeedback(
-              eventId, Feedback.nextWindow(INPUT_MODE_TOUCH).setDefaultToInputFocus(true));
-    } else if (action.equals(service.getString(R.string.shortcut_value_read_from_top))) {
-      result = pipeline.returnFeedback(eventId, Feedback.continuousRead(START_AT_TOP));
-    } else if (action.equals(service.getString(R.string.shortcut_value_read_from_current))) {
-      result = pipeline.returnFeedback(eventId, Feedback.continuousRead(START_AT_NEXT));
-    } else if (action.equals(service.getString(R.string.shortcut_value_print_node_tree))) {
-      List<AccessibilityWindowInfo> windows = AccessibilityServiceCompatUtils.getWindows(service);
-      TreeDebug.logNodeTrees(windows);
-      TreeDebug.logOrderedTraversalTree(windows);
-      pipeline.returnFeedback(
-          eventId, Feedback.speech(service.getString(R.string.dump_node_tree_description)));
-    } else if (action.equals(service.getString(R.string.shortcut_value_print_performance_stats))) {
-      Performance.getInstance().displayLabelToStats();
-      Performance.getInstance().displayStatToLabelCompare();
-      Performance.getInstance().displayAllEventStats();
-    } else if (action.equals(service.getString(R.string.shortcut_value_perform_click_action))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focus(CLICK_CURRENT));
-    } else if (action.equals(
-        service.getString(R.string.shortcut_value_perform_long_click_action))) {
-      result = pipeline.returnFeedback(eventId, Feedback.focus(LONG_CLICK_CURRENT));
-    } else if (action.equals(service.getString(R.string.shortcut_value_select_previous_setting))) {
-      selectorController.selectPreviousOrNextSetting(eventId, false);
-    } else if (action.equals(service.getString(R.string.shortcut_value_select_next_setting))) {
-      selectorController.selectPreviousOrNextSetting(eventId, true);
-    } else if (action.equals(
-        service.getString(R.string.shortcut_value_selected_setting_previous_action))) {
-      selectorController.adjustSelectedSetting(eventId, false);
-    } else if (action.equals(
-        service.getString(R.string.shortcut_value_selected_setting_next_action))) {
-      selectorController.adjustSelectedSetting(eventId, true);
-    } else if (action.equals(service.getString(R.string.shortcut_value_screen_search))) {
-      service.getUniversalSearchManager().toggleSearch(eventId);
-    } else if (action.equals(
-        service.getString(R.string.shortcut_value_pass_through_next_gesture))) {
-      result =
-          pipeline.returnFeedback(eventId, Feedback.passThroughMode(PASSTHROUGH_CONFIRM_DIALOG));
-    } else if (action.equals(service.getString(R.string.shortcut_value_a11y_button))) {
-      result =
-          pipeline.returnFeedback(
-              eventId, Feedback.systemAction(GLOBAL_ACTION_ACCESSIBILITY_BUTTON));
-    } else if (action.equals(service.getString(R.string.shortcut_value_a11y_button_long_press))) {
-      result =
-          pipeline.returnFeedback(
-              eventId, Feedback.systemAction(GLOBAL_ACTION_ACCESSIBILITY_BUTTON_CHOOSER));
-    } else if (action.equals(service.getString(R.string.shortcut_value_headphone_navigation))) {
-      processorVolumeStream.toggleNavigationMode();
-    } else if (action.equals(service.getString(R.string.shortcut_value_pause_or_resume_feedback))) {
-      pipeline.returnFeedback(eventId, Feedback.speech(Feedback.Speech.Action.PAUSE_OR_RESUME));
-    } else if (action.equals(service.getString(R.string.shortcut_value_start_selection_mode))) {
-      AccessibilityNodeInfoCompat node = getEditTextFocus();
-      if (node == null) {
-        result = false;
-      } else {
-        // Edit text found.
-        if (actorState.getDirectionNavigation().isSelectionModeActive()) {
-          result = pipeline.returnFeedback(eventId, Feedback.edit(node, END_SELECT));
-        } else {
-          result = pipeline.returnFeedback(eventId, Feedback.edit(node, START_SELECT));
-        }
-        AccessibilityNodeInfoUtils.recycleNodes(node);
-      }
-    } else if (action.equals(service.getString(R.string.shortcut_value_copy))) {
-      AccessibilityNodeInfoCompat node =
-          accessibilityFocusMonitor.getAccessibilityFocus(/* useInputFocusIfEmpty= */ true);
-      result = pipeline.returnFeedback(eventId, Feedback.edit(node, COPY));
-      AccessibilityNodeInfoUtils.recycleNodes(node);
-    } else if (action.equals(service.getString(R.string.shortcut_value_cut))) {
-      AccessibilityNodeInfoCompat node = getEditTextFocus();
-      if (node == null) {
-        result = false;
-      } else {
-        // Edit text found.
-        result = pipeline.returnFeedback(eventId, Feedback.edit(node, CUT));
-        AccessibilityNodeInfoUtils.recycleNodes(node);
-      }
-    } else if (action.equals(service.getString(R.string.shortcut_value_paste))) {
-      AccessibilityNodeInfoCompat node = getEditTextFocus();
-      if (node == null) {
-        result = false;
-      } else {
-        // Edit text found.
-        result = pipeline.returnFeedback(eventId, Feedback.edit(node, PASTE));
-        AccessibilityNodeInfoUtils.recycleNodes(node);
+              eventId, Feedback.speech(service.getString(R.string.dump_node_tree_description)));
+          break;
+        case PRINT_PERFORMANCE_STATS:
+          Performance.getInstance().displayLabelToStats();
+          Performance.getInstance().displayStatToLabelCompare();
+          Performance.getInstance().displayAllEventStats();
+          Performance.getInstance().displayEventBatchingStats();
+          break;
+        case PERFORM_CLICK_ACTION:
+          result = pipeline.returnFeedback(eventId, Feedback.focus(CLICK_CURRENT));
+          break;
+        case PERFORM_LONG_CLICK_ACTION:
+          result = pipeline.returnFeedback(eventId, Feedback.focus(LONG_CLICK_CURRENT));
+          break;
+        case SELECT_PREVIOUS_SETTING:
+          selectorController.selectPreviousOrNextSetting(eventId, false);
+          break;
+        case SELECT_NEXT_SETTING:
+          selectorController.selectPreviousOrNextSetting(eventId, true);
+          break;
+        case SELECTED_SETTING_PREVIOUS_ACTION:
+          selectorController.adjustSelectedSetting(eventId, false);
+          break;
+        case SELECTED_SETTING_NEXT_ACTION:
+          selectorController.adjustSelectedSetting(eventId, true);
+          break;
+        case SCREEN_SEARCH:
+          service.getUniversalSearchManager().toggleSearch(eventId);
+          break;
+        case PASS_THROUGH_NEXT_GESTURE:
+          result =
+              pipeline.returnFeedback(
+                  eventId, Feedback.passThroughMode(PASSTHROUGH_CONFIRM_DIALOG));
+          break;
+        case A11Y_BUTTON:
+          result =
+              pipeline.returnFeedback(
+                  eventId, Feedback.systemAction(GLOBAL_ACTION_ACCESSIBILITY_BUTTON));
+          break;
+        case A11Y_BUTTON_LONG_PRESS:
+          result =
+              pipeline.returnFeedback(
+                  eventId, Feedback.systemAction(GLOBAL_ACTION_ACCESSIBILITY_BUTTON_CHOOSER));
+          break;
+        case HEADPHONE_NAVIGATION:
+          processorVolumeStream.toggleNavigationMode();
+          break;
+        case PAUSE_OR_RESUME_FEEDBACK:
+          pipeline.returnFeedback(eventId, Feedback.speech(Feedback.Speech.Action.PAUSE_OR_RESUME));
+          break;
+        case START_SELECTION_MODE:
+          result =
+              editFocusedText(
+                  eventId,
+                  actorState.getDirectionNavigation().isSelectionModeActive()
+                      ? END_SELECT
+                      : START_SELECT);
+          break;
+        case COPY:
+          AccessibilityNodeInfoCompat node =
+              accessibilityFocusMonitor.getAccessibilityFocus(/* useInputFocusIfEmpty= */ true);
+          result = pipeline.returnFeedback(eventId, Feedback.edit(node, COPY));
+          AccessibilityNodeInfoUtils.recycleNodes(node);
+          break;
+        case CUT:
+          result = editFocusedText(eventId, CUT);
+          break;
+        case PASTE:
+          result = editFocusedText(eventId, PASTE);
+          break;
+        case TOGGLE_VOICE_FEEDBACK:
+          pipeline.returnFeedback(eventId, Feedback.speech(TOGGLE_VOICE_FEEDBACK));
+          break;
+        case BRAILLE_KEYBOARD:
+          String inputMethodInfoId =
+              KeyboardUtils.getEnabledImeId(service, service.getPackageName());
+          if (!TextUtils.isEmpty(inputMethodInfoId)) {
+            result = service.getSoftKeyboardController().switchToInputMethod(inputMethodInfoId);
+          } else {
+            result =
+                pipeline.returnFeedback(
+                    eventId,
+                    Feedback.speech(
+                        service.getString(R.string.switch_to_braille_keyboard_failure_msg)));
+          }
+          break;
+        case TUTORIAL:
+          pipeline.returnFeedback(eventId, Feedback.triggerIntent(Action.TRIGGER_TUTORIAL));
+          break;
+        case PRACTICE_GESTURES:
+          pipeline.returnFeedback(eventId, Feedback.triggerIntent(Action.TRIGGER_PRACTICE_GESTURE));
+          break;
+        case REPORT_GESTURE:
+          result = pipeline.returnFeedback(eventId, Feedback.reportGesture());
+          break;
       }
-    } else if (action.equals(service.getString(R.string.shortcut_value_toggle_voice_feedback))) {
-      pipeline.returnFeedback(eventId, Feedback.speech(TOGGLE_VOICE_FEEDBACK));
-    } else if (action.equals(service.getString(R.string.shortcut_value_braille_keyboard))) {
-      String inputMethodInfoId = KeyboardUtils.getEnabledImeId(service, service.getPackageName());
-      if (!TextUtils.isEmpty(inputMethodInfoId)) {
-        result = service.getSoftKeyboardController().switchToInputMethod(inputMethodInfoId);
-      } else {
-        result =
-            pipeline.returnFeedback(
-                eventId,
-                Feedback.speech(
-                    service.getString(R.string.switch_to_braille_keyboard_failure_msg)));
-      }
-    } else if (action.equals(service.getString(R.string.shortcut_value_tutorial))) {
-      pipeline.returnFeedback(eventId, Feedback.triggerIntent(Action.TRIGGER_TUTORIAL));
-    } else if (action.equals(service.getString(R.string.shortcut_value_practice_gestures))) {
-      pipeline.returnFeedback(eventId, Feedback.triggerIntent(Action.TRIGGER_PRACTICE_GESTURE));
-    } else if (action.equals(service.getString(R.string.shortcut_value_report_gesture))) {
-      result = pipeline.returnFeedback(eventId, Feedback.reportGesture());
     }
 
     if (!result) {
@@ -410,9 +531,7 @@ public class GestureController {
   }
 
   public boolean isFingerprintGestureAssigned(int fingerprintGestureId) {
-    return !TextUtils.equals(
-        service.getString(R.string.shortcut_value_unassigned),
-        actionFromFingerprintGesture(fingerprintGestureId));
+    return !TextUtils.equals(actionUnassigned, actionFromFingerprintGesture(fingerprintGestureId));
   }
 
   public void onGesture(int gestureId, EventId eventId) {
@@ -488,9 +607,10 @@ public class GestureController {
       return;
     }
 
-    if (action.equals(service.getString(R.string.shortcut_value_previous))
-        || action.equals(service.getString(R.string.shortcut_value_next))
-        || action.equals(service.getString(R.string.shortcut_value_unassigned))) {
+    @Nullable ShortcutAction shortcutAction = actionKeyToShortcutAction.get(action);
+    if (shortcutAction == ShortcutAction.PREVIOUS
+        || shortcutAction == ShortcutAction.NEXT
+        || shortcutAction == ShortcutAction.UNASSIGNED) {
       return;
     }
     service.interruptAllFeedback(false);
@@ -508,6 +628,21 @@ public class GestureController {
     return false;
   }
 
+  /**
+   * Performs an edit action on the focused edit text. Returns false if the focus is not on an edit
+   * text.
+   */
+  private boolean editFocusedText(EventId eventId, Feedback.EditText.Action action) {
+    AccessibilityNodeInfoCompat node = getEditTextFocus();
+    if (node == null) {
+      return false;
+    }
+    // Edit text found.
+    boolean result = pipeline.returnFeedback(eventId, Feedback.edit(node, action));
+    AccessibilityNodeInfoUtils.recycleNodes(node);
+    return result;
+  }
+
   /** Caller must recycle returned AccessibilityNode. */
   private @Nullable AccessibilityNodeInfoCompat getEditTextFocus() {
     @Nullable
@@ -533,4 +668,15 @@ public class GestureController {
                     | FeedbackItem.FLAG_FORCED_FEEDBACK_SSB_ACTIVE);
     pipeline.returnFeedback(EVENT_ID_UNTRACKED, Feedback.speech(text, speakOptions));
   }
+
+  /** Preference key and default action of a fingerprint gesture. */
+  private static final class FingerprintShortcut {
+    final String prefKey;
+    final String defaultAction;
+
+    FingerprintShortcut(String prefKey, String defaultAction) {
+      this.prefKey = prefKey;
+      this.defaultAction = defaultAction;
+    }
+  }
 }
@@ -45,11 +45,12 @@ import com.google.android.accessibility.utils.labeling.LabelProviderClient;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableSet;
-import java.util.TreeSet;
+import java.util.Set;
 import java.util.regex.Pattern;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -82,7 +83,10 @@ public class CustomLabelManager implements LabelManager, AccessibilityEventListe
    * The substring separating a label's package and view ID name in a fully-qualified resource
    * identifier.
    */
-  private static final Pattern RESOURCE_NAME_SPLIT_PATTERN = Pattern.compile(":id/");
+  private static final String RESOURCE_NAME_SEPARATOR = ":id/";
+
+  private static final Pattern RESOURCE_NAME_SPLIT_PATTERN =
+      Pattern.compile(RESOURCE_NAME_SEPARATOR);
 
   private static final IntentFilter REFRESH_INTENT_FILTER =
       new IntentFilter(ACTION_REFRESH_LABEL_CACHE);
@@ -135,29 +139,26 @@ public class CustomLabelManager implements LabelManager, AccessibilityEventListe
     return null;
   }
 
-  private final NavigableSet<Label> labelCache =
-      new TreeSet<>(
-          new Comparator<Label>() {
-            // Note this comparator is not consistent with equals in Label, we should just implement
-            // compareTo there, but will wait for BrailleBack to be merged with TalkBack
-            @Override
-            public int compare(Label first, Label second) {
-              if (first == null) {
-                if (second == null) {
-                  return 0;
-                } else {
-                  return -1;
-                }
-              }
+  /**
+   * Labels of the current locale, keyed by package name and then by fully-qualified resource name.
+   * All labels are loaded on startup and when the locale changes. The labels of a package are
+   * fetched again when they change. Packages without labels have no entry.
+   */
+  private final Map<String, Map<String, Label>> labelCache = new HashMap<>();
+
+  /**
+   * The package of the last lookup and its labels, or null if it has none. Most lookups are for
+   * the same package as the one before.
+   */
+  private @Nullable String lastPackageName;
 
-              if (second == null) return 1;
+  private @Nullable Map<String, Label> lastPackageLabels;
 
-              int ret = first.getPackageName().compareTo(second.getPackageName());
-              if (ret != 0) return ret;
+  // Lookups for packages with and without labels.
+  private int cacheHits;
+  private int cacheMisses;
 
-              return first.getViewName().compareTo(second.getViewName());
-            }
-          });
+  private @Nullable OnLabelsChangedListener labelsChangedListener;
 
   private final CacheRefreshReceiver refreshReceiver = new CacheRefreshReceiver();
   private final LocaleChangedReceiver localeChangedReceiver = new LocaleChangedReceiver();
@@ -220,6 +221,11 @@ public class CustomLabelManager implements LabelManager, AccessibilityEventListe
     refreshCache();
   }
 
+  /** Sets the listener to call on the UI thread whenever cached labels changed. */
+  public void setOnLabelsChangedListener(@Nullable OnLabelsChangedListener listener) {
+    labelsChangedListener = listener;
+  }
+
   private void checkUiThread() {
     if (Looper.myLooper() != Looper.getMainLooper()) {
       throw new IllegalStateException("run not on UI thread");
@@ -263,24 +269,37 @@ public class CustomLabelManager implements LabelManager, AccessibilityEventListe
       return null;
     }
 
-    Pair<String, String> parsedId = splitResourceName(resourceName);
-    if (parsedId == null) {
+    if (TextUtils.isEmpty(resourceName)) {
       return null;
     }
 
-    Label search = new Label(parsedId.first, null, parsedId.second, null, null, 0, null, 0);
-    Label result = labelCache.ceiling(search);
-    // TODO: This can be done much simplier with modifying equals in Label but want to wait
-    // until BrailleBack is integrate to ensure compatibility
-    if (result != null
-        && search.getViewName() != null
-        && search.getViewName().equals(result.getViewName())
-        && search.getPackageName() != null
-        && search.getPackageName().equals(result.getPackageName())) {
-      return result;
+    @Nullable Map<String, Label> packageLabels = getCachedPackageLabels(resourceName);
+    return (packageLabels == null) ? null : packageLabels.get(resourceName);
+  }
+
+  /**
+   * Returns the cached labels of the package of {@code resourceName}, keyed by resource name, or
+   * {@code null} if the package has no labels.
+   */
+  private @Nullable Map<String, Label> getCachedPackageLabels(String resourceName) {
+    // Consecutive lookups are mostly for views of the same package, which don't allocate.
+    if (lastPackageName == null
+        || !resourceName.startsWith(lastPackageName)
+        || !resourceName.startsWith(RESOURCE_NAME_SEPARATOR, lastPackageName.length())) {
+      int separatorIndex = resourceName.indexOf(RESOURCE_NAME_SEPARATOR);
+      if (separatorIndex <= 0) {
+        return null;
+      }
+      lastPackageName = resourceName.substring(0, separatorIndex);
+      lastPackageLabels = labelCache.get(lastPackageName);
     }
 
-    return null;
+    if (lastPackageLabels == null) {
+      cacheMisses++;
+    } else {
+      cacheHits++;
+    }
+    return lastPackageLabels;
   }
 
   /**
@@ -596,22 +615,82 @@ public class CustomLabelManager implements LabelManager, AccessibilityEventListe
 
   /** Invalidates and rebuilds the cache of labels managed by this class. */
   private void refreshCache() {
+    refreshCache(/* packageNames= */ null);
+  }
+
+  /**
+   * Fetches the labels of {@code packageNames} again, after they changed, or all labels if {@code
+   * packageNames} is null. Both use the same query, so a package caches the same labels whichever
+   * way it was loaded.
+   */
+  private void refreshCache(final @Nullable Set<String> packageNames) {
     getLabelsFromDatabase(
         new LabelsFetchRequest.OnLabelsFetchedListener() {
           @Override
           public void onLabelsFetched(List<Label> results) {
-            labelCache.clear();
-            String currentLocale = LocaleUtils.getDefaultLocale();
-            for (Label newLabel : results) {
-              String locale = newLabel.getLocale();
-              if (locale != null && locale.startsWith(currentLocale)) {
-                labelCache.add(newLabel);
-              }
+            if (results == null) {
+              return;
             }
+
+            cacheLabels(labelCache, results, LocaleUtils.getDefaultLocale(), packageNames);
+            lastPackageName = null;
+            lastPackageLabels = null;
+            onLabelsChanged();
           }
         });
   }
 
+  /**
+   * Replaces the cached labels of {@code packageNames}, or of all packages if {@code packageNames}
+   * is null, with those {@code labels} that are in {@code locale}. If several labels exist for one
+   * view, the first one is kept.
+   */
+  @VisibleForTesting
+  static void cacheLabels(
+      Map<String, Map<String, Label>> cache,
+      List<Label> labels,
+      String locale,
+      @Nullable Set<String> packageNames) {
+    if (packageNames == null) {
+      cache.clear();
+    } else {
+      cache.keySet().removeAll(packageNames);
+    }
+
+    for (Label label : labels) {
+      String labelLocale = label.getLocale();
+      if (labelLocale == null || !labelLocale.startsWith(locale)) {
+        continue;
+      }
+      String packageName = label.getPackageName();
+      if (packageNames != null && !packageNames.contains(packageName)) {
+        continue;
+      }
+      Map<String, Label> packageLabels = cache.get(packageName);
+      if (packageLabels == null) {
+        packageLabels = new HashMap<>();
+        cache.put(packageName, packageLabels);
+      }
+      packageLabels.putIfAbsent(getResourceName(label), label);
+    }
+  }
+
+  private void onLabelsChanged() {
+    LogUtils.v(
+        TAG,
+        "Cached labels of %d packages, cache hits=%d misses=%d",
+        labelCache.size(),
+        cacheHits,
+        cacheMisses);
+    if (labelsChangedListener != null) {
+      labelsChangedListener.onLabelsChanged();
+    }
+  }
+
+  private static String getResourceName(Label label) {
+    return label.getPackageName() + RESOURCE_NAME_SEPARATOR + label.getViewName();
+  }
+
   /**
    * If there are no cached labels (possibly because CE storage was not yet available when the
    * CustomLabelManager instance was constructed), refreshes the labels from the label provider.
@@ -622,6 +701,16 @@ public class CustomLabelManager implements LabelManager, AccessibilityEventListe
     }
   }
 
+  /** Returns the number of label lookups for packages that have labels. */
+  public int getCacheHitCount() {
+    return cacheHits;
+  }
+
+  /** Returns the number of label lookups for packages that have no labels. */
+  public int getCacheMissCount() {
+    return cacheMisses;
+  }
+
   /**
    * Splits a fully-qualified resource identifier name into its package and ID name.
    *
@@ -647,7 +736,7 @@ public class CustomLabelManager implements LabelManager, AccessibilityEventListe
 
   /** Shuts down the manager and releases resources. */
   public void shutdown() {
-    LogUtils.v(TAG, "Shutdown requested.");
+    LogUtils.v(TAG, "Shutdown requested, cache hits=%d misses=%d", cacheHits, cacheMisses);
 
     // We must immediately destroy registered receivers to prevent a leak,
     // as the context backing this registration is to be invalidated.
@@ -738,11 +827,21 @@ public class CustomLabelManager implements LabelManager, AccessibilityEventListe
 
     @Override
     public void onReceive(Context context, Intent intent) {
-      refreshCache();
+      @Nullable String[] packageNames = intent.getStringArrayExtra(EXTRA_STRING_ARRAY_PACKAGES);
+      if (packageNames == null || packageNames.length == 0) {
+        refreshCache();
+      } else {
+        refreshCache(new HashSet<>(Arrays.asList(packageNames)));
+      }
     }
   }
 
   public interface OnLabelsInPackageChangeListener {
     public void onLabelsInPackageChanged(String packageName);
   }
+
+  /** Listens for changes of the cached labels. */
+  public interface OnLabelsChangedListener {
+    void onLabelsChanged();
+  }
 }
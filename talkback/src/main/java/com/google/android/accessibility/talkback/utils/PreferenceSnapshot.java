@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.talkback.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import com.google.android.accessibility.talkback.R;
+import com.google.android.accessibility.talkback.focusmanagement.FocusProcessorForTapAndTouchExploration.TypingMethod;
+import com.google.android.accessibility.utils.SharedPreferencesUtils;
+
+/**
+ * Immutable values of the preferences that are read while handling events and feedback, so that
+ * those paths don't look up shared preferences or string resources. Read the latest snapshot from
+ * a {@link Holder}.
+ */
+public final class PreferenceSnapshot {
+
+  private final boolean speakUsageHints;
+  private final boolean phoneticLettersEnabled;
+  private final @TypingMethod int typingMethod;
+  private final boolean singleTapEnabled;
+  private final boolean dimScreenOnTripleClick;
+  private final boolean suspendOnVolumeKeysLongPress;
+
+  private PreferenceSnapshot(SharedPreferences prefs, Resources res) {
+    speakUsageHints =
+        VerbosityPreferences.getPreferenceValueBool(
+            prefs,
+            res,
+            res.getString(R.string.pref_a11y_hints_key),
+            res.getBoolean(R.bool.pref_a11y_hints_default));
+    phoneticLettersEnabled =
+        VerbosityPreferences.getPreferenceValueBool(
+            prefs,
+            res,
+            res.getString(R.string.pref_phonetic_letters_key),
+            res.getBoolean(R.bool.pref_phonetic_letters_default));
+    typingMethod =
+        SharedPreferencesUtils.getIntFromStringPref(
+            prefs,
+            res,
+            R.string.pref_typing_confirmation_key,
+            R.string.pref_typing_confirmation_default);
+    singleTapEnabled =
+        SharedPreferencesUtils.getBooleanPref(
+            prefs, res, R.string.pref_single_tap_key, R.bool.pref_single_tap_default);
+    dimScreenOnTripleClick =
+        SharedPreferencesUtils.getBooleanPref(
+            prefs,
+            res,
+            R.string.pref_dim_volume_three_clicks_key,
+            R.bool.pref_dim_volume_three_clicks_default);
+    suspendOnVolumeKeysLongPress =
+        SharedPreferencesUtils.getBooleanPref(
+            prefs,
+            res,
+            R.string.pref_two_volume_long_press_key,
+            R.bool.pref_resume_volume_buttons_long_click_default);
+  }
+
+  /** Whether usage hints are spoken, with the verbosity preset applied. */
+  public boolean speakUsageHints() {
+    return speakUsageHints;
+  }
+
+  /** Whether phonetic letters are spoken, with the verbosity preset applied. */
+  public boolean phoneticLettersEnabled() {
+    return phoneticLettersEnabled;
+  }
+
+  public @TypingMethod int typingMethod() {
+    return typingMethod;
+  }
+
+  public boolean singleTapEnabled() {
+    return singleTapEnabled;
+  }
+
+  /** Whether pressing both volume keys three times toggles screen dimming. */
+  public boolean dimScreenOnTripleClick() {
+    return dimScreenOnTripleClick;
+  }
+
+  /** Whether long-pressing both volume keys suspends and resumes TalkBack. */
+  public boolean suspendOnVolumeKeysLongPress() {
+    return suspendOnVolumeKeysLongPress;
+  }
+
+  /**
+   * Keeps the latest {@link PreferenceSnapshot}. The owner calls {@link #refresh()} from its {@link
+   * SharedPreferences.OnSharedPreferenceChangeListener}, readers call {@link #get()}.
+   */
+  public static final class Holder {
+
+    private final SharedPreferences prefs;
+    private final Resources resources;
+    private volatile PreferenceSnapshot snapshot;
+
+    public Holder(Context context) {
+      prefs = SharedPreferencesUtils.getSharedPreferences(context);
+      resources = context.getResources();
+      snapshot = new PreferenceSnapshot(prefs, resources);
+    }
+
+    public PreferenceSnapshot get() {
+      return snapshot;
+    }
+
+    /** Rebuilds the snapshot from the current preference values. */
+    public void refresh() {
+      snapshot = new PreferenceSnapshot(prefs, resources);
+    }
+  }
+}
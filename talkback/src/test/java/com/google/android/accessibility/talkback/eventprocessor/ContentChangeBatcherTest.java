@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.talkback.eventprocessor;
+
+import static com.google.android.accessibility.utils.Performance.EVENT_ID_UNTRACKED;
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Looper;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import androidx.core.view.accessibility.AccessibilityEventCompat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/** Checks when {@link ContentChangeBatcher} dispatches and merges content changes. */
+@RunWith(RobolectricTestRunner.class)
+public final class ContentChangeBatcherTest {
+
+  private static final long BATCH_DELAY = 100;
+
+  /** Content types of the dispatched events, in dispatch order. */
+  private final List<Integer> dispatchedTypes = new ArrayList<>();
+
+  private Context context;
+  private ContentChangeBatcher batcher;
+
+  @Before
+  public void setUp() {
+    context = RuntimeEnvironment.getApplication();
+    batcher =
+        new ContentChangeBatcher(
+            BATCH_DELAY, (event, eventId) -> dispatchedTypes.add(event.getContentChangeTypes()));
+  }
+
+  @Test
+  public void add_dispatchesAfterBatchDelay() {
+    batcher.add(createSubtreeChange(new View(context)), EVENT_ID_UNTRACKED);
+
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(BATCH_DELAY - 1));
+    assertThat(dispatchedTypes).isEmpty();
+
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(1));
+    assertThat(dispatchedTypes).hasSize(1);
+    assertThat(batcher.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void add_fullBatch_dispatchesImmediately() {
+    for (int i = 0; i < ContentChangeBatcher.MAX_BATCHED_CONTENT_CHANGES - 1; i++) {
+      batcher.add(createSubtreeChange(new View(context)), EVENT_ID_UNTRACKED);
+    }
+    assertThat(batcher.size()).isEqualTo(ContentChangeBatcher.MAX_BATCHED_CONTENT_CHANGES - 1);
+    assertThat(dispatchedTypes).isEmpty();
+
+    batcher.add(createSubtreeChange(new View(context)), EVENT_ID_UNTRACKED);
+
+    assertThat(dispatchedTypes).hasSize(ContentChangeBatcher.MAX_BATCHED_CONTENT_CHANGES);
+    assertThat(batcher.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void add_sameSource_keepsOneChange() {
+    View view = new View(context);
+    for (int i = 0; i < ContentChangeBatcher.MAX_BATCHED_CONTENT_CHANGES; i++) {
+      batcher.add(createSubtreeChange(view), EVENT_ID_UNTRACKED);
+    }
+
+    assertThat(batcher.size()).isEqualTo(1);
+    batcher.flush();
+    assertThat(dispatchedTypes).hasSize(1);
+  }
+
+  @Test
+  public void isBatchable_onlySubtreeAndUndefinedChanges() {
+    AccessibilityEvent subtree = createSubtreeChange(null);
+    AccessibilityEvent undefined =
+        AccessibilityEvent.obtain(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+    AccessibilityEvent text =
+        AccessibilityEvent.obtain(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+    text.setContentChangeTypes(AccessibilityEventCompat.CONTENT_CHANGE_TYPE_TEXT);
+    AccessibilityEvent focused = AccessibilityEvent.obtain(AccessibilityEvent.TYPE_VIEW_FOCUSED);
+
+    assertThat(ContentChangeBatcher.isBatchable(subtree)).isTrue();
+    assertThat(ContentChangeBatcher.isBatchable(undefined)).isTrue();
+    assertThat(ContentChangeBatcher.isBatchable(text)).isFalse();
+    assertThat(ContentChangeBatcher.isBatchable(focused)).isFalse();
+  }
+
+  private static AccessibilityEvent createSubtreeChange(@Nullable View source) {
+    AccessibilityEvent event =
+        AccessibilityEvent.obtain(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+    event.setContentChangeTypes(AccessibilityEventCompat.CONTENT_CHANGE_TYPE_SUBTREE);
+    if (source != null) {
+      event.setSource(source);
+    }
+    return event;
+  }
+}
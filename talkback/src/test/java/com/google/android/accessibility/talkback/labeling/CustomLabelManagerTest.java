@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.talkback.labeling;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.android.accessibility.utils.labeling.Label;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Checks which labels {@link CustomLabelManager#cacheLabels} keeps for the label lookups. */
+@RunWith(RobolectricTestRunner.class)
+public final class CustomLabelManagerTest {
+
+  private static final String LOCALE = "en";
+  private static final String PACKAGE_A = "com.example.a";
+  private static final String PACKAGE_B = "com.example.b";
+
+  private static final Label LABEL_A_OK =
+      createLabel(PACKAGE_A, "ok", "Okay", "en_US", /* packageVersion= */ 1);
+  private static final Label LABEL_A_OK_LATER =
+      createLabel(PACKAGE_A, "ok", "Fine", "en_US", /* packageVersion= */ 5);
+  private static final Label LABEL_A_NEW_VERSION =
+      createLabel(PACKAGE_A, "cancel", "Cancel", "en_GB", /* packageVersion= */ 1000);
+  private static final Label LABEL_A_OTHER_LOCALE =
+      createLabel(PACKAGE_A, "send", "Senden", "de_DE", /* packageVersion= */ 1);
+  private static final Label LABEL_B_PLAY =
+      createLabel(PACKAGE_B, "play", "Play", "en", /* packageVersion= */ 1);
+
+  private static final List<Label> ALL_LABELS =
+      Arrays.asList(
+          LABEL_A_OK, LABEL_A_OK_LATER, LABEL_A_NEW_VERSION, LABEL_A_OTHER_LOCALE, LABEL_B_PLAY);
+
+  @Test
+  public void cacheLabels_allPackages_keepsFirstLabelOfLocale() {
+    Map<String, Map<String, Label>> cache = new HashMap<>();
+
+    CustomLabelManager.cacheLabels(cache, ALL_LABELS, LOCALE, /* packageNames= */ null);
+
+    assertThat(cache.keySet()).containsExactly(PACKAGE_A, PACKAGE_B);
+    assertThat(cache.get(PACKAGE_A))
+        .containsExactly(
+            PACKAGE_A + ":id/ok", LABEL_A_OK, PACKAGE_A + ":id/cancel", LABEL_A_NEW_VERSION);
+    assertThat(cache.get(PACKAGE_B)).containsExactly(PACKAGE_B + ":id/play", LABEL_B_PLAY);
+  }
+
+  @Test
+  public void cacheLabels_onePackage_cachesSameLabelsAsAllPackages() {
+    Map<String, Map<String, Label>> fullLoad = new HashMap<>();
+    CustomLabelManager.cacheLabels(fullLoad, ALL_LABELS, LOCALE, /* packageNames= */ null);
+
+    Map<String, Map<String, Label>> packageLoad = new HashMap<>();
+    CustomLabelManager.cacheLabels(packageLoad, ALL_LABELS, LOCALE, /* packageNames= */ null);
+    CustomLabelManager.cacheLabels(
+        packageLoad, ALL_LABELS, LOCALE, Collections.singleton(PACKAGE_A));
+
+    assertThat(packageLoad).isEqualTo(fullLoad);
+  }
+
+  @Test
+  public void cacheLabels_onePackage_leavesOtherPackages() {
+    Map<String, Map<String, Label>> cache = new HashMap<>();
+    CustomLabelManager.cacheLabels(cache, ALL_LABELS, LOCALE, /* packageNames= */ null);
+    Map<String, Label> labelsOfB = cache.get(PACKAGE_B);
+
+    List<Label> labels = new ArrayList<>(ALL_LABELS);
+    labels.remove(LABEL_B_PLAY);
+    labels.remove(LABEL_A_OK);
+    CustomLabelManager.cacheLabels(cache, labels, LOCALE, Collections.singleton(PACKAGE_A));
+
+    assertThat(cache.get(PACKAGE_A)).containsEntry(PACKAGE_A + ":id/ok", LABEL_A_OK_LATER);
+    assertThat(cache.get(PACKAGE_B)).isSameInstanceAs(labelsOfB);
+  }
+
+  @Test
+  public void cacheLabels_packageWithoutLabels_isRemoved() {
+    Map<String, Map<String, Label>> cache = new HashMap<>();
+    CustomLabelManager.cacheLabels(cache, ALL_LABELS, LOCALE, /* packageNames= */ null);
+
+    CustomLabelManager.cacheLabels(
+        cache,
+        Collections.singletonList(LABEL_A_OTHER_LOCALE),
+        LOCALE,
+        Collections.singleton(PACKAGE_A));
+
+    assertThat(cache.keySet()).containsExactly(PACKAGE_B);
+  }
+
+  private static Label createLabel(
+      String packageName, String viewName, String text, String locale, int packageVersion) {
+    return new Label(
+        packageName,
+        /* packageSignature= */ "signature",
+        viewName,
+        text,
+        locale,
+        packageVersion,
+        /* screenshotPath= */ "",
+        /* timestamp= */ 0);
+  }
+}
@@ -25,14 +25,19 @@ import android.text.SpannableStringBuilder;
 import android.text.TextUtils;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityRecord;
 import android.view.accessibility.AccessibilityWindowInfo;
+import com.google.android.libraries.accessibility.utils.log.LogUtils;
 import com.google.common.base.Function;
+import java.lang.reflect.Method;
 import java.util.List;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** This class contains utility methods. */
 public class AccessibilityEventUtils {
 
+  private static final String TAG = "AccessibilityEventUtils";
+
   private static final String SYSTEM_UI_PACKAGE_NAME = "com.android.systemui";
   private static final String VOLUME_DIALOG_CLASS_NAME = "android.app.Dialog";
   private static final String VOLUME_CONTROLS_CLASS_IN_ANDROID_P =
@@ -45,6 +50,20 @@ public class AccessibilityEventUtils {
   /** Unknown window id. Must match private variable AccessibilityWindowInfo.UNDEFINED_WINDOW_ID */
   public static final int WINDOW_ID_NONE = -1;
 
+  /** Unknown source node id. Must match hidden variable AccessibilityNodeInfo.UNDEFINED_NODE_ID */
+  public static final long NODE_ID_NONE = -1;
+
+  private static @Nullable Method getSourceNodeIdMethod;
+
+  static {
+    try {
+      getSourceNodeIdMethod = AccessibilityRecord.class.getDeclaredMethod("getSourceNodeId");
+      getSourceNodeIdMethod.setAccessible(true);
+    } catch (NoSuchMethodException e) {
+      LogUtils.d(TAG, "Error setting up fields: %s", e);
+    }
+  }
+
   /** Undefined scroll delta. */
   public static final int DELTA_UNDEFINED = -1;
 
@@ -77,6 +96,22 @@ public class AccessibilityEventUtils {
     }
   }
 
+  /**
+   * Returns the hidden id of the event's source node, which identifies the source without
+   * obtaining it, or NODE_ID_NONE if the id can't be read.
+   */
+  public static long getSourceNodeId(AccessibilityEvent event) {
+    if (getSourceNodeIdMethod == null) {
+      return NODE_ID_NONE;
+    }
+    try {
+      return (long) getSourceNodeIdMethod.invoke(event);
+    } catch (Exception e) {
+      LogUtils.d(TAG, "Failed to get source node id: %s", e);
+      return NODE_ID_NONE;
+    }
+  }
+
   /**
    * Determines if an accessibility event is of a type defined by a mask of qualifying event types.
    *
@@ -17,17 +17,38 @@
 package com.google.android.accessibility.utils;
 
 import android.text.TextUtils;
+import android.util.Pair;
+import androidx.collection.LruCache;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
-import java.util.HashMap;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-/** This class manages efficient loading of classes. */
+/**
+ * This class manages efficient loading of classes.
+ *
+ * <p>Loaded classes, including classes that failed to load, and the results of instance-of checks
+ * are kept in bounded caches that are safe to use from any thread.
+ */
 public class ClassLoadingCache {
 
   private static final String TAG = "ClassLoadingCache";
 
-  // TODO: Use a LRU map instead?
-  private static final HashMap<String, @Nullable Class<?>> mCachedClasses = new HashMap<>();
+  private static final int MAX_CLASSES = 500;
+  private static final int MAX_INSTANCE_OF_RESULTS = 2000;
+
+  /** A class loading result, so that classes which failed to load are cached too. */
+  private static final class LoadedClass {
+    final @Nullable Class<?> mClass;
+
+    LoadedClass(@Nullable Class<?> clazz) {
+      mClass = clazz;
+    }
+  }
+
+  private static final LruCache<String, LoadedClass> mCachedClasses = new LruCache<>(MAX_CLASSES);
+
+  // Keys are (target class name, reference class name).
+  private static final LruCache<Pair<String, String>, Boolean> mInstanceOfResults =
+      new LruCache<>(MAX_INSTANCE_OF_RESULTS);
 
   /**
    * Returns a class by given <code>className</code>. It tries to load from the current class loader
@@ -42,8 +63,9 @@ public class ClassLoadingCache {
       return null;
     }
 
-    if (mCachedClasses.containsKey(className)) {
-      return mCachedClasses.get(className);
+    LoadedClass loadedClass = mCachedClasses.get(className);
+    if (loadedClass != null) {
+      return loadedClass.mClass;
     }
 
     Class<?> insideClazz = null;
@@ -59,7 +81,8 @@ public class ClassLoadingCache {
       LogUtils.d(TAG, "Failed to load class: %s", className);
     }
 
-    mCachedClasses.put(className, insideClazz);
+    // Racing threads may both load the class, which is harmless.
+    mCachedClasses.put(className, new LoadedClass(insideClazz));
     return insideClazz;
   }
 
@@ -69,19 +92,34 @@ public class ClassLoadingCache {
     if ((targetClassName == null) || (referenceClassName == null)) return false;
     if (TextUtils.equals(targetClassName, referenceClassName)) return true;
 
-    final Class<?> referenceClass = loadOrGetCachedClass(referenceClassName.toString());
-    final Class<?> targetClass = loadOrGetCachedClass(targetClassName.toString());
-    return referenceClass != null
-        && targetClass != null
-        && referenceClass.isAssignableFrom(targetClass);
+    Pair<String, String> key =
+        Pair.create(targetClassName.toString(), referenceClassName.toString());
+    Boolean result = mInstanceOfResults.get(key);
+    if (result == null) {
+      final Class<?> referenceClass = loadOrGetCachedClass(key.second);
+      final Class<?> targetClass = loadOrGetCachedClass(key.first);
+      result =
+          referenceClass != null
+              && targetClass != null
+              && referenceClass.isAssignableFrom(targetClass);
+      mInstanceOfResults.put(key, result);
+    }
+    return result;
   }
 
   /** Returns whether a target class is an instance of a reference class. */
   public static boolean checkInstanceOf(CharSequence targetClassName, Class<?> referenceClass) {
     if ((targetClassName == null) || (referenceClass == null)) return false;
-    if (TextUtils.equals(targetClassName, referenceClass.getName())) return true;
+    String referenceClassName = referenceClass.getName();
+    if (TextUtils.equals(targetClassName, referenceClassName)) return true;
 
-    final Class<?> targetClass = loadOrGetCachedClass(targetClassName.toString());
-    return targetClass != null && referenceClass.isAssignableFrom(targetClass);
+    Pair<String, String> key = Pair.create(targetClassName.toString(), referenceClassName);
+    Boolean result = mInstanceOfResults.get(key);
+    if (result == null) {
+      final Class<?> targetClass = loadOrGetCachedClass(key.first);
+      result = targetClass != null && referenceClass.isAssignableFrom(targetClass);
+      mInstanceOfResults.put(key, result);
+    }
+    return result;
   }
 }
@@ -124,6 +124,12 @@ public class Performance {
   protected final Object mLockLabelToStats = new Object();
   protected Statistics mAllEventStats = new Statistics();
 
+  /** Events received and dispatched by batching stages, see {@link #onEventsBatched}. */
+  protected final Object mLockBatchedEvents = new Object();
+
+  protected long mBatchedEventsReceived = 0;
+  protected long mBatchedEventsDispatched = 0;
+
   private static Performance sInstance = new Performance();
 
   /////////////////////////////////////////////////////////////////////////////////////////////
@@ -556,6 +562,38 @@ public class Performance {
     }
   }
 
+  /////////////////////////////////////////////////////////////////////////////////////////////
+  // Methods to track event batching
+
+  /**
+   * Tracks one flush of a stage that merges bursts of events before handling them.
+   *
+   * @param receivedCount Number of events that entered the batch
+   * @param dispatchedCount Number of events handled after merging
+   */
+  public void onEventsBatched(int receivedCount, int dispatchedCount) {
+    if (!mEnabled) {
+      return;
+    }
+    synchronized (mLockBatchedEvents) {
+      mBatchedEventsReceived += receivedCount;
+      mBatchedEventsDispatched += dispatchedCount;
+    }
+  }
+
+  /**
+   * Returns how many batched events were received per event dispatched, or 1 if no event has been
+   * batched.
+   */
+  public float getEventBatchingRatio() {
+    synchronized (mLockBatchedEvents) {
+      if (mBatchedEventsDispatched == 0) {
+        return 1.0f;
+      }
+      return (float) mBatchedEventsReceived / mBatchedEventsDispatched;
+    }
+  }
+
   /////////////////////////////////////////////////////////////////////////////////////////////
   // Methods to access latency statistics collection
 
@@ -578,6 +616,10 @@ public class Performance {
       mLabelToStats.clear();
     }
     mAllEventStats.clear();
+    synchronized (mLockBatchedEvents) {
+      mBatchedEventsReceived = 0;
+      mBatchedEventsDispatched = 0;
+    }
   }
 
   protected Statistics getOrCreateStatistics(@NonNull String label, @StageId int stage) {
@@ -649,6 +691,17 @@ public class Performance {
     displayStatistics(mAllEventStats);
   }
 
+  public void displayEventBatchingStats() {
+    display("displayEventBatchingStats()");
+    synchronized (mLockBatchedEvents) {
+      display(
+          "    received=%s dispatched=%s  ratio=%s",
+          mBatchedEventsReceived,
+          mBatchedEventsDispatched,
+          getEventBatchingRatio());
+    }
+  }
+
   private void displayStatistics(Statistics stats) {
     // Display summary statistics.
     display(
@@ -25,6 +25,7 @@ import android.view.accessibility.AccessibilityNodeInfo;
 import android.widget.ProgressBar;
 import android.widget.SeekBar;
 import androidx.annotation.IntDef;
+import androidx.collection.LruCache;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -121,6 +122,16 @@ public class Role {
   /** Used to identify and ignore a11y overlay windows created by Talkback. */
   public static final String TALKBACK_EDIT_TEXT_OVERLAY_CLASSNAME = "TalkbackEditTextOverlay";
 
+  private static final int MAX_CACHED_CLASS_NAMES = 500;
+
+  /** Roles of event class names, from {@link #eventClassNameToRole}. */
+  private static final LruCache<String, Integer> eventClassNameRoles =
+      new LruCache<>(MAX_CACHED_CLASS_NAMES);
+
+  /** Roles of node class names, from {@link #nodeClassNameToRole}. */
+  private static final LruCache<String, Integer> nodeClassNameRoles =
+      new LruCache<>(MAX_CACHED_CLASS_NAMES);
+
   /**
    * Gets the source {@link Role} from the {@link AccessibilityEvent}.
    *
@@ -157,7 +168,21 @@ public class Role {
 
     // Event TYPE_NOTIFICATION_STATE_CHANGED always has null source node.
     CharSequence eventClassName = event.getClassName();
+    if (eventClassName == null) {
+      return ROLE_NONE;
+    }
 
+    String key = eventClassName.toString();
+    Integer role = eventClassNameRoles.get(key);
+    if (role == null) {
+      role = eventClassNameToRole(key);
+      eventClassNameRoles.put(key, role);
+    }
+    return role;
+  }
+
+  /** Find role from event's class name string. Results are cached by sourceClassNameToRole(). */
+  private static @RoleName int eventClassNameToRole(String eventClassName) {
     // When comparing event.getClassName() to class name of standard widgets, we should take care of
     // the order of the "if" statements: check subclasses before checking superclasses.
 
@@ -244,6 +269,96 @@ public class Role {
       return ROLE_TEXT_ENTRY_KEY;
     }
     CharSequence className = node.getClassName();
+    @RoleName int classRole = ROLE_NONE;
+    if (className != null) {
+      String key = className.toString();
+      Integer role = nodeClassNameRoles.get(key);
+      if (role == null) {
+        role = nodeClassNameToRole(key);
+        nodeClassNameRoles.put(key, role);
+      }
+      classRole = role;
+    }
+
+    // The checks below must stay in the order of the class checks in nodeClassNameToRole(), so that
+    // node properties are checked between the same classes as if both were checked together.
+    switch (classRole) {
+      case ROLE_TALKBACK_EDIT_TEXT_OVERLAY:
+        return ROLE_TALKBACK_EDIT_TEXT_OVERLAY;
+      case ROLE_IMAGE:
+        return node.isClickable() ? ROLE_IMAGE_BUTTON : ROLE_IMAGE;
+      case ROLE_SWITCH:
+      case ROLE_TOGGLE_BUTTON:
+      case ROLE_RADIO_BUTTON:
+      case ROLE_CHECK_BOX:
+      case ROLE_BUTTON:
+      case ROLE_CHECKED_TEXT_VIEW:
+      case ROLE_EDIT_TEXT:
+      case ROLE_SEEK_CONTROL:
+        return classRole;
+      default: // fall out
+    }
+
+    // Range info makes any node that isn't one of the classes above a seek control or progress bar.
+    if (AccessibilityNodeInfoUtils.hasValidRangeInfo(node)) {
+      return AccessibilityNodeInfoUtils.supportsAction(
+              node, android.R.id.accessibilityActionSetProgress)
+          ? ROLE_SEEK_CONTROL
+          : ROLE_PROGRESS_BAR;
+    }
+
+    switch (classRole) {
+      case ROLE_PROGRESS_BAR:
+      case ROLE_KEYBOARD_KEY:
+      case ROLE_WEB_VIEW:
+      case ROLE_TAB_BAR:
+        return classRole;
+      case ROLE_HORIZONTAL_SCROLL_VIEW:
+        // If there is a CollectionInfo, fall into a ROLE_LIST/ROLE_GRID
+        if (node.getCollectionInfo() == null) {
+          return ROLE_HORIZONTAL_SCROLL_VIEW;
+        }
+        break;
+      case ROLE_SCROLL_VIEW:
+      case ROLE_PAGER:
+      case ROLE_DROP_DOWN_LIST:
+      case ROLE_GRID:
+      case ROLE_LIST:
+        return classRole;
+      default: // fall out
+    }
+
+    // Inheritance: View->ViewGroup->ViewPager2
+    if (AccessibilityNodeInfoUtils.supportsAction(
+            node, AccessibilityActionCompat.ACTION_PAGE_UP.getId())
+        || AccessibilityNodeInfoUtils.supportsAction(
+            node, AccessibilityActionCompat.ACTION_PAGE_DOWN.getId())
+        || AccessibilityNodeInfoUtils.supportsAction(
+            node, AccessibilityActionCompat.ACTION_PAGE_LEFT.getId())
+        || AccessibilityNodeInfoUtils.supportsAction(
+            node, AccessibilityActionCompat.ACTION_PAGE_RIGHT.getId())) {
+      return ROLE_PAGER;
+    }
+
+    CollectionInfoCompat collection = node.getCollectionInfo();
+    if (collection != null) {
+      // RecyclerView will be classified as a list or grid.
+      if (collection.getRowCount() > 1 && collection.getColumnCount() > 1) {
+        return ROLE_GRID;
+      } else {
+        return ROLE_LIST;
+      }
+    }
+
+    return (classRole == ROLE_VIEW_GROUP) ? ROLE_VIEW_GROUP : ROLE_NONE;
+  }
+
+  /**
+   * Finds the role implied by a node's class name alone, which is the role of the first matching
+   * class. Roles that also depend on node properties are resolved by getRole(). Results are cached
+   * by getRole().
+   */
+  private static @RoleName int nodeClassNameToRole(String className) {
 
     // When comparing node.getClassName() to class name of standard widgets, we should take care of
     // the order of the "if" statements: check subclasses before checking superclasses.
@@ -257,7 +372,7 @@ public class Role {
 
     // Inheritance: View->ImageView
     if (ClassLoadingCache.checkInstanceOf(className, android.widget.ImageView.class)) {
-      return node.isClickable() ? ROLE_IMAGE_BUTTON : ROLE_IMAGE;
+      return ROLE_IMAGE;
     }
 
     // //////////////////////////////////////////////////////////////////////////////////////////
@@ -302,18 +417,12 @@ public class Role {
     // Subclasses of ProgressBar.
 
     // Inheritance: View->ProgressBar->AbsSeekBar->SeekBar
-    if (ClassLoadingCache.checkInstanceOf(className, SeekBar.class)
-        || (AccessibilityNodeInfoUtils.hasValidRangeInfo(node)
-            && AccessibilityNodeInfoUtils.supportsAction(
-                node, android.R.id.accessibilityActionSetProgress))) {
+    if (ClassLoadingCache.checkInstanceOf(className, SeekBar.class)) {
       return ROLE_SEEK_CONTROL;
     }
 
     // Inheritance: View->ProgressBar
-    if (ClassLoadingCache.checkInstanceOf(className, ProgressBar.class)
-        || (AccessibilityNodeInfoUtils.hasValidRangeInfo(node)
-            && !AccessibilityNodeInfoUtils.supportsAction(
-                node, android.R.id.accessibilityActionSetProgress))) {
+    if (ClassLoadingCache.checkInstanceOf(className, ProgressBar.class)) {
       // ProgressBar check must come after SeekBar, because SeekBar specializes ProgressBar.
       return ROLE_PROGRESS_BAR;
     }
@@ -337,9 +446,7 @@ public class Role {
     }
 
     // Inheritance: View->ViewGroup->FrameLayout->HorizontalScrollView
-    // If there is a CollectionInfo, fall into a ROLE_LIST/ROLE_GRID
-    if (ClassLoadingCache.checkInstanceOf(className, android.widget.HorizontalScrollView.class)
-        && node.getCollectionInfo() == null) {
+    if (ClassLoadingCache.checkInstanceOf(className, android.widget.HorizontalScrollView.class)) {
       return ROLE_HORIZONTAL_SCROLL_VIEW;
     }
 
@@ -381,28 +488,6 @@ public class Role {
       return ROLE_LIST;
     }
 
-    // Inheritance: View->ViewGroup->ViewPager2
-    if (AccessibilityNodeInfoUtils.supportsAction(
-            node, AccessibilityActionCompat.ACTION_PAGE_UP.getId())
-        || AccessibilityNodeInfoUtils.supportsAction(
-            node, AccessibilityActionCompat.ACTION_PAGE_DOWN.getId())
-        || AccessibilityNodeInfoUtils.supportsAction(
-            node, AccessibilityActionCompat.ACTION_PAGE_LEFT.getId())
-        || AccessibilityNodeInfoUtils.supportsAction(
-            node, AccessibilityActionCompat.ACTION_PAGE_RIGHT.getId())) {
-      return ROLE_PAGER;
-    }
-
-    CollectionInfoCompat collection = node.getCollectionInfo();
-    if (collection != null) {
-      // RecyclerView will be classified as a list or grid.
-      if (collection.getRowCount() > 1 && collection.getColumnCount() > 1) {
-        return ROLE_GRID;
-      } else {
-        return ROLE_LIST;
-      }
-    }
-
     // Inheritance: View->ViewGroup
     if (ClassLoadingCache.checkInstanceOf(className, android.view.ViewGroup.class)) {
       return ROLE_VIEW_GROUP;
@@ -25,9 +25,9 @@ import android.text.SpannableStringBuilder;
 import android.text.TextUtils;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
-import android.view.accessibility.AccessibilityRecord;
 import androidx.annotation.VisibleForTesting;
 import com.google.android.accessibility.utils.AccessibilityEventListener;
+import com.google.android.accessibility.utils.AccessibilityEventUtils;
 import com.google.android.accessibility.utils.AccessibilityNodeInfoUtils;
 import com.google.android.accessibility.utils.FailoverTextToSpeech.SpeechParam;
 import com.google.android.accessibility.utils.Performance;
@@ -39,8 +39,6 @@ import com.google.android.accessibility.utils.WeakReferenceHandler;
 import com.google.android.accessibility.utils.output.FeedbackItem;
 import com.google.android.accessibility.utils.output.SpeechController;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.HashMap;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -162,12 +160,11 @@ public class ScrollFeedbackManager implements AccessibilityEventListener {
       return true;
     }
 
-    EventId eventId;
-    try {
-      eventId = new EventId(event);
-    } catch (Exception e) {
+    long sourceNodeId = AccessibilityEventUtils.getSourceNodeId(event);
+    if (sourceNodeId == AccessibilityEventUtils.NODE_ID_NONE) {
       return true;
     }
+    EventId eventId = new EventId(sourceNodeId, event.getWindowId());
 
     final Integer cachedFromIndex = cachedFromValues.get(eventId);
     final Integer cachedItemCount = cachedItemCounts.get(eventId);
@@ -371,30 +368,12 @@ public class ScrollFeedbackManager implements AccessibilityEventListener {
     public int windowId;
     private final int hashcode;
 
-    private static Method getSourceNodeIdMethod;
-    private static final String TAG = "EventId";
-
-    static {
-      try {
-        getSourceNodeIdMethod = AccessibilityRecord.class.getDeclaredMethod("getSourceNodeId");
-        getSourceNodeIdMethod.setAccessible(true);
-      } catch (NoSuchMethodException e) {
-        LogUtils.d(TAG, "Error setting up fields: " + e.toString());
-        e.printStackTrace();
-      }
-    }
-
     public EventId(long nodeId, int windowId) {
       this.nodeId = nodeId;
       this.windowId = windowId;
       hashcode = (int) (nodeId ^ (nodeId >>> 32)) + windowId * 7;
     }
 
-    public EventId(AccessibilityEvent event)
-        throws InvocationTargetException, IllegalAccessException {
-      this((long) getSourceNodeIdMethod.invoke(event), event.getWindowId());
-    }
-
     @Override
     public boolean equals(@Nullable Object other) {
       if (other == this) {
@@ -32,6 +32,7 @@ public class DefaultKeyComboModel implements KeyComboModel {
   private final Context mContext;
   private final boolean mIsArc;
   private final Map<String, Long> mKeyComboCodeMap = new TreeMap<>();
+  private int mModificationCount;
   private final KeyComboPersister mPersister;
 
   private int mTriggerModifier = KeyEvent.META_ALT_ON;
@@ -544,6 +545,12 @@ public class DefaultKeyComboModel implements KeyComboModel {
   public void saveKeyComboCode(String key, long keyComboCode) {
     mPersister.saveKeyCombo(key, keyComboCode);
     mKeyComboCodeMap.put(key, keyComboCode);
+    mModificationCount++;
+  }
+
+  @Override
+  public int getModificationCount() {
+    return mModificationCount;
   }
 
   @Override
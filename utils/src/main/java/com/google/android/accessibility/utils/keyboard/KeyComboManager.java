@@ -18,7 +18,10 @@ package com.google.android.accessibility.utils.keyboard;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.KeyEvent;
+import androidx.collection.LongSparseArray;
 import com.google.android.accessibility.utils.FeatureSupport;
 import com.google.android.accessibility.utils.Performance;
 import com.google.android.accessibility.utils.Performance.EventId;
@@ -26,11 +29,15 @@ import com.google.android.accessibility.utils.R;
 import com.google.android.accessibility.utils.ServiceKeyEventListener;
 import com.google.android.accessibility.utils.ServiceStateListener;
 import com.google.android.accessibility.utils.SharedPreferencesUtils;
+import com.google.android.libraries.accessibility.utils.log.LogUtils;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Manages state related to detecting key combinations.
@@ -39,6 +46,8 @@ import java.util.Set;
  */
 public class KeyComboManager implements ServiceKeyEventListener, ServiceStateListener {
 
+  private static final String TAG = "KeyComboManager";
+
   public static final int NO_MATCH = -1;
   public static final int PARTIAL_MATCH = 1;
   public static final int EXACT_MATCH = 2;
@@ -222,6 +231,19 @@ public class KeyComboManager implements ServiceKeyEventListener, ServiceStateLis
   private int mServiceState = SERVICE_STATE_INACTIVE;
   private ServiceKeyEventListener mKeyEventDelegate;
 
+  /**
+   * Key combos of {@link #mKeyComboModel}, compiled on the first key event after the model, its
+   * trigger modifier or one of its key combos changed.
+   */
+  private @Nullable KeyComboTable mKeyComboTable;
+
+  /** Like {@link #mKeyComboTable}, with only the combos processed while the service is inactive. */
+  private @Nullable KeyComboTable mAlwaysProcessedKeyComboTable;
+
+  private @Nullable KeyComboModel mCompiledKeyComboModel;
+  private int mCompiledModificationCount;
+  private int mCompiledTriggerModifier;
+
   public static KeyComboManager create(Context context) {
     return new KeyComboManager(context);
   }
@@ -290,6 +312,57 @@ public class KeyComboManager implements ServiceKeyEventListener, ServiceStateLis
   /** Sets key combo model. TODO: replace this method with setKeymap. */
   public void setKeyComboModel(KeyComboModel keyComboModel) {
     mKeyComboModel = keyComboModel;
+    mKeyComboTable = null;
+    mAlwaysProcessedKeyComboTable = null;
+  }
+
+  /**
+   * Returns the compiled key combos of the current model, compiling them again if the model
+   * changed since the last call.
+   *
+   * @param isServiceActive Whether to return all combos, or only those that are processed while
+   *     the service is inactive.
+   */
+  private KeyComboTable getKeyComboTable(boolean isServiceActive) {
+    int triggerModifier = mKeyComboModel.getTriggerModifier();
+    if (mKeyComboTable == null
+        || mCompiledKeyComboModel != mKeyComboModel
+        || mCompiledModificationCount != mKeyComboModel.getModificationCount()
+        || mCompiledTriggerModifier != triggerModifier) {
+      compileKeyComboTables(triggerModifier);
+    }
+    return isServiceActive ? mKeyComboTable : mAlwaysProcessedKeyComboTable;
+  }
+
+  private void compileKeyComboTables(int triggerModifier) {
+    long startTime = SystemClock.uptimeMillis();
+
+    KeyComboTable.Builder allCombos = new KeyComboTable.Builder();
+    KeyComboTable.Builder alwaysProcessedCombos = new KeyComboTable.Builder();
+    for (Map.Entry<String, Long> entry : mKeyComboModel.getKeyComboCodeMap().entrySet()) {
+      long keyComboCode = entry.getValue();
+      long keyComboCodeWithTrigger =
+          getKeyComboCode(getModifier(keyComboCode) | triggerModifier, getKeyCode(keyComboCode));
+      int actionId = getActionIdFromKey(entry.getKey());
+      allCombos.add(keyComboCodeWithTrigger, actionId);
+      if (alwaysProcessCombo(entry.getKey())) {
+        alwaysProcessedCombos.add(keyComboCodeWithTrigger, actionId);
+      }
+    }
+
+    mKeyComboTable = allCombos.build();
+    mAlwaysProcessedKeyComboTable = alwaysProcessedCombos.build();
+    mCompiledKeyComboModel = mKeyComboModel;
+    mCompiledModificationCount = mKeyComboModel.getModificationCount();
+    mCompiledTriggerModifier = triggerModifier;
+
+    if (LogUtils.shouldLog(Log.VERBOSE)) {
+      LogUtils.v(
+          TAG,
+          "Compiled %d key combos in %d ms",
+          mKeyComboModel.getKeyComboCodeMap().size(),
+          SystemClock.uptimeMillis() - startTime);
+    }
   }
 
   /**
@@ -806,18 +879,14 @@ public class KeyComboManager implements ServiceKeyEventListener, ServiceStateLis
     }
 
     boolean isServiceActive = (mServiceState == SERVICE_STATE_ACTIVE);
+    KeyComboTable keyComboTable = getKeyComboTable(isServiceActive);
 
     // If the current set of keys is a partial combo, consume the event.
     mHasPartialMatch = false;
 
-    for (Map.Entry<String, Long> entry : mKeyComboModel.getKeyComboCodeMap().entrySet()) {
-      if (!isServiceActive && !alwaysProcessCombo(entry.getKey())) {
-        continue;
-      }
-
-      final int match = matchKeyEventWith(event, triggerModifier, entry.getValue());
-      if (match == EXACT_MATCH) {
-        int comboId = getActionIdFromKey(entry.getKey());
+    int @Nullable [] comboIds = keyComboTable.getActionIds(mCurrentKeyComboCode);
+    if (comboIds != null) {
+      for (int comboId : comboIds) {
         String comboName = getKeyComboStringRepresentation(comboId);
         EventId eventId = Performance.getInstance().onKeyComboEventReceived(comboId);
         // Checks interrupt events if matches key combos. To prevent interrupting actions generated
@@ -832,12 +901,10 @@ public class KeyComboManager implements ServiceKeyEventListener, ServiceStateLis
           }
         }
       }
-
-      if (match == PARTIAL_MATCH) {
-        mHasPartialMatch = true;
-      }
     }
 
+    mHasPartialMatch = keyComboTable.hasPartialMatch(mCurrentKeyComboCode);
+
     // Do not handle key event if user has pressed search key (meta key) twice to open search
     // app.
     if (hasModifier && triggerModifier == KeyEvent.META_META_ON) {
@@ -863,34 +930,6 @@ public class KeyComboManager implements ServiceKeyEventListener, ServiceStateLis
     return mHasPartialMatch;
   }
 
-  private int matchKeyEventWith(KeyEvent event, int triggerModifier, long keyComboCode) {
-    int keyCode = getConvertedKeyCode(event);
-    int metaState = event.getModifiers() & KEY_EVENT_MODIFIER_MASK;
-
-    int targetKeyCode = getKeyCode(keyComboCode);
-    int targetMetaState = getModifier(keyComboCode) | triggerModifier;
-
-    // Handle exact matches first.
-    if (metaState == targetMetaState && keyCode == targetKeyCode) {
-      return EXACT_MATCH;
-    }
-
-    if (targetMetaState != 0 && metaState == 0) {
-      return NO_MATCH;
-    }
-
-    // Otherwise, all modifiers must be down.
-    if (KeyEvent.isModifierKey(keyCode)
-        && targetMetaState != 0
-        && (targetMetaState & metaState) != 0) {
-      // Partial match.
-      return PARTIAL_MATCH;
-    }
-
-    // No match.
-    return NO_MATCH;
-  }
-
   /**
    * Notifies the {@link KeyUpListener} whether should interrupt or not by checking the ActionId.
    *
@@ -939,6 +978,90 @@ public class KeyComboManager implements ServiceKeyEventListener, ServiceStateLis
     mServiceState = newState;
   }
 
+  /**
+   * Key combos compiled for matching key events. Exact matches are looked up by key combo code,
+   * including the trigger modifier. A partial match is a modifier key held down with some
+   * modifiers of a combo, which is detected from the distinct modifier states of the combos.
+   */
+  private static final class KeyComboTable {
+
+    /** Action ids by key combo code, in the iteration order of the model's key combo map. */
+    private final LongSparseArray<int[]> mActionIds;
+
+    /** Distinct modifier states of the combos. */
+    private final int[] mMetaStates;
+
+    /** Number of combos with each modifier state in {@link #mMetaStates}. */
+    private final int[] mMetaStateCounts;
+
+    private KeyComboTable(LongSparseArray<int[]> actionIds, int[] metaStates, int[] counts) {
+      mActionIds = actionIds;
+      mMetaStates = metaStates;
+      mMetaStateCounts = counts;
+    }
+
+    /** Returns the action ids of the combos that exactly match keyComboCode, or null if none. */
+    int @Nullable [] getActionIds(long keyComboCode) {
+      return mActionIds.get(keyComboCode);
+    }
+
+    /**
+     * Returns whether keyComboCode is a modifier key pressed with some, but not all, keys of a
+     * combo.
+     */
+    boolean hasPartialMatch(long keyComboCode) {
+      int keyCode = getKeyCode(keyComboCode);
+      int metaState = getModifier(keyComboCode);
+      if (metaState == 0 || !KeyEvent.isModifierKey(keyCode)) {
+        return false;
+      }
+
+      int[] exactMatches = mActionIds.get(keyComboCode);
+      int exactMatchCount = (exactMatches == null) ? 0 : exactMatches.length;
+      for (int i = 0; i < mMetaStates.length; i++) {
+        int targetMetaState = mMetaStates[i];
+        // Combos with the same modifiers partially match unless they are all exact matches.
+        if ((targetMetaState & metaState) != 0
+            && (targetMetaState != metaState || mMetaStateCounts[i] > exactMatchCount)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static final class Builder {
+      private final LongSparseArray<int[]> mActionIds = new LongSparseArray<>();
+      private final Map<Integer, Integer> mMetaStateCounts = new LinkedHashMap<>();
+
+      void add(long keyComboCode, int actionId) {
+        int[] actionIds = mActionIds.get(keyComboCode);
+        if (actionIds == null) {
+          actionIds = new int[] {actionId};
+        } else {
+          actionIds = Arrays.copyOf(actionIds, actionIds.length + 1);
+          actionIds[actionIds.length - 1] = actionId;
+        }
+        mActionIds.put(keyComboCode, actionIds);
+
+        int metaState = getModifier(keyComboCode);
+        Integer count = mMetaStateCounts.get(metaState);
+        mMetaStateCounts.put(metaState, (count == null) ? 1 : count + 1);
+      }
+
+      KeyComboTable build() {
+        int[] metaStates = new int[mMetaStateCounts.size()];
+        int[] counts = new int[metaStates.length];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : mMetaStateCounts.entrySet()) {
+          metaStates[i] = entry.getKey();
+          counts[i] = entry.getValue();
+          i++;
+        }
+        return new KeyComboTable(mActionIds, metaStates, counts);
+      }
+    }
+  }
+
   public interface KeyComboListener {
     public boolean onComboPerformed(int id, String name, EventId eventId);
   }
@@ -81,6 +81,12 @@ public interface KeyComboModel {
   /** Clears key combo code assigned for preference key. */
   void clearKeyComboCode(String key);
 
+  /**
+   * Returns a count that changes whenever a key combo code of this model is saved or cleared, so
+   * that callers can tell whether {@link #getKeyComboCodeMap()} changed.
+   */
+  int getModificationCount();
+
   /**
    * Returns true if keyComboCode is eligible combination for this model. This method doesn't check
    * consistency with other key combo codes in this model. e.g. duplicated key combos.
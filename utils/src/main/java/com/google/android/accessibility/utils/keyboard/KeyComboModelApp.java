@@ -33,6 +33,7 @@ public class KeyComboModelApp implements KeyComboModel {
   private final Context mContext;
   private final KeyComboPersister mPersister;
   private final Map<String, Long> mKeyComboCodeMap = new TreeMap<>();
+  private int mModificationCount;
 
   /**
    * Search key (meta key) cannot be used as part of key combination since onKey method of
@@ -249,9 +250,15 @@ public class KeyComboModelApp implements KeyComboModel {
 
     if (mKeyComboCodeMap.containsKey(key)) {
       mKeyComboCodeMap.put(key, keyComboCode);
+      mModificationCount++;
     }
   }
 
+  @Override
+  public int getModificationCount() {
+    return mModificationCount;
+  }
+
   @Override
   public boolean isEligibleKeyComboCode(long keyComboCode) {
     if (keyComboCode == KEY_COMBO_CODE_UNASSIGNED) {
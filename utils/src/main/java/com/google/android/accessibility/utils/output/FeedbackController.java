@@ -26,6 +26,7 @@ import android.media.AudioManager;
 import android.media.SoundPool;
 import android.media.SoundPool.OnLoadCompleteListener;
 import android.os.Vibrator;
+import android.util.Log;
 import android.util.SparseIntArray;
 import com.google.android.accessibility.utils.BuildVersionUtils;
 import com.google.android.accessibility.utils.Performance.EventId;
@@ -93,7 +94,9 @@ public class FeedbackController {
     if (!mHapticEnabled || resId == 0) {
       return false;
     }
-    LogUtils.v(TAG, "playHaptic() resId=%d eventId=%s", resId, eventId);
+    if (LogUtils.shouldLog(Log.VERBOSE)) {
+      LogUtils.v(TAG, "playHaptic() resId=%d eventId=%s", resId, eventId);
+    }
 
     final int[] patternArray;
     try {
@@ -156,7 +159,9 @@ public class FeedbackController {
     if (!mAuditoryEnabled || resId == 0) {
       return;
     }
-    LogUtils.v(TAG, "playAuditory() resId=%d eventId=%s", resId, eventId);
+    if (LogUtils.shouldLog(Log.VERBOSE)) {
+      LogUtils.v(TAG, "playAuditory() resId=%d eventId=%s", resId, eventId);
+    }
 
     final float adjustedVolume = volume * mVolumeAdjustment;
     int soundId = mSoundIds.get(resId);
@@ -19,6 +19,7 @@ package com.google.android.accessibility.utils.output;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.text.TextUtils;
+import android.util.Log;
 import com.google.android.accessibility.utils.AccessibilityNodeInfoUtils;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
 import com.google.common.collect.Iterators;
@@ -104,11 +105,13 @@ class FeedbackFragmentsIterator {
   void onFragmentRangeStarted(String utteranceId, int start, int end) {
     if (TextUtils.equals(utteranceId, feedBackItemUtteranceId)) {
       recordUtteranceStartIndex(start);
-      LogUtils.v(
-          TAG,
-          "onFragmentRangeStarted ,  speak word = %s",
-          AccessibilityNodeInfoUtils.subsequenceSafe(
-              currentFeedbackFragment.getText(), start, end));
+      if (LogUtils.shouldLog(Log.VERBOSE)) {
+        LogUtils.v(
+            TAG,
+            "onFragmentRangeStarted ,  speak word = %s",
+            AccessibilityNodeInfoUtils.subsequenceSafe(
+                currentFeedbackFragment.getText(), start, end));
+      }
     } else {
       LogUtils.d(
           TAG,
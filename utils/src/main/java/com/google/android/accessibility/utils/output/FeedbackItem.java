@@ -92,6 +92,9 @@ public class FeedbackItem {
   /** Ordered fragments of the feedback to be produced from a single {@link Utterance}. */
   private List<FeedbackFragment> mFragments = new ArrayList<>();
 
+  /** Hash of the text of {@link #mFragments}, or null until computed after they change. */
+  @Nullable private Integer mContentFingerprint;
+
   /** Flag indicating that this FeedbackItem should be uninterruptible. */
   private boolean mIsUninterruptible;
 
@@ -199,6 +202,31 @@ public class FeedbackItem {
     return sb.toString();
   }
 
+  /**
+   * Returns a hash of the text of all fragments, which is equal for items whose fragments have
+   * equal text. It is computed when first requested after fragments are added or removed, so
+   * fragment text must not be changed after that.
+   */
+  public int getContentFingerprint() {
+    if (mContentFingerprint == null) {
+      int fingerprint = mFragments.size();
+      for (FeedbackFragment fragment : mFragments) {
+        CharSequence text = (fragment == null) ? null : fragment.getText();
+        int textHash = -1;
+        if (text != null) {
+          // Hash the characters only, since spans don't change what is spoken.
+          textHash = 0;
+          for (int i = 0; i < text.length(); i++) {
+            textHash = 31 * textHash + text.charAt(i);
+          }
+        }
+        fingerprint = 31 * fingerprint + textHash;
+      }
+      mContentFingerprint = fingerprint;
+    }
+    return mContentFingerprint;
+  }
+
   /**
    * Adds a fragment to the end of the list of fragments for this item.
    *
@@ -206,10 +234,12 @@ public class FeedbackItem {
    */
   public void addFragment(FeedbackFragment fragment) {
     mFragments.add(fragment);
+    mContentFingerprint = null;
   }
 
   public void addFragmentAtPosition(FeedbackFragment fragment, int position) {
     mFragments.add(position, fragment);
+    mContentFingerprint = null;
   }
 
   /**
@@ -219,12 +249,14 @@ public class FeedbackItem {
    * @return {@code true} if removed.
    */
   public boolean removeFragment(FeedbackFragment fragment) {
+    mContentFingerprint = null;
     return mFragments.remove(fragment);
   }
 
   /** Removes all {@link FeedbackFragment}s associated with this item. */
   public void clearFragments() {
     mFragments.clear();
+    mContentFingerprint = null;
   }
 
   /** @return {@code true} if this item should be uninterruptible, {@code false} otherwise */
@@ -31,6 +31,8 @@ import com.google.android.accessibility.utils.FailoverTextToSpeech.SpeechParam;
 import com.google.android.accessibility.utils.Performance.EventId;
 import com.google.android.accessibility.utils.R;
 import com.google.android.accessibility.utils.SpannableUtils;
+import java.text.BreakIterator;
+import java.util.Locale;
 import java.util.Set;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -46,6 +48,18 @@ public class FeedbackProcessingUtils {
    */
   public static final int MAX_UTTERANCE_LENGTH = TextToSpeech.getMaxSpeechInputLength();
 
+  /**
+   * Text at least this long is split into progressively longer fragments, so that the TTS can
+   * start speaking the first fragment before the rest of the text is synthesized.
+   */
+  private static final int MIN_PROGRESSIVE_SPLIT_LENGTH = 160;
+
+  /** Maximum length of the first fragment of progressively split text. */
+  private static final int FIRST_FRAGMENT_MAX_LENGTH = 80;
+
+  /** Characters after which a clause ends, used when a sentence is too long for a fragment. */
+  private static final String CLAUSE_END_CHARACTERS = ",;:\u2014\u3001\uFF0C\uFF1B\uFF1A";
+
   /** The pitch scale factor value to use when announcing hyperlinks. */
   private static final float PITCH_CHANGE_HYPERLINK = 0.95f;
 
@@ -92,6 +106,10 @@ public class FeedbackProcessingUtils {
    * Splits text contained within the {@link FeedbackItem}'s {@link FeedbackFragment}s into
    * fragments containing less than {@link #MAX_UTTERANCE_LENGTH} characters.
    *
+   * <p>Long text is split progressively: the first fragment ends at the first sentence or clause
+   * that fits in {@link #FIRST_FRAGMENT_MAX_LENGTH} characters, and each following fragment may be
+   * up to twice as long as the previous one. Fragments end at sentence boundaries where possible.
+   *
    * @param item The item containing fragments to split.
    */
   // Visible for testing
@@ -103,41 +121,85 @@ public class FeedbackProcessingUtils {
         continue;
       }
 
-      if (fragmentText.length() >= MAX_UTTERANCE_LENGTH) {
-        // If the text from an original fragment exceeds the allowable
-        // fragment text length, start by removing the original fragment
-        // from the item.
+      if (fragmentText.length() >= MIN_PROGRESSIVE_SPLIT_LENGTH) {
+        // Start by removing the original fragment from the item.
         item.removeFragment(fragment);
 
         // Split the fragment's text into multiple fragments that don't
         // exceed the limit and add new fragments at the appropriate
         // position in the item.
+        final Locale locale = fragment.getLocale();
+        final BreakIterator sentences =
+            BreakIterator.getSentenceInstance((locale == null) ? Locale.getDefault() : locale);
+        sentences.setText(fragmentText.toString());
+
         final int end = fragmentText.length();
         int start = 0;
         int splitFragments = 0;
+        int maxLength = FIRST_FRAGMENT_MAX_LENGTH;
         while (start < end) {
-          final int fragmentEnd = start + MAX_UTTERANCE_LENGTH - 1;
-
-          // TODO: We currently split only on spaces.
-          // Find a better way to do this for languages that don't
-          // use spaces.
-          int splitLocation = TextUtils.lastIndexOf(fragmentText, ' ', start + 1, fragmentEnd);
-          if (splitLocation < 0) {
-            splitLocation = Math.min(fragmentEnd, end);
-          }
-          final CharSequence textSection = TextUtils.substring(fragmentText, start, splitLocation);
+          final int splitLocation =
+              findSplitLocation(fragmentText, sentences, start, maxLength, splitFragments == 0);
           final FeedbackFragment additionalFragment =
-              new FeedbackFragment(textSection, fragment.getSpeechParams());
+              new FeedbackFragment(
+                  fragmentText.subSequence(start, splitLocation), fragment.getSpeechParams());
+          additionalFragment.setLocale(locale);
+          additionalFragment.setStartIndexInFeedbackItem(
+              fragment.getStartIndexInFeedbackItem() + start);
           item.addFragmentAtPosition(additionalFragment, i + splitFragments);
           splitFragments++;
           start = splitLocation;
+          maxLength = Math.min(2 * maxLength, MAX_UTTERANCE_LENGTH - 1);
         }
 
         // Always replace the metadata from the original fragment on the
         // first fragment resulting from the split
         copyFragmentMetadata(fragment, item.getFragments().get(i));
+
+        // Skip the new fragments, which are already short enough.
+        i += splitFragments - 1;
+      }
+    }
+  }
+
+  /**
+   * Returns the end of the fragment of {@code text} that starts at {@code start} and has at most
+   * {@code maxLength} characters.
+   *
+   * @param sentences Sentence boundaries of {@code text}
+   * @param isFirst Whether the fragment is the first one, which ends at the first sentence
+   *     boundary rather than the last one that fits
+   */
+  private static int findSplitLocation(
+      CharSequence text, BreakIterator sentences, int start, int maxLength, boolean isFirst) {
+    final int end = text.length();
+    final int limit = start + maxLength;
+    if (limit >= end) {
+      return end;
+    }
+
+    // Avoid fragments much shorter than allowed, except for a short first sentence.
+    final int minEnd = start + maxLength / 4;
+
+    // Prefer ending the fragment at a sentence boundary.
+    int sentenceEnd = isFirst ? sentences.following(start) : sentences.preceding(limit + 1);
+    if (sentenceEnd != BreakIterator.DONE
+        && (isFirst ? start < sentenceEnd : minEnd < sentenceEnd)
+        && sentenceEnd <= limit) {
+      return sentenceEnd;
+    }
+
+    // Otherwise end it after a clause, or at the last space.
+    for (int index = limit - 1; index >= minEnd; index--) {
+      if (CLAUSE_END_CHARACTERS.indexOf(text.charAt(index)) >= 0) {
+        return index + 1;
       }
     }
+    // TODO: We currently split only on spaces.
+    // Find a better way to do this for languages that don't
+    // use spaces.
+    int splitLocation = TextUtils.lastIndexOf(text, ' ', start + 1, limit);
+    return (splitLocation < 0) ? limit : splitLocation;
   }
 
   /**
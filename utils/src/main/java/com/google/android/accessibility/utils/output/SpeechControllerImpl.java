@@ -41,6 +41,7 @@ import android.text.Spanned;
 import android.text.TextUtils;
 import android.text.style.ReplacementSpan;
 import android.text.style.TtsSpan;
+import android.util.Log;
 import android.util.Range;
 import androidx.annotation.IntDef;
 import com.google.android.accessibility.utils.BuildVersionUtils;
@@ -61,7 +62,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Locale;
@@ -133,8 +133,18 @@ public class SpeechControllerImpl implements SpeechController {
   /** Keep the feedbackSavedTime to correlate it to the Pause gesture */
   private long feedbackSavedTime;
 
-  /** The list of recently-spoken items. */
-  private final LinkedList<FeedbackItem> mFeedbackHistory = new LinkedList<>();
+  /** Ring buffer of recently-spoken items, starting with the oldest at mFeedbackHistoryStart. */
+  private final FeedbackItem[] mFeedbackHistory = new FeedbackItem[MAX_HISTORY_ITEMS];
+
+  private int mFeedbackHistoryStart = 0;
+  private int mFeedbackHistorySize = 0;
+
+  /**
+   * Maps {@link FeedbackItem#getContentFingerprint()} of items in {@link #mFeedbackHistory} to the
+   * latest of those items. Entries are removed when they leave the history, or when they are
+   * found to be older than {@link #SKIP_DUPLICATES_DELAY}.
+   */
+  private final HashMap<Integer, FeedbackItem> mRecentFeedbackByFingerprint = new HashMap<>();
 
   /** Talkback speech deliberately saved by a caller of saveLastUtterance() */
   private @Nullable FeedbackItem savedUtterance;
@@ -479,10 +489,29 @@ public class SpeechControllerImpl implements SpeechController {
 
   /** Returns the last spoken utterance. */
   public @Nullable FeedbackItem getLastUtterance() {
-    if (mFeedbackHistory.isEmpty()) {
+    if (mFeedbackHistorySize == 0) {
       return null;
     }
-    return mFeedbackHistory.getLast();
+    return mFeedbackHistory[(mFeedbackHistoryStart + mFeedbackHistorySize - 1) % MAX_HISTORY_ITEMS];
+  }
+
+  /** Adds {@code item} to the history, replacing the oldest item if the history is full. */
+  private void addToHistory(FeedbackItem item) {
+    final int index;
+    if (mFeedbackHistorySize == MAX_HISTORY_ITEMS) {
+      FeedbackItem oldestItem = mFeedbackHistory[mFeedbackHistoryStart];
+      int oldestFingerprint = oldestItem.getContentFingerprint();
+      if (mRecentFeedbackByFingerprint.get(oldestFingerprint) == oldestItem) {
+        mRecentFeedbackByFingerprint.remove(oldestFingerprint);
+      }
+      index = mFeedbackHistoryStart;
+      mFeedbackHistoryStart = (mFeedbackHistoryStart + 1) % MAX_HISTORY_ITEMS;
+    } else {
+      index = (mFeedbackHistoryStart + mFeedbackHistorySize) % MAX_HISTORY_ITEMS;
+      mFeedbackHistorySize++;
+    }
+    mFeedbackHistory[index] = item;
+    mRecentFeedbackByFingerprint.put(item.getContentFingerprint(), item);
   }
 
   /** Re-speaks saved talkback speech. */
@@ -537,7 +566,7 @@ public class SpeechControllerImpl implements SpeechController {
      */
     boolean result = spellUtterance(text);
     final FeedbackItem newUtterance = new FeedbackItem(utterance);
-    mFeedbackHistory.addLast(newUtterance);
+    addToHistory(newUtterance);
     return result;
   }
 
@@ -1083,20 +1112,35 @@ public class SpeechControllerImpl implements SpeechController {
       return false;
     }
 
-    if (feedbackTextEquals(item, mCurrentFeedbackItem)) {
+    int fingerprint = item.getContentFingerprint();
+    if (contentEquals(item, fingerprint, mCurrentFeedbackItem)) {
       return true;
     }
 
-    for (FeedbackItem queuedItem : feedbackQueue) {
-      if (feedbackTextEquals(item, queuedItem)) {
+    for (int i = 0; i < feedbackQueue.size(); i++) {
+      if (contentEquals(item, fingerprint, feedbackQueue.get(i))) {
         return true;
       }
     }
 
     long currentTime = item.getCreationTime();
-    for (FeedbackItem recentItem : mFeedbackHistory) {
-      if (currentTime - recentItem.getCreationTime() < SKIP_DUPLICATES_DELAY) {
-        if (feedbackTextEquals(item, recentItem)) {
+    FeedbackItem recentItem = mRecentFeedbackByFingerprint.get(fingerprint);
+    if (recentItem == null) {
+      return false;
+    }
+    if (currentTime - recentItem.getCreationTime() >= SKIP_DUPLICATES_DELAY) {
+      mRecentFeedbackByFingerprint.remove(fingerprint);
+      return false;
+    }
+    if (feedbackTextEquals(item, recentItem)) {
+      return true;
+    }
+
+    // Different text with the same fingerprint, so check the whole history.
+    for (int i = 0; i < mFeedbackHistorySize; i++) {
+      FeedbackItem historyItem = mFeedbackHistory[(mFeedbackHistoryStart + i) % MAX_HISTORY_ITEMS];
+      if (currentTime - historyItem.getCreationTime() < SKIP_DUPLICATES_DELAY) {
+        if (feedbackTextEquals(item, historyItem)) {
           return true;
         }
       }
@@ -1105,6 +1149,14 @@ public class SpeechControllerImpl implements SpeechController {
     return false;
   }
 
+  /** Compares fingerprints before comparing text, see {@link #feedbackTextEquals}. */
+  private boolean contentEquals(
+      FeedbackItem item, int itemFingerprint, @Nullable FeedbackItem otherItem) {
+    return (otherItem != null)
+        && (otherItem.getContentFingerprint() == itemFingerprint)
+        && feedbackTextEquals(item, otherItem);
+  }
+
   /**
    * Compares feedback fragments based on their text only. Ignores other parameters such as earcons
    * and interruptibility.
@@ -1400,10 +1452,7 @@ public class SpeechControllerImpl implements SpeechController {
     }
 
     if ((item != null) && !item.hasFlag(FeedbackItem.FLAG_NO_HISTORY)) {
-      while (mFeedbackHistory.size() >= MAX_HISTORY_ITEMS) {
-        mFeedbackHistory.remove(mFeedbackHistory.peek());
-      }
-      mFeedbackHistory.addLast(item);
+      addToHistory(item);
     }
 
     if (mSpeechListener != null) {
@@ -1479,13 +1528,15 @@ public class SpeechControllerImpl implements SpeechController {
       }
     }
 
-    final String logText = (text == null) ? null : String.format("\"%s\"", text.toString());
-    LogUtils.v(
-        TAG,
-        "Speaking fragment text %s with spans %s for event %s",
-        logText,
-        SpannableUtils.spansToStringForLogging(text),
-        eventId);
+    if (LogUtils.shouldLog(Log.VERBOSE)) {
+      final String logText = (text == null) ? null : String.format("\"%s\"", text.toString());
+      LogUtils.v(
+          TAG,
+          "Speaking fragment text %s with spans %s for event %s",
+          logText,
+          SpannableUtils.spansToStringForLogging(text),
+          eventId);
+    }
 
     if (text != null && mCurrentFeedbackItem.hasFlag(FeedbackItem.FLAG_FORCED_FEEDBACK)) {
       mDelegate.onSpeakingForcedFeedback();
@@ -19,15 +19,18 @@ package com.google.android.accessibility.utils.parsetree;
 import android.content.res.Resources;
 import androidx.annotation.Nullable;
 import android.text.TextUtils;
+import android.util.Log;
 import android.util.Pair;
 import androidx.annotation.IntDef;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -65,12 +68,13 @@ import org.json.JSONObject;
  *
  * <p>Each Output can be a Boolean, Integer, Number, Enum, or a String. It will be evaluated when
  * parseEventTo*() is called, and a default value will be returned if the output is not defined for
- * the event.
+ * the event. parseEvent() evaluates several outputs of an event in one pass.
  *
  * <h4>Constants</h4>
  *
- * <p>Constants can be a Boolean, Integer, Number or a String. They are evaluated when the tree is
- * built, and cannot be changed.
+ * <p>Constants can be a Boolean, Integer, Number or a String. Their values are looked up when an
+ * Event is evaluated, so a constant can be set again after the tree is built, as long as its type
+ * doesn't change. This is much cheaper than rebuilding the tree.
  *
  * <h4>Variables</h4>
  *
@@ -80,8 +84,16 @@ import org.json.JSONObject;
  * <h4>Functions</h4>
  *
  * <p>Functions can be provided to provide an arbitrary transformation of data. They should always
- * produce the same result within a call to parseEventTo*(), given the same VariableDelegate. The
- * function should be annotated with @UsedByReflection.
+ * produce the same result within a call to parseEventTo*(), given the same VariableDelegate. They
+ * are registered with addFunction(), using one of the typed function interfaces, and are called
+ * directly without reflection.
+ *
+ * <h4>Evaluation</h4>
+ *
+ * <p>When the tree is built, each event output is compiled into a flat instruction array, which
+ * parseEventTo*() runs with a reusable operand stack instead of walking the node graph. The nodes
+ * are kept, and are walked instead when verbose logging is enabled, so the evaluation can be
+ * traced.
  *
  * <h3>JSON format</h3>
  *
@@ -283,7 +295,7 @@ public class ParseTree {
   private static final String TAG = "ParseTree";
 
   public ParseTree(Resources resources, String packageName) {
-    mTreeInfo = new TreeInfo(resources, packageName);
+    mTreeInfo = new TreeInfo(resources, packageName, mConstants);
   }
 
   /** An interface for supplying variables to the ParseTree */
@@ -313,6 +325,60 @@ public class ParseTree {
     VariableDelegate getArrayChildElement(int variableId, int index);
   }
 
+  /**
+   * A VariableDelegate that can cache what a "for_each_child" evaluates for it. Before a child is
+   * evaluated the tree asks it for a cached result, and it is told about each result the tree
+   * computes. The delegate decides which results are safe to keep.
+   */
+  public interface CachingVariableDelegate extends VariableDelegate {
+    /** Returns the cached result of evaluating {@code function} on this delegate, or null. */
+    @Nullable
+    CharSequence getCachedResult(Object function);
+
+    /** Called before a function is evaluated on this delegate. */
+    void onEvaluationStarted();
+
+    /**
+     * Called after {@code function} is evaluated on this delegate, with its result, or with null if
+     * the evaluation failed.
+     */
+    void onEvaluationFinished(Object function, @Nullable CharSequence result);
+  }
+
+  /** A function from a String to a String. */
+  public interface StringFunction {
+    @Nullable
+    CharSequence apply(CharSequence text);
+  }
+
+  /** A function from two Strings to a String. */
+  public interface StringBiFunction {
+    @Nullable
+    CharSequence apply(CharSequence text1, CharSequence text2);
+  }
+
+  /** A function from three Strings to a String. */
+  public interface StringTriFunction {
+    @Nullable
+    CharSequence apply(CharSequence text1, CharSequence text2, CharSequence text3);
+  }
+
+  /** A function from two Strings to a Boolean. */
+  public interface StringBiPredicate {
+    boolean test(CharSequence text1, CharSequence text2);
+  }
+
+  /** A function from an Integer to a String. */
+  public interface IntegerToStringFunction {
+    @Nullable
+    CharSequence apply(int value);
+  }
+
+  /** A function from a Number to an Integer. */
+  public interface NumberToIntegerFunction {
+    int apply(double value);
+  }
+
   /** Enum representing the variable types. */
   @IntDef({
     VARIABLE_BOOL,
@@ -336,6 +402,12 @@ public class ParseTree {
   static final int VARIABLE_ARRAY = 6;
   static final int VARIABLE_CHILD_ARRAY = 7;
 
+  /**
+   * Output IDs index the columns of the event table and the bits of {@link #getOutputMask(int)}
+   * directly, so they must be small.
+   */
+  public static final int MAX_OUTPUT_ID = Long.SIZE - 1;
+
   @IntDef({
     OPERATOR_CLASS_NONE,
     OPERATOR_CLASS_PLUS,
@@ -424,21 +496,52 @@ public class ParseTree {
     private final Map<Integer, String> mEventNames = new HashMap<>();
     private final Map<Integer, String> mOutputNames = new HashMap<>();
     private final Map<String, VariableInfo> mOutputs = new HashMap<>();
-    private final Map<String, ParseTreeNode> mConstants = new HashMap<>();
+    private final Map<String, ParseTreeConstantNode> mConstants;
     private final Map<String, VariableInfo> mVariables = new HashMap<>();
     private final Map<Integer, Map<String, Integer>> mEnums = new HashMap<>();
-    private final Map<String, Pair<Object, Method>> mFunctions = new HashMap<>();
+    private final Map<String, ParseTreeFunction> mFunctions = new HashMap<>();
     private final Set<String> mPendingNamedNodes = new HashSet<>();
     private final List<Pair<ParseTreeForEachChildNode, JSONObject>> mDeferredForEachChildNodes =
         new ArrayList<>();
 
-    private TreeInfo(Resources resources, String packageName) {
+    private TreeInfo(
+        Resources resources,
+        String packageName,
+        Map<String, ParseTreeConstantNode> constants) {
       this.resources = resources;
       this.packageName = packageName;
+      mConstants = constants;
+    }
+  }
+
+  /** The parse tree for one (event, output) pair, and the program compiled from it. */
+  private static class EventOutput {
+    final ParseTreeNode node;
+    final @VariableType int resultType;
+    @Nullable ParseTreeProgram program;
+
+    EventOutput(ParseTreeNode node, @VariableType int resultType) {
+      this.node = node;
+      this.resultType = resultType;
     }
   }
 
-  private final Map<Pair<Integer, Integer>, ParseTreeNode> mEvents = new HashMap<>();
+  // Event outputs are stored in a dense table, with a row for each event and a column for each
+  // output ID. Event IDs aren't contiguous, so the row of an event is its position in the sorted
+  // array of event IDs.
+  private int[] mEventIds = new int[0];
+  private int mOutputCount = 0;
+  private @Nullable EventOutput[] mEventOutputs = new EventOutput[0];
+  // For each event, a bit mask of the output IDs that the event defines.
+  private long[] mOutputMasks = new long[0];
+
+  // Constants outlive the build data, so that their values can be changed after the tree is built.
+  private final Map<String, ParseTreeConstantNode> mConstants = new HashMap<>();
+
+  // Whether events are evaluated by running their compiled programs, rather than by walking the
+  // parse tree. Tree walking is still used when verbose logging is enabled, since only the tree
+  // logs its evaluation.
+  private boolean mCompiledEvaluationEnabled = true;
 
   // Data used to build the parse tree.  It's released once the tree is built.
   private @Nullable TreeInfo mTreeInfo;
@@ -514,7 +617,8 @@ public class ParseTree {
    * Assigns an id to a named output with a boolean value.
    *
    * @param outputName Name of the output.
-   * @param outputId ID used to parse the output. Must be unique.
+   * @param outputId ID used to parse the output. Must be unique, and between 0 and {@link
+   *     #MAX_OUTPUT_ID}.
    */
   public void addBooleanOutput(String outputName, int outputId) {
     addOutput(outputName, new VariableInfo(outputName, VARIABLE_BOOL, outputId));
@@ -524,7 +628,8 @@ public class ParseTree {
    * Assigns an id to a named output with a integral value.
    *
    * @param outputName Name of the output.
-   * @param outputId ID used to parse the output. Must be unique.
+   * @param outputId ID used to parse the output. Must be unique, and between 0 and {@link
+   *     #MAX_OUTPUT_ID}.
    */
   public void addIntegerOutput(String outputName, int outputId) {
     addOutput(outputName, new VariableInfo(outputName, VARIABLE_INTEGER, outputId));
@@ -534,7 +639,8 @@ public class ParseTree {
    * Assigns an id to a named output with a floating point value.
    *
    * @param outputName Name of the output.
-   * @param outputId ID used to parse the output. Must be unique.
+   * @param outputId ID used to parse the output. Must be unique, and between 0 and {@link
+   *     #MAX_OUTPUT_ID}.
    */
   public void addNumberOutput(String outputName, int outputId) {
     addOutput(outputName, new VariableInfo(outputName, VARIABLE_NUMBER, outputId));
@@ -544,7 +650,8 @@ public class ParseTree {
    * Assigns an id to a named output with a string value.
    *
    * @param outputName Name of the output.
-   * @param outputId ID used to parse the output. Must be unique.
+   * @param outputId ID used to parse the output. Must be unique, and between 0 and {@link
+   *     #MAX_OUTPUT_ID}.
    */
   public void addStringOutput(String outputName, int outputId) {
     addOutput(outputName, new VariableInfo(outputName, VARIABLE_STRING, outputId));
@@ -554,7 +661,8 @@ public class ParseTree {
    * Assigns an id to a named output with an enum value.
    *
    * @param outputName Name of the output.
-   * @param outputId ID used to parse the output. Must be unique.
+   * @param outputId ID used to parse the output. Must be unique, and between 0 and {@link
+   *     #MAX_OUTPUT_ID}.
    */
   public void addEnumOutput(String outputName, int outputId, int enumType) {
     addOutput(outputName, new VariableInfo(outputName, VARIABLE_ENUM, enumType, outputId));
@@ -640,33 +748,73 @@ public class ParseTree {
     addVariable(varName, new VariableInfo(varName, VARIABLE_CHILD_ARRAY, varId));
   }
 
-  public void addFunction(String name, Object delegate) {
-    Method method = null;
-    for (Method currentMethod : delegate.getClass().getDeclaredMethods()) {
-      if (currentMethod.getName().equals(name)) {
-        if (method != null) {
-          throw new IllegalStateException(
-              "Function name '" + name + "' is ambiguous for delegate: " + delegate);
-        }
-        method = currentMethod;
-      }
-    }
+  /**
+   * Registers a function that takes a String and returns a String.
+   *
+   * @param name Name of the function, as used in the JSON description.
+   * @param function The function to call.
+   */
+  public void addFunction(String name, StringFunction function) {
+    addFunction(ParseTreeFunction.create(name, function));
+  }
 
-    if (method == null) {
-      throw new IllegalStateException(
-          "No matching method name, or method wasn't annotated with @UsedByReflection(): " + name);
-    }
+  /**
+   * Registers a function that takes two Strings and returns a String.
+   *
+   * @param name Name of the function, as used in the JSON description.
+   * @param function The function to call.
+   */
+  public void addFunction(String name, StringBiFunction function) {
+    addFunction(ParseTreeFunction.create(name, function));
+  }
 
-    addFunction(name, delegate, method);
+  /**
+   * Registers a function that takes three Strings and returns a String.
+   *
+   * @param name Name of the function, as used in the JSON description.
+   * @param function The function to call.
+   */
+  public void addFunction(String name, StringTriFunction function) {
+    addFunction(ParseTreeFunction.create(name, function));
   }
 
-  public void addFunction(String name, Object delegate, Method method) {
+  /**
+   * Registers a function that takes two Strings and returns a Boolean.
+   *
+   * @param name Name of the function, as used in the JSON description.
+   * @param function The function to call.
+   */
+  public void addFunction(String name, StringBiPredicate function) {
+    addFunction(ParseTreeFunction.create(name, function));
+  }
+
+  /**
+   * Registers a function that takes an Integer and returns a String.
+   *
+   * @param name Name of the function, as used in the JSON description.
+   * @param function The function to call.
+   */
+  public void addFunction(String name, IntegerToStringFunction function) {
+    addFunction(ParseTreeFunction.create(name, function));
+  }
+
+  /**
+   * Registers a function that takes a Number and returns an Integer.
+   *
+   * @param name Name of the function, as used in the JSON description.
+   * @param function The function to call.
+   */
+  public void addFunction(String name, NumberToIntegerFunction function) {
+    addFunction(ParseTreeFunction.create(name, function));
+  }
+
+  private void addFunction(ParseTreeFunction function) {
     if (mTreeInfo == null) {
       LogUtils.w(TAG, "Parse tree has been built and is immutable");
       return;
     }
 
-    mTreeInfo.mFunctions.put(name, Pair.create(delegate, method));
+    mTreeInfo.mFunctions.put(function.getName(), function);
   }
 
   /**
@@ -730,40 +878,31 @@ public class ParseTree {
   }
 
   public void setConstantBool(String name, boolean value) {
-    if (mTreeInfo != null) {
-      mTreeInfo.mConstants.put(name, new ParseTreeBooleanConstantNode(value));
-    } else {
-      LogUtils.w(TAG, "Parse tree has been built and is immutable");
-    }
+    setConstant(name, new ParseTreeBooleanConstantNode(value));
   }
 
   public void setConstantInteger(String name, int value) {
-    if (mTreeInfo != null) {
-      mTreeInfo.mConstants.put(name, new ParseTreeIntegerConstantNode(value));
-    } else {
-      LogUtils.w(TAG, "Parse tree has been built and is immutable");
-    }
+    setConstant(name, new ParseTreeIntegerConstantNode(value));
   }
 
   public void setConstantNumber(String name, double value) {
-    if (mTreeInfo != null) {
-      mTreeInfo.mConstants.put(name, new ParseTreeNumberConstantNode(value));
-    } else {
-      LogUtils.w(TAG, "Parse tree has been built and is immutable");
-    }
+    setConstant(name, new ParseTreeNumberConstantNode(value));
   }
 
   public void setConstantEnum(String name, int enumType, int value) {
-    if (mTreeInfo != null) {
-      mTreeInfo.mConstants.put(name, new ParseTreeIntegerConstantNode(value, enumType));
-    } else {
-      LogUtils.w(TAG, "Parse tree has been built and is immutable");
-    }
+    setConstant(name, new ParseTreeIntegerConstantNode(value, enumType));
   }
 
   public void setConstantString(String name, CharSequence value) {
-    if (mTreeInfo != null) {
-      mTreeInfo.mConstants.put(name, new ParseTreeStringConstantNode(value));
+    setConstant(name, new ParseTreeStringConstantNode(value));
+  }
+
+  private void setConstant(String name, ParseTreeNode value) {
+    ParseTreeConstantNode constant = mConstants.get(name);
+    if (constant != null) {
+      constant.setValue(value);
+    } else if (mTreeInfo != null) {
+      mConstants.put(name, new ParseTreeConstantNode(name, value));
     } else {
       LogUtils.w(TAG, "Parse tree has been built and is immutable");
     }
@@ -783,7 +922,22 @@ public class ParseTree {
 
     TreeInfo treeInfo = mTreeInfo;
     mTreeInfo = null;
+
+    int[] eventIds = new int[treeInfo.mEventNames.size()];
+    int eventCount = 0;
     for (int eventId : treeInfo.mEventNames.keySet()) {
+      eventIds[eventCount++] = eventId;
+    }
+    Arrays.sort(eventIds);
+    int outputCount = 0;
+    for (int outputId : treeInfo.mOutputNames.keySet()) {
+      outputCount = Math.max(outputCount, outputId + 1);
+    }
+    EventOutput[] eventOutputs = new EventOutput[eventIds.length * outputCount];
+    long[] outputMasks = new long[eventIds.length];
+
+    for (int eventIndex = 0; eventIndex < eventIds.length; eventIndex++) {
+      int eventId = eventIds[eventIndex];
       for (String outputName : treeInfo.mOutputs.keySet()) {
         VariableInfo outputInfo = treeInfo.mOutputs.get(outputName);
         String eventName = treeInfo.mEventNames.get(eventId);
@@ -795,13 +949,15 @@ public class ParseTree {
             case ParseTree.VARIABLE_NUMBER:
             case ParseTree.VARIABLE_ENUM:
             case ParseTree.VARIABLE_STRING:
-              mEvents.put(
-                  Pair.create(eventId, outputInfo.id),
-                  new ParseTreeCommentNode(
-                      createParseTreeFromObject(
-                          treeInfo, eventDefinition.opt(outputName), outputInfo),
-                      EVENT_FORMAT,
-                      new Object[] {outputName, eventName}));
+              eventOutputs[eventIndex * outputCount + outputInfo.id] =
+                  new EventOutput(
+                      new ParseTreeCommentNode(
+                          createParseTreeFromObject(
+                              treeInfo, eventDefinition.opt(outputName), outputInfo),
+                          EVENT_FORMAT,
+                          new Object[] {outputName, eventName}),
+                      getResultType(outputInfo.variableType));
+              outputMasks[eventIndex] |= 1L << outputInfo.id;
               break;
             case ParseTree.VARIABLE_REFERENCE:
             case ParseTree.VARIABLE_ARRAY:
@@ -814,6 +970,11 @@ public class ParseTree {
       }
     }
 
+    mEventIds = eventIds;
+    mOutputCount = outputCount;
+    mEventOutputs = eventOutputs;
+    mOutputMasks = outputMasks;
+
     while (!treeInfo.mDeferredForEachChildNodes.isEmpty()) {
       Pair<ParseTreeForEachChildNode, JSONObject> current =
           treeInfo.mDeferredForEachChildNodes.remove(0);
@@ -824,6 +985,69 @@ public class ParseTree {
               current.second.opt("evaluate"),
               new VariableInfo("function...", VARIABLE_STRING)));
     }
+
+    // Now that every node is complete, lower each event output into a flat program. Named nodes
+    // are shared by many outputs, so they're compiled once as sub-programs.
+    Set<ParseTreeNode> sharedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+    sharedNodes.addAll(treeInfo.mNamedNodes.values());
+    ParseTreeCompiler compiler = new ParseTreeCompiler(sharedNodes);
+    for (EventOutput output : mEventOutputs) {
+      if (output != null) {
+        output.program = compiler.compile(output.node, output.resultType);
+      }
+    }
+  }
+
+  /**
+   * Returns a mask of the outputs defined for an event, with the bit {@code 1L << outputId} set for
+   * each output the event defines. Outputs that aren't defined evaluate to their default value, so
+   * callers can use this to skip evaluating groups of outputs.
+   *
+   * @param eventId ID of the event.
+   * @return The mask of outputs defined for the event, or 0 if the event is undefined.
+   */
+  public long getOutputMask(int eventId) {
+    int eventIndex = Arrays.binarySearch(mEventIds, eventId);
+    return (eventIndex < 0) ? 0 : mOutputMasks[eventIndex];
+  }
+
+  /** Returns the IDs of the events that the tree was built with, in ascending order. */
+  public int[] getEventIds() {
+    return mEventIds.clone();
+  }
+
+  /** Returns the parse tree for an (event, output) pair, or null if the event doesn't define it. */
+  private @Nullable EventOutput getEventOutput(int eventId, int outputId) {
+    if (outputId < 0 || outputId >= mOutputCount) {
+      return null;
+    }
+    int eventIndex = Arrays.binarySearch(mEventIds, eventId);
+    return (eventIndex < 0) ? null : mEventOutputs[eventIndex * mOutputCount + outputId];
+  }
+
+  /**
+   * Sets whether events are evaluated by the programs compiled in {@link #build()}, or by walking
+   * the parse tree. Both produce the same output; compiled evaluation is enabled by default.
+   */
+  public void setCompiledEvaluationEnabled(boolean enabled) {
+    mCompiledEvaluationEnabled = enabled;
+  }
+
+  /** Returns the program to evaluate {@code output} as {@code resultType}, if it can be used. */
+  private @Nullable ParseTreeProgram getProgram(
+      EventOutput output, @VariableType int resultType) {
+    if (!mCompiledEvaluationEnabled
+        || output.resultType != resultType
+        || LogUtils.shouldLog(Log.VERBOSE)) {
+      return null;
+    }
+    return output.program;
+  }
+
+  /** Returns the type that an output of {@code outputType} is resolved to by parseEventTo*(). */
+  private static @VariableType int getResultType(@VariableType int outputType) {
+    // Enum outputs are resolved as integers.
+    return (outputType == VARIABLE_ENUM) ? VARIABLE_INTEGER : outputType;
   }
 
   /**
@@ -837,11 +1061,8 @@ public class ParseTree {
    */
   public boolean parseEventToBool(
       int eventId, int outputId, boolean defaultValue, VariableDelegate delegate) {
-    ParseTreeNode eventNode = mEvents.get(Pair.create(eventId, outputId));
-    if (eventNode != null) {
-      return eventNode.resolveToBoolean(delegate, "");
-    }
-    return defaultValue;
+    EventOutput output = getEventOutput(eventId, outputId);
+    return (output == null) ? defaultValue : evaluateBoolean(output, delegate);
   }
 
   /**
@@ -855,11 +1076,8 @@ public class ParseTree {
    */
   public int parseEventToInteger(
       int eventId, int outputId, int defaultValue, VariableDelegate delegate) {
-    ParseTreeNode eventNode = mEvents.get(Pair.create(eventId, outputId));
-    if (eventNode != null) {
-      return eventNode.resolveToInteger(delegate, "");
-    }
-    return defaultValue;
+    EventOutput output = getEventOutput(eventId, outputId);
+    return (output == null) ? defaultValue : evaluateInteger(output, delegate);
   }
 
   /**
@@ -873,11 +1091,8 @@ public class ParseTree {
    */
   public double parseEventToNumber(
       int eventId, int outputId, double defaultValue, VariableDelegate delegate) {
-    ParseTreeNode eventNode = mEvents.get(Pair.create(eventId, outputId));
-    if (eventNode != null) {
-      return eventNode.resolveToNumber(delegate, "");
-    }
-    return defaultValue;
+    EventOutput output = getEventOutput(eventId, outputId);
+    return (output == null) ? defaultValue : evaluateNumber(output, delegate);
   }
 
   /**
@@ -890,11 +1105,8 @@ public class ParseTree {
    */
   public @Nullable CharSequence parseEventToString(
       int eventId, int outputId, VariableDelegate delegate) {
-    ParseTreeNode eventNode = mEvents.get(Pair.create(eventId, outputId));
-    if (eventNode != null) {
-      return eventNode.resolveToString(delegate, "");
-    }
-    return null;
+    EventOutput output = getEventOutput(eventId, outputId);
+    return (output == null) ? null : evaluateString(output, delegate);
   }
 
   /**
@@ -909,11 +1121,135 @@ public class ParseTree {
    */
   public int parseEventToEnum(
       int eventId, int outputId, int defaultValue, VariableDelegate delegate) {
-    ParseTreeNode eventNode = mEvents.get(Pair.create(eventId, outputId));
-    if (eventNode != null) {
-      return eventNode.resolveToInteger(delegate, "");
+    EventOutput output = getEventOutput(eventId, outputId);
+    return (output == null) ? defaultValue : evaluateInteger(output, delegate);
+  }
+
+  /**
+   * Evaluates several outputs of an event in one pass, storing the results in {@code values}.
+   * Outputs that the event doesn't define are skipped, and read from {@code values} as their
+   * default. Results of earlier calls are kept, so outputs can be evaluated in several passes, for
+   * example when some outputs are only needed if others are set.
+   *
+   * @param eventId ID of the event to evaluate.
+   * @param outputMask The outputs to evaluate, with the bit {@code 1L << outputId} set for each.
+   * @param delegate The delegate to retrieve variables from
+   * @param values Receives the results.
+   */
+  public void parseEvent(
+      int eventId, long outputMask, VariableDelegate delegate, OutputValues values) {
+    int eventIndex = Arrays.binarySearch(mEventIds, eventId);
+    if (eventIndex < 0) {
+      return;
+    }
+    values.ensureCapacity(mOutputCount);
+    long mask = outputMask & mOutputMasks[eventIndex];
+    int row = eventIndex * mOutputCount;
+    while (mask != 0) {
+      int outputId = Long.numberOfTrailingZeros(mask);
+      mask &= mask - 1;
+      EventOutput output = mEventOutputs[row + outputId];
+      switch (output.resultType) {
+        case VARIABLE_BOOL:
+          values.mIntegers[outputId] = evaluateBoolean(output, delegate) ? 1 : 0;
+          break;
+        case VARIABLE_INTEGER:
+          values.mIntegers[outputId] = evaluateInteger(output, delegate);
+          break;
+        case VARIABLE_NUMBER:
+          values.mNumbers[outputId] = evaluateNumber(output, delegate);
+          break;
+        case VARIABLE_STRING:
+        default:
+          values.mStrings[outputId] = evaluateString(output, delegate);
+          break;
+      }
+      values.mMask |= 1L << outputId;
+    }
+  }
+
+  /**
+   * The results of {@link #parseEvent}. Each output must be read with the getter for the type it
+   * was added with; enum outputs are read with {@link #getEnum}. An instance can be cleared and
+   * reused for each event.
+   */
+  public static final class OutputValues {
+    private long mMask = 0;
+    // Boolean, integer and enum results. Booleans are stored as 0 or 1.
+    private int[] mIntegers = new int[0];
+    private double[] mNumbers = new double[0];
+    private @Nullable CharSequence[] mStrings = new CharSequence[0];
+
+    /** Forgets all results. */
+    public void clear() {
+      mMask = 0;
+      Arrays.fill(mStrings, null);
+    }
+
+    /** Returns whether {@code outputId} was evaluated. */
+    public boolean has(int outputId) {
+      return outputId >= 0 && outputId <= MAX_OUTPUT_ID && (mMask & (1L << outputId)) != 0;
+    }
+
+    public boolean getBool(int outputId, boolean defaultValue) {
+      return has(outputId) ? (mIntegers[outputId] != 0) : defaultValue;
+    }
+
+    public int getInteger(int outputId, int defaultValue) {
+      return has(outputId) ? mIntegers[outputId] : defaultValue;
+    }
+
+    public double getNumber(int outputId, double defaultValue) {
+      return has(outputId) ? mNumbers[outputId] : defaultValue;
+    }
+
+    public @Nullable CharSequence getString(int outputId) {
+      return has(outputId) ? mStrings[outputId] : null;
     }
-    return defaultValue;
+
+    public int getEnum(int outputId, int defaultValue) {
+      return getInteger(outputId, defaultValue);
+    }
+
+    private void ensureCapacity(int outputCount) {
+      if (mIntegers.length < outputCount) {
+        mIntegers = Arrays.copyOf(mIntegers, outputCount);
+        mNumbers = Arrays.copyOf(mNumbers, outputCount);
+        mStrings = Arrays.copyOf(mStrings, outputCount);
+      }
+    }
+  }
+
+  private boolean evaluateBoolean(EventOutput output, VariableDelegate delegate) {
+    ParseTreeProgram program = getProgram(output, VARIABLE_BOOL);
+    if (program != null) {
+      return ParseTreeInterpreter.get().evaluateBoolean(program, delegate);
+    }
+    return output.node.resolveToBoolean(delegate, "");
+  }
+
+  private int evaluateInteger(EventOutput output, VariableDelegate delegate) {
+    ParseTreeProgram program = getProgram(output, VARIABLE_INTEGER);
+    if (program != null) {
+      return ParseTreeInterpreter.get().evaluateInteger(program, delegate);
+    }
+    return output.node.resolveToInteger(delegate, "");
+  }
+
+  private double evaluateNumber(EventOutput output, VariableDelegate delegate) {
+    ParseTreeProgram program = getProgram(output, VARIABLE_NUMBER);
+    if (program != null) {
+      return ParseTreeInterpreter.get().evaluateNumber(program, delegate);
+    }
+    return output.node.resolveToNumber(delegate, "");
+  }
+
+  private @Nullable CharSequence evaluateString(EventOutput output, VariableDelegate delegate) {
+    ParseTreeProgram program = getProgram(output, VARIABLE_STRING);
+    if (program != null) {
+      return ParseTreeInterpreter.get().evaluateString(program, delegate);
+    }
+    return output.node.resolveToString(delegate, "");
   }
 
   private void addVariable(String varName, VariableInfo varInfo) {
@@ -948,6 +1284,11 @@ public class ParseTree {
             "Can't add output: " + outputName + ", ID " + type.id + " already in use");
       }
 
+      if (type.id < 0 || type.id > MAX_OUTPUT_ID) {
+        throw new IllegalStateException(
+            "Can't add output: " + outputName + ", ID " + type.id + " is out of range");
+      }
+
       treeInfo.mOutputNames.put(type.id, outputName);
       treeInfo.mOutputs.put(outputName, type);
     } else {
@@ -1590,12 +1931,12 @@ public class ParseTree {
       }
       result = new ParseTreeLengthNode(params.get(0));
     } else {
-      Pair<Object, Method> function = treeInfo.mFunctions.get(name);
+      ParseTreeFunction function = treeInfo.mFunctions.get(name);
       if (function == null) {
         throw new IllegalStateException("Unknown function: " + name);
       }
       List<ParseTreeNode> params = createParamListFromString(treeInfo, value, paramOffset);
-      result = new ParseTreeFunctionNode(function.first, function.second, params);
+      result = new ParseTreeFunctionNode(function, params);
     }
 
     return new ParseTreeCommentNode(
@@ -49,4 +49,23 @@ class ParseTreeArrayNode extends ParseTreeNode {
     }
     return result;
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    if (type != ParseTree.VARIABLE_ARRAY) {
+      super.compile(compiler, type);
+      return;
+    }
+
+    compiler.emit(ParseTreeProgram.OP_NEW_LIST);
+    for (ParseTreeNode child : mChildren) {
+      if (child.canCoerceTo(ParseTree.VARIABLE_STRING)) {
+        compiler.compileNode(child, ParseTree.VARIABLE_STRING);
+        compiler.emit(ParseTreeProgram.OP_LIST_ADD);
+      } else if (child.canCoerceTo(ParseTree.VARIABLE_ARRAY)) {
+        compiler.compileNode(child, ParseTree.VARIABLE_ARRAY);
+        compiler.emit(ParseTreeProgram.OP_LIST_ADD_ALL);
+      }
+    }
+  }
 }
@@ -32,4 +32,13 @@ class ParseTreeBooleanConstantNode extends ParseTreeNode {
   public boolean resolveToBoolean(ParseTree.VariableDelegate delegate, String logIndent) {
     return mValue;
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    if (type == ParseTree.VARIABLE_BOOL) {
+      compiler.emit(ParseTreeProgram.OP_PUSH_INT, mValue ? 1 : 0);
+    } else {
+      super.compile(compiler, type);
+    }
+  }
 }
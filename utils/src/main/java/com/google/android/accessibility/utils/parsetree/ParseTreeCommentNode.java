@@ -135,4 +135,14 @@ class ParseTreeCommentNode extends ParseTreeNode {
   private String updateIndent(String logIndent) {
     return mIndent ? logIndent += "  " : logIndent;
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    // Comments are only logged by the node-walking evaluator.
+    if (mChild != null) {
+      compiler.compileNode(mChild, type);
+    } else {
+      compiler.emitPushDefault(type);
+    }
+  }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.utils.parsetree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lowers trees of {@link ParseTreeNode}s into {@link ParseTreeProgram}s.
+ *
+ * <p>Each node emits the instructions that produce the same value its resolveTo*() method would
+ * return for the requested type. Nodes that don't know how to compile a request fall back to an
+ * instruction that evaluates the node directly, so the compiled output is always identical to the
+ * node-walking output. Shared (named) nodes are compiled once per result type and called as
+ * sub-programs, so the code size stays proportional to the size of the JSON definition.
+ */
+final class ParseTreeCompiler {
+
+  private static final int INITIAL_CODE_SIZE = 32;
+
+  /** Holds the state of the program currently being emitted. */
+  private static final class Builder {
+    private final ParseTreeProgram program;
+    private int[] code = new int[INITIAL_CODE_SIZE];
+    private int length = 0;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndices = new IdentityHashMap<>();
+    private final List<Double> numbers = new ArrayList<>();
+
+    Builder(ParseTreeProgram program) {
+      this.program = program;
+    }
+
+    ParseTreeProgram build() {
+      double[] numberArray = new double[numbers.size()];
+      for (int i = 0; i < numberArray.length; i++) {
+        numberArray[i] = numbers.get(i);
+      }
+      program.code = Arrays.copyOf(code, length);
+      program.constants = constants.toArray();
+      program.numbers = numberArray;
+      return program;
+    }
+  }
+
+  private final Set<ParseTreeNode> mSharedNodes;
+  private final Map<ParseTreeNode, ParseTreeProgram[]> mSharedPrograms = new IdentityHashMap<>();
+  private Builder mBuilder;
+
+  /**
+   * @param sharedNodes Nodes that are referenced from multiple places in the tree, such as named
+   *     nodes. These are compiled into sub-programs instead of being inlined.
+   */
+  ParseTreeCompiler(Set<ParseTreeNode> sharedNodes) {
+    mSharedNodes = sharedNodes;
+  }
+
+  /** Compiles {@code node} into a program producing a value of {@code resultType}. */
+  ParseTreeProgram compile(ParseTreeNode node, @ParseTree.VariableType int resultType) {
+    if (mSharedNodes.contains(node)) {
+      return getSharedProgram(node, resultType);
+    }
+
+    return emitProgram(node, new ParseTreeProgram(resultType));
+  }
+
+  /** Emits the instructions to evaluate {@code node} as {@code type} into the current program. */
+  void compileNode(ParseTreeNode node, @ParseTree.VariableType int type) {
+    if (mSharedNodes.contains(node)) {
+      emit(ParseTreeProgram.OP_CALL_PROGRAM, addConstant(getSharedProgram(node, type)));
+    } else {
+      node.compile(this, type);
+    }
+  }
+
+  /** Adds a separately compiled program for {@code node} to the current constant pool. */
+  int addProgram(ParseTreeNode node, @ParseTree.VariableType int type) {
+    return addConstant(compile(node, type));
+  }
+
+  /** Emits an instruction that evaluates {@code node} with the node-walking evaluator. */
+  void emitEvaluateNode(ParseTreeNode node, @ParseTree.VariableType int type) {
+    emit(ParseTreeProgram.OP_EVALUATE_NODE, addConstant(node), type);
+  }
+
+  /** Emits an instruction that pushes the value returned by a node without a child. */
+  void emitPushDefault(@ParseTree.VariableType int type) {
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+      case ParseTree.VARIABLE_INTEGER:
+      case ParseTree.VARIABLE_ENUM:
+        emit(ParseTreeProgram.OP_PUSH_INT, 0);
+        break;
+      case ParseTree.VARIABLE_NUMBER:
+        emit(ParseTreeProgram.OP_PUSH_NUMBER, addNumber(0));
+        break;
+      case ParseTree.VARIABLE_STRING:
+        emit(ParseTreeProgram.OP_PUSH_CONSTANT, addConstant(""));
+        break;
+      case ParseTree.VARIABLE_ARRAY:
+      case ParseTree.VARIABLE_CHILD_ARRAY:
+        emit(ParseTreeProgram.OP_NEW_LIST);
+        break;
+      case ParseTree.VARIABLE_REFERENCE:
+      default:
+        emit(ParseTreeProgram.OP_PUSH_NULL);
+        break;
+    }
+  }
+
+  /**
+   * Emits a switch instruction over the int on top of the stack. The caller must fill in the
+   * targets of the returned table as it emits each case.
+   */
+  ParseTreeProgram.SwitchTable emitSwitch(int[] sortedKeys) {
+    ParseTreeProgram.SwitchTable table = new ParseTreeProgram.SwitchTable(sortedKeys);
+    emit(ParseTreeProgram.OP_SWITCH, addConstant(table));
+    return table;
+  }
+
+  /**
+   * Emits a jump instruction with an unresolved target.
+   *
+   * @return The offset of the target operand, to be passed to {@link #patchJump(int)}.
+   */
+  int emitJump(int opcode) {
+    emit(opcode, -1);
+    return mBuilder.length - 1;
+  }
+
+  /** Points the jump emitted at {@code operandOffset} to the next instruction. */
+  void patchJump(int operandOffset) {
+    mBuilder.code[operandOffset] = mBuilder.length;
+  }
+
+  /** Returns the offset of the next instruction. */
+  int position() {
+    return mBuilder.length;
+  }
+
+  int addConstant(Object value) {
+    Integer index = mBuilder.constantIndices.get(value);
+    if (index == null) {
+      index = mBuilder.constants.size();
+      mBuilder.constants.add(value);
+      mBuilder.constantIndices.put(value, index);
+    }
+    return index;
+  }
+
+  int addNumber(double value) {
+    int index = mBuilder.numbers.indexOf(value);
+    if (index < 0) {
+      index = mBuilder.numbers.size();
+      mBuilder.numbers.add(value);
+    }
+    return index;
+  }
+
+  void emit(int opcode) {
+    ensureCapacity(1);
+    mBuilder.code[mBuilder.length++] = opcode;
+  }
+
+  void emit(int opcode, int operand) {
+    ensureCapacity(2);
+    mBuilder.code[mBuilder.length++] = opcode;
+    mBuilder.code[mBuilder.length++] = operand;
+  }
+
+  void emit(int opcode, int operand1, int operand2) {
+    ensureCapacity(3);
+    mBuilder.code[mBuilder.length++] = opcode;
+    mBuilder.code[mBuilder.length++] = operand1;
+    mBuilder.code[mBuilder.length++] = operand2;
+  }
+
+  private ParseTreeProgram getSharedProgram(
+      ParseTreeNode node, @ParseTree.VariableType int type) {
+    ParseTreeProgram[] programs = mSharedPrograms.get(node);
+    if (programs == null) {
+      programs = new ParseTreeProgram[ParseTree.VARIABLE_CHILD_ARRAY + 1];
+      mSharedPrograms.put(node, programs);
+    }
+    if (programs[type] == null) {
+      // Register the program before emitting it, so that recursive references from inside the node
+      // (e.g. a for_each_child calling its parent's function) resolve to the same program.
+      programs[type] = new ParseTreeProgram(type);
+      emitProgram(node, programs[type]);
+    }
+    return programs[type];
+  }
+
+  private ParseTreeProgram emitProgram(ParseTreeNode node, ParseTreeProgram program) {
+    Builder previous = mBuilder;
+    mBuilder = new Builder(program);
+    node.compile(this, program.resultType);
+    mBuilder.build();
+    mBuilder = previous;
+    return program;
+  }
+
+  private void ensureCapacity(int count) {
+    if (mBuilder.length + count > mBuilder.code.length) {
+      mBuilder.code =
+          Arrays.copyOf(mBuilder.code, Math.max(mBuilder.code.length * 2, mBuilder.length + count));
+    }
+  }
+}
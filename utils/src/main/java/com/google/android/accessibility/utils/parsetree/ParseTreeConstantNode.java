@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.utils.parsetree;
+
+import androidx.annotation.Nullable;
+import java.util.List;
+
+/**
+ * A named constant. Every reference to the constant shares this node, and the value is looked up
+ * when the node is evaluated, so the constant can be changed after the tree is built without
+ * rebuilding it. The type of the value can't change.
+ */
+class ParseTreeConstantNode extends ParseTreeNode {
+
+  private final String mName;
+  private volatile ParseTreeNode mValue;
+
+  ParseTreeConstantNode(String name, ParseTreeNode value) {
+    mName = name;
+    mValue = value;
+  }
+
+  void setValue(ParseTreeNode value) {
+    ParseTreeNode current = mValue;
+    if (value.getType() != current.getType()
+        || (current.getType() == ParseTree.VARIABLE_ENUM
+            && value.getEnumType() != current.getEnumType())) {
+      throw new IllegalStateException("Can't change the type of constant: " + mName);
+    }
+    mValue = value;
+  }
+
+  @Override
+  public int getType() {
+    return mValue.getType();
+  }
+
+  @Override
+  public int getEnumType() {
+    return mValue.getEnumType();
+  }
+
+  @Override
+  public boolean canCoerceTo(@ParseTree.VariableType int type) {
+    return mValue.canCoerceTo(type);
+  }
+
+  @Override
+  public boolean resolveToBoolean(ParseTree.VariableDelegate delegate, String logIndent) {
+    return mValue.resolveToBoolean(delegate, logIndent);
+  }
+
+  @Override
+  public int resolveToInteger(ParseTree.VariableDelegate delegate, String logIndent) {
+    return mValue.resolveToInteger(delegate, logIndent);
+  }
+
+  @Override
+  public double resolveToNumber(ParseTree.VariableDelegate delegate, String logIndent) {
+    return mValue.resolveToNumber(delegate, logIndent);
+  }
+
+  @Override
+  public CharSequence resolveToString(ParseTree.VariableDelegate delegate, String logIndent) {
+    return mValue.resolveToString(delegate, logIndent);
+  }
+
+  @Override
+  public @Nullable ParseTree.VariableDelegate resolveToReference(
+      ParseTree.VariableDelegate delegate, String logIndent) {
+    return mValue.resolveToReference(delegate, logIndent);
+  }
+
+  @Override
+  public List<CharSequence> resolveToArray(ParseTree.VariableDelegate delegate, String logIndent) {
+    return mValue.resolveToArray(delegate, logIndent);
+  }
+
+  @Override
+  public List<ParseTree.VariableDelegate> resolveToChildArray(
+      ParseTree.VariableDelegate delegate, String logIndent) {
+    return mValue.resolveToChildArray(delegate, logIndent);
+  }
+
+  // The value isn't known when the program is compiled, so the default compile(), which evaluates
+  // this node when the program runs, is the right one.
+}
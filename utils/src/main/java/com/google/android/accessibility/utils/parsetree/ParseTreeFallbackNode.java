@@ -61,4 +61,29 @@ class ParseTreeFallbackNode extends ParseTreeNode {
     }
     return "";
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+        compile(compiler, ParseTree.VARIABLE_STRING);
+        compiler.emit(ParseTreeProgram.OP_STRING_TO_BOOL);
+        break;
+      case ParseTree.VARIABLE_STRING:
+        {
+          int[] jumpsToEnd = new int[mChildren.size()];
+          for (int i = 0; i < jumpsToEnd.length; i++) {
+            compiler.compileNode(mChildren.get(i), ParseTree.VARIABLE_STRING);
+            jumpsToEnd[i] = compiler.emitJump(ParseTreeProgram.OP_JUMP_IF_NOT_EMPTY);
+          }
+          compiler.emit(ParseTreeProgram.OP_PUSH_CONSTANT, compiler.addConstant(""));
+          for (int jump : jumpsToEnd) {
+            compiler.patchJump(jump);
+          }
+          break;
+        }
+      default:
+        super.compile(compiler, type);
+    }
+  }
 }
@@ -56,9 +56,41 @@ class ParseTreeForEachChildNode extends ParseTreeNode {
 
     List<ParseTree.VariableDelegate> children = mChild.resolveToChildArray(delegate, logIndent);
     for (ParseTree.VariableDelegate child : children) {
-      result.add(mFunction.resolveToString(child, logIndent));
+      if (child instanceof ParseTree.CachingVariableDelegate) {
+        result.add(resolveCachedChild((ParseTree.CachingVariableDelegate) child, logIndent));
+      } else {
+        result.add(mFunction.resolveToString(child, logIndent));
+      }
       child.cleanup();
     }
     return result;
   }
+
+  private CharSequence resolveCachedChild(
+      ParseTree.CachingVariableDelegate child, String logIndent) {
+    CharSequence text = child.getCachedResult(mFunction);
+    if (text != null) {
+      return text;
+    }
+    child.onEvaluationStarted();
+    try {
+      text = mFunction.resolveToString(child, logIndent);
+    } finally {
+      child.onEvaluationFinished(mFunction, text);
+    }
+    return text;
+  }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    if (type != ParseTree.VARIABLE_ARRAY || mFunction == null) {
+      super.compile(compiler, type);
+      return;
+    }
+
+    compiler.compileNode(mChild, ParseTree.VARIABLE_CHILD_ARRAY);
+    compiler.emit(
+        ParseTreeProgram.OP_FOR_EACH_CHILD,
+        compiler.addProgram(mFunction, ParseTree.VARIABLE_STRING));
+  }
 }
@@ -137,4 +137,10 @@ class ParseTreeForReferenceNode extends ParseTreeNode {
       return new ArrayList<>();
     }
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    compiler.compileNode(mReference, ParseTree.VARIABLE_REFERENCE);
+    compiler.emit(ParseTreeProgram.OP_FOR_REFERENCE, compiler.addProgram(mFunction, type), type);
+  }
 }
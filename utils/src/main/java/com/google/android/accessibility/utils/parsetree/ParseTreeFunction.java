@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.utils.parsetree;
+
+import androidx.annotation.Nullable;
+
+/**
+ * A function registered with {@link ParseTree#addFunction}, bound to one of the typed function
+ * interfaces in {@link ParseTree}. Parameters are read from {@link Arguments} without boxing, and
+ * the result is returned through the apply*() method matching {@link #getReturnType()}.
+ */
+abstract class ParseTreeFunction {
+
+  /** Provides the evaluated parameters of a single function call, indexed by position. */
+  interface Arguments {
+    boolean getBoolean(int index);
+
+    int getInteger(int index);
+
+    double getNumber(int index);
+
+    @Nullable
+    CharSequence getString(int index);
+  }
+
+  private final String mName;
+  private final @ParseTree.VariableType int mReturnType;
+  private final @ParseTree.VariableType int[] mParamTypes;
+
+  ParseTreeFunction(
+      String name,
+      @ParseTree.VariableType int returnType,
+      @ParseTree.VariableType int... paramTypes) {
+    mName = name;
+    mReturnType = returnType;
+    mParamTypes = paramTypes;
+  }
+
+  String getName() {
+    return mName;
+  }
+
+  @ParseTree.VariableType
+  int getReturnType() {
+    return mReturnType;
+  }
+
+  @ParseTree.VariableType
+  int[] getParamTypes() {
+    return mParamTypes;
+  }
+
+  boolean applyBoolean(Arguments args) {
+    throw new IllegalStateException(mName + " does not return a Boolean");
+  }
+
+  int applyInteger(Arguments args) {
+    throw new IllegalStateException(mName + " does not return an Integer");
+  }
+
+  double applyNumber(Arguments args) {
+    throw new IllegalStateException(mName + " does not return a Number");
+  }
+
+  @Nullable
+  CharSequence applyString(Arguments args) {
+    throw new IllegalStateException(mName + " does not return a String");
+  }
+
+  static ParseTreeFunction create(String name, final ParseTree.StringFunction function) {
+    return new ParseTreeFunction(name, ParseTree.VARIABLE_STRING, ParseTree.VARIABLE_STRING) {
+      @Override
+      @Nullable
+      CharSequence applyString(Arguments args) {
+        return function.apply(args.getString(0));
+      }
+    };
+  }
+
+  static ParseTreeFunction create(String name, final ParseTree.StringBiFunction function) {
+    return new ParseTreeFunction(
+        name, ParseTree.VARIABLE_STRING, ParseTree.VARIABLE_STRING, ParseTree.VARIABLE_STRING) {
+      @Override
+      @Nullable
+      CharSequence applyString(Arguments args) {
+        return function.apply(args.getString(0), args.getString(1));
+      }
+    };
+  }
+
+  static ParseTreeFunction create(String name, final ParseTree.StringTriFunction function) {
+    return new ParseTreeFunction(
+        name,
+        ParseTree.VARIABLE_STRING,
+        ParseTree.VARIABLE_STRING,
+        ParseTree.VARIABLE_STRING,
+        ParseTree.VARIABLE_STRING) {
+      @Override
+      @Nullable
+      CharSequence applyString(Arguments args) {
+        return function.apply(args.getString(0), args.getString(1), args.getString(2));
+      }
+    };
+  }
+
+  static ParseTreeFunction create(String name, final ParseTree.StringBiPredicate function) {
+    return new ParseTreeFunction(
+        name, ParseTree.VARIABLE_BOOL, ParseTree.VARIABLE_STRING, ParseTree.VARIABLE_STRING) {
+      @Override
+      boolean applyBoolean(Arguments args) {
+        return function.test(args.getString(0), args.getString(1));
+      }
+    };
+  }
+
+  static ParseTreeFunction create(String name, final ParseTree.IntegerToStringFunction function) {
+    return new ParseTreeFunction(name, ParseTree.VARIABLE_STRING, ParseTree.VARIABLE_INTEGER) {
+      @Override
+      @Nullable
+      CharSequence applyString(Arguments args) {
+        return function.apply(args.getInteger(0));
+      }
+    };
+  }
+
+  static ParseTreeFunction create(String name, final ParseTree.NumberToIntegerFunction function) {
+    return new ParseTreeFunction(name, ParseTree.VARIABLE_INTEGER, ParseTree.VARIABLE_NUMBER) {
+      @Override
+      int applyInteger(Arguments args) {
+        return function.apply(args.getNumber(0));
+      }
+    };
+  }
+}
@@ -16,8 +16,8 @@
 
 package com.google.android.accessibility.utils.parsetree;
 
+import androidx.annotation.Nullable;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,31 +27,45 @@ class ParseTreeFunctionNode extends ParseTreeNode {
   private static final String TAG = "ParseTreeFunctionNode";
 
   private final @ParseTree.VariableType int mType;
-  private final Object mDelegate;
-  private final Method mFunction;
+  private final ParseTreeFunction mFunction;
   private final List<ParseTreeNode> mParams = new ArrayList<>();
-  private final int[] mParamTypes;
+  private final @ParseTree.VariableType int[] mParamTypes;
 
-  ParseTreeFunctionNode(Object delegate, Method function, List<ParseTreeNode> params) {
-    Class<?>[] paramTypes = function.getParameterTypes();
-    if (params.size() != paramTypes.length) {
-      throw new IllegalStateException("Incorrect number of params for: " + function);
+  // Compiled programs pass parameters on the interpreter's typed stacks. For each parameter, this
+  // is its position among the parameters that share the same stack.
+  private final int[] mParamSlots;
+  private int mIntParamCount = 0;
+  private int mNumberParamCount = 0;
+  private int mObjectParamCount = 0;
+
+  ParseTreeFunctionNode(ParseTreeFunction function, List<ParseTreeNode> params) {
+    mParamTypes = function.getParamTypes();
+    if (params.size() != mParamTypes.length) {
+      throw new IllegalStateException("Incorrect number of params for: " + function.getName());
     }
 
-    // Store the parameter types.
-    mParamTypes = new int[paramTypes.length];
-    for (int i = 0; i < paramTypes.length; i++) {
-      mParamTypes[i] = getVariableType(paramTypes[i]);
+    mParamSlots = new int[mParamTypes.length];
+    for (int i = 0; i < mParamTypes.length; i++) {
       if (!params.get(i).canCoerceTo(mParamTypes[i])) {
-        throw new IllegalStateException("Cannot coerce parameter " + i + " to " + paramTypes[i]);
+        throw new IllegalStateException(
+            "Cannot coerce parameter " + i + " of " + function.getName());
+      }
+      switch (mParamTypes[i]) {
+        case ParseTree.VARIABLE_BOOL:
+        case ParseTree.VARIABLE_INTEGER:
+          mParamSlots[i] = mIntParamCount++;
+          break;
+        case ParseTree.VARIABLE_NUMBER:
+          mParamSlots[i] = mNumberParamCount++;
+          break;
+        default:
+          mParamSlots[i] = mObjectParamCount++;
+          break;
       }
     }
 
-    mType = getVariableType(function.getReturnType());
-    mDelegate = delegate;
+    mType = function.getReturnType();
     mFunction = function;
-    // Make sure we can access the function, even if the visibility isn't public.
-    mFunction.setAccessible(true);
     mParams.addAll(params);
   }
 
@@ -87,16 +101,7 @@ class ParseTreeFunctionNode extends ParseTreeNode {
       LogUtils.e(TAG, "Cannot coerce to Boolean");
       return false;
     }
-    try {
-      Boolean result = (Boolean) mFunction.invoke(mDelegate, getParams(delegate, logIndent));
-      if (result == null) {
-        return false;
-      }
-      return result;
-    } catch (Exception e) {
-      LogUtils.e(TAG, e.toString());
-      return false;
-    }
+    return getBooleanResult(getParams(delegate, logIndent));
   }
 
   @Override
@@ -105,98 +110,135 @@ class ParseTreeFunctionNode extends ParseTreeNode {
       LogUtils.e(TAG, "Cannot coerce to Integer");
       return 0;
     }
-    try {
-      Integer result = (Integer) mFunction.invoke(mDelegate, getParams(delegate, logIndent));
-      if (result == null) {
-        return 0;
-      }
-      return result;
-    } catch (Exception e) {
-      LogUtils.e(TAG, e.toString());
-      return 0;
-    }
+    return getIntegerResult(getParams(delegate, logIndent));
   }
 
   @Override
   public double resolveToNumber(ParseTree.VariableDelegate delegate, String logIndent) {
-    Object result;
+    return getNumberResult(getParams(delegate, logIndent));
+  }
+
+  @Override
+  public CharSequence resolveToString(ParseTree.VariableDelegate delegate, String logIndent) {
+    return getStringResult(getParams(delegate, logIndent));
+  }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    boolean supported;
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+      case ParseTree.VARIABLE_INTEGER:
+        supported = (type == mType);
+        break;
+      case ParseTree.VARIABLE_NUMBER:
+      case ParseTree.VARIABLE_STRING:
+        supported = true;
+        break;
+      default:
+        supported = false;
+    }
+    if (!supported) {
+      super.compile(compiler, type);
+      return;
+    }
+
+    // Parameters are passed to the function on the typed stacks, in order.
+    for (int i = 0; i < mParamTypes.length; i++) {
+      compiler.compileNode(mParams.get(i), mParamTypes[i]);
+    }
+    compiler.emit(ParseTreeProgram.OP_CALL_FUNCTION, compiler.addConstant(this), type);
+  }
+
+  int getIntParamCount() {
+    return mIntParamCount;
+  }
+
+  int getNumberParamCount() {
+    return mNumberParamCount;
+  }
+
+  int getObjectParamCount() {
+    return mObjectParamCount;
+  }
+
+  /** Returns the position of parameter {@code index} among the parameters on the same stack. */
+  int getParamSlot(int index) {
+    return mParamSlots[index];
+  }
+
+  boolean getBooleanResult(ParseTreeFunction.Arguments args) {
     try {
-      result = mFunction.invoke(mDelegate, getParams(delegate, logIndent));
-      if (result == null) {
-        return 0;
-      }
-    } catch (Exception e) {
+      return mFunction.applyBoolean(args);
+    } catch (RuntimeException e) {
       LogUtils.e(TAG, e.toString());
-      return 0;
+      return false;
     }
-    if (mType == ParseTree.VARIABLE_INTEGER) {
-      return (Integer) result;
-    } else if (mType == ParseTree.VARIABLE_NUMBER) {
-      return (Double) result;
-    } else {
-      LogUtils.e(TAG, "Cannot coerce to a Number");
+  }
+
+  int getIntegerResult(ParseTreeFunction.Arguments args) {
+    try {
+      return mFunction.applyInteger(args);
+    } catch (RuntimeException e) {
+      LogUtils.e(TAG, e.toString());
       return 0;
     }
   }
 
-  @Override
-  public CharSequence resolveToString(ParseTree.VariableDelegate delegate, String logIndent) {
-    Object result;
+  double getNumberResult(ParseTreeFunction.Arguments args) {
     try {
-      result = mFunction.invoke(mDelegate, getParams(delegate, logIndent));
-      if (result == null) {
-        return "";
+      if (mType == ParseTree.VARIABLE_INTEGER) {
+        return mFunction.applyInteger(args);
+      } else if (mType == ParseTree.VARIABLE_NUMBER) {
+        return mFunction.applyNumber(args);
       }
-    } catch (Exception e) {
+    } catch (RuntimeException e) {
       LogUtils.e(TAG, e.toString());
-      return "";
-    }
-    if (mType == ParseTree.VARIABLE_STRING) {
-      return (CharSequence) result;
-    } else {
-      return result.toString();
+      return 0;
     }
+    LogUtils.e(TAG, "Cannot coerce to a Number");
+    return 0;
   }
 
-  @SuppressWarnings("unchecked")
-  @Override
-  public List<CharSequence> resolveToArray(ParseTree.VariableDelegate delegate, String logIndent) {
-    if (mType == ParseTree.VARIABLE_ARRAY) {
-      try {
-        List<CharSequence> result =
-            (List<CharSequence>) mFunction.invoke(mDelegate, getParams(delegate, logIndent));
-        if (result != null) {
-          return result;
-        }
-      } catch (Exception e) {
-        LogUtils.e(TAG, e.toString());
+  CharSequence getStringResult(ParseTreeFunction.Arguments args) {
+    try {
+      switch (mType) {
+        case ParseTree.VARIABLE_BOOL:
+          return Boolean.toString(mFunction.applyBoolean(args));
+        case ParseTree.VARIABLE_INTEGER:
+          return Integer.toString(mFunction.applyInteger(args));
+        case ParseTree.VARIABLE_NUMBER:
+          return Double.toString(mFunction.applyNumber(args));
+        case ParseTree.VARIABLE_STRING:
+        default:
+          CharSequence result = mFunction.applyString(args);
+          return (result == null) ? "" : result;
       }
-    } else {
-      LogUtils.e(TAG, "Cannot coerce to an Array");
+    } catch (RuntimeException e) {
+      LogUtils.e(TAG, e.toString());
+      return "";
     }
-    return new ArrayList<>();
   }
 
-  private Object[] getParams(ParseTree.VariableDelegate delegate, String logIndent) {
-    Object[] result = new Object[mParamTypes.length];
+  private ParseTreeFunction.Arguments getParams(
+      ParseTree.VariableDelegate delegate, String logIndent) {
+    ResolvedArguments result = new ResolvedArguments(mParamTypes.length);
     for (int i = 0; i < mParamTypes.length; i++) {
       switch (mParamTypes[i]) {
         case ParseTree.VARIABLE_BOOL:
-          result[i] = mParams.get(i).resolveToBoolean(delegate, logIndent);
+          result.mInts[i] = mParams.get(i).resolveToBoolean(delegate, logIndent) ? 1 : 0;
           break;
         case ParseTree.VARIABLE_INTEGER:
-          result[i] = mParams.get(i).resolveToInteger(delegate, logIndent);
+          result.mInts[i] = mParams.get(i).resolveToInteger(delegate, logIndent);
           break;
         case ParseTree.VARIABLE_NUMBER:
-          result[i] = mParams.get(i).resolveToNumber(delegate, logIndent);
+          result.mNumbers[i] = mParams.get(i).resolveToNumber(delegate, logIndent);
           break;
         case ParseTree.VARIABLE_STRING:
-          result[i] = mParams.get(i).resolveToString(delegate, logIndent);
-          break;
-        case ParseTree.VARIABLE_ARRAY:
-          result[i] = mParams.get(i).resolveToArray(delegate, logIndent);
+          result.mStrings[i] = mParams.get(i).resolveToString(delegate, logIndent);
           break;
         case ParseTree.VARIABLE_ENUM:
+        case ParseTree.VARIABLE_ARRAY:
         case ParseTree.VARIABLE_CHILD_ARRAY:
         default:
           // This should never happen.
@@ -207,19 +249,36 @@ class ParseTreeFunctionNode extends ParseTreeNode {
     return result;
   }
 
-  @ParseTree.VariableType
-  private static int getVariableType(Class<?> clazz) {
-    if (clazz == boolean.class) {
-      return ParseTree.VARIABLE_BOOL;
-    } else if (clazz == int.class) {
-      return ParseTree.VARIABLE_INTEGER;
-    } else if (clazz == double.class) {
-      return ParseTree.VARIABLE_NUMBER;
-    } else if (clazz == CharSequence.class) {
-      return ParseTree.VARIABLE_STRING;
-    } else if (clazz == List.class) {
-      return ParseTree.VARIABLE_ARRAY;
-    }
-    throw new IllegalStateException("Unsupported variable type: " + clazz);
+  /** Parameters evaluated by walking the parameter nodes. */
+  private static class ResolvedArguments implements ParseTreeFunction.Arguments {
+    private final int[] mInts;
+    private final double[] mNumbers;
+    private final @Nullable CharSequence[] mStrings;
+
+    ResolvedArguments(int count) {
+      mInts = new int[count];
+      mNumbers = new double[count];
+      mStrings = new CharSequence[count];
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+      return mInts[index] != 0;
+    }
+
+    @Override
+    public int getInteger(int index) {
+      return mInts[index];
+    }
+
+    @Override
+    public double getNumber(int index) {
+      return mNumbers[index];
+    }
+
+    @Override
+    public @Nullable CharSequence getString(int index) {
+      return mStrings[index];
+    }
   }
 }
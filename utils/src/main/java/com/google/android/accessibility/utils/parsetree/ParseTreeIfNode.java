@@ -118,4 +118,15 @@ class ParseTreeIfNode extends ParseTreeNode {
       return mOnFalse.resolveToChildArray(delegate, logIndent);
     }
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    compiler.compileNode(mCondition, ParseTree.VARIABLE_BOOL);
+    int jumpToFalse = compiler.emitJump(ParseTreeProgram.OP_JUMP_IF_FALSE);
+    compiler.compileNode(mOnTrue, type);
+    int jumpToEnd = compiler.emitJump(ParseTreeProgram.OP_JUMP);
+    compiler.patchJump(jumpToFalse);
+    compiler.compileNode(mOnFalse, type);
+    compiler.patchJump(jumpToEnd);
+  }
 }
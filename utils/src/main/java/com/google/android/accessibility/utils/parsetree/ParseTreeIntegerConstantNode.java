@@ -78,4 +78,25 @@ class ParseTreeIntegerConstantNode extends ParseTreeNode {
   public CharSequence resolveToString(ParseTree.VariableDelegate delegate, String logIndent) {
     return Integer.toString(mValue);
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+        compiler.emit(ParseTreeProgram.OP_PUSH_INT, mValue != 0 ? 1 : 0);
+        break;
+      case ParseTree.VARIABLE_INTEGER:
+        compiler.emit(ParseTreeProgram.OP_PUSH_INT, mValue);
+        break;
+      case ParseTree.VARIABLE_NUMBER:
+        compiler.emit(ParseTreeProgram.OP_PUSH_NUMBER, compiler.addNumber(mValue));
+        break;
+      case ParseTree.VARIABLE_STRING:
+        compiler.emit(
+            ParseTreeProgram.OP_PUSH_CONSTANT, compiler.addConstant(Integer.toString(mValue)));
+        break;
+      default:
+        super.compile(compiler, type);
+    }
+  }
 }
@@ -0,0 +1,601 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.utils.parsetree;
+
+import android.text.TextUtils;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Executes {@link ParseTreeProgram}s using reusable operand stacks. Instances are confined to a
+ * single thread, see {@link #get()}. Execution is re-entrant, so a program may run sub-programs,
+ * and functions called by a program may evaluate other programs.
+ */
+final class ParseTreeInterpreter {
+
+  private static final int INITIAL_STACK_SIZE = 16;
+
+  private static final ThreadLocal<ParseTreeInterpreter> sInterpreter =
+      new ThreadLocal<ParseTreeInterpreter>() {
+        @Override
+        protected ParseTreeInterpreter initialValue() {
+          return new ParseTreeInterpreter();
+        }
+      };
+
+  private int[] mInts = new int[INITIAL_STACK_SIZE];
+  private int mIntsSize = 0;
+  private double[] mNumbers = new double[INITIAL_STACK_SIZE];
+  private int mNumbersSize = 0;
+  private @Nullable Object[] mObjects = new Object[INITIAL_STACK_SIZE];
+  private int mObjectsSize = 0;
+
+  /** The argument view of each function call in progress, indexed by call depth. */
+  private final ArrayList<StackArguments> mArguments = new ArrayList<>();
+
+  private int mCallDepth = 0;
+
+  private ParseTreeInterpreter() {}
+
+  /** Returns the interpreter for the current thread. */
+  static ParseTreeInterpreter get() {
+    return sInterpreter.get();
+  }
+
+  boolean evaluateBoolean(ParseTreeProgram program, ParseTree.VariableDelegate delegate) {
+    run(program, delegate);
+    return popInt() != 0;
+  }
+
+  int evaluateInteger(ParseTreeProgram program, ParseTree.VariableDelegate delegate) {
+    run(program, delegate);
+    return popInt();
+  }
+
+  double evaluateNumber(ParseTreeProgram program, ParseTree.VariableDelegate delegate) {
+    run(program, delegate);
+    return popNumber();
+  }
+
+  CharSequence evaluateString(ParseTreeProgram program, ParseTree.VariableDelegate delegate) {
+    run(program, delegate);
+    return (CharSequence) popObject();
+  }
+
+  private void run(ParseTreeProgram program, ParseTree.VariableDelegate delegate) {
+    int intsSize = mIntsSize;
+    int numbersSize = mNumbersSize;
+    int objectsSize = mObjectsSize;
+    try {
+      execute(program, delegate);
+    } catch (RuntimeException e) {
+      // Unwind anything the failed program left behind, so the stacks stay balanced.
+      mIntsSize = intsSize;
+      mNumbersSize = numbersSize;
+      Arrays.fill(mObjects, objectsSize, mObjectsSize, null);
+      mObjectsSize = objectsSize;
+      throw e;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void execute(ParseTreeProgram program, ParseTree.VariableDelegate delegate) {
+    final int[] code = program.code;
+    final Object[] constants = program.constants;
+    final int length = code.length;
+    int pc = 0;
+    while (pc < length) {
+      switch (code[pc++]) {
+        case ParseTreeProgram.OP_PUSH_INT:
+          pushInt(code[pc++]);
+          break;
+        case ParseTreeProgram.OP_PUSH_NUMBER:
+          pushNumber(program.numbers[code[pc++]]);
+          break;
+        case ParseTreeProgram.OP_PUSH_CONSTANT:
+          pushObject(constants[code[pc++]]);
+          break;
+        case ParseTreeProgram.OP_PUSH_NULL:
+          pushObject(null);
+          break;
+        case ParseTreeProgram.OP_NEW_LIST:
+          pushObject(new ArrayList<>());
+          break;
+
+        case ParseTreeProgram.OP_LOAD_BOOLEAN:
+          pushBoolean(delegate.getBoolean(code[pc++]));
+          break;
+        case ParseTreeProgram.OP_LOAD_INTEGER:
+          pushInt(delegate.getInteger(code[pc++]));
+          break;
+        case ParseTreeProgram.OP_LOAD_NUMBER:
+          pushNumber(delegate.getNumber(code[pc++]));
+          break;
+        case ParseTreeProgram.OP_LOAD_STRING:
+          {
+            CharSequence value = delegate.getString(code[pc++]);
+            pushObject(value == null ? "" : value);
+            break;
+          }
+        case ParseTreeProgram.OP_LOAD_ENUM:
+          pushInt(delegate.getEnum(code[pc++]));
+          break;
+        case ParseTreeProgram.OP_LOAD_REFERENCE:
+          pushObject(delegate.getReference(code[pc++]));
+          break;
+        case ParseTreeProgram.OP_LOAD_ARRAY:
+          {
+            int variableId = code[pc++];
+            int arrayLength = delegate.getArrayLength(variableId);
+            List<CharSequence> result = new ArrayList<>();
+            for (int i = 0; i < arrayLength; i++) {
+              CharSequence value = delegate.getArrayStringElement(variableId, i);
+              result.add(value == null ? "" : value);
+            }
+            pushObject(result);
+            break;
+          }
+        case ParseTreeProgram.OP_LOAD_CHILD_ARRAY:
+          {
+            int variableId = code[pc++];
+            int arrayLength = delegate.getArrayLength(variableId);
+            List<ParseTree.VariableDelegate> result = new ArrayList<>();
+            for (int i = 0; i < arrayLength; i++) {
+              ParseTree.VariableDelegate value = delegate.getArrayChildElement(variableId, i);
+              if (value != null) {
+                result.add(value);
+              }
+            }
+            pushObject(result);
+            break;
+          }
+        case ParseTreeProgram.OP_LOAD_ARRAY_LENGTH:
+          pushInt(delegate.getArrayLength(code[pc++]));
+          break;
+
+        case ParseTreeProgram.OP_INT_TO_BOOL:
+          pushBoolean(popInt() != 0);
+          break;
+        case ParseTreeProgram.OP_NUMBER_TO_BOOL:
+          pushBoolean(popNumber() != 0);
+          break;
+        case ParseTreeProgram.OP_STRING_TO_BOOL:
+          pushBoolean(!TextUtils.isEmpty((CharSequence) popObject()));
+          break;
+        case ParseTreeProgram.OP_INT_TO_NUMBER:
+          pushNumber(popInt());
+          break;
+        case ParseTreeProgram.OP_NUMBER_TO_INT:
+          pushInt((int) popNumber());
+          break;
+        case ParseTreeProgram.OP_NUMBER_TO_STRING:
+          pushObject(Double.toString(popNumber()));
+          break;
+        case ParseTreeProgram.OP_STRING_LENGTH:
+          {
+            CharSequence value = (CharSequence) popObject();
+            pushInt(value == null ? 0 : value.length());
+            break;
+          }
+        case ParseTreeProgram.OP_BOX_BOOL:
+          pushObject(popInt() != 0);
+          break;
+        case ParseTreeProgram.OP_BOX_INT:
+          pushObject(popInt());
+          break;
+        case ParseTreeProgram.OP_BOX_NUMBER:
+          pushObject(popNumber());
+          break;
+
+        case ParseTreeProgram.OP_NOT:
+          pushBoolean(popInt() == 0);
+          break;
+        case ParseTreeProgram.OP_EQUALS_INT:
+          {
+            int rvalue = popInt();
+            pushBoolean(popInt() == rvalue);
+            break;
+          }
+        case ParseTreeProgram.OP_EQUALS_NUMBER:
+          {
+            double rvalue = popNumber();
+            pushBoolean(popNumber() == rvalue);
+            break;
+          }
+        case ParseTreeProgram.OP_LT:
+          {
+            double rvalue = popNumber();
+            pushBoolean(popNumber() < rvalue);
+            break;
+          }
+        case ParseTreeProgram.OP_GT:
+          {
+            double rvalue = popNumber();
+            pushBoolean(popNumber() > rvalue);
+            break;
+          }
+        case ParseTreeProgram.OP_LE:
+          {
+            double rvalue = popNumber();
+            pushBoolean(popNumber() <= rvalue);
+            break;
+          }
+        case ParseTreeProgram.OP_GE:
+          {
+            double rvalue = popNumber();
+            pushBoolean(popNumber() >= rvalue);
+            break;
+          }
+        case ParseTreeProgram.OP_ADD:
+          {
+            double rvalue = popNumber();
+            pushNumber(popNumber() + rvalue);
+            break;
+          }
+        case ParseTreeProgram.OP_SUBTRACT:
+          {
+            double rvalue = popNumber();
+            pushNumber(popNumber() - rvalue);
+            break;
+          }
+        case ParseTreeProgram.OP_MULTIPLY:
+          {
+            double rvalue = popNumber();
+            pushNumber(popNumber() * rvalue);
+            break;
+          }
+        case ParseTreeProgram.OP_DIVIDE:
+          {
+            double rvalue = popNumber();
+            pushNumber(popNumber() / rvalue);
+            break;
+          }
+        case ParseTreeProgram.OP_POW:
+          {
+            double rvalue = popNumber();
+            pushNumber(Math.pow(popNumber(), rvalue));
+            break;
+          }
+
+        case ParseTreeProgram.OP_JUMP:
+          pc = code[pc];
+          break;
+        case ParseTreeProgram.OP_JUMP_IF_FALSE:
+          pc = (popInt() == 0) ? code[pc] : pc + 1;
+          break;
+        case ParseTreeProgram.OP_JUMP_IF_NOT_EMPTY:
+          if (TextUtils.isEmpty((CharSequence) mObjects[mObjectsSize - 1])) {
+            popObject();
+            pc++;
+          } else {
+            pc = code[pc];
+          }
+          break;
+        case ParseTreeProgram.OP_SWITCH:
+          {
+            ParseTreeProgram.SwitchTable table =
+                (ParseTreeProgram.SwitchTable) constants[code[pc]];
+            int index = Arrays.binarySearch(table.keys, popInt());
+            pc = (index >= 0) ? table.targets[index] : table.defaultTarget;
+            break;
+          }
+
+        case ParseTreeProgram.OP_LIST_ADD:
+          {
+            Object value = popObject();
+            ((List<Object>) mObjects[mObjectsSize - 1]).add(value);
+            break;
+          }
+        case ParseTreeProgram.OP_LIST_ADD_ALL:
+          {
+            List<Object> values = (List<Object>) popObject();
+            ((List<Object>) mObjects[mObjectsSize - 1]).addAll(values);
+            break;
+          }
+        case ParseTreeProgram.OP_JOIN:
+          {
+            ParseTreeJoinNode node = (ParseTreeJoinNode) constants[code[pc++]];
+            pushObject(node.join((List<CharSequence>) popObject()));
+            break;
+          }
+
+        case ParseTreeProgram.OP_CALL_PROGRAM:
+          execute((ParseTreeProgram) constants[code[pc++]], delegate);
+          break;
+        case ParseTreeProgram.OP_FOR_REFERENCE:
+          {
+            ParseTreeProgram function = (ParseTreeProgram) constants[code[pc++]];
+            int type = code[pc++];
+            ParseTree.VariableDelegate reference = (ParseTree.VariableDelegate) popObject();
+            if (reference != null) {
+              execute(function, reference);
+              reference.cleanup();
+            } else {
+              pushDefault(type);
+            }
+            break;
+          }
+        case ParseTreeProgram.OP_FOR_EACH_CHILD:
+          {
+            ParseTreeProgram function = (ParseTreeProgram) constants[code[pc++]];
+            List<ParseTree.VariableDelegate> children =
+                (List<ParseTree.VariableDelegate>) popObject();
+            List<CharSequence> result = new ArrayList<>();
+            for (ParseTree.VariableDelegate child : children) {
+              if (child instanceof ParseTree.CachingVariableDelegate) {
+                result.add(executeCachedChild(function, (ParseTree.CachingVariableDelegate) child));
+              } else {
+                execute(function, child);
+                result.add((CharSequence) popObject());
+              }
+              child.cleanup();
+            }
+            pushObject(result);
+            break;
+          }
+        case ParseTreeProgram.OP_CALL_FUNCTION:
+          {
+            ParseTreeFunctionNode node = (ParseTreeFunctionNode) constants[code[pc++]];
+            int type = code[pc++];
+            // Parameters are read in place from the stacks. Each call depth has its own view of
+            // them, so a function may re-enter the interpreter, e.g. to evaluate another tree.
+            if (mCallDepth == mArguments.size()) {
+              mArguments.add(new StackArguments());
+            }
+            StackArguments arguments = mArguments.get(mCallDepth);
+            arguments.set(node);
+            mCallDepth++;
+            try {
+              callFunction(node, type, arguments);
+            } finally {
+              mCallDepth--;
+            }
+            break;
+          }
+        case ParseTreeProgram.OP_FORMAT_STRING:
+          {
+            ParseTreeResourceNode node = (ParseTreeResourceNode) constants[code[pc++]];
+            Object[] params = popObjects(code[pc++]);
+            pushObject(node.formatString(params));
+            break;
+          }
+        case ParseTreeProgram.OP_FORMAT_PLURALS:
+          {
+            ParseTreeResourceNode node = (ParseTreeResourceNode) constants[code[pc++]];
+            int paramCount = code[pc++];
+            int quantity = popInt();
+            Object[] params = popObjects(paramCount);
+            pushObject(node.formatPlurals(quantity, params));
+            break;
+          }
+        case ParseTreeProgram.OP_EVALUATE_NODE:
+          {
+            ParseTreeNode node = (ParseTreeNode) constants[code[pc++]];
+            evaluateNode(node, code[pc++], delegate);
+            break;
+          }
+        case ParseTreeProgram.OP_EVALUATE_ARRAY_LENGTH:
+          {
+            ParseTreeNode node = (ParseTreeNode) constants[code[pc++]];
+            pushInt(node.getArrayLength(delegate, ""));
+            break;
+          }
+        default:
+          throw new IllegalStateException("Unknown opcode at " + (pc - 1));
+      }
+    }
+  }
+
+  private @Nullable CharSequence executeCachedChild(
+      ParseTreeProgram function, ParseTree.CachingVariableDelegate child) {
+    CharSequence text = child.getCachedResult(function);
+    if (text != null) {
+      return text;
+    }
+    child.onEvaluationStarted();
+    try {
+      execute(function, child);
+      text = (CharSequence) popObject();
+    } finally {
+      child.onEvaluationFinished(function, text);
+    }
+    return text;
+  }
+
+  private void evaluateNode(
+      ParseTreeNode node, @ParseTree.VariableType int type, ParseTree.VariableDelegate delegate) {
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+        pushBoolean(node.resolveToBoolean(delegate, ""));
+        break;
+      case ParseTree.VARIABLE_INTEGER:
+      case ParseTree.VARIABLE_ENUM:
+        pushInt(node.resolveToInteger(delegate, ""));
+        break;
+      case ParseTree.VARIABLE_NUMBER:
+        pushNumber(node.resolveToNumber(delegate, ""));
+        break;
+      case ParseTree.VARIABLE_STRING:
+        pushObject(node.resolveToString(delegate, ""));
+        break;
+      case ParseTree.VARIABLE_REFERENCE:
+        pushObject(node.resolveToReference(delegate, ""));
+        break;
+      case ParseTree.VARIABLE_ARRAY:
+        pushObject(node.resolveToArray(delegate, ""));
+        break;
+      case ParseTree.VARIABLE_CHILD_ARRAY:
+      default:
+        pushObject(node.resolveToChildArray(delegate, ""));
+        break;
+    }
+  }
+
+  private void pushDefault(@ParseTree.VariableType int type) {
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+      case ParseTree.VARIABLE_INTEGER:
+      case ParseTree.VARIABLE_ENUM:
+        pushInt(0);
+        break;
+      case ParseTree.VARIABLE_NUMBER:
+        pushNumber(0);
+        break;
+      case ParseTree.VARIABLE_STRING:
+        pushObject("");
+        break;
+      case ParseTree.VARIABLE_ARRAY:
+      case ParseTree.VARIABLE_CHILD_ARRAY:
+        pushObject(new ArrayList<>());
+        break;
+      case ParseTree.VARIABLE_REFERENCE:
+      default:
+        pushObject(null);
+        break;
+    }
+  }
+
+  private void pushBoolean(boolean value) {
+    pushInt(value ? 1 : 0);
+  }
+
+  private void pushInt(int value) {
+    if (mIntsSize == mInts.length) {
+      mInts = Arrays.copyOf(mInts, mIntsSize * 2);
+    }
+    mInts[mIntsSize++] = value;
+  }
+
+  private int popInt() {
+    return mInts[--mIntsSize];
+  }
+
+  private void pushNumber(double value) {
+    if (mNumbersSize == mNumbers.length) {
+      mNumbers = Arrays.copyOf(mNumbers, mNumbersSize * 2);
+    }
+    mNumbers[mNumbersSize++] = value;
+  }
+
+  private double popNumber() {
+    return mNumbers[--mNumbersSize];
+  }
+
+  private void pushObject(@Nullable Object value) {
+    if (mObjectsSize == mObjects.length) {
+      mObjects = Arrays.copyOf(mObjects, mObjectsSize * 2);
+    }
+    mObjects[mObjectsSize++] = value;
+  }
+
+  private @Nullable Object popObject() {
+    Object value = mObjects[--mObjectsSize];
+    // Don't hold on to nodes, delegates or strings after evaluation.
+    mObjects[mObjectsSize] = null;
+    return value;
+  }
+
+  /** Calls {@code node}, replacing its parameters on the stacks with the result. */
+  private void callFunction(
+      ParseTreeFunctionNode node, @ParseTree.VariableType int type, StackArguments arguments) {
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+        {
+          boolean result = node.getBooleanResult(arguments);
+          popParams(node);
+          pushBoolean(result);
+          break;
+        }
+      case ParseTree.VARIABLE_INTEGER:
+        {
+          int result = node.getIntegerResult(arguments);
+          popParams(node);
+          pushInt(result);
+          break;
+        }
+      case ParseTree.VARIABLE_NUMBER:
+        {
+          double result = node.getNumberResult(arguments);
+          popParams(node);
+          pushNumber(result);
+          break;
+        }
+      case ParseTree.VARIABLE_STRING:
+      default:
+        {
+          CharSequence result = node.getStringResult(arguments);
+          popParams(node);
+          pushObject(result);
+          break;
+        }
+    }
+  }
+
+  private void popParams(ParseTreeFunctionNode node) {
+    mIntsSize -= node.getIntParamCount();
+    mNumbersSize -= node.getNumberParamCount();
+    int objectsSize = mObjectsSize - node.getObjectParamCount();
+    Arrays.fill(mObjects, objectsSize, mObjectsSize, null);
+    mObjectsSize = objectsSize;
+  }
+
+  /** Pops the top {@code count} objects, returning them in the order they were pushed. */
+  private Object[] popObjects(int count) {
+    Object[] result = new Object[count];
+    for (int i = count - 1; i >= 0; i--) {
+      result[i] = popObject();
+    }
+    return result;
+  }
+
+  /** Exposes the parameters of a function call at the top of the stacks. */
+  private final class StackArguments implements ParseTreeFunction.Arguments {
+    private ParseTreeFunctionNode mNode;
+    private int mIntsBase;
+    private int mNumbersBase;
+    private int mObjectsBase;
+
+    void set(ParseTreeFunctionNode node) {
+      mNode = node;
+      mIntsBase = mIntsSize - node.getIntParamCount();
+      mNumbersBase = mNumbersSize - node.getNumberParamCount();
+      mObjectsBase = mObjectsSize - node.getObjectParamCount();
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+      return mInts[mIntsBase + mNode.getParamSlot(index)] != 0;
+    }
+
+    @Override
+    public int getInteger(int index) {
+      return mInts[mIntsBase + mNode.getParamSlot(index)];
+    }
+
+    @Override
+    public double getNumber(int index) {
+      return mNumbers[mNumbersBase + mNode.getParamSlot(index)];
+    }
+
+    @Override
+    public @Nullable CharSequence getString(int index) {
+      return (CharSequence) mObjects[mObjectsBase + mNode.getParamSlot(index)];
+    }
+  }
+}
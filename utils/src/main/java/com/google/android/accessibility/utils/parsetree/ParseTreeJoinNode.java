@@ -45,8 +45,7 @@ public class ParseTreeJoinNode extends ParseTreeNode {
 
   @Override
   public CharSequence resolveToString(ParseTree.VariableDelegate delegate, String logIndent) {
-    List<CharSequence> values = mChild.resolveToArray(delegate, logIndent);
-    return joinCharSequences(values, mSeparator, mPruneEmpty);
+    return join(mChild.resolveToArray(delegate, logIndent));
   }
 
   public static CharSequence joinCharSequences(
@@ -69,4 +68,19 @@ public class ParseTreeJoinNode extends ParseTreeNode {
     }
     return builder;
   }
+
+  /** Joins the resolved values of the child array, as {@link #resolveToString} does. */
+  CharSequence join(List<CharSequence> values) {
+    return joinCharSequences(values, mSeparator, mPruneEmpty);
+  }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    if (type == ParseTree.VARIABLE_STRING) {
+      compiler.compileNode(mChild, ParseTree.VARIABLE_ARRAY);
+      compiler.emit(ParseTreeProgram.OP_JOIN, compiler.addConstant(this));
+    } else {
+      super.compile(compiler, type);
+    }
+  }
 }
@@ -65,4 +65,32 @@ class ParseTreeLengthNode extends ParseTreeNode {
       return mParam.getArrayLength(delegate, logIndent);
     }
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+        compileLength(compiler);
+        compiler.emit(ParseTreeProgram.OP_INT_TO_BOOL);
+        break;
+      case ParseTree.VARIABLE_INTEGER:
+        compileLength(compiler);
+        break;
+      case ParseTree.VARIABLE_NUMBER:
+        compileLength(compiler);
+        compiler.emit(ParseTreeProgram.OP_INT_TO_NUMBER);
+        break;
+      default:
+        super.compile(compiler, type);
+    }
+  }
+
+  private void compileLength(ParseTreeCompiler compiler) {
+    if (mParam.getType() == ParseTree.VARIABLE_STRING) {
+      compiler.compileNode(mParam, ParseTree.VARIABLE_STRING);
+      compiler.emit(ParseTreeProgram.OP_STRING_LENGTH);
+    } else {
+      mParam.compileArrayLength(compiler);
+    }
+  }
 }
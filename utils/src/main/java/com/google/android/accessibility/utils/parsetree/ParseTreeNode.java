@@ -88,4 +88,15 @@ abstract class ParseTreeNode {
     LogUtils.e(TAG, "Cannot query array length of " + getClass());
     return 0;
   }
+
+  // Emit the instructions that resolve this node to the specified type. By default, the compiled
+  // program evaluates this node directly, which always matches the resolveTo*() result.
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    compiler.emitEvaluateNode(this, type);
+  }
+
+  // Emit the instructions that query the length of this node as an array.
+  void compileArrayLength(ParseTreeCompiler compiler) {
+    compiler.emit(ParseTreeProgram.OP_EVALUATE_ARRAY_LENGTH, compiler.addConstant(this));
+  }
 }
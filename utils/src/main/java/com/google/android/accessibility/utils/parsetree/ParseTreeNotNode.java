@@ -36,4 +36,14 @@ class ParseTreeNotNode extends ParseTreeNode {
   public boolean resolveToBoolean(ParseTree.VariableDelegate delegate, String logIndent) {
     return !mChild.resolveToBoolean(delegate, logIndent);
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    if (type == ParseTree.VARIABLE_BOOL) {
+      compiler.compileNode(mChild, ParseTree.VARIABLE_BOOL);
+      compiler.emit(ParseTreeProgram.OP_NOT);
+    } else {
+      super.compile(compiler, type);
+    }
+  }
 }
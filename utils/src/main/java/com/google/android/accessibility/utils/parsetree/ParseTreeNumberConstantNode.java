@@ -49,4 +49,22 @@ class ParseTreeNumberConstantNode extends ParseTreeNode {
   public CharSequence resolveToString(ParseTree.VariableDelegate delegate, String logIndent) {
     return Double.toString(mValue);
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+        compiler.emit(ParseTreeProgram.OP_PUSH_INT, mValue != 0 ? 1 : 0);
+        break;
+      case ParseTree.VARIABLE_NUMBER:
+        compiler.emit(ParseTreeProgram.OP_PUSH_NUMBER, compiler.addNumber(mValue));
+        break;
+      case ParseTree.VARIABLE_STRING:
+        compiler.emit(
+            ParseTreeProgram.OP_PUSH_CONSTANT, compiler.addConstant(Double.toString(mValue)));
+        break;
+      default:
+        super.compile(compiler, type);
+    }
+  }
 }
@@ -228,4 +228,148 @@ class ParseTreeOperatorNode extends ParseTreeNode {
     LogUtils.e(TAG, "Incompatible types in compare: %d, %d", ltype, rtype);
     return false;
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+        compileBoolean(compiler);
+        break;
+      case ParseTree.VARIABLE_INTEGER:
+      case ParseTree.VARIABLE_NUMBER:
+        {
+          int opcode = getArithmeticOpcode();
+          if (opcode == -1) {
+            // Booleans can't be coerced to numbers, which the node-walking evaluator logs.
+            super.compile(compiler, type);
+            break;
+          }
+          compiler.compileNode(mLvalue, ParseTree.VARIABLE_NUMBER);
+          compiler.compileNode(mRvalue, ParseTree.VARIABLE_NUMBER);
+          compiler.emit(opcode);
+          if (type == ParseTree.VARIABLE_INTEGER) {
+            compiler.emit(ParseTreeProgram.OP_NUMBER_TO_INT);
+          }
+          break;
+        }
+      case ParseTree.VARIABLE_STRING:
+        compile(compiler, ParseTree.VARIABLE_NUMBER);
+        compiler.emit(ParseTreeProgram.OP_NUMBER_TO_STRING);
+        break;
+      default:
+        super.compile(compiler, type);
+    }
+  }
+
+  private void compileBoolean(ParseTreeCompiler compiler) {
+    switch (mOperator) {
+      case ParseTree.OPERATOR_EQUALS:
+        compileEquals(compiler, false);
+        break;
+      case ParseTree.OPERATOR_NEQUALS:
+        compileEquals(compiler, true);
+        break;
+      case ParseTree.OPERATOR_GT:
+        compileComparison(compiler, ParseTreeProgram.OP_GT);
+        break;
+      case ParseTree.OPERATOR_LT:
+        compileComparison(compiler, ParseTreeProgram.OP_LT);
+        break;
+      case ParseTree.OPERATOR_GE:
+        compileComparison(compiler, ParseTreeProgram.OP_GE);
+        break;
+      case ParseTree.OPERATOR_LE:
+        compileComparison(compiler, ParseTreeProgram.OP_LE);
+        break;
+      case ParseTree.OPERATOR_AND:
+        {
+          // Short-circuit: the right side is only evaluated if the left side is true.
+          compiler.compileNode(mLvalue, ParseTree.VARIABLE_BOOL);
+          int jumpToFalse = compiler.emitJump(ParseTreeProgram.OP_JUMP_IF_FALSE);
+          compiler.compileNode(mRvalue, ParseTree.VARIABLE_BOOL);
+          int jumpToEnd = compiler.emitJump(ParseTreeProgram.OP_JUMP);
+          compiler.patchJump(jumpToFalse);
+          compiler.emit(ParseTreeProgram.OP_PUSH_INT, 0);
+          compiler.patchJump(jumpToEnd);
+          break;
+        }
+      case ParseTree.OPERATOR_OR:
+        {
+          // Short-circuit: the right side is only evaluated if the left side is false.
+          compiler.compileNode(mLvalue, ParseTree.VARIABLE_BOOL);
+          int jumpToRvalue = compiler.emitJump(ParseTreeProgram.OP_JUMP_IF_FALSE);
+          compiler.emit(ParseTreeProgram.OP_PUSH_INT, 1);
+          int jumpToEnd = compiler.emitJump(ParseTreeProgram.OP_JUMP);
+          compiler.patchJump(jumpToRvalue);
+          compiler.compileNode(mRvalue, ParseTree.VARIABLE_BOOL);
+          compiler.patchJump(jumpToEnd);
+          break;
+        }
+      default:
+        // Numbers can't be coerced to booleans, which the node-walking evaluator logs.
+        super.compile(compiler, ParseTree.VARIABLE_BOOL);
+    }
+  }
+
+  private void compileComparison(ParseTreeCompiler compiler, int opcode) {
+    compiler.compileNode(mLvalue, ParseTree.VARIABLE_NUMBER);
+    compiler.compileNode(mRvalue, ParseTree.VARIABLE_NUMBER);
+    compiler.emit(opcode);
+  }
+
+  /** Mirrors {@link #checkEquals}, choosing the comparison from the static operand types. */
+  private void compileEquals(ParseTreeCompiler compiler, boolean negate) {
+    @ParseTree.VariableType int ltype = mLvalue.getType();
+    @ParseTree.VariableType int rtype = mRvalue.getType();
+    if (ltype == ParseTree.VARIABLE_BOOL && rtype == ParseTree.VARIABLE_BOOL) {
+      compiler.compileNode(mLvalue, ParseTree.VARIABLE_BOOL);
+      compiler.compileNode(mRvalue, ParseTree.VARIABLE_BOOL);
+      compiler.emit(ParseTreeProgram.OP_EQUALS_INT);
+    } else if ((ltype == ParseTree.VARIABLE_INTEGER || ltype == ParseTree.VARIABLE_ENUM)
+        && (rtype == ParseTree.VARIABLE_INTEGER || rtype == ParseTree.VARIABLE_ENUM)) {
+      compiler.compileNode(mLvalue, ParseTree.VARIABLE_INTEGER);
+      compiler.compileNode(mRvalue, ParseTree.VARIABLE_INTEGER);
+      compiler.emit(ParseTreeProgram.OP_EQUALS_INT);
+    } else if (ltype == ParseTree.VARIABLE_INTEGER && rtype == ParseTree.VARIABLE_NUMBER) {
+      compiler.compileNode(mLvalue, ParseTree.VARIABLE_INTEGER);
+      compiler.emit(ParseTreeProgram.OP_INT_TO_NUMBER);
+      compiler.compileNode(mRvalue, ParseTree.VARIABLE_NUMBER);
+      compiler.emit(ParseTreeProgram.OP_EQUALS_NUMBER);
+    } else if (ltype == ParseTree.VARIABLE_NUMBER && rtype == ParseTree.VARIABLE_INTEGER) {
+      compiler.compileNode(mLvalue, ParseTree.VARIABLE_NUMBER);
+      compiler.compileNode(mRvalue, ParseTree.VARIABLE_INTEGER);
+      compiler.emit(ParseTreeProgram.OP_INT_TO_NUMBER);
+      compiler.emit(ParseTreeProgram.OP_EQUALS_NUMBER);
+    } else if (ltype == ParseTree.VARIABLE_NUMBER && rtype == ParseTree.VARIABLE_NUMBER) {
+      compiler.compileNode(mLvalue, ParseTree.VARIABLE_NUMBER);
+      compiler.compileNode(mRvalue, ParseTree.VARIABLE_NUMBER);
+      compiler.emit(ParseTreeProgram.OP_EQUALS_NUMBER);
+    } else {
+      // Incompatible types are logged by the node-walking evaluator.
+      super.compile(compiler, ParseTree.VARIABLE_BOOL);
+      return;
+    }
+
+    if (negate) {
+      compiler.emit(ParseTreeProgram.OP_NOT);
+    }
+  }
+
+  /** Returns the opcode for this operator if it's arithmetic, or -1 otherwise. */
+  private int getArithmeticOpcode() {
+    switch (mOperator) {
+      case ParseTree.OPERATOR_PLUS:
+        return ParseTreeProgram.OP_ADD;
+      case ParseTree.OPERATOR_MINUS:
+        return ParseTreeProgram.OP_SUBTRACT;
+      case ParseTree.OPERATOR_MULTIPLY:
+        return ParseTreeProgram.OP_MULTIPLY;
+      case ParseTree.OPERATOR_DIVIDE:
+        return ParseTreeProgram.OP_DIVIDE;
+      case ParseTree.OPERATOR_POW:
+        return ParseTreeProgram.OP_POW;
+      default:
+        return -1;
+    }
+  }
 }
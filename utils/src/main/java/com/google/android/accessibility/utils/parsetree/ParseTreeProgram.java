@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.utils.parsetree;
+
+/**
+ * A flat instruction array lowered from a tree of {@link ParseTreeNode}s by {@link
+ * ParseTreeCompiler}, and executed by {@link ParseTreeInterpreter}.
+ *
+ * <p>Each instruction is an opcode followed by a fixed number of int operands. Operands refer to
+ * code offsets, variable IDs, or indices into {@link #constants} and {@link #numbers}. Running a
+ * program leaves exactly one value of {@link #resultType} on the interpreter's operand stacks.
+ */
+final class ParseTreeProgram {
+
+  // Push operations. Booleans and integers live on the int stack, numbers on the number stack, and
+  // everything else on the object stack.
+  static final int OP_PUSH_INT = 0; // value
+  static final int OP_PUSH_NUMBER = 1; // number index
+  static final int OP_PUSH_CONSTANT = 2; // constant index
+  static final int OP_PUSH_NULL = 3;
+  static final int OP_NEW_LIST = 4;
+
+  // Variable loads from the current VariableDelegate.
+  static final int OP_LOAD_BOOLEAN = 10; // variable id
+  static final int OP_LOAD_INTEGER = 11; // variable id
+  static final int OP_LOAD_NUMBER = 12; // variable id
+  static final int OP_LOAD_STRING = 13; // variable id
+  static final int OP_LOAD_ENUM = 14; // variable id
+  static final int OP_LOAD_REFERENCE = 15; // variable id
+  static final int OP_LOAD_ARRAY = 16; // variable id
+  static final int OP_LOAD_CHILD_ARRAY = 17; // variable id
+  static final int OP_LOAD_ARRAY_LENGTH = 18; // variable id
+
+  // Conversions.
+  static final int OP_INT_TO_BOOL = 20;
+  static final int OP_NUMBER_TO_BOOL = 21;
+  static final int OP_STRING_TO_BOOL = 22;
+  static final int OP_INT_TO_NUMBER = 23;
+  static final int OP_NUMBER_TO_INT = 24;
+  static final int OP_NUMBER_TO_STRING = 25;
+  static final int OP_STRING_LENGTH = 26;
+  static final int OP_BOX_BOOL = 27;
+  static final int OP_BOX_INT = 28;
+  static final int OP_BOX_NUMBER = 29;
+
+  // Operators.
+  static final int OP_NOT = 30;
+  static final int OP_EQUALS_INT = 31;
+  static final int OP_EQUALS_NUMBER = 32;
+  static final int OP_LT = 33;
+  static final int OP_GT = 34;
+  static final int OP_LE = 35;
+  static final int OP_GE = 36;
+  static final int OP_ADD = 37;
+  static final int OP_SUBTRACT = 38;
+  static final int OP_MULTIPLY = 39;
+  static final int OP_DIVIDE = 40;
+  static final int OP_POW = 41;
+
+  // Control flow.
+  static final int OP_JUMP = 50; // target
+  static final int OP_JUMP_IF_FALSE = 51; // target
+  static final int OP_JUMP_IF_NOT_EMPTY = 52; // target
+  static final int OP_SWITCH = 53; // switch table constant index
+
+  // Lists and strings.
+  static final int OP_LIST_ADD = 60;
+  static final int OP_LIST_ADD_ALL = 61;
+  static final int OP_JOIN = 62; // join node constant index
+
+  // Calls.
+  static final int OP_CALL_PROGRAM = 70; // program constant index
+  static final int OP_FOR_REFERENCE = 71; // program constant index, result type
+  static final int OP_FOR_EACH_CHILD = 72; // program constant index
+  static final int OP_CALL_FUNCTION = 73; // function node constant index, result type
+  static final int OP_FORMAT_STRING = 74; // resource node constant index, param count
+  static final int OP_FORMAT_PLURALS = 75; // resource node constant index, param count
+  static final int OP_EVALUATE_NODE = 76; // node constant index, result type
+  static final int OP_EVALUATE_ARRAY_LENGTH = 77; // node constant index
+
+  /** Jump table for a "switch" node. Case keys are sorted to allow binary search. */
+  static final class SwitchTable {
+    final int[] keys;
+    final int[] targets;
+    int defaultTarget;
+
+    SwitchTable(int[] keys) {
+      this.keys = keys;
+      this.targets = new int[keys.length];
+    }
+  }
+
+  // Assigned once by the compiler when the program has been emitted. Shared programs may be
+  // referenced (recursively) before their code is complete.
+  int[] code;
+  Object[] constants;
+  double[] numbers;
+  final @ParseTree.VariableType int resultType;
+
+  ParseTreeProgram(@ParseTree.VariableType int resultType) {
+    this.resultType = resultType;
+  }
+}
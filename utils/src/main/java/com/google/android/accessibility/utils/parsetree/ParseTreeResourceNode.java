@@ -113,9 +113,7 @@ class ParseTreeResourceNode extends ParseTreeNode {
   public CharSequence resolveToString(ParseTree.VariableDelegate delegate, String logIndent) {
     switch (mType) {
       case TYPE_STRING:
-        Object[] stringParamList = getParamList(mParams, 0, delegate, logIndent);
-        String templateString = mResources.getString(mResourceId);
-        return SpannedStringUtils.getSpannedFormattedString(templateString, stringParamList);
+        return formatString(getParamList(mParams, 0, delegate, logIndent));
 
       case TYPE_PLURALS:
         if (mParams.isEmpty() || mParams.get(0).getType() != ParseTree.VARIABLE_INTEGER) {
@@ -124,10 +122,7 @@ class ParseTreeResourceNode extends ParseTreeNode {
         }
 
         Object[] pluralParamList = getParamList(mParams, 1, delegate, logIndent);
-        String templatePlural =
-            mResources.getQuantityString(
-                mResourceId, mParams.get(0).resolveToInteger(delegate, logIndent));
-        return SpannedStringUtils.getSpannedFormattedString(templatePlural, pluralParamList);
+        return formatPlurals(mParams.get(0).resolveToInteger(delegate, logIndent), pluralParamList);
 
       case TYPE_RESOURCE_ID:
         LogUtils.e(TAG, "Cannot resolve resource ID to string");
@@ -139,6 +134,85 @@ class ParseTreeResourceNode extends ParseTreeNode {
     }
   }
 
+  CharSequence formatString(Object[] params) {
+    String templateString = mResources.getString(mResourceId);
+    return SpannedStringUtils.getSpannedFormattedString(templateString, params);
+  }
+
+  CharSequence formatPlurals(int quantity, Object[] params) {
+    String templatePlural = mResources.getQuantityString(mResourceId, quantity);
+    return SpannedStringUtils.getSpannedFormattedString(templatePlural, params);
+  }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    if (type == ParseTree.VARIABLE_INTEGER) {
+      compiler.emit(ParseTreeProgram.OP_PUSH_INT, mResourceId);
+      return;
+    }
+    if (type != ParseTree.VARIABLE_STRING || !canCompileParams()) {
+      super.compile(compiler, type);
+      return;
+    }
+
+    switch (mType) {
+      case TYPE_STRING:
+        compileParams(compiler, 0);
+        compiler.emit(
+            ParseTreeProgram.OP_FORMAT_STRING, compiler.addConstant(this), mParams.size());
+        break;
+      case TYPE_PLURALS:
+        // Matches the evaluation order of resolveToString(): the format parameters first, then the
+        // quantity.
+        compileParams(compiler, 1);
+        compiler.compileNode(mParams.get(0), ParseTree.VARIABLE_INTEGER);
+        compiler.emit(
+            ParseTreeProgram.OP_FORMAT_PLURALS, compiler.addConstant(this), mParams.size() - 1);
+        break;
+      default:
+        super.compile(compiler, type);
+    }
+  }
+
+  /** Returns true if every parameter has a type that getParamList() can format. */
+  private boolean canCompileParams() {
+    if (mType == TYPE_PLURALS
+        && (mParams.isEmpty() || mParams.get(0).getType() != ParseTree.VARIABLE_INTEGER)) {
+      return false;
+    }
+    for (ParseTreeNode node : mParams) {
+      switch (node.getType()) {
+        case ParseTree.VARIABLE_BOOL:
+        case ParseTree.VARIABLE_STRING:
+        case ParseTree.VARIABLE_INTEGER:
+        case ParseTree.VARIABLE_NUMBER:
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  private void compileParams(ParseTreeCompiler compiler, int start) {
+    for (ParseTreeNode node : mParams.subList(start, mParams.size())) {
+      @ParseTree.VariableType int paramType = node.getType();
+      compiler.compileNode(node, paramType);
+      switch (paramType) {
+        case ParseTree.VARIABLE_BOOL:
+          compiler.emit(ParseTreeProgram.OP_BOX_BOOL);
+          break;
+        case ParseTree.VARIABLE_INTEGER:
+          compiler.emit(ParseTreeProgram.OP_BOX_INT);
+          break;
+        case ParseTree.VARIABLE_NUMBER:
+          compiler.emit(ParseTreeProgram.OP_BOX_NUMBER);
+          break;
+        default: // Already an object.
+      }
+    }
+  }
+
   private static Object[] getParamList(
       List<ParseTreeNode> params,
       int start,
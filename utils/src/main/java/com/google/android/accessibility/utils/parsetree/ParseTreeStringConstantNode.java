@@ -42,4 +42,18 @@ class ParseTreeStringConstantNode extends ParseTreeNode {
   public CharSequence resolveToString(ParseTree.VariableDelegate delegate, String logIndent) {
     return mValue;
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+        compiler.emit(ParseTreeProgram.OP_PUSH_INT, mValue.length() != 0 ? 1 : 0);
+        break;
+      case ParseTree.VARIABLE_STRING:
+        compiler.emit(ParseTreeProgram.OP_PUSH_CONSTANT, compiler.addConstant(mValue));
+        break;
+      default:
+        super.compile(compiler, type);
+    }
+  }
 }
@@ -17,6 +17,7 @@
 package com.google.android.accessibility.utils.parsetree;
 
 import androidx.annotation.Nullable;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -115,4 +116,33 @@ class ParseTreeSwitchNode extends ParseTreeNode {
       return mDefault.resolveToArray(delegate, logIndent);
     }
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    if (type == ParseTree.VARIABLE_CHILD_ARRAY) {
+      super.compile(compiler, type);
+      return;
+    }
+
+    int[] keys = new int[mCases.size()];
+    int index = 0;
+    for (int key : mCases.keySet()) {
+      keys[index++] = key;
+    }
+    Arrays.sort(keys);
+
+    compiler.compileNode(mCondition, ParseTree.VARIABLE_INTEGER);
+    ParseTreeProgram.SwitchTable table = compiler.emitSwitch(keys);
+    int[] jumpsToEnd = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      table.targets[i] = compiler.position();
+      compiler.compileNode(mCases.get(keys[i]), type);
+      jumpsToEnd[i] = compiler.emitJump(ParseTreeProgram.OP_JUMP);
+    }
+    table.defaultTarget = compiler.position();
+    compiler.compileNode(mDefault, type);
+    for (int jump : jumpsToEnd) {
+      compiler.patchJump(jump);
+    }
+  }
 }
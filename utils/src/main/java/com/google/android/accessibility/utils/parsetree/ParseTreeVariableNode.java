@@ -324,4 +324,84 @@ class ParseTreeVariableNode extends ParseTreeNode {
       return super.getArrayLength(delegate, logIndent);
     }
   }
+
+  @Override
+  void compile(ParseTreeCompiler compiler, @ParseTree.VariableType int type) {
+    switch (type) {
+      case ParseTree.VARIABLE_BOOL:
+        if (mType == ParseTree.VARIABLE_BOOL) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_BOOLEAN, mId);
+          return;
+        } else if (mType == ParseTree.VARIABLE_INTEGER) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_INTEGER, mId);
+          compiler.emit(ParseTreeProgram.OP_INT_TO_BOOL);
+          return;
+        } else if (mType == ParseTree.VARIABLE_NUMBER) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_NUMBER, mId);
+          compiler.emit(ParseTreeProgram.OP_NUMBER_TO_BOOL);
+          return;
+        } else if (mType == ParseTree.VARIABLE_STRING) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_STRING, mId);
+          compiler.emit(ParseTreeProgram.OP_STRING_TO_BOOL);
+          return;
+        }
+        break;
+      case ParseTree.VARIABLE_INTEGER:
+        if (mType == ParseTree.VARIABLE_INTEGER) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_INTEGER, mId);
+          return;
+        } else if (mType == ParseTree.VARIABLE_ENUM) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_ENUM, mId);
+          return;
+        }
+        break;
+      case ParseTree.VARIABLE_NUMBER:
+        if (mType == ParseTree.VARIABLE_INTEGER) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_INTEGER, mId);
+          compiler.emit(ParseTreeProgram.OP_INT_TO_NUMBER);
+          return;
+        } else if (mType == ParseTree.VARIABLE_NUMBER) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_NUMBER, mId);
+          return;
+        }
+        break;
+      case ParseTree.VARIABLE_STRING:
+        if (mType == ParseTree.VARIABLE_STRING) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_STRING, mId);
+          return;
+        }
+        break;
+      case ParseTree.VARIABLE_REFERENCE:
+        if (mType == ParseTree.VARIABLE_REFERENCE) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_REFERENCE, mId);
+          return;
+        }
+        break;
+      case ParseTree.VARIABLE_ARRAY:
+        if (mType == ParseTree.VARIABLE_ARRAY) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_ARRAY, mId);
+          return;
+        }
+        break;
+      case ParseTree.VARIABLE_CHILD_ARRAY:
+        if (mType == ParseTree.VARIABLE_CHILD_ARRAY) {
+          compiler.emit(ParseTreeProgram.OP_LOAD_CHILD_ARRAY, mId);
+          return;
+        }
+        break;
+      default: // fall out
+    }
+
+    // Type mismatches are logged by the node-walking evaluator.
+    super.compile(compiler, type);
+  }
+
+  @Override
+  void compileArrayLength(ParseTreeCompiler compiler) {
+    if (mType == ParseTree.VARIABLE_ARRAY || mType == ParseTree.VARIABLE_CHILD_ARRAY) {
+      compiler.emit(ParseTreeProgram.OP_LOAD_ARRAY_LENGTH, mId);
+    } else {
+      super.compileArrayLength(compiler);
+    }
+  }
 }
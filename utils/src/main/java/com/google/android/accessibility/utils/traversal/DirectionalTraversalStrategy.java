@@ -60,6 +60,38 @@ public class DirectionalTraversalStrategy implements TraversalStrategy {
   /** Cache of nodes that have speech for use by AccessibilityNodeInfoUtils. */
   private final Map<AccessibilityNodeInfoCompat, Boolean> mSpeakingNodesCache = new HashMap<>();
 
+  /**
+   * Number of consecutive focusables that share an entry in {@link #mBlockBounds}. Focusables are
+   * in hierarchy order, so consecutive ones tend to be close together on screen.
+   */
+  private static final int BLOCK_SIZE = 16;
+
+  // Indices of the values stored for each block in mBlockBounds.
+  private static final int BLOCK_MIN_LEFT = 0;
+  private static final int BLOCK_MIN_TOP = 1;
+  private static final int BLOCK_MAX_RIGHT = 2;
+  private static final int BLOCK_MAX_BOTTOM = 3;
+  private static final int BLOCK_MIN_CENTER_X = 4;
+  private static final int BLOCK_MAX_CENTER_X = 5;
+  private static final int BLOCK_MIN_CENTER_Y = 6;
+  private static final int BLOCK_MAX_CENTER_Y = 7;
+  private static final int BLOCK_STRIDE = 8;
+
+  /**
+   * The assumed rect of each focusable in mFocusables, from {@link #getAssumedRectInScreen}, stored
+   * as left, top, right, bottom.
+   */
+  private int[] mFocusableRects = new int[0];
+
+  /**
+   * For each block of focusables, the bounds of their rects and of their centers, so that a search
+   * can skip blocks that can't contain a better candidate.
+   */
+  private int[] mBlockBounds = new int[0];
+
+  /** Reused by findFocus() for the rect of each candidate. */
+  private final Rect mCandidateRect = new Rect();
+
   public DirectionalTraversalStrategy(AccessibilityNodeInfoCompat root, FocusFinder focusFinder) {
     mRoot = AccessibilityNodeInfoCompat.obtain(root);
     this.focusFinder = focusFinder;
@@ -81,6 +113,64 @@ public class DirectionalTraversalStrategy implements TraversalStrategy {
       recycle(false /* recycleRoot */);
       processNodes(mRoot, true /* forceRefresh */);
     }
+
+    indexFocusables();
+  }
+
+  /**
+   * Caches the assumed rect of every focusable, and the bounds of each block of focusables. Must
+   * be called after processNodes(), once mContainers is complete.
+   */
+  private void indexFocusables() {
+    int count = mFocusables.size();
+    if (mFocusableRects.length < count * 4) {
+      mFocusableRects = new int[count * 4];
+    }
+    int blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    if (mBlockBounds.length < blockCount * BLOCK_STRIDE) {
+      mBlockBounds = new int[blockCount * BLOCK_STRIDE];
+    }
+
+    Rect rect = mCandidateRect;
+    for (int i = 0; i < count; i++) {
+      getAssumedRectInScreen(mFocusables.get(i), rect);
+      mFocusableRects[i * 4] = rect.left;
+      mFocusableRects[i * 4 + 1] = rect.top;
+      mFocusableRects[i * 4 + 2] = rect.right;
+      mFocusableRects[i * 4 + 3] = rect.bottom;
+
+      // Centers are computed as in minorAxisDistance().
+      int centerX = rect.left + rect.width() / 2;
+      int centerY = rect.top + rect.height() / 2;
+      int block = (i / BLOCK_SIZE) * BLOCK_STRIDE;
+      if (i % BLOCK_SIZE == 0) {
+        mBlockBounds[block + BLOCK_MIN_LEFT] = rect.left;
+        mBlockBounds[block + BLOCK_MIN_TOP] = rect.top;
+        mBlockBounds[block + BLOCK_MAX_RIGHT] = rect.right;
+        mBlockBounds[block + BLOCK_MAX_BOTTOM] = rect.bottom;
+        mBlockBounds[block + BLOCK_MIN_CENTER_X] = centerX;
+        mBlockBounds[block + BLOCK_MAX_CENTER_X] = centerX;
+        mBlockBounds[block + BLOCK_MIN_CENTER_Y] = centerY;
+        mBlockBounds[block + BLOCK_MAX_CENTER_Y] = centerY;
+      } else {
+        mBlockBounds[block + BLOCK_MIN_LEFT] =
+            Math.min(mBlockBounds[block + BLOCK_MIN_LEFT], rect.left);
+        mBlockBounds[block + BLOCK_MIN_TOP] =
+            Math.min(mBlockBounds[block + BLOCK_MIN_TOP], rect.top);
+        mBlockBounds[block + BLOCK_MAX_RIGHT] =
+            Math.max(mBlockBounds[block + BLOCK_MAX_RIGHT], rect.right);
+        mBlockBounds[block + BLOCK_MAX_BOTTOM] =
+            Math.max(mBlockBounds[block + BLOCK_MAX_BOTTOM], rect.bottom);
+        mBlockBounds[block + BLOCK_MIN_CENTER_X] =
+            Math.min(mBlockBounds[block + BLOCK_MIN_CENTER_X], centerX);
+        mBlockBounds[block + BLOCK_MAX_CENTER_X] =
+            Math.max(mBlockBounds[block + BLOCK_MAX_CENTER_X], centerX);
+        mBlockBounds[block + BLOCK_MIN_CENTER_Y] =
+            Math.min(mBlockBounds[block + BLOCK_MIN_CENTER_Y], centerY);
+        mBlockBounds[block + BLOCK_MAX_CENTER_Y] =
+            Math.max(mBlockBounds[block + BLOCK_MAX_CENTER_Y], centerY);
+      }
+    }
   }
 
   /**
@@ -178,19 +268,47 @@ public class DirectionalTraversalStrategy implements TraversalStrategy {
       default: // fall out
     }
 
+    // Candidates are compared in the same order as a linear scan, so ties are broken the same way,
+    // but blocks of focusables that can't hold a better candidate than the best so far are skipped.
     AccessibilityNodeInfoCompat closest = null;
-    for (AccessibilityNodeInfoCompat focusable : mFocusables) {
-      // Skip the currently-focused view.
-      if (focusable.equals(focused) || focusable.equals(mRoot)) {
+    boolean closestInBeam = false;
+    int closestDistance = Integer.MAX_VALUE;
+    Rect otherRect = mCandidateRect;
+    int count = mFocusables.size();
+    for (int blockStart = 0; blockStart < count; blockStart += BLOCK_SIZE) {
+      if (!blockMayHaveBetterCandidate(
+          blockStart / BLOCK_SIZE,
+          direction,
+          focusedRect,
+          closest != null,
+          closestInBeam,
+          closestDistance)) {
         continue;
       }
 
-      Rect otherRect = new Rect();
-      getAssumedRectInScreen(focusable, otherRect);
+      int blockEnd = Math.min(blockStart + BLOCK_SIZE, count);
+      for (int i = blockStart; i < blockEnd; i++) {
+        AccessibilityNodeInfoCompat focusable = mFocusables.get(i);
+        // Skip the currently-focused view.
+        if (focusable.equals(focused) || focusable.equals(mRoot)) {
+          continue;
+        }
 
-      if (isBetterCandidate(direction, focusedRect, otherRect, bestCandidateRect)) {
-        bestCandidateRect.set(otherRect);
-        closest = focusable;
+        otherRect.set(
+            mFocusableRects[i * 4],
+            mFocusableRects[i * 4 + 1],
+            mFocusableRects[i * 4 + 2],
+            mFocusableRects[i * 4 + 3]);
+
+        if (isBetterCandidate(direction, focusedRect, otherRect, bestCandidateRect)) {
+          bestCandidateRect.set(otherRect);
+          closest = focusable;
+          closestInBeam = beamsOverlap(direction, focusedRect, bestCandidateRect);
+          closestDistance =
+              getWeightedDistanceFor(
+                  majorAxisDistance(direction, focusedRect, bestCandidateRect),
+                  minorAxisDistance(direction, focusedRect, bestCandidateRect));
+        }
       }
     }
 
@@ -201,6 +319,86 @@ public class DirectionalTraversalStrategy implements TraversalStrategy {
     return null;
   }
 
+  /**
+   * Returns whether a block of focusables may contain a rect that {@link #isBetterCandidate}
+   * prefers to the best candidate found so far. Returning true is always safe.
+   *
+   * <p>A rect can only beat a candidate if it is a candidate itself, and if it is either closer by
+   * weighted distance, or in the source beam when the best candidate is not.
+   */
+  private boolean blockMayHaveBetterCandidate(
+      int block,
+      int direction,
+      Rect source,
+      boolean hasCandidate,
+      boolean candidateInBeam,
+      int candidateDistance) {
+    int offset = block * BLOCK_STRIDE;
+    int minLeft = mBlockBounds[offset + BLOCK_MIN_LEFT];
+    int minTop = mBlockBounds[offset + BLOCK_MIN_TOP];
+    int maxRight = mBlockBounds[offset + BLOCK_MAX_RIGHT];
+    int maxBottom = mBlockBounds[offset + BLOCK_MAX_BOTTOM];
+    int sourceCenterX = source.left + source.width() / 2;
+    int sourceCenterY = source.top + source.height() / 2;
+
+    // Lower bounds of the major and minor axis distances of any rect in the block, and whether any
+    // rect in the block may overlap the source beam.
+    int majorDistance;
+    int minorDistance;
+    boolean mayBeInBeam;
+    switch (direction) {
+      case TraversalStrategy.SEARCH_FOCUS_LEFT:
+        if (minLeft >= source.left) {
+          return false; // No candidates.
+        }
+        majorDistance = source.left - maxRight;
+        minorDistance = distanceToRange(sourceCenterY, offset, BLOCK_MIN_CENTER_Y);
+        mayBeInBeam = (maxBottom >= source.top) && (minTop <= source.bottom);
+        break;
+      case TraversalStrategy.SEARCH_FOCUS_RIGHT:
+        if (maxRight <= source.right) {
+          return false;
+        }
+        majorDistance = minLeft - source.right;
+        minorDistance = distanceToRange(sourceCenterY, offset, BLOCK_MIN_CENTER_Y);
+        mayBeInBeam = (maxBottom >= source.top) && (minTop <= source.bottom);
+        break;
+      case TraversalStrategy.SEARCH_FOCUS_UP:
+        if (minTop >= source.top) {
+          return false;
+        }
+        majorDistance = source.top - maxBottom;
+        minorDistance = distanceToRange(sourceCenterX, offset, BLOCK_MIN_CENTER_X);
+        mayBeInBeam = (maxRight >= source.left) && (minLeft <= source.right);
+        break;
+      case TraversalStrategy.SEARCH_FOCUS_DOWN:
+        if (maxBottom <= source.bottom) {
+          return false;
+        }
+        majorDistance = minTop - source.bottom;
+        minorDistance = distanceToRange(sourceCenterX, offset, BLOCK_MIN_CENTER_X);
+        mayBeInBeam = (maxRight >= source.left) && (minLeft <= source.right);
+        break;
+      default:
+        return true;
+    }
+
+    if (!hasCandidate || (mayBeInBeam && !candidateInBeam)) {
+      return true;
+    }
+    return getWeightedDistanceFor(Math.max(0, majorDistance), minorDistance) < candidateDistance;
+  }
+
+  /** Returns the distance from {@code value} to the range of block centers at {@code min}. */
+  private int distanceToRange(int value, int blockOffset, int min) {
+    int rangeMin = mBlockBounds[blockOffset + min];
+    int rangeMax = mBlockBounds[blockOffset + min + 1];
+    if (value < rangeMin) {
+      return rangeMin - value;
+    }
+    return (value > rangeMax) ? value - rangeMax : 0;
+  }
+
   /**
    * Selects an item to focus when there is no current accessibility focus.
    *
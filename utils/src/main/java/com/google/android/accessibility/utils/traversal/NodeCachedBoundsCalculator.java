@@ -29,9 +29,10 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 /**
  * Calculates the utility bounds of the node. If node is not supposed to get accessibility focus the
  * utility bounds is calculated on the base of minimum rect that contains all accessibility
- * focusable nodes inside node hierarchy rooted by this node. WARNING: Calculator does not obtain or
- * recycle nodes for performance reason. If any of the nodes that was calculated is recycled the
- * calculator could get wrong results
+ * focusable nodes inside node hierarchy rooted by this node. The calculator keeps a copy of each
+ * node it calculated, so cached bounds stay valid after the caller recycles its nodes. A calculator
+ * that is kept while nodes change must be told which bounds are out of date, see {@link
+ * #refreshBounds} and {@link #invalidate}.
  */
 public class NodeCachedBoundsCalculator {
 
@@ -57,6 +58,30 @@ public class NodeCachedBoundsCalculator {
     return bounds;
   }
 
+  /**
+   * Drops the cached bounds of {@code node} and calculates them again. The bounds of {@code node}'s
+   * descendants that changed must be dropped first.
+   *
+   * @return whether the bounds changed, or true if none were cached
+   */
+  public boolean refreshBounds(AccessibilityNodeInfoCompat node) {
+    Rect oldBounds = mBoundsMap.remove(node);
+    return !getBoundsInternal(node).equals(oldBounds);
+  }
+
+  /**
+   * Drops the cached bounds of {@code node}. The bounds of its ancestors, which may be calculated
+   * from them, must be dropped or refreshed too.
+   */
+  public void invalidate(AccessibilityNodeInfoCompat node) {
+    mBoundsMap.remove(node);
+  }
+
+  /** Drops all cached bounds. */
+  public void clear() {
+    mBoundsMap.clear();
+  }
+
   private Rect getBoundsInternal(AccessibilityNodeInfoCompat node) {
     if (node == null) {
       return EMPTY_RECT;
@@ -71,7 +96,7 @@ public class NodeCachedBoundsCalculator {
     if (bounds == null) {
       mCalculatingNodes.add(node);
       bounds = fetchBound(node);
-      mBoundsMap.put(node, bounds);
+      mBoundsMap.put(AccessibilityNodeInfoCompat.obtain(node), bounds);
       mCalculatingNodes.remove(node);
     }
 
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.utils.traversal;
+
+import android.view.accessibility.AccessibilityEvent;
+import androidx.annotation.VisibleForTesting;
+import androidx.collection.LruCache;
+import androidx.core.view.accessibility.AccessibilityEventCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import com.google.android.accessibility.utils.AccessibilityEventListener;
+import com.google.android.accessibility.utils.AccessibilityEventUtils;
+import com.google.android.accessibility.utils.AccessibilityNodeInfoUtils;
+import com.google.android.accessibility.utils.BuildVersionUtils;
+import com.google.android.accessibility.utils.FocusFinder;
+import com.google.android.accessibility.utils.Performance.EventId;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Keeps the {@link OrderedTraversalStrategy} of recently navigated windows across navigation
+ * gestures, so that each forward/backward step doesn't re-order the whole node tree.
+ *
+ * <p>When an event reports that a subtree of a cached window changed, only that subtree is
+ * re-ordered, see {@link OrderedTraversalController#invalidateSubtree}. A window's strategy is
+ * dropped when its content can't be updated in place, or when the window itself changes.
+ */
+public class OrderedTraversalCache implements AccessibilityEventListener {
+
+  private static final int MAX_WINDOWS = 4;
+
+  /** Events after which a cached traversal order may be out of date. */
+  private static final int MASK_EVENTS_CHANGING_ORDER =
+      AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
+          | AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED
+          | AccessibilityEvent.TYPE_WINDOWS_CHANGED
+          | AccessibilityEvent.TYPE_VIEW_TEXT_CHANGED
+          | AccessibilityEvent.TYPE_VIEW_SCROLLED;
+
+  /** Content changes that only change properties of the source node, not its descendants. */
+  private static final int CONTENT_CHANGE_TYPES_NODE_ONLY =
+      AccessibilityEventCompat.CONTENT_CHANGE_TYPE_TEXT
+          | AccessibilityEventCompat.CONTENT_CHANGE_TYPE_CONTENT_DESCRIPTION
+          | AccessibilityEventCompat.CONTENT_CHANGE_TYPE_STATE_DESCRIPTION;
+
+  /** Window changes after which a window's nodes may have moved. */
+  private static final int WINDOWS_CHANGE_TYPES_CHANGING_ORDER =
+      AccessibilityEvent.WINDOWS_CHANGE_REMOVED
+          | AccessibilityEvent.WINDOWS_CHANGE_BOUNDS
+          | AccessibilityEvent.WINDOWS_CHANGE_PARENT
+          | AccessibilityEvent.WINDOWS_CHANGE_CHILDREN;
+
+  // Keys are window ids. Strategies are owned by the cache.
+  private final LruCache<Integer, OrderedTraversalStrategy> mStrategies =
+      new LruCache<Integer, OrderedTraversalStrategy>(MAX_WINDOWS) {
+        @Override
+        protected void entryRemoved(
+            boolean evicted,
+            Integer windowId,
+            OrderedTraversalStrategy oldValue,
+            @Nullable OrderedTraversalStrategy newValue) {
+          oldValue.recycle();
+        }
+      };
+
+  /**
+   * Returns a traversal strategy like {@link TraversalStrategyUtils#getTraversalStrategy}. For
+   * logical directions, the strategy of {@code root}'s window is reused if it has the same root.
+   * The caller must recycle the returned strategy, which doesn't recycle the cached one.
+   */
+  public TraversalStrategy getTraversalStrategy(
+      AccessibilityNodeInfoCompat root,
+      FocusFinder focusFinder,
+      @TraversalStrategy.SearchDirection int direction) {
+    if (root == null || TraversalStrategyUtils.isSpatialDirection(direction)) {
+      return TraversalStrategyUtils.getTraversalStrategy(root, focusFinder, direction);
+    }
+
+    int windowId = root.getWindowId();
+    OrderedTraversalStrategy strategy = mStrategies.get(windowId);
+    if (strategy == null || !root.equals(strategy.getRootNode())) {
+      strategy = new OrderedTraversalStrategy(root);
+      mStrategies.put(windowId, strategy);
+    }
+    return new RetainedTraversalStrategy(strategy);
+  }
+
+  /** Drops all cached traversal orders. */
+  public void clear() {
+    mStrategies.evictAll();
+  }
+
+  /** Returns the cached strategy of window {@code windowId}, which the caller must not recycle. */
+  @VisibleForTesting
+  @Nullable OrderedTraversalStrategy getCachedStrategy(int windowId) {
+    return mStrategies.get(windowId);
+  }
+
+  @Override
+  public int getEventTypes() {
+    return MASK_EVENTS_CHANGING_ORDER;
+  }
+
+  @Override
+  public void onAccessibilityEvent(AccessibilityEvent event, EventId eventId) {
+    int windowId = event.getWindowId();
+    switch (event.getEventType()) {
+      case AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED:
+        mStrategies.remove(windowId);
+        return;
+      case AccessibilityEvent.TYPE_WINDOWS_CHANGED:
+        if (!BuildVersionUtils.isAtLeastP()) {
+          clear();
+        } else if ((event.getWindowChanges() & WINDOWS_CHANGE_TYPES_CHANGING_ORDER) != 0) {
+          mStrategies.remove(windowId);
+        }
+        return;
+      default: // fall out
+    }
+
+    OrderedTraversalStrategy strategy = mStrategies.get(windowId);
+    if (strategy == null) {
+      return;
+    }
+
+    AccessibilityNodeInfoCompat source = AccessibilityEventUtils.sourceCompat(event);
+    try {
+      if (source == null || !strategy.invalidateSubtree(source, isStructureChange(event))) {
+        mStrategies.remove(windowId);
+      }
+    } finally {
+      AccessibilityNodeInfoUtils.recycleNodes(source);
+    }
+  }
+
+  /** Returns whether {@code event} may have added, removed or moved descendants of its source. */
+  private static boolean isStructureChange(AccessibilityEvent event) {
+    switch (event.getEventType()) {
+      case AccessibilityEvent.TYPE_VIEW_TEXT_CHANGED:
+        return false;
+      case AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED:
+        int changeTypes = event.getContentChangeTypes();
+        return (changeTypes == AccessibilityEventCompat.CONTENT_CHANGE_TYPE_UNDEFINED)
+            || ((changeTypes & ~CONTENT_CHANGE_TYPES_NODE_ONLY) != 0);
+      default:
+        return true;
+    }
+  }
+
+  /** Delegates to a cached strategy, which is recycled by the cache instead of by the caller. */
+  private static final class RetainedTraversalStrategy implements TraversalStrategy {
+
+    private final OrderedTraversalStrategy mStrategy;
+
+    RetainedTraversalStrategy(OrderedTraversalStrategy strategy) {
+      mStrategy = strategy;
+    }
+
+    @Override
+    public @Nullable AccessibilityNodeInfoCompat findFocus(
+        AccessibilityNodeInfoCompat startNode, @SearchDirection int direction) {
+      return mStrategy.findFocus(startNode, direction);
+    }
+
+    @Override
+    public @Nullable AccessibilityNodeInfoCompat focusInitial(
+        AccessibilityNodeInfoCompat root, @SearchDirection int direction) {
+      return mStrategy.focusInitial(root, direction);
+    }
+
+    @Override
+    public Map<AccessibilityNodeInfoCompat, Boolean> getSpeakingNodesCache() {
+      return mStrategy.getSpeakingNodesCache();
+    }
+
+    @Override
+    public void recycle() {
+      // The cache owns mStrategy.
+    }
+  }
+}
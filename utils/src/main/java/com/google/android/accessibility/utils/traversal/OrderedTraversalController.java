@@ -18,21 +18,44 @@ package com.google.android.accessibility.utils.traversal;
 
 import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
 import android.view.accessibility.AccessibilityNodeInfo;
+import androidx.annotation.IntDef;
 import com.google.android.accessibility.utils.AccessibilityNodeInfoUtils;
+import com.google.android.accessibility.utils.Filter;
 import com.google.android.accessibility.utils.TreeDebug;
 import com.google.android.accessibility.utils.WebInterfaceUtils;
 import com.google.android.libraries.accessibility.utils.log.LogUtils;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 public class OrderedTraversalController {
 
   private static final String TAG = "OrderedTraversalCont";
 
+  /** Results of {@link #reorderChildren}. */
+  @IntDef({REORDER_FAILED, REORDER_UNCHANGED, REORDER_CHANGED})
+  @Retention(RetentionPolicy.SOURCE)
+  private @interface ReorderResult {}
+
+  private static final int REORDER_FAILED = 0;
+  private static final int REORDER_UNCHANGED = 1;
+  private static final int REORDER_CHANGED = 2;
+
   @Nullable private WorkingTree mTree;
   private Map<AccessibilityNodeInfoCompat, WorkingTree> mNodeTreeMap;
   private Map<AccessibilityNodeInfoCompat, Boolean> mSpeakNodesCache;
+  // Kept after initOrder(), so that invalidateSubtree() only fetches the bounds that changed.
+  private final NodeCachedBoundsCalculator mBoundsCalculator = new NodeCachedBoundsCalculator();
+  private boolean mIncludeChildrenOfNodesWithWebActions;
+
+  /** Whether reorderTree() found any node with a custom traversal before/after view. */
+  private boolean mHasCustomTraversalOrder;
 
   public OrderedTraversalController() {
     mNodeTreeMap = new LinkedHashMap<>();
@@ -40,6 +63,7 @@ public class OrderedTraversalController {
 
   public void setSpeakNodesCache(Map<AccessibilityNodeInfoCompat, Boolean> speakNodeCache) {
     mSpeakNodesCache = speakNodeCache;
+    mBoundsCalculator.setSpeakNodesCache(speakNodeCache);
   }
 
   /**
@@ -60,13 +84,13 @@ public class OrderedTraversalController {
       return;
     }
 
-    NodeCachedBoundsCalculator boundsCalculator = new NodeCachedBoundsCalculator();
-    boundsCalculator.setSpeakNodesCache(mSpeakNodesCache);
+    mIncludeChildrenOfNodesWithWebActions = includeChildrenOfNodesWithWebActions;
+    mBoundsCalculator.clear();
     mTree =
         createWorkingTree(
             AccessibilityNodeInfoCompat.obtain(compatRoot),
             null,
-            boundsCalculator,
+            mBoundsCalculator,
             includeChildrenOfNodesWithWebActions);
     reorderTree();
   }
@@ -100,8 +124,17 @@ public class OrderedTraversalController {
       return tree;
     }
 
+    addChildren(tree, boundsCalculator, includeChildrenOfNodesWithWebActions);
+    return tree;
+  }
+
+  /** Creates the subtrees of the children of {@code tree}'s node, and adds them to {@code tree}. */
+  private void addChildren(
+      WorkingTree tree,
+      NodeCachedBoundsCalculator boundsCalculator,
+      boolean includeChildrenOfNodesWithWebActions) {
     ReorderedChildrenIterator iterator =
-        ReorderedChildrenIterator.createAscendingIterator(rootNode, boundsCalculator);
+        ReorderedChildrenIterator.createAscendingIterator(tree.getNode(), boundsCalculator);
     while (iterator != null && iterator.hasNext()) {
       AccessibilityNodeInfoCompat child = iterator.next();
       WorkingTree childSubTree =
@@ -114,7 +147,6 @@ public class OrderedTraversalController {
     if (iterator != null) {
       iterator.recycle();
     }
-    return tree;
   }
 
   /**
@@ -126,12 +158,14 @@ public class OrderedTraversalController {
       AccessibilityNodeInfoCompat node = subtree.getNode();
       AccessibilityNodeInfoCompat beforeNode = node.getTraversalBefore();
       if (beforeNode != null) {
+        mHasCustomTraversalOrder = true;
         WorkingTree targetTree = mNodeTreeMap.get(beforeNode);
         moveNodeBefore(subtree, targetTree);
         beforeNode.recycle();
       } else {
         AccessibilityNodeInfoCompat afterNode = node.getTraversalAfter();
         if (afterNode != null) {
+          mHasCustomTraversalOrder = true;
           WorkingTree targetTree = mNodeTreeMap.get(afterNode);
           moveNodeAfter(subtree, targetTree);
           afterNode.recycle();
@@ -226,6 +260,182 @@ public class OrderedTraversalController {
     movingTree.setParent(targetTree);
   }
 
+  /**
+   * Updates the order after the subtree rooted at {@code node} changed. Only that subtree is
+   * re-created. The children of its ancestors are re-ordered, because the bounds used to order
+   * them may be computed from their descendants, but their subtrees are kept. Re-ordering stops at
+   * the first ancestor whose children kept their order and whose bounds didn't change, since the
+   * order above it can't have changed either. Bounds of nodes outside the changed subtree and its
+   * ancestors are reused from earlier orderings.
+   *
+   * @param node the root of the changed subtree, such as the source of a content-changed event
+   * @param structureChanged whether descendants of {@code node} may have been added, removed or
+   *     moved. If false, only the properties of {@code node} itself changed.
+   * @return whether the order was updated. If false, the order may be out of date, and the
+   *     controller should be re-initialized with {@link #initOrder}.
+   */
+  public boolean invalidateSubtree(AccessibilityNodeInfoCompat node, boolean structureChanged) {
+    if (mTree == null || node == null || mHasCustomTraversalOrder) {
+      // Traversal before/after views can move subtrees anywhere, so only initOrder() handles them.
+      return false;
+    }
+
+    // If the node is new, the closest ancestor in the tree gained a descendant.
+    WorkingTree tree = findSelfOrClosestAncestorTree(node);
+    if (tree == null) {
+      return false;
+    }
+    if (!node.equals(tree.getNode())) {
+      structureChanged = true;
+    }
+    if (tree.getParent() == null) {
+      return false; // Re-creating the root is no cheaper than initOrder().
+    }
+
+    mBoundsCalculator.invalidate(tree.getNode());
+
+    // A node that is gone is dropped when its parent's children are re-ordered below.
+    if (tree.getNode().refresh()) {
+      if (structureChanged) {
+        for (WorkingTree child : tree.getChildren()) {
+          removeSubtree(child);
+        }
+        tree.setChildren(new ArrayList<>());
+        if (mIncludeChildrenOfNodesWithWebActions
+            || !WebInterfaceUtils.supportsWebActions(tree.getNode())) {
+          addChildren(tree, mBoundsCalculator, mIncludeChildrenOfNodesWithWebActions);
+        }
+      }
+      if (hasCustomTraversalOrder(tree, structureChanged)) {
+        return false;
+      }
+    }
+
+    for (WorkingTree ancestor = tree.getParent();
+        ancestor != null;
+        ancestor = ancestor.getParent()) {
+      @ReorderResult int result = reorderChildren(ancestor);
+      if (result == REORDER_FAILED) {
+        return false;
+      }
+      if (!mBoundsCalculator.refreshBounds(ancestor.getNode()) && result == REORDER_UNCHANGED) {
+        break;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the tree of {@code node}, or of its closest ancestor that is in the tree. */
+  private @Nullable WorkingTree findSelfOrClosestAncestorTree(AccessibilityNodeInfoCompat node) {
+    AccessibilityNodeInfoCompat match =
+        AccessibilityNodeInfoUtils.getSelfOrMatchingAncestor(
+            node,
+            new Filter<AccessibilityNodeInfoCompat>() {
+              @Override
+              public boolean accept(AccessibilityNodeInfoCompat candidate) {
+                return mNodeTreeMap.containsKey(candidate);
+              }
+            });
+    if (match == null) {
+      return null;
+    }
+
+    WorkingTree tree = mNodeTreeMap.get(match);
+    match.recycle();
+    return tree;
+  }
+
+  /**
+   * Re-orders the children of {@code tree}, keeping the subtrees of children that are already in
+   * the tree, creating subtrees for new children, and removing those of children that are gone.
+   *
+   * @return {@link #REORDER_FAILED} if the children can't be re-ordered without re-creating the
+   *     whole tree, otherwise whether the children or their order changed
+   */
+  private @ReorderResult int reorderChildren(WorkingTree tree) {
+    if (!mIncludeChildrenOfNodesWithWebActions
+        && WebInterfaceUtils.supportsWebActions(tree.getNode())) {
+      return REORDER_UNCHANGED; // Children of web content are not ordered.
+    }
+
+    // Not owner of contained nodes, do not call recycle().
+    Set<WorkingTree> oldChildren = new HashSet<>(tree.getChildren());
+    List<WorkingTree> children = new ArrayList<>();
+    boolean reordered = true;
+    ReorderedChildrenIterator iterator =
+        ReorderedChildrenIterator.createAscendingIterator(tree.getNode(), mBoundsCalculator);
+    while (iterator != null && iterator.hasNext()) {
+      AccessibilityNodeInfoCompat child = iterator.next();
+      WorkingTree childSubTree = mNodeTreeMap.get(child);
+      if (childSubTree != null) {
+        child.recycle();
+        if (!oldChildren.remove(childSubTree)) {
+          reordered = false; // The child moved here from elsewhere in the tree.
+          break;
+        }
+        children.add(childSubTree);
+      } else {
+        childSubTree =
+            createWorkingTree(
+                child, tree, mBoundsCalculator, mIncludeChildrenOfNodesWithWebActions);
+        if (childSubTree != null) {
+          children.add(childSubTree);
+          if (hasCustomTraversalOrder(childSubTree, /* includeDescendants= */ true)) {
+            reordered = false;
+            break;
+          }
+        }
+      }
+    }
+
+    if (iterator != null) {
+      iterator.recycle();
+    }
+    if (!reordered) {
+      return REORDER_FAILED;
+    }
+    if (oldChildren.isEmpty() && children.equals(tree.getChildren())) {
+      return REORDER_UNCHANGED;
+    }
+
+    for (WorkingTree removedChild : oldChildren) {
+      removeSubtree(removedChild);
+    }
+    tree.setChildren(children);
+    return REORDER_CHANGED;
+  }
+
+  /** Removes {@code tree} and its descendants from mNodeTreeMap, and recycles their nodes. */
+  private void removeSubtree(WorkingTree tree) {
+    for (WorkingTree child : tree.getChildren()) {
+      removeSubtree(child);
+    }
+
+    AccessibilityNodeInfoCompat node = tree.getNode();
+    mNodeTreeMap.remove(node);
+    mBoundsCalculator.invalidate(node);
+    node.recycle();
+  }
+
+  /** Returns whether the node of {@code tree}, or a descendant's, has a traversal before/after. */
+  private static boolean hasCustomTraversalOrder(WorkingTree tree, boolean includeDescendants) {
+    AccessibilityNodeInfoCompat node = tree.getNode();
+    AccessibilityNodeInfoCompat beforeNode = node.getTraversalBefore();
+    AccessibilityNodeInfoCompat afterNode = node.getTraversalAfter();
+    boolean hasCustomOrder = (beforeNode != null) || (afterNode != null);
+    AccessibilityNodeInfoUtils.recycleNodes(beforeNode, afterNode);
+    if (hasCustomOrder || !includeDescendants) {
+      return hasCustomOrder;
+    }
+
+    for (WorkingTree child : tree.getChildren()) {
+      if (hasCustomTraversalOrder(child, /* includeDescendants= */ true)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public @Nullable AccessibilityNodeInfoCompat findNext(AccessibilityNodeInfoCompat node) {
     WorkingTree tree = mNodeTreeMap.get(node);
     if (tree == null) {
@@ -307,6 +517,7 @@ public class OrderedTraversalController {
     }
 
     mNodeTreeMap.clear();
+    mBoundsCalculator.clear();
   }
 
   /** Dumps the traversal order tree. */
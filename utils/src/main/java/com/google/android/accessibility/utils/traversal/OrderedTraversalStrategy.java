@@ -62,6 +62,24 @@ public class OrderedTraversalStrategy implements TraversalStrategy {
     return mSpeakingNodesCache;
   }
 
+  /** Returns the root node within which to traverse. Not owned by the caller. */
+  @Nullable AccessibilityNodeInfoCompat getRootNode() {
+    return mRootNode;
+  }
+
+  /**
+   * Updates the traversal order after the subtree rooted at {@code node} changed. See {@link
+   * OrderedTraversalController#invalidateSubtree}.
+   *
+   * @return whether the order was updated. If false, this strategy is out of date and should be
+   *     replaced.
+   */
+  public boolean invalidateSubtree(AccessibilityNodeInfoCompat node, boolean structureChanged) {
+    // Whether a node should be focused can depend on its descendants, so drop all cached results.
+    mSpeakingNodesCache.clear();
+    return mController.invalidateSubtree(node, structureChanged);
+  }
+
   @Override
   public @Nullable AccessibilityNodeInfoCompat findFocus(
       AccessibilityNodeInfoCompat startNode, @SearchDirection int direction) {
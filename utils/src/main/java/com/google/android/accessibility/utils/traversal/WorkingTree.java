@@ -58,6 +58,17 @@ public class WorkingTree {
     return mChildren.remove(child);
   }
 
+  /** Returns the children in traversal order. Callers must not modify the returned list. */
+  List<WorkingTree> getChildren() {
+    return mChildren;
+  }
+
+  /** Replaces the children with {@code children}, in traversal order. */
+  void setChildren(List<WorkingTree> children) {
+    mChildren.clear();
+    mChildren.addAll(children);
+  }
+
   /** Checks whether subTree is a descendant of this WorkingTree node. */
   public boolean hasDescendant(@Nullable WorkingTree tree) {
 
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.utils.output;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.android.accessibility.utils.Performance;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Checks where {@link FeedbackProcessingUtils#splitLongText} splits long text. */
+@RunWith(RobolectricTestRunner.class)
+public final class FeedbackProcessingUtilsTest {
+
+  /** A sentence of exactly 40 characters. */
+  private static final String SENTENCE = "The quick brown fox jumps over the dog. ";
+
+  @Test
+  public void splitLongText_shortText_isNotSplit() {
+    String text = repeat("word ", 31);
+
+    List<FeedbackFragment> fragments = split(text);
+
+    assertThat(fragments).hasSize(1);
+    assertThat(fragments.get(0).getText().toString()).isEqualTo(text);
+  }
+
+  @Test
+  public void splitLongText_sentences_firstFragmentEndsAtFirstSentence() {
+    String text = "Hi. " + repeat(SENTENCE, 10);
+
+    List<FeedbackFragment> fragments = split(text);
+
+    // The second fragment holds the sentences that fit in 160 characters, the third the rest.
+    assertThat(getTexts(fragments))
+        .containsExactly("Hi. ", repeat(SENTENCE, 4), repeat(SENTENCE, 6))
+        .inOrder();
+    assertFragmentsCover(fragments, text);
+  }
+
+  @Test
+  public void splitLongText_noSentenceBoundary_endsFragmentsAfterClauses() {
+    // A single sentence, with a comma every 12 characters.
+    String text = repeat("alpha beta, ", 20);
+
+    List<FeedbackFragment> fragments = split(text);
+
+    // The last comma before 80 characters is at 70, the last before 71 + 160 is at 226.
+    assertThat(getLengths(fragments)).containsExactly(71, 156, 13).inOrder();
+    assertFragmentsCover(fragments, text);
+  }
+
+  @Test
+  public void splitLongText_noClause_endsFragmentsAtSpaces() {
+    String text = repeat("word ", 100);
+
+    List<FeedbackFragment> fragments = split(text);
+
+    // Spaces are at 5n + 4, so fragments end at the spaces at 79 and 239.
+    assertThat(getLengths(fragments)).containsExactly(79, 160, 261).inOrder();
+    assertFragmentsCover(fragments, text);
+  }
+
+  @Test
+  public void splitLongText_noSpaces_doublesFragmentLength() {
+    String text = repeat("a", 1000);
+
+    List<FeedbackFragment> fragments = split(text);
+
+    assertThat(getLengths(fragments)).containsExactly(80, 160, 320, 440).inOrder();
+    assertFragmentsCover(fragments, text);
+  }
+
+  @Test
+  public void splitLongText_veryLongText_capsFragmentLength() {
+    int maxFragmentLength = FeedbackProcessingUtils.MAX_UTTERANCE_LENGTH - 1;
+    String text = repeat("a", 3 * FeedbackProcessingUtils.MAX_UTTERANCE_LENGTH);
+
+    List<FeedbackFragment> fragments = split(text);
+
+    List<Integer> expectedLengths = new ArrayList<>();
+    int remaining = text.length();
+    for (int length = 80; remaining > length; length = Math.min(2 * length, maxFragmentLength)) {
+      expectedLengths.add(length);
+      remaining -= length;
+    }
+    expectedLengths.add(remaining);
+    assertThat(getLengths(fragments)).containsExactlyElementsIn(expectedLengths).inOrder();
+    assertThat(getLengths(fragments)).contains(maxFragmentLength);
+    for (FeedbackFragment fragment : fragments) {
+      assertThat(fragment.getText().length()).isAtMost(maxFragmentLength);
+    }
+    assertFragmentsCover(fragments, text);
+  }
+
+  private static List<FeedbackFragment> split(String text) {
+    FeedbackItem item = new FeedbackItem(Performance.EVENT_ID_UNTRACKED);
+    item.addFragment(new FeedbackFragment(text, /* speechParams= */ null));
+    FeedbackProcessingUtils.splitLongText(item);
+    return item.getFragments();
+  }
+
+  /** Checks that the fragments are in order, start where they should, and join to {@code text}. */
+  private static void assertFragmentsCover(List<FeedbackFragment> fragments, String text) {
+    StringBuilder joined = new StringBuilder();
+    for (FeedbackFragment fragment : fragments) {
+      assertThat(fragment.getStartIndexInFeedbackItem()).isEqualTo(joined.length());
+      joined.append(fragment.getText());
+    }
+    assertThat(joined.toString()).isEqualTo(text);
+  }
+
+  private static List<String> getTexts(List<FeedbackFragment> fragments) {
+    List<String> texts = new ArrayList<>();
+    for (FeedbackFragment fragment : fragments) {
+      texts.add(fragment.getText().toString());
+    }
+    return texts;
+  }
+
+  private static List<Integer> getLengths(List<FeedbackFragment> fragments) {
+    List<Integer> lengths = new ArrayList<>();
+    for (FeedbackFragment fragment : fragments) {
+      lengths.add(fragment.getText().length());
+    }
+    return lengths;
+  }
+
+  private static String repeat(String text, int count) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      builder.append(text);
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.utils.parsetree;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import java.util.Locale;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/** Evaluates function calls that re-enter the parse tree while their caller is still running. */
+@RunWith(RobolectricTestRunner.class)
+public final class ParseTreeNestedCallTest {
+
+  private static final int EVENT_OUTER = 1;
+  private static final int EVENT_INNER = 2;
+  private static final int OUTPUT_TEXT = 0;
+  private static final int VARIABLE_WORD = 0;
+
+  private static final String TREE =
+      "{'events': {"
+          + "'EVENT_OUTER': {'text': 'wrap(lookup($word), wrap($word, upper($word)))'},"
+          + "'EVENT_INNER': {'text': 'wrap(upper($word), $word)'}"
+          + "}}";
+
+  @Test
+  public void nestedCall_compiled_matchesExpectedText() throws JSONException {
+    assertThat(evaluate(/* compiled= */ true)).isEqualTo("ab=AB[ab][ab[AB]]");
+  }
+
+  @Test
+  public void nestedCall_walked_matchesExpectedText() throws JSONException {
+    assertThat(evaluate(/* compiled= */ false)).isEqualTo("ab=AB[ab][ab[AB]]");
+  }
+
+  @Test
+  public void nestedCall_repeated_leavesStacksBalanced() throws JSONException {
+    ParseTree tree = createParseTree();
+    WordDelegate delegate = new WordDelegate("ab");
+    for (int i = 0; i < 3; i++) {
+      assertThat(evaluate(tree, delegate)).isEqualTo("ab=AB[ab][ab[AB]]");
+    }
+  }
+
+  private static String evaluate(boolean compiled) throws JSONException {
+    ParseTree tree = createParseTree();
+    tree.setCompiledEvaluationEnabled(compiled);
+    return evaluate(tree, new WordDelegate("ab"));
+  }
+
+  private static String evaluate(ParseTree tree, ParseTree.VariableDelegate delegate) {
+    return String.valueOf(tree.parseEventToString(EVENT_OUTER, OUTPUT_TEXT, delegate));
+  }
+
+  private static ParseTree createParseTree() throws JSONException {
+    Context context = RuntimeEnvironment.getApplication();
+    ParseTree tree = new ParseTree(context.getResources(), context.getPackageName());
+    tree.addEvent("EVENT_OUTER", EVENT_OUTER);
+    tree.addEvent("EVENT_INNER", EVENT_INNER);
+    tree.addStringOutput("text", OUTPUT_TEXT);
+    tree.addStringVariable("word", VARIABLE_WORD);
+    tree.addFunction("wrap", (ParseTree.StringBiFunction) (a, b) -> a + "[" + b + "]");
+    tree.addFunction(
+        "upper", (ParseTree.StringFunction) text -> text.toString().toUpperCase(Locale.ROOT));
+    // Evaluates another event of the same tree from inside a call.
+    tree.addFunction(
+        "lookup",
+        (ParseTree.StringFunction)
+            text ->
+                text
+                    + "="
+                    + tree.parseEventToString(
+                        EVENT_INNER, OUTPUT_TEXT, new WordDelegate(text.toString())));
+    tree.mergeTree(new JSONObject(TREE));
+    tree.build();
+    return tree;
+  }
+
+  /** Supplies a single string variable. */
+  private static final class WordDelegate implements ParseTree.VariableDelegate {
+    private final String word;
+
+    WordDelegate(String word) {
+      this.word = word;
+    }
+
+    @Override
+    public void cleanup() {}
+
+    @Override
+    public boolean getBoolean(int variableId) {
+      return false;
+    }
+
+    @Override
+    public int getInteger(int variableId) {
+      return 0;
+    }
+
+    @Override
+    public double getNumber(int variableId) {
+      return 0;
+    }
+
+    @Override
+    public @Nullable CharSequence getString(int variableId) {
+      return (variableId == VARIABLE_WORD) ? word : null;
+    }
+
+    @Override
+    public int getEnum(int variableId) {
+      return 0;
+    }
+
+    @Override
+    public ParseTree.@Nullable VariableDelegate getReference(int variableId) {
+      return null;
+    }
+
+    @Override
+    public int getArrayLength(int variableId) {
+      return 0;
+    }
+
+    @Override
+    public @Nullable CharSequence getArrayStringElement(int variableId, int index) {
+      return null;
+    }
+
+    @Override
+    public ParseTree.@Nullable VariableDelegate getArrayChildElement(int variableId, int index) {
+      return null;
+    }
+  }
+}
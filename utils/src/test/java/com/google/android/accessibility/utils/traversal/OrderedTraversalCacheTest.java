@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.utils.traversal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import androidx.core.view.accessibility.AccessibilityEventCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import com.google.android.accessibility.utils.Performance;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Checks when {@link OrderedTraversalCache} keeps and drops the order of a window. */
+@RunWith(RobolectricTestRunner.class)
+public final class OrderedTraversalCacheTest {
+
+  private OrderedTraversalCache cache;
+  private AccessibilityNodeInfoCompat root;
+
+  @Before
+  public void setUp() {
+    cache = new OrderedTraversalCache();
+    AccessibilityNodeInfo node = AccessibilityNodeInfo.obtain();
+    node.setVisibleToUser(true);
+    root = AccessibilityNodeInfoCompat.wrap(node);
+  }
+
+  @After
+  public void tearDown() {
+    cache.clear();
+    root.recycle();
+  }
+
+  @Test
+  public void getTraversalStrategy_sameRoot_reusesOrder() {
+    navigate();
+    OrderedTraversalStrategy strategy = cache.getCachedStrategy(root.getWindowId());
+    navigate();
+
+    assertThat(strategy).isNotNull();
+    assertThat(cache.getCachedStrategy(root.getWindowId())).isSameInstanceAs(strategy);
+  }
+
+  @Test
+  public void contentChange_dropsOrderOfWindow() {
+    navigate();
+    AccessibilityEvent event =
+        AccessibilityEvent.obtain(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+    event.setContentChangeTypes(AccessibilityEventCompat.CONTENT_CHANGE_TYPE_SUBTREE);
+
+    // Without a source node, the changed subtree is unknown.
+    cache.onAccessibilityEvent(event, Performance.EVENT_ID_UNTRACKED);
+    event.recycle();
+
+    assertThat(cache.getCachedStrategy(root.getWindowId())).isNull();
+  }
+
+  @Test
+  public void windowStateChange_dropsOrderOfWindow() {
+    navigate();
+    AccessibilityEvent event =
+        AccessibilityEvent.obtain(AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED);
+
+    cache.onAccessibilityEvent(event, Performance.EVENT_ID_UNTRACKED);
+    event.recycle();
+
+    assertThat(cache.getCachedStrategy(root.getWindowId())).isNull();
+  }
+
+  @Test
+  public void clear_dropsAllOrders() {
+    navigate();
+
+    cache.clear();
+
+    assertThat(cache.getCachedStrategy(root.getWindowId())).isNull();
+  }
+
+  /** Gets a strategy for one navigation step, like FocusProcessorForLogicalNavigation does. */
+  private void navigate() {
+    TraversalStrategy strategy =
+        cache.getTraversalStrategy(
+            root, /* focusFinder= */ null, TraversalStrategy.SEARCH_FOCUS_FORWARD);
+    strategy.recycle();
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.accessibility.utils.traversal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.View;
+import android.view.accessibility.AccessibilityNodeInfo;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.util.ReflectionHelpers;
+
+/**
+ * Checks that {@link OrderedTraversalController#invalidateSubtree} gives the same order as a fresh
+ * {@link OrderedTraversalController#initOrder}.
+ *
+ * <p>Robolectric nodes are snapshots that {@code refresh()} doesn't update, so structural changes
+ * are reported on the parent of the changed node, whose snapshot still reaches the changed node.
+ */
+@RunWith(RobolectricTestRunner.class)
+public final class OrderedTraversalControllerTest {
+
+  private Context context;
+  private final List<OrderedTraversalController> controllers = new ArrayList<>();
+
+  // root > content > list > rows
+  private AccessibilityNodeInfo root;
+  private AccessibilityNodeInfo content;
+  private AccessibilityNodeInfo list;
+  private AccessibilityNodeInfo row0;
+  private AccessibilityNodeInfo row1;
+  private AccessibilityNodeInfo row2;
+
+  @Before
+  public void setUp() {
+    context = RuntimeEnvironment.getApplication();
+    root = createNode(/* top= */ 0, /* bottom= */ 300, /* focusable= */ false);
+    content = createNode(/* top= */ 0, /* bottom= */ 300, /* focusable= */ false);
+    list = createNode(/* top= */ 0, /* bottom= */ 300, /* focusable= */ false);
+    row0 = createNode(/* top= */ 0, /* bottom= */ 10, /* focusable= */ true);
+    row1 = createNode(/* top= */ 10, /* bottom= */ 20, /* focusable= */ true);
+    row2 = createNode(/* top= */ 20, /* bottom= */ 30, /* focusable= */ true);
+    setChildren(root, content);
+    setChildren(content, list);
+    setChildren(list, row0, row1, row2);
+  }
+
+  @After
+  public void tearDown() {
+    for (OrderedTraversalController controller : controllers) {
+      controller.recycle();
+    }
+  }
+
+  @Test
+  public void invalidateSubtree_insertedChild_matchesInitOrder() {
+    OrderedTraversalController controller = createController(root);
+    AccessibilityNodeInfo row3 = createNode(/* top= */ 30, /* bottom= */ 40, /* focusable= */ true);
+    setChildren(list, row0, row1, row3, row2);
+
+    assertThat(controller.invalidateSubtree(wrap(content), /* structureChanged= */ true)).isTrue();
+
+    List<AccessibilityNodeInfoCompat> order = getOrder(controller);
+    assertThat(order).contains(wrap(row3));
+    assertThat(order).containsExactlyElementsIn(getOrder(createController(root))).inOrder();
+  }
+
+  @Test
+  public void invalidateSubtree_removedChild_matchesInitOrder() {
+    OrderedTraversalController controller = createController(root);
+    setChildren(list, row0, row2);
+
+    assertThat(controller.invalidateSubtree(wrap(content), /* structureChanged= */ true)).isTrue();
+
+    List<AccessibilityNodeInfoCompat> order = getOrder(controller);
+    assertThat(order).doesNotContain(wrap(row1));
+    assertThat(order).containsExactlyElementsIn(getOrder(createController(root))).inOrder();
+  }
+
+  @Test
+  public void invalidateSubtree_reorderedSiblings_matchesInitOrder() {
+    OrderedTraversalController controller = createController(root);
+    setChildren(list, row2, row0, row1);
+
+    assertThat(controller.invalidateSubtree(wrap(content), /* structureChanged= */ true)).isTrue();
+
+    assertThat(getOrder(controller))
+        .containsExactlyElementsIn(getOrder(createController(root)))
+        .inOrder();
+  }
+
+  @Test
+  public void invalidateSubtree_movedNode_reordersAncestorsLikeInitOrder() {
+    // Groups aren't focusable, so they are ordered by the bounds of their items.
+    AccessibilityNodeInfo groupA =
+        createNode(/* top= */ 0, /* bottom= */ 300, /* focusable= */ false);
+    AccessibilityNodeInfo groupB =
+        createNode(/* top= */ 0, /* bottom= */ 300, /* focusable= */ false);
+    AccessibilityNodeInfo itemA = createNode(/* top= */ 0, /* bottom= */ 10, /* focusable= */ true);
+    AccessibilityNodeInfo itemB =
+        createNode(/* top= */ 50, /* bottom= */ 60, /* focusable= */ true);
+    setChildren(content, groupA, groupB);
+    setChildren(groupA, itemA);
+    setChildren(groupB, itemB);
+    OrderedTraversalController controller = createController(root);
+    assertThat(getOrder(controller).indexOf(wrap(itemA)))
+        .isLessThan(getOrder(controller).indexOf(wrap(itemB)));
+
+    // Only the bounds of itemA change, so its ancestors are re-ordered but its subtree is kept.
+    itemA.setBoundsInScreen(new Rect(0, 100, 100, 110));
+    assertThat(controller.invalidateSubtree(wrap(itemA), /* structureChanged= */ false)).isTrue();
+
+    List<AccessibilityNodeInfoCompat> order = getOrder(controller);
+    assertThat(order.indexOf(wrap(itemA))).isGreaterThan(order.indexOf(wrap(itemB)));
+    assertThat(order).containsExactlyElementsIn(getOrder(createController(root))).inOrder();
+  }
+
+  private OrderedTraversalController createController(AccessibilityNodeInfo rootNode) {
+    OrderedTraversalController controller = new OrderedTraversalController();
+    controller.setSpeakNodesCache(new HashMap<>());
+    controller.initOrder(wrap(rootNode), /* includeChildrenOfNodesWithWebActions= */ false);
+    controllers.add(controller);
+    return controller;
+  }
+
+  private AccessibilityNodeInfo createNode(int top, int bottom, boolean focusable) {
+    // Each node gets its own view, so that nodes are told apart.
+    AccessibilityNodeInfo node = AccessibilityNodeInfo.obtain(new View(context));
+    node.setVisibleToUser(true);
+    node.setBoundsInScreen(new Rect(0, top, 100, bottom));
+    node.setFocusable(focusable);
+    node.setClickable(focusable);
+    return node;
+  }
+
+  /** Replaces the children of {@code parent}, which the shadow only lets tests add to. */
+  private static void setChildren(AccessibilityNodeInfo parent, AccessibilityNodeInfo... children) {
+    List<AccessibilityNodeInfo> oldChildren =
+        ReflectionHelpers.getField(shadowOf(parent), "children");
+    if (oldChildren != null) {
+      oldChildren.clear();
+    }
+    for (AccessibilityNodeInfo child : children) {
+      shadowOf(parent).addChild(child);
+    }
+  }
+
+  /** Returns the nodes of {@code controller} in traversal order. */
+  private static List<AccessibilityNodeInfoCompat> getOrder(OrderedTraversalController controller) {
+    List<AccessibilityNodeInfoCompat> order = new ArrayList<>();
+    AccessibilityNodeInfoCompat node = controller.findFirst();
+    while (node != null) {
+      order.add(node);
+      node = controller.findNext(node);
+    }
+    return order;
+  }
+
+  private static AccessibilityNodeInfoCompat wrap(AccessibilityNodeInfo node) {
+    return AccessibilityNodeInfoCompat.wrap(node);
+  }
+}